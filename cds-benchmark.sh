@@ -0,0 +1,67 @@
+#!/bin/sh
+#
+# Compare startup with and without the AppCDS archive built by
+# "mvn -Pcds package", for each Spring profile. For every run, reports the
+# time from launching the JVM to receiving the first error response (from
+# /local/orderNotFound) and the resident set size (RSS) at that moment.
+#
+# Usage: ./cds-benchmark.sh [runs-per-case]   (default 5; Linux only)
+
+RUNS=${1:-5}
+PORT=${PORT:-8095}
+DIR=target/cds
+JAR=$DIR/mvc-exceptions.jar
+JSA=$DIR/mvc-exceptions.jsa
+
+if [ ! -f "$JSA" ]; then
+	echo "No archive - run: mvn -Pcds package" >&2
+	exit 1
+fi
+
+now_ms() {
+	date +%s%3N
+}
+
+# One run: prints "<milliseconds> <RSS in MB>"
+run() {
+	profile=$1
+	shift
+	start=$(now_ms)
+	java "$@" -Ddemo.profile=$profile -jar $JAR --server.port=$PORT \
+		--logging.level.root=WARN >/dev/null 2>&1 &
+	pid=$!
+
+	until curl -s -o /dev/null http://localhost:$PORT/local/orderNotFound; do
+		sleep 0.02
+	done
+
+	end=$(now_ms)
+	rss=$(awk '/VmRSS/ { print int($2 / 1024) }' /proc/$pid/status)
+	kill $pid
+	wait $pid 2>/dev/null
+	echo "$((end - start)) $rss"
+}
+
+printf "%-12s %-8s %14s %10s\n" profile archive first-error-ms rss-mb
+
+for profile in demo-config java-config xml-config; do
+	for mode in off on; do
+		if [ $mode = on ]; then
+			opts="-XX:SharedArchiveFile=$JSA"
+		else
+			opts="-Xshare:auto"
+		fi
+
+		total_ms=0
+		total_rss=0
+
+		for i in $(seq $RUNS); do
+			set -- $(run $profile $opts)
+			total_ms=$((total_ms + $1))
+			total_rss=$((total_rss + $2))
+		done
+
+		printf "%-12s %-8s %14d %10d\n" $profile $mode \
+			$((total_ms / RUNS)) $((total_rss / RUNS))
+	done
+done
@@ -0,0 +1,83 @@
+#!/bin/sh
+#
+# Compare the embedded containers - Tomcat, Undertow and Jetty - on the
+# error-heavy mix of requests in demo.benchmark.ErrorMixBenchmark (a test
+# class, run from target/test-classes). Builds the application once per
+# container (mvn -Dcontainer=...) into target/containers.
+#
+# First checks every container gives the same status and content type for
+# each path in the mix - the same resolvers handled the same exceptions and
+# BrokenFilter's exception and unknown URLs reached /error - and stops if
+# not. Then, for each container, reports throughput, latency percentiles, the
+# number of 503s from the concurrency limit and the resident set size (RSS)
+# once the run is over.
+#
+# Usage: ./container-benchmark.sh [threads] [seconds]   (default 16 and 30;
+# Linux only). Set NOBUILD=1 to reuse the JARs from a previous run.
+
+THREADS=${1:-16}
+SECONDS_PER_RUN=${2:-30}
+WARM_UP=${WARM_UP:-10}
+PORT=${PORT:-8096}
+DIR=target/containers
+CONTAINERS="tomcat undertow jetty"
+BENCHMARK="java -cp target/test-classes demo.benchmark.ErrorMixBenchmark"
+BASE=http://localhost:$PORT
+
+mkdir -p $DIR
+
+if [ -z "$NOBUILD" ]; then
+	for container in $CONTAINERS; do
+		mvn -q -Dcontainer=$container package || exit 1
+		cp target/mvc-exceptions-*.jar $DIR/$container.jar
+	done
+elif [ ! -d target/test-classes ]; then
+	mvn -q test-compile || exit 1
+fi
+
+# Start the application on the given container and wait until it is ready
+# (the warm-up runner has finished). Sets $pid.
+start() {
+	java -jar $DIR/$1.jar --server.port=$PORT --logging.level.root=WARN \
+		>$DIR/$1.log 2>&1 &
+	pid=$!
+
+	until curl -sf -o /dev/null $BASE/actuator/health/readiness; do
+		if ! kill -0 $pid 2>/dev/null; then
+			echo "$1 failed to start - see $DIR/$1.log" >&2
+			exit 1
+		fi
+		sleep 0.2
+	done
+}
+
+stop() {
+	kill $pid
+	wait $pid 2>/dev/null
+}
+
+# Same behaviour on every container?
+for container in $CONTAINERS; do
+	start $container
+	$BENCHMARK check $BASE >$DIR/$container.check
+	stop
+done
+
+for container in $CONTAINERS; do
+	if ! diff -u $DIR/tomcat.check $DIR/$container.check; then
+		echo "$container does not handle errors like tomcat" >&2
+		exit 1
+	fi
+done
+
+printf "%-10s %10s %8s %8s %8s %8s %8s %8s\n" container req/s p50-ms \
+	p99-ms p99.9-ms 503s failed rss-mb
+
+for container in $CONTAINERS; do
+	start $container
+	set -- $($BENCHMARK load $BASE $THREADS $WARM_UP $SECONDS_PER_RUN)
+	rss=$(awk '/VmRSS/ { print int($2 / 1024) }' /proc/$pid/status)
+	stop
+	printf "%-10s %10s %8s %8s %8s %8s %8s %8d\n" $container $1 $2 $3 $4 \
+		$5 $6 $rss
+done
@@ -0,0 +1,128 @@
+package demo.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+
+import demo.batch.DemoHandlers;
+import demo.batch.DemoOperation;
+
+/**
+ * Runs a {@link DemoOperation} after a delay, standing in for a slow call to
+ * some other service that eventually fails. The operation is performed by
+ * calling the request handler of the same name in the calling controller (see
+ * {@link DemoHandlers}), so it fails in exactly the same way - and a
+ * controller cannot run an operation it does not serve. Nothing waits for the delay - the
+ * operation is scheduled and a <tt>CompletableFuture</tt> returned at once, so
+ * the request thread is free to serve other requests. The future completes
+ * (normally or exceptionally) when the operation runs. {@link #getPending()}
+ * shows how many are waiting.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class DelayedOperations implements DisposableBean {
+
+	protected Logger logger;
+
+	protected final DemoHandlers demoHandlers;
+	protected final long maxDelayMillis;
+
+	private final ScheduledExecutorService scheduler;
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public DelayedOperations(DemoHandlers demoHandlers,
+			@Value("${demo.async.max-delay:10000}") long maxDelayMillis,
+			@Value("${demo.async.threads:2}") int threads) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.demoHandlers = demoHandlers;
+		this.maxDelayMillis = maxDelayMillis;
+		this.scheduler = Executors.newScheduledThreadPool(threads,
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"delayed-operations-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Schedule an operation.
+	 *
+	 * @param controllerType
+	 *            The calling controller, which must have a handler for the
+	 *            operation.
+	 * @param operationName
+	 *            Name of the operation - see {@link DemoOperation}.
+	 * @param id
+	 *            Optional identifier, such as the order number.
+	 * @param delayMillis
+	 *            How long to wait first - no more than
+	 *            <code>demo.async.max-delay</code>.
+	 * @return Completes with the operation's result, or exceptionally with the
+	 *         exception it threw.
+	 * @throws ResponseStatusException
+	 *             If there is no such operation, or the controller does not
+	 *             serve it (404).
+	 */
+	public CompletableFuture<Object> execute(Class<?> controllerType,
+			String operationName, final String id, long delayMillis) {
+		DemoOperation operation = DemoOperation.forName(operationName);
+		final HandlerMethod handler = operation == null ? null : demoHandlers
+				.getHandlerMethod(operation, controllerType);
+
+		if (operation == null
+				|| (handler == null && operation != DemoOperation.OK))
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+					"No such operation: " + operationName);
+
+		final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		long delay = Math.max(0, Math.min(delayMillis, maxDelayMillis));
+
+		pending.incrementAndGet();
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				pending.decrementAndGet();
+
+				try {
+					result.complete(demoHandlers.invoke(handler, id));
+				} catch (Exception e) {
+					result.completeExceptionally(e);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+
+		return result;
+	}
+
+	/**
+	 * @return Number of operations scheduled but not yet run.
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+}
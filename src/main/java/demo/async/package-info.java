@@ -0,0 +1,7 @@
+/**
+ * Support for the asynchronous request handlers - failures that take a while
+ * to happen, without holding a request thread while they do.
+ *
+ * @author Paul Chapman
+ */
+package demo.async;
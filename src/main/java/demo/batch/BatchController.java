@@ -0,0 +1,62 @@
+package demo.batch;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Accepts several operations in one request, such as
+ * 
+ * <pre>
+ * POST /batch
+ * [ {"operation": "ok"}, {"operation": "orderNotFound", "id": "42"} ]
+ * </pre>
+ * 
+ * and returns one result for each, giving the status and view that operation
+ * would have produced if requested on its own - see {@link BatchExecutor}.
+ * One failing operation does not affect the others, so a client with many
+ * small calls to make needs just one round trip even when some fail.
+ * 
+ * @author Paul Chapman
+ */
+@Controller
+public class BatchController {
+
+	protected Logger logger;
+	protected BatchExecutor batchExecutor;
+
+	public BatchController() {
+		logger = LoggerFactory.getLogger(getClass());
+	}
+
+	@Autowired
+	public void setBatchExecutor(BatchExecutor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	/**
+	 * Run a batch of operations.
+	 * 
+	 * @param operations
+	 *            The operations to run.
+	 * @return The result of each operation, in the same order.
+	 */
+	@PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public List<BatchItemResult> batch(
+			@RequestBody List<BatchOperation> operations,
+			HttpServletRequest request, HttpServletResponse response) {
+		return batchExecutor.execute(operations, request, response);
+	}
+
+}
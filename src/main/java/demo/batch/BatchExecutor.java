@@ -0,0 +1,285 @@
+package demo.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerAdapter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import demo.routing.RoutingHandlerExceptionResolver;
+
+/**
+ * Runs the operations in a batch in parallel, each by invoking the request
+ * handler for its URL (see {@link DemoHandlers}) through the same handler
+ * adapter the <tt>DispatcherServlet</tt> uses. Any exception is then passed,
+ * with that handler, through the same exception resolvers the
+ * <tt>DispatcherServlet</tt> would use - so the controller's own
+ * <tt>@ExceptionHandler</tt> methods, the <tt>@ControllerAdvice</tt>
+ * exception handlers, <tt>@ResponseStatus</tt> annotations and the
+ * <tt>SimpleMappingExceptionResolver</tt> all apply, just as if the operation
+ * had been requested on its own. The status and view each one would have
+ * produced are collected, but no view is rendered.
+ * <p>
+ * Operations are independent of each other, so there is no ordering between
+ * them, but the results are always in the same order as the operations. The
+ * whole batch must finish within <code>demo.batch.timeout</code>
+ * milliseconds - any operation still running then is cancelled and reported
+ * as 503 (Service Unavailable), as an asynchronous request that timed out
+ * would be.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class BatchExecutor {
+
+	/** Request parameter holding an operation's id. */
+	public static final String ID_PARAMETER = "id";
+
+	protected Logger logger;
+
+	protected final AsyncTaskExecutor taskExecutor;
+	protected final ApplicationContext context;
+	protected final DemoHandlers demoHandlers;
+	protected final int maxOperations;
+	protected final long timeoutMillis;
+
+	private volatile List<HandlerExceptionResolver> resolvers;
+	private volatile HandlerAdapter handlerAdapter;
+
+	public BatchExecutor(
+			@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor taskExecutor,
+			ApplicationContext context, DemoHandlers demoHandlers,
+			@Value("${demo.batch.max-operations:100}") int maxOperations,
+			@Value("${demo.batch.timeout:30000}") long timeoutMillis) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.taskExecutor = taskExecutor;
+		this.context = context;
+		this.demoHandlers = demoHandlers;
+		this.maxOperations = maxOperations;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Run a batch.
+	 *
+	 * @param operations
+	 *            What to run.
+	 * @param request
+	 *            The batch request.
+	 * @param response
+	 *            The batch response - not modified.
+	 * @return One result per operation, in the same order.
+	 * @throws ResponseStatusException
+	 *             If there are too many operations (400).
+	 */
+	public List<BatchItemResult> execute(List<BatchOperation> operations,
+			HttpServletRequest request, HttpServletResponse response) {
+		if (operations.size() > maxOperations)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"Batch has " + operations.size() + " operations, maximum is "
+							+ maxOperations);
+
+		logger.info("Executing batch of " + operations.size() + " operations");
+
+		int size = operations.size();
+		List<Future<Object>> futures = new ArrayList<Future<Object>>(size);
+		BatchItemRequest[] itemRequests = new BatchItemRequest[size];
+		BatchItemResponse[] itemResponses = new BatchItemResponse[size];
+		HandlerMethod[] handlers = new HandlerMethod[size];
+
+		for (int i = 0; i < size; i++) {
+			BatchOperation operation = operations.get(i);
+			DemoOperation demoOperation = DemoOperation.forName(operation
+					.getOperation());
+			itemRequests[i] = new BatchItemRequest(request);
+			itemRequests[i].setParameter(ID_PARAMETER, operation.getId());
+			itemResponses[i] = new BatchItemResponse(response);
+			handlers[i] = demoOperation == null ? null : demoHandlers
+					.getHandlerMethod(demoOperation);
+			futures.add(taskExecutor.submit(toCallable(operation,
+					demoOperation, handlers[i], itemRequests[i],
+					itemResponses[i])));
+		}
+
+		List<BatchItemResult> results = new ArrayList<BatchItemResult>(size);
+		int timedOut = 0;
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int i = 0; i < size; i++) {
+			String name = operations.get(i).getOperation();
+
+			try {
+				Object result = futures.get(i).get(
+						Math.max(0, deadline - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+
+				if (result instanceof ModelAndView)
+					results.add(new BatchItemResult(i, name, itemResponses[i]
+							.getStatus(), ((ModelAndView) result).getViewName(),
+							null, null, null, true));
+				else
+					results.add(new BatchItemResult(i, name,
+							HttpStatus.OK.value(), null, result, null, null,
+							true));
+			} catch (ExecutionException e) {
+				results.add(resolve(i, name, e.getCause(), handlers[i],
+						itemRequests[i], itemResponses[i]));
+			} catch (TimeoutException e) {
+				futures.get(i).cancel(true);
+				timedOut++;
+				results.add(new BatchItemResult(i, name,
+						HttpStatus.SERVICE_UNAVAILABLE.value(), null, null, e
+								.getClass().getName(), "Not finished within "
+								+ timeoutMillis + "ms", false));
+			} catch (InterruptedException e) {
+				// Give up - cancel everything still running
+				Thread.currentThread().interrupt();
+
+				for (Future<Object> future : futures)
+					future.cancel(true);
+
+				throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+						"Batch interrupted", e);
+			}
+		}
+
+		if (timedOut > 0)
+			logger.warn(timedOut + " of " + size
+					+ " batch operations not finished within " + timeoutMillis
+					+ "ms - cancelled");
+
+		return results;
+	}
+
+	/**
+	 * @return Invokes the operation's handler, returning its
+	 *         <tt>ModelAndView</tt> - or "OK" for {@link DemoOperation#OK}.
+	 */
+	protected Callable<Object> toCallable(final BatchOperation operation,
+			final DemoOperation demoOperation, final HandlerMethod handler,
+			final BatchItemRequest itemRequest,
+			final BatchItemResponse itemResponse) {
+		return new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				if (demoOperation == null)
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+							"No such operation: " + operation.getOperation());
+
+				if (handler == null)
+					return DemoOperation.OK_RESULT;
+
+				return getHandlerAdapter().handle(itemRequest, itemResponse,
+						handler);
+			}
+		};
+	}
+
+	/**
+	 * Find out how an operation's exception would be handled, by trying each
+	 * resolver in turn exactly as the <tt>DispatcherServlet</tt> does, with the
+	 * handler that threw it (null for an unknown operation).
+	 */
+	protected BatchItemResult resolve(int index, String name, Throwable failure,
+			HandlerMethod handler, BatchItemRequest itemRequest,
+			BatchItemResponse itemResponse) {
+		String exception = failure.getClass().getName();
+		String message = failure.getMessage();
+
+		// Errors are never resolved, the request would simply fail
+		if (!(failure instanceof Exception))
+			return new BatchItemResult(index, name,
+					HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null,
+					exception, message, false);
+
+		for (HandlerExceptionResolver resolver : getResolvers()) {
+			ModelAndView mav = resolver.resolveException(itemRequest,
+					itemResponse, handler, (Exception) failure);
+
+			if (mav != null) {
+				String view = mav.isEmpty() ? null
+						: mav.getViewName() != null ? mav.getViewName()
+								: mav.getView().getClass().getSimpleName();
+
+				if (itemResponse.getErrorMessage() != null)
+					message = itemResponse.getErrorMessage();
+
+				return new BatchItemResult(index, name, itemResponse.getStatus(),
+						view, null, exception, message, true);
+			}
+		}
+
+		// Not handled - would have gone to the /error page
+		return new BatchItemResult(index, name,
+				HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null, exception,
+				message, false);
+	}
+
+	/**
+	 * The adapter the <tt>DispatcherServlet</tt> uses to invoke
+	 * <tt>@RequestMapping</tt> methods - resolving their parameters and
+	 * handling what they return.
+	 */
+	protected HandlerAdapter getHandlerAdapter() {
+		HandlerAdapter current = handlerAdapter;
+
+		if (current == null) {
+			current = context.getBean(RequestMappingHandlerAdapter.class);
+			handlerAdapter = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * The resolvers, in the order the <tt>DispatcherServlet</tt> uses them. If
+	 * exceptions are being routed, the router already holds all the others.
+	 */
+	protected List<HandlerExceptionResolver> getResolvers() {
+		List<HandlerExceptionResolver> current = resolvers;
+
+		if (current == null) {
+			current = new ArrayList<HandlerExceptionResolver>(
+					BeanFactoryUtils.beansOfTypeIncludingAncestors(context,
+							HandlerExceptionResolver.class, true, false).values());
+			AnnotationAwareOrderComparator.sort(current);
+
+			for (HandlerExceptionResolver resolver : current) {
+				if (resolver instanceof RoutingHandlerExceptionResolver) {
+					current = Collections.singletonList(resolver);
+					break;
+				}
+			}
+
+			resolvers = current;
+		}
+
+		return current;
+	}
+
+}
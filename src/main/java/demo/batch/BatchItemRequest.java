@@ -0,0 +1,112 @@
+package demo.batch;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * The batch request as seen by the exception resolvers for one item. Exception
+ * resolvers record what they did using request attributes (the error status,
+ * the exception and so on), so each item gets its own attributes - otherwise
+ * one item's error would leak into the next. Attributes of the batch request
+ * itself can still be read.
+ * <p>
+ * The item's own parameters (such as the order id) are added to those of the
+ * batch request, so the handler performing the item sees them as request
+ * parameters.
+ *
+ * @author Paul Chapman
+ */
+public class BatchItemRequest extends HttpServletRequestWrapper {
+
+	private final Map<String, Object> attributes = new HashMap<String, Object>();
+	private final Set<String> removed = new LinkedHashSet<String>();
+
+	private final Map<String, String[]> parameters = new HashMap<String, String[]>();
+
+	public BatchItemRequest(HttpServletRequest request) {
+		super(request);
+	}
+
+	/**
+	 * Add a parameter for this item only, replacing any of the same name.
+	 *
+	 * @param name
+	 *            The parameter name.
+	 * @param value
+	 *            Its value - null to leave it unset.
+	 */
+	public void setParameter(String name, String value) {
+		if (value != null)
+			parameters.put(name, new String[] { value });
+	}
+
+	@Override
+	public String getParameter(String name) {
+		String[] values = parameters.get(name);
+		return values != null ? values[0] : super.getParameter(name);
+	}
+
+	@Override
+	public String[] getParameterValues(String name) {
+		String[] values = parameters.get(name);
+		return values != null ? values.clone() : super.getParameterValues(name);
+	}
+
+	@Override
+	public Enumeration<String> getParameterNames() {
+		return Collections.enumeration(getParameterMap().keySet());
+	}
+
+	@Override
+	public Map<String, String[]> getParameterMap() {
+		Map<String, String[]> all = new LinkedHashMap<String, String[]>(
+				super.getParameterMap());
+		all.putAll(parameters);
+		return Collections.unmodifiableMap(all);
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		Object value = attributes.get(name);
+
+		if (value != null || removed.contains(name))
+			return value;
+
+		return super.getAttribute(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		Set<String> names = new LinkedHashSet<String>(
+				Collections.list(super.getAttributeNames()));
+		names.removeAll(removed);
+		names.addAll(attributes.keySet());
+		return Collections.enumeration(names);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			removeAttribute(name);
+			return;
+		}
+
+		attributes.put(name, value);
+		removed.remove(name);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+		removed.add(name);
+	}
+
+}
@@ -0,0 +1,168 @@
+package demo.batch;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * The batch response as seen by the exception resolvers for one item. Records
+ * the status (and any error message) they set, but nothing reaches the real
+ * response - headers and body are discarded, since the batch sends one
+ * combined response of its own.
+ *
+ * @author Paul Chapman
+ */
+public class BatchItemResponse extends HttpServletResponseWrapper {
+
+	/** Discards everything written to it. */
+	protected static class DiscardingOutputStream extends ServletOutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+		}
+	}
+
+	private int status = SC_OK;
+	private String errorMessage;
+	private ServletOutputStream outputStream;
+	private PrintWriter writer;
+
+	public BatchItemResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		this.status = sc;
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		this.status = sc;
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		this.status = sc;
+		this.errorMessage = msg;
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		this.status = SC_FOUND;
+	}
+
+	@Override
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return Message passed to <code>sendError()</code>, if any.
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	@Override
+	public boolean isCommitted() {
+		return false;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() {
+		if (outputStream == null)
+			outputStream = new DiscardingOutputStream();
+
+		return outputStream;
+	}
+
+	@Override
+	public PrintWriter getWriter() {
+		if (writer == null)
+			writer = new PrintWriter(new OutputStreamWriter(getOutputStream()));
+
+		return writer;
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+	}
+
+	@Override
+	public void setDateHeader(String name, long date) {
+	}
+
+	@Override
+	public void addDateHeader(String name, long date) {
+	}
+
+	@Override
+	public void setContentType(String type) {
+	}
+
+	@Override
+	public void setContentLength(int len) {
+	}
+
+	@Override
+	public void setContentLengthLong(long len) {
+	}
+
+	@Override
+	public void setCharacterEncoding(String charset) {
+	}
+
+	@Override
+	public void setLocale(Locale loc) {
+	}
+
+	@Override
+	public void setBufferSize(int size) {
+	}
+
+	@Override
+	public void flushBuffer() {
+	}
+
+	@Override
+	public void reset() {
+		status = SC_OK;
+		errorMessage = null;
+	}
+
+	@Override
+	public void resetBuffer() {
+	}
+
+}
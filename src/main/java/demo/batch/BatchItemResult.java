@@ -0,0 +1,67 @@
+package demo.batch;
+
+/**
+ * The outcome of one operation in a batch: the status and view the request
+ * would have produced on its own. If the operation failed, the exception and
+ * message are also given, and <code>handled</code> says if any exception
+ * resolver handled it.
+ *
+ * @author Paul Chapman
+ */
+public class BatchItemResult {
+
+	protected final int index;
+	protected final String operation;
+	protected final int status;
+	protected final String view;
+	protected final Object result;
+	protected final String exception;
+	protected final String message;
+	protected final boolean handled;
+
+	public BatchItemResult(int index, String operation, int status,
+			String view, Object result, String exception, String message,
+			boolean handled) {
+		this.index = index;
+		this.operation = operation;
+		this.status = status;
+		this.view = view;
+		this.result = result;
+		this.exception = exception;
+		this.message = message;
+		this.handled = handled;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getView() {
+		return view;
+	}
+
+	public Object getResult() {
+		return result;
+	}
+
+	public String getException() {
+		return exception;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isHandled() {
+		return handled;
+	}
+
+}
@@ -0,0 +1,36 @@
+package demo.batch;
+
+/**
+ * One operation in a batch request, such as
+ * <code>{"operation": "orderNotFound", "id": "42"}</code>.
+ *
+ * @author Paul Chapman
+ */
+public class BatchOperation {
+
+	protected String operation;
+	protected String id;
+
+	/**
+	 * @return Name of a {@link DemoOperation}.
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * @return Optional identifier passed to the operation.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+}
@@ -0,0 +1,243 @@
+package demo.batch;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ValueConstants;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Finds the request handler that performs each {@link DemoOperation} - the
+ * same <tt>HandlerMethod</tt> the <tt>DispatcherServlet</tt> would use for
+ * its URL. Passing it to the exception resolvers means the controller's own
+ * <tt>@ExceptionHandler</tt> methods are consulted, exactly as for the
+ * individual request.
+ * <p>
+ * An operation's handler is normally the one for its <code>/local</code> URL.
+ * A controller can instead ask for the operation among its own handlers -
+ * the one whose URL ends with the operation's name - so that it only performs
+ * the operations it serves.
+ * <p>
+ * The handlers are looked up on first use, as the request mappings are not
+ * ready until every controller has been created.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class DemoHandlers {
+
+	/** The mapping for the application's <tt>@Controller</tt>s. */
+	public static final String HANDLER_MAPPING_BEAN_NAME = "requestMappingHandlerMapping";
+
+	protected Logger logger;
+
+	protected final ApplicationContext context;
+
+	private volatile Map<DemoOperation, HandlerMethod> handlers;
+
+	private final ConcurrentMap<Class<?>, Map<DemoOperation, HandlerMethod>> controllerHandlers = new ConcurrentHashMap<Class<?>, Map<DemoOperation, HandlerMethod>>();
+
+	public DemoHandlers(ApplicationContext context) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.context = context;
+	}
+
+	/**
+	 * @param operation
+	 *            The operation.
+	 * @return The handler that performs it, or null for {@link DemoOperation#OK}.
+	 * @throws IllegalStateException
+	 *             If there is no handler for the operation's URL.
+	 */
+	public HandlerMethod getHandlerMethod(DemoOperation operation) {
+		if (operation.getPath() == null)
+			return null;
+
+		HandlerMethod handler = getHandlers().get(operation);
+
+		if (handler == null)
+			throw new IllegalStateException("No handler for "
+					+ operation.getPath());
+
+		return handler;
+	}
+
+	/**
+	 * @param operation
+	 *            The operation.
+	 * @param controllerType
+	 *            The controller whose handlers to look in.
+	 * @return The controller's handler for the operation - the one whose URL
+	 *         ends with the operation's name - or null if it has none (always
+	 *         the case for {@link DemoOperation#OK}).
+	 */
+	public HandlerMethod getHandlerMethod(DemoOperation operation,
+			Class<?> controllerType) {
+		Class<?> userType = ClassUtils.getUserClass(controllerType);
+		Map<DemoOperation, HandlerMethod> handlers = controllerHandlers
+				.get(userType);
+
+		if (handlers == null) {
+			handlers = findHandlers(userType);
+			controllerHandlers.put(userType, handlers);
+		}
+
+		return handlers.get(operation);
+	}
+
+	/**
+	 * Call an operation's handler directly, for use outside any request. Any
+	 * <tt>@RequestParam</tt> is given the id (or its default value).
+	 *
+	 * @param operation
+	 *            The operation.
+	 * @param id
+	 *            Optional identifier, such as the order number.
+	 * @return What the handler returned - or "OK" for {@link DemoOperation#OK}.
+	 * @throws Exception
+	 *             Whatever the handler threw.
+	 */
+	public Object invoke(DemoOperation operation, String id) throws Exception {
+		return invoke(getHandlerMethod(operation), id);
+	}
+
+	/**
+	 * Call a handler found by {@link #getHandlerMethod} directly, for use
+	 * outside any request. Any <tt>@RequestParam</tt> is given the id (or its
+	 * default value).
+	 *
+	 * @param handler
+	 *            The handler, or null for {@link DemoOperation#OK}.
+	 * @param id
+	 *            Optional identifier, such as the order number.
+	 * @return What the handler returned - or "OK" if there is no handler.
+	 * @throws Exception
+	 *             Whatever the handler threw.
+	 */
+	public Object invoke(HandlerMethod handler, String id) throws Exception {
+		if (handler == null)
+			return DemoOperation.OK_RESULT;
+
+		MethodParameter[] parameters = handler.getMethodParameters();
+		Object[] args = new Object[parameters.length];
+
+		for (int i = 0; i < parameters.length; i++) {
+			RequestParam param = parameters[i]
+					.getParameterAnnotation(RequestParam.class);
+
+			if (param != null)
+				args[i] = id != null ? id
+						: ValueConstants.DEFAULT_NONE.equals(param.defaultValue()) ? null
+								: param.defaultValue();
+		}
+
+		Method method = BridgeMethodResolver.findBridgedMethod(handler
+				.getMethod());
+		ReflectionUtils.makeAccessible(method);
+
+		try {
+			return method.invoke(handler.getBean(), args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getTargetException();
+
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+
+			throw (Error) cause;
+		}
+	}
+
+	protected Map<DemoOperation, HandlerMethod> getHandlers() {
+		Map<DemoOperation, HandlerMethod> current = handlers;
+
+		if (current == null) {
+			current = new EnumMap<DemoOperation, HandlerMethod>(
+					DemoOperation.class);
+
+			for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : getGetMappings()
+					.entrySet()) {
+				for (DemoOperation operation : DemoOperation.values()) {
+					if (operation.getPath() != null
+							&& entry.getKey().getPatternValues()
+									.contains(operation.getPath()))
+						current.put(operation, entry.getValue()
+								.createWithResolvedBean());
+				}
+			}
+
+			logger.info("Handlers for demo operations: " + current);
+			handlers = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * @return The controller's handler for each operation it serves.
+	 */
+	protected Map<DemoOperation, HandlerMethod> findHandlers(
+			Class<?> controllerType) {
+		Map<DemoOperation, HandlerMethod> found = new EnumMap<DemoOperation, HandlerMethod>(
+				DemoOperation.class);
+
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : getGetMappings()
+				.entrySet()) {
+			if (entry.getValue().getBeanType() != controllerType)
+				continue;
+
+			for (DemoOperation operation : DemoOperation.values()) {
+				if (operation.getPath() == null)
+					continue;
+
+				for (String pattern : entry.getKey().getPatternValues()) {
+					if (pattern.endsWith("/" + operation.getOperationName()))
+						found.put(operation, entry.getValue()
+								.createWithResolvedBean());
+				}
+			}
+		}
+
+		logger.info("Handlers for demo operations in "
+				+ controllerType.getSimpleName() + ": " + found.keySet());
+		return found;
+	}
+
+	/**
+	 * @return The request mappings that handle GET requests.
+	 */
+	protected Map<RequestMappingInfo, HandlerMethod> getGetMappings() {
+		Map<RequestMappingInfo, HandlerMethod> getMappings = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		RequestMappingHandlerMapping mapping = context.getBean(
+				HANDLER_MAPPING_BEAN_NAME, RequestMappingHandlerMapping.class);
+
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping
+				.getHandlerMethods().entrySet()) {
+			Set<RequestMethod> methods = entry.getKey().getMethodsCondition()
+					.getMethods();
+
+			if (methods.isEmpty() || methods.contains(RequestMethod.GET))
+				getMappings.put(entry.getKey(), entry.getValue());
+		}
+
+		return getMappings;
+	}
+
+}
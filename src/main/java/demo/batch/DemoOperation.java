@@ -0,0 +1,72 @@
+package demo.batch;
+
+/**
+ * The operations a batch can contain - one for each exception thrown by the
+ * demo controllers, plus one that succeeds. Each is known by the same name as
+ * the URL of the request handler that performs it (so
+ * <code>orderNotFound</code> is performed by the handler for
+ * <code>/local/orderNotFound</code>) - see {@link DemoHandlers}.
+ *
+ * @author Paul Chapman
+ */
+public enum DemoOperation {
+
+	/** Succeeds with "OK" - the only operation without a handler. */
+	OK("ok", null),
+
+	ORDER_NOT_FOUND("orderNotFound", "/local/orderNotFound"),
+
+	DATA_INTEGRITY_VIOLATION("dataIntegrityViolation",
+			"/local/dataIntegrityViolation"),
+
+	DATABASE_ERROR_1("databaseError1", "/local/databaseError1"),
+
+	DATABASE_ERROR_2("databaseError2", "/local/databaseError2"),
+
+	DATABASE_EXCEPTION("databaseException", "/local/databaseException"),
+
+	INVALID_CREDIT_CARD("invalidCreditCard", "/local/invalidCreditCard"),
+
+	SUPPORT_INFO_EXCEPTION("supportInfoException",
+			"/local/supportInfoException"),
+
+	UNHANDLED_EXCEPTION("unhandledException", "/local/unhandledException");
+
+	/** What {@link #OK} returns. */
+	public static final String OK_RESULT = "OK";
+
+	private final String operationName;
+	private final String path;
+
+	private DemoOperation(String operationName, String path) {
+		this.operationName = operationName;
+		this.path = path;
+	}
+
+	public String getOperationName() {
+		return operationName;
+	}
+
+	/**
+	 * @return URL of the request handler that performs this operation, or null
+	 *         for {@link #OK}.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @param operationName
+	 *            Name used in the batch request.
+	 * @return The operation, or null if there is no such operation.
+	 */
+	public static DemoOperation forName(String operationName) {
+		for (DemoOperation operation : values()) {
+			if (operation.operationName.equals(operationName))
+				return operation;
+		}
+
+		return null;
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Executing several demo operations in one request, reporting how the
+ * exception from each (if any) would have been handled.
+ *
+ * @author Paul Chapman
+ */
+package demo.batch;
@@ -0,0 +1,134 @@
+package demo.cds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Training run for building a class-data-sharing (AppCDS) archive. Once the
+ * application has started, requests every page and every error path once - so
+ * all the classes used to handle them have been loaded - then shuts the
+ * application down. Run with <code>-XX:ArchiveClassesAtExit</code> and the JVM
+ * writes every class it loaded to the archive as it exits.
+ * <p>
+ * Only created when <code>demo.cds.training=true</code>. The archive is built
+ * by <code>mvn -Pcds package</code> - see the README.
+ *
+ * @author Paul Chapman
+ */
+@Component
+@ConditionalOnProperty("demo.cds.training")
+public class TrainingRun implements ApplicationRunner {
+
+	/** Everything reachable from the home page, plus the 404 page. */
+	protected static final String[] PATHS = { "/", "/unannotated", "/unknown",
+			"/local/", "/local/orderNotFound", "/local/dataIntegrityViolation",
+			"/local/databaseError1", "/local/databaseError2",
+			"/local/invalidCreditCard", "/local/databaseException",
+			"/local/supportInfoException",
+			"/local/supportInfoException?diagnostics",
+			"/local/unhandledException", "/global/", "/global/orderNotFound",
+			"/global/dataIntegrityViolation", "/global/databaseError1",
+			"/global/databaseError2", "/global/supportInfoException", "/throw/",
+			"/throw/databaseException", "/throw/invalidCreditCard",
+			"/throw/supportInfoException", "/throw/unhandledException",
+			"/demo5", "/demo5/return", "/demo5/forward", "/demo5/render" };
+
+	/** Requested as a REST client would - error paths and actuator. */
+	protected static final String[] JSON_PATHS = { "/unknown",
+			"/local/unhandledException", "/demo5/render", "/actuator/health",
+			"/actuator/info", "/actuator/metrics", "/actuator/errorevents" };
+
+	protected static final String BATCH = "[{\"operation\":\"ok\"},"
+			+ "{\"operation\":\"orderNotFound\"},"
+			+ "{\"operation\":\"databaseError1\"},"
+			+ "{\"operation\":\"unhandledException\"}]";
+
+	protected Logger logger;
+
+	protected final ConfigurableApplicationContext context;
+	protected final Environment environment;
+
+	public TrainingRun(ConfigurableApplicationContext context,
+			Environment environment) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.context = context;
+		this.environment = environment;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		String base = "http://localhost:"
+				+ environment.getProperty("local.server.port");
+		logger.info("CDS training run against " + base);
+
+		for (String path : PATHS)
+			request(base + path, "GET", MediaType.TEXT_HTML_VALUE, null);
+
+		for (String path : JSON_PATHS)
+			request(base + path, "GET", MediaType.APPLICATION_JSON_VALUE, null);
+
+		request(base + "/batch", "POST", MediaType.APPLICATION_JSON_VALUE, BATCH);
+
+		logger.info("CDS training run complete - shutting down");
+		System.exit(SpringApplication.exit(context));
+	}
+
+	/**
+	 * Make one request and read all of the response. Failures are logged, not
+	 * thrown - a missing page should not stop the rest of the run.
+	 */
+	protected void request(String url, String method, String accept,
+			String body) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url)
+					.openConnection();
+			connection.setRequestMethod(method);
+			connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+
+			if (body != null) {
+				connection.setDoOutput(true);
+				connection.setRequestProperty(HttpHeaders.CONTENT_TYPE,
+						MediaType.APPLICATION_JSON_VALUE);
+
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+
+			int status = connection.getResponseCode();
+			InputStream in = status < 400 ? connection.getInputStream()
+					: connection.getErrorStream();
+
+			if (in != null) {
+				try {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0)
+						;
+				} finally {
+					in.close();
+				}
+			}
+
+			logger.info(method + " " + url + " -> " + status);
+		} catch (IOException e) {
+			logger.warn(method + " " + url + " failed: " + e);
+		}
+	}
+
+}
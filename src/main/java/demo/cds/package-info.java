@@ -0,0 +1,7 @@
+/**
+ * Support for building a class-data-sharing (AppCDS) archive, so the
+ * application starts faster.
+ *
+ * @author Paul Chapman
+ */
+package demo.cds;
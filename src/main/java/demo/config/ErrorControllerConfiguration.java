@@ -0,0 +1,72 @@
+package demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.view.ContentNegotiatingViewResolver;
+
+import demo.errors.BufferPool;
+import demo.errors.LeanErrorController;
+
+/**
+ * Setup for handling <code>/error</code> using a {@link LeanErrorController}.
+ * Because it is an <tt>ErrorController</tt>, Spring Boot no longer creates
+ * its own <tt>BasicErrorController</tt>. Disable by setting
+ * <code>demo.errors.lean-controller=false</code>.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.errors.lean-controller", matchIfMissing = true)
+public class ErrorControllerConfiguration {
+
+	protected Logger logger;
+
+	@Value("${demo.errors.buffer-pool-size:16}")
+	protected int poolSize;
+
+	@Value("${demo.errors.buffer-initial-size:8192}")
+	protected int initialSize;
+
+	@Value("${demo.errors.buffer-max-size:65536}")
+	protected int maxSize;
+
+	public ErrorControllerConfiguration() {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating ErrorControllerConfiguration");
+	}
+
+	/**
+	 * The error view is resolved like any other, by every view resolver in
+	 * order. The content negotiating resolver is left out, as it only
+	 * chooses between the views the others resolve.
+	 */
+	@Bean
+	public LeanErrorController leanErrorController(
+			ErrorAttributes errorAttributes, ServerProperties serverProperties,
+			ObjectProvider<ViewResolver> viewResolvers) {
+		List<ViewResolver> resolvers = new ArrayList<ViewResolver>();
+
+		for (ViewResolver resolver : viewResolvers.orderedStream().collect(
+				Collectors.toList())) {
+			if (!(resolver instanceof ContentNegotiatingViewResolver))
+				resolvers.add(resolver);
+		}
+
+		return new LeanErrorController(errorAttributes,
+				serverProperties.getError(), resolvers, new BufferPool(
+						poolSize, initialSize, maxSize));
+	}
+
+}
@@ -0,0 +1,104 @@
+package demo.config;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.events.ErrorEventExporter;
+import demo.events.ErrorEventInterceptor;
+import demo.events.ErrorEventSink;
+import demo.events.ErrorEventsEndpoint;
+import demo.events.FileErrorEventSink;
+import demo.events.HttpErrorEventSink;
+
+/**
+ * Setup for exporting every exception raised by the demo controllers as an
+ * error event - see {@link ErrorEventExporter}. The properties used are
+ * described in <code>application.properties</code>.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+public class ErrorEventConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	@Value("${demo.events.sink:file}")
+	protected String sinkType;
+
+	@Value("${demo.events.file:${java.io.tmpdir}/mvc-exceptions-errors.jsonl}")
+	protected String file;
+
+	@Value("${demo.events.url:http://localhost:9999/errors}")
+	protected String url;
+
+	@Value("${demo.events.queue-capacity:1000}")
+	protected int queueCapacity;
+
+	@Value("${demo.events.batch-size:50}")
+	protected int batchSize;
+
+	@Value("${demo.events.flush-interval:5000}")
+	protected long flushIntervalMillis;
+
+	private final ErrorAttributes errorAttributes;
+	private final ObjectMapper mapper;
+
+	public ErrorEventConfiguration(ErrorAttributes errorAttributes,
+			ObjectMapper mapper) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating ErrorEventConfiguration");
+		this.errorAttributes = errorAttributes;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Where to send the events - "file" or "http".
+	 *
+	 * @return The sink to use.
+	 */
+	@Bean
+	public ErrorEventSink errorEventSink()
+			throws MalformedURLException {
+		if ("http".equalsIgnoreCase(sinkType))
+			return new HttpErrorEventSink(new URL(url), mapper, 2000);
+		else
+			return new FileErrorEventSink(new File(file), mapper);
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public ErrorEventExporter errorEventExporter() throws MalformedURLException {
+		return new ErrorEventExporter(errorEventSink(), queueCapacity, batchSize,
+				flushIntervalMillis);
+	}
+
+	@Bean
+	public ErrorEventsEndpoint errorEventsEndpoint() throws MalformedURLException {
+		return new ErrorEventsEndpoint(errorEventExporter());
+	}
+
+	/**
+	 * Watch every request for exceptions.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		try {
+			registry.addInterceptor(new ErrorEventInterceptor(
+					errorEventExporter(), errorAttributes));
+		} catch (MalformedURLException e) {
+			throw new IllegalStateException("Invalid demo.events.url: " + url, e);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import demo.health.ErrorRateHealthIndicator;
+import demo.health.ErrorRateInterceptor;
+import demo.health.ErrorRateWindow;
+
+/**
+ * Setup for reporting health from the error rate - see
+ * {@link ErrorRateHealthIndicator}. Disable by setting
+ * <code>demo.health.enabled=false</code>.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.health.enabled", matchIfMissing = true)
+public class ErrorRateHealthConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	@Value("${demo.health.window:30000}")
+	protected long windowMillis;
+
+	@Value("${demo.health.buckets:30}")
+	protected int buckets;
+
+	@Value("${demo.health.min-requests:20}")
+	protected long minRequests;
+
+	@Value("${demo.health.degraded-rate:0.1}")
+	protected double degradedRate;
+
+	@Value("${demo.health.out-of-service-rate:0.25}")
+	protected double outOfServiceRate;
+
+	@Value("${demo.health.recovery:0.5}")
+	protected double recovery;
+
+	private final ErrorAttributes errorAttributes;
+
+	public ErrorRateHealthConfiguration(ErrorAttributes errorAttributes) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating ErrorRateHealthConfiguration");
+		this.errorAttributes = errorAttributes;
+	}
+
+	@Bean
+	public ErrorRateWindow errorRateWindow() {
+		return new ErrorRateWindow(windowMillis, buckets);
+	}
+
+	/**
+	 * Shown as <code>errorRate</code> by <code>/actuator/health</code>.
+	 */
+	@Bean
+	public ErrorRateHealthIndicator errorRateHealthIndicator() {
+		return new ErrorRateHealthIndicator(errorRateWindow(), minRequests,
+				degradedRate, outOfServiceRate, recovery);
+	}
+
+	/**
+	 * Watch every request.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new ErrorRateInterceptor(errorRateWindow(),
+				errorAttributes));
+	}
+
+}
@@ -11,6 +11,7 @@ import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
 
 import demo.main.Main;
 import demo.main.Profiles;
+import demo.metadata.CachingSimpleMappingExceptionResolver;
 
 /**
  * Setup for exception handling using a {@link SimpleMappingExceptionResolver}
@@ -49,7 +50,8 @@ public class ExceptionConfiguration {
 	@Bean(name = "simpleMappingExceptionResolver")
 	public SimpleMappingExceptionResolver createSimpleMappingExceptionResolver() {
 		logger.info("Creating SimpleMappingExceptionResolver");
-		SimpleMappingExceptionResolver r = new SimpleMappingExceptionResolver();
+		// Caching sub-class only looks up the view for each exception class once
+		SimpleMappingExceptionResolver r = new CachingSimpleMappingExceptionResolver();
 
 		Properties mappings = new Properties();
 		mappings.setProperty("DatabaseException", "databaseException");
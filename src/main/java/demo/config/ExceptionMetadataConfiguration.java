@@ -0,0 +1,56 @@
+package demo.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import demo.metadata.CachingResponseStatusExceptionResolver;
+import demo.metadata.ExceptionMetadataRegistry;
+
+/**
+ * Replaces the <tt>ResponseStatusExceptionResolver</tt> that Spring MVC sets
+ * up by default with a {@link CachingResponseStatusExceptionResolver}, so
+ * <tt>@ResponseStatus</tt> is only looked up once for each exception class.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+public class ExceptionMetadataConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	private final ExceptionMetadataRegistry registry;
+	private final ApplicationContext applicationContext;
+
+	public ExceptionMetadataConfiguration(ExceptionMetadataRegistry registry,
+			ApplicationContext applicationContext) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating ExceptionMetadataConfiguration");
+		this.registry = registry;
+		this.applicationContext = applicationContext;
+	}
+
+	/**
+	 * Swap the default resolver for the caching one, keeping its position.
+	 */
+	@Override
+	public void extendHandlerExceptionResolvers(
+			List<HandlerExceptionResolver> resolvers) {
+		for (int i = 0; i < resolvers.size(); i++) {
+			if (resolvers.get(i).getClass() == ResponseStatusExceptionResolver.class) {
+				// Message source resolves any reason codes, as in the original
+				CachingResponseStatusExceptionResolver resolver = new CachingResponseStatusExceptionResolver(
+						registry);
+				resolver.setMessageSource(applicationContext);
+				resolvers.set(i, resolver);
+			}
+		}
+	}
+
+}
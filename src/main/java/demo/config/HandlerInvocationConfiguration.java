@@ -0,0 +1,56 @@
+package demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+
+import demo.handlers.DirectExceptionHandlerExceptionResolver;
+import demo.handlers.HandlerInvokers;
+import demo.handlers.HandlerInvokersEndpoint;
+
+/**
+ * Setup for invoking <tt>@ExceptionHandler</tt> methods through generated
+ * invokers - see {@link DirectExceptionHandlerExceptionResolver}. Spring Boot
+ * asks this for the <tt>ExceptionHandlerExceptionResolver</tt> to use.
+ * <p>
+ * Set <code>demo.handlers.invocation=reflective</code> to invoke them as
+ * Spring normally does, whilst still recording their timings, or
+ * <code>demo.handlers.enabled=false</code> to use Spring's own resolver.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.handlers.enabled", matchIfMissing = true)
+public class HandlerInvocationConfiguration implements WebMvcRegistrations {
+
+	protected Logger logger;
+
+	@Value("${demo.handlers.invocation:direct}")
+	protected String invocation;
+
+	public HandlerInvocationConfiguration() {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating HandlerInvocationConfiguration");
+	}
+
+	@Bean
+	public HandlerInvokers handlerInvokers() {
+		return new HandlerInvokers(!"reflective".equalsIgnoreCase(invocation));
+	}
+
+	@Bean
+	public HandlerInvokersEndpoint handlerInvokersEndpoint() {
+		return new HandlerInvokersEndpoint(handlerInvokers());
+	}
+
+	@Override
+	public ExceptionHandlerExceptionResolver getExceptionHandlerExceptionResolver() {
+		return new DirectExceptionHandlerExceptionResolver(handlerInvokers());
+	}
+
+}
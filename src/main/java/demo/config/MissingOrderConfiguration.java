@@ -0,0 +1,82 @@
+package demo.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import demo.exceptions.OrderNotFoundException;
+import demo.metadata.ExceptionMetadataRegistry;
+import demo.orders.MissingOrderCache;
+import demo.orders.MissingOrderInterceptor;
+import demo.orders.MissingOrdersEndpoint;
+
+/**
+ * Setup for answering requests for missing orders from a cache - see
+ * {@link MissingOrderInterceptor}. Disable by setting
+ * <code>demo.orders.enabled=false</code>.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.orders.enabled", matchIfMissing = true)
+public class MissingOrderConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	@Value("${demo.orders.missing-ttl:60000}")
+	protected long ttlMillis;
+
+	@Value("${demo.orders.missing-max:10000}")
+	protected int maxSize;
+
+	@Value("${demo.orders.lookups:/local/orderNotFound,/global/orderNotFound}")
+	protected String[] lookups;
+
+	@Value("${demo.orders.id-parameter:id}")
+	protected String idParameter;
+
+	private final ErrorAttributes errorAttributes;
+	private final ExceptionMetadataRegistry registry;
+
+	public MissingOrderConfiguration(ErrorAttributes errorAttributes,
+			ExceptionMetadataRegistry registry) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating MissingOrderConfiguration");
+		this.errorAttributes = errorAttributes;
+		this.registry = registry;
+	}
+
+	@Bean
+	public MissingOrderCache missingOrderCache() {
+		return new MissingOrderCache(ttlMillis, maxSize);
+	}
+
+	@Bean
+	public MissingOrdersEndpoint missingOrdersEndpoint() {
+		return new MissingOrdersEndpoint(missingOrderCache());
+	}
+
+	/**
+	 * Ahead of every other interceptor, so none of them does any work for a
+	 * request answered from the cache.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new MissingOrderInterceptor(
+				missingOrderCache(), errorAttributes,
+				this.registry.get(OrderNotFoundException.class),
+				new HashSet<String>(Arrays.asList(lookups)), idParameter))
+				.order(Ordered.HIGHEST_PRECEDENCE);
+	}
+
+}
@@ -0,0 +1,49 @@
+package demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import demo.routing.ResolverRoutesEndpoint;
+import demo.routing.RoutingHandlerExceptionResolver;
+import demo.routing.RoutingResolverPostProcessor;
+
+/**
+ * Setup for routing exceptions straight to the resolver that handles them -
+ * see {@link RoutingHandlerExceptionResolver}. Disable by setting
+ * <code>demo.routing.enabled=false</code>.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.routing.enabled", matchIfMissing = true)
+public class RoutingConfiguration {
+
+	protected Logger logger;
+
+	public RoutingConfiguration() {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating RoutingConfiguration");
+	}
+
+	/**
+	 * Must be static - post-processors are created before anything else in
+	 * this class is available.
+	 */
+	@Bean
+	public static RoutingResolverPostProcessor routingResolverPostProcessor() {
+		return new RoutingResolverPostProcessor();
+	}
+
+	@Bean
+	public ResolverRoutesEndpoint resolverRoutesEndpoint(
+			@Qualifier(DispatcherServlet.HANDLER_EXCEPTION_RESOLVER_BEAN_NAME) HandlerExceptionResolver resolver) {
+		return new ResolverRoutesEndpoint((RoutingHandlerExceptionResolver) resolver);
+	}
+
+}
@@ -0,0 +1,62 @@
+package demo.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import demo.scoped.PathScopedExceptionResolver;
+
+/**
+ * Setup for exception mappings that only apply under part of the application
+ * - see {@link PathScopedExceptionResolver}. Disable by setting
+ * <code>demo.scoped.enabled=false</code>.
+ * <p>
+ * Under <code>/global</code> a <tt>DatabaseException</tt> is shown using the
+ * same <code>databaseError</code> view as the other database errors there,
+ * and an <tt>InvalidCreditCardException</tt> using the
+ * <code>creditCardError</code> view. These are the only exceptions thrown by
+ * the <code>/global</code> controller that its <tt>@ControllerAdvice</tt>
+ * does not handle - anything else is resolved before this resolver is
+ * reached. Nothing is mapped under <code>/throw</code>, so Demo 3's switchable
+ * <tt>SimpleMappingExceptionResolver</tt> still decides what happens there -
+ * its <code>databaseException</code> view when enabled, Spring Boot's error
+ * page when not.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.scoped.enabled", matchIfMissing = true)
+public class ScopedMappingConfiguration {
+
+	protected Logger logger;
+
+	public ScopedMappingConfiguration() {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating ScopedMappingConfiguration");
+	}
+
+	@Bean
+	public PathScopedExceptionResolver pathScopedExceptionResolver() {
+		Map<String, Properties> prefixMappings = new LinkedHashMap<String, Properties>();
+
+		Properties global = new Properties();
+		global.setProperty("DatabaseException", "databaseError");
+		global.setProperty("InvalidCreditCardException", "creditCardError");
+		prefixMappings.put("/global", global);
+
+		PathScopedExceptionResolver resolver = new PathScopedExceptionResolver();
+		resolver.setExceptionMappings(prefixMappings);
+		resolver.setExceptionAttribute("ex"); // As our SimpleMappingExceptionResolver
+		resolver.setStatusCode(500);
+		resolver.setWarnLogCategory("demo1.ExceptionLogger");
+		logger.info("Scoped exception mappings under " + resolver.getScopes());
+		return resolver;
+	}
+
+}
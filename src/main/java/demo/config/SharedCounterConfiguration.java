@@ -0,0 +1,82 @@
+package demo.config;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import demo.counters.HostErrorsEndpoint;
+import demo.counters.SharedCounterFile;
+import demo.counters.SharedCounterInterceptor;
+import demo.counters.SharedErrorCounters;
+
+/**
+ * Setup for counting errors across every instance on the host - see
+ * {@link SharedErrorCounters}. Off unless
+ * <code>demo.counters.enabled=true</code>: every instance then maps, locks and
+ * writes a file shared with every other instance on the host, so nothing is
+ * written there unless you ask for it.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.counters.enabled", matchIfMissing = false)
+public class SharedCounterConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	@Value("${demo.counters.file:${java.io.tmpdir}/mvc-exceptions-counters.dat}")
+	protected String file;
+
+	@Value("${demo.counters.slots:256}")
+	protected int slots;
+
+	@Value("${demo.counters.flush-interval:1000}")
+	protected long flushIntervalMillis;
+
+	@Value("${demo.counters.rate-window:60000}")
+	protected long rateWindowMillis;
+
+	private final ErrorAttributes errorAttributes;
+
+	public SharedCounterConfiguration(ErrorAttributes errorAttributes) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating SharedCounterConfiguration");
+		this.errorAttributes = errorAttributes;
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public SharedErrorCounters sharedErrorCounters() throws IOException {
+		return new SharedErrorCounters(
+				new SharedCounterFile(new File(file), slots),
+				flushIntervalMillis, rateWindowMillis);
+	}
+
+	@Bean
+	public HostErrorsEndpoint hostErrorsEndpoint() throws IOException {
+		return new HostErrorsEndpoint(sharedErrorCounters());
+	}
+
+	/**
+	 * Watch every request for exceptions.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		try {
+			registry.addInterceptor(new SharedCounterInterceptor(
+					sharedErrorCounters(), errorAttributes));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot open demo.counters.file: "
+					+ file, e);
+		}
+	}
+
+}
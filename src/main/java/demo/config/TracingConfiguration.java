@@ -0,0 +1,102 @@
+package demo.config;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.tracing.FileSpanExporter;
+import demo.tracing.InMemorySpanExporter;
+import demo.tracing.ResolverTracer;
+import demo.tracing.ResolverTracesEndpoint;
+import demo.tracing.SpanExporter;
+import demo.tracing.TracingResolverPostProcessor;
+
+/**
+ * Setup for tracing the exception resolver chain - see {@link ResolverTracer}.
+ * Off unless <code>demo.tracing.enabled=true</code>: every exception resolver
+ * is wrapped in a proxy and every exception creates spans, so the error path
+ * is only changed if you ask for it.
+ *
+ * @author Paul Chapman
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.tracing.enabled", matchIfMissing = false)
+public class TracingConfiguration implements WebMvcConfigurer {
+
+	protected Logger logger;
+
+	@Value("${demo.tracing.exporter:memory}")
+	protected String exporterType;
+
+	@Value("${demo.tracing.file:${java.io.tmpdir}/mvc-exceptions-spans.jsonl}")
+	protected String file;
+
+	@Value("${demo.tracing.capacity:100}")
+	protected int capacity;
+
+	private final ObjectMapper mapper;
+
+	public TracingConfiguration(ObjectMapper mapper) {
+		logger = LoggerFactory.getLogger(getClass());
+		logger.info("Creating TracingConfiguration");
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Must be static - post-processors are created before anything else in
+	 * this class is available.
+	 */
+	@Bean
+	public static TracingResolverPostProcessor tracingResolverPostProcessor(
+			ObjectProvider<ResolverTracer> tracer) {
+		return new TracingResolverPostProcessor(tracer);
+	}
+
+	/**
+	 * Where to send the spans - "memory" or "file".
+	 *
+	 * @return The exporter to use.
+	 */
+	@Bean
+	public SpanExporter spanExporter() throws IOException {
+		if ("file".equalsIgnoreCase(exporterType))
+			return new FileSpanExporter(new File(file), mapper);
+		else
+			return new InMemorySpanExporter(capacity);
+	}
+
+	@Bean
+	public ResolverTracer resolverTracer() throws IOException {
+		return new ResolverTracer(spanExporter());
+	}
+
+	@Bean
+	public ResolverTracesEndpoint resolverTracesEndpoint() throws IOException {
+		return new ResolverTracesEndpoint(spanExporter());
+	}
+
+	/**
+	 * The tracer must see each request complete, in case no resolver handled
+	 * its exception.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		try {
+			registry.addInterceptor(resolverTracer());
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot create span exporter", e);
+		}
+	}
+
+}
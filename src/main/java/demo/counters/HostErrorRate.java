@@ -0,0 +1,48 @@
+package demo.counters;
+
+import demo.counters.SharedCounterFile.Kind;
+
+/**
+ * How often one exception class, or one endpoint, has failed across every JVM
+ * on the host.
+ *
+ * @author Paul Chapman
+ */
+public class HostErrorRate {
+
+	private final Kind kind;
+	private final String name;
+	private final long count;
+	private final Double perMinute;
+
+	public HostErrorRate(Kind kind, String name, long count, Double perMinute) {
+		this.kind = kind;
+		this.name = name;
+		this.count = count;
+		this.perMinute = perMinute;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Total since the shared file was created.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return Errors per minute over the rate window, or null if no rate is
+	 *         available yet.
+	 */
+	public Double getPerMinute() {
+		return perMinute;
+	}
+
+}
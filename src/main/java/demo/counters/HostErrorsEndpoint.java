@@ -0,0 +1,56 @@
+package demo.counters;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import demo.counters.SharedCounterFile.Kind;
+
+/**
+ * Actuator endpoint, <code>/actuator/hosterrors</code>, reporting the error
+ * counts and rates (per minute) of every JVM on the host sharing the same
+ * counter file, by exception class and by endpoint.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "hosterrors")
+public class HostErrorsEndpoint {
+
+	protected final SharedErrorCounters counters;
+
+	public HostErrorsEndpoint(SharedErrorCounters counters) {
+		this.counters = counters;
+	}
+
+	@ReadOperation
+	public Map<String, Object> errors() throws IOException {
+		Map<String, Object> exceptions = new LinkedHashMap<String, Object>();
+		Map<String, Object> endpoints = new LinkedHashMap<String, Object>();
+
+		for (HostErrorRate rate : counters.getRates()) {
+			Map<String, Object> entry = new LinkedHashMap<String, Object>();
+			entry.put("count", rate.getCount());
+			entry.put("perMinute", rate.getPerMinute());
+
+			if (rate.getKind() == Kind.EXCEPTION)
+				exceptions.put(rate.getName(), entry);
+			else
+				endpoints.put(rate.getName(), entry);
+		}
+
+		SharedCounterFile file = counters.getFile();
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("file", file.getFile().getPath());
+		stats.put("slots", file.getSlotCount());
+		stats.put("slotsUsed", exceptions.size() + endpoints.size());
+		stats.put("overflowed", file.getOverflowed());
+		stats.put("rateWindowSeconds", counters.getRateWindow() / 1000);
+		stats.put("exceptions", exceptions);
+		stats.put("endpoints", endpoints);
+		return stats;
+	}
+
+}
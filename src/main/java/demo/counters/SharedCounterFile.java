@@ -0,0 +1,349 @@
+package demo.counters;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters held in a memory-mapped file, so every JVM on the host that maps
+ * the same file shares them. The file is a small header followed by a fixed
+ * number of fixed-size slots, each holding one named counter:
+ *
+ * <pre>
+ * Header (64 bytes):  int magic, int version, int slotCount, int slotSize
+ * Slot (128 bytes):   byte used, byte kind, short nameLength, int nameHash,
+ *                     long count, byte[112] name (UTF-8)
+ * </pre>
+ *
+ * Slots are claimed on first use (open addressing, linear probing) and never
+ * released. Names longer than {@link #MAX_NAME_BYTES} keep their last bytes
+ * only.
+ * <p>
+ * Updates are read-modify-write of the mapped memory while holding an
+ * exclusive <tt>FileLock</tt> on the whole file - the lock is what makes them
+ * atomic across processes. File locks belong to the process, not the thread,
+ * so all access within this JVM is also <code>synchronized</code>. Callers are
+ * expected to batch their updates - see {@link SharedErrorCounters}.
+ *
+ * @author Paul Chapman
+ */
+public class SharedCounterFile implements Closeable {
+
+	/** What a counter is counting. */
+	public enum Kind {
+		EXCEPTION, ENDPOINT
+	}
+
+	public static final int MAGIC = 0x4D564345; // "MVCE"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+	public static final int SLOT_SIZE = 128;
+	public static final int MAX_NAME_BYTES = SLOT_SIZE - 16;
+
+	protected static final int USED_OFFSET = 0;
+	protected static final int KIND_OFFSET = 1;
+	protected static final int LENGTH_OFFSET = 2;
+	protected static final int HASH_OFFSET = 4;
+	protected static final int COUNT_OFFSET = 8;
+	protected static final int NAME_OFFSET = 16;
+
+	protected Logger logger;
+
+	protected final File file;
+	protected final int slotCount;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private long overflowed;
+
+	/**
+	 * Open the file, creating it if necessary.
+	 *
+	 * @param file
+	 *            File to map - the same for every JVM sharing the counters.
+	 * @param slotCount
+	 *            Maximum number of counters. Must match any existing file.
+	 * @throws IOException
+	 *             If the file cannot be opened or mapped.
+	 * @throws IllegalStateException
+	 *             If the file exists but has a different layout.
+	 */
+	public SharedCounterFile(File file, int slotCount) throws IOException {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.file = file;
+		this.slotCount = slotCount;
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+
+		boolean valid = true;
+		FileLock lock = channel.lock();
+
+		try {
+			int magic = buffer.getInt(0);
+
+			if (magic == 0) {
+				buffer.putInt(4, VERSION);
+				buffer.putInt(8, slotCount);
+				buffer.putInt(12, SLOT_SIZE);
+				buffer.putInt(0, MAGIC);
+				logger.info("Created shared counters in " + file + " ("
+						+ slotCount + " slots)");
+			} else {
+				valid = magic == MAGIC && buffer.getInt(4) == VERSION
+						&& buffer.getInt(8) == slotCount
+						&& buffer.getInt(12) == SLOT_SIZE;
+			}
+		} finally {
+			lock.release();
+		}
+
+		if (!valid) {
+			close();
+			throw new IllegalStateException(file
+					+ " is not a shared counter file with " + slotCount
+					+ " slots");
+		}
+	}
+
+	/**
+	 * A count taken from a pending counter, to be added to the file.
+	 */
+	private static final class Drained {
+		final String name;
+		final AtomicLong counter;
+		final long delta;
+
+		Drained(String name, AtomicLong counter, long delta) {
+			this.name = name;
+			this.counter = counter;
+			this.delta = delta;
+		}
+	}
+
+	/**
+	 * Add the pending counts of one kind to the file, resetting each to zero.
+	 * Each count is taken with <code>getAndSet(0)</code>, so an increment made
+	 * while flushing is either taken now or left for next time - never lost.
+	 * The counts are taken before locking the file, and put back if it cannot
+	 * be locked. Takes the file lock once for all of them.
+	 *
+	 * @param kind
+	 *            What the counters are counting.
+	 * @param pending
+	 *            Counts to add, by name.
+	 * @return Number of counters updated.
+	 * @throws IOException
+	 *             If the file cannot be locked - the pending counts are left
+	 *             as they were.
+	 */
+	public synchronized int add(Kind kind, Map<String, AtomicLong> pending)
+			throws IOException {
+		List<Drained> drained = new ArrayList<Drained>();
+
+		for (Map.Entry<String, AtomicLong> entry : pending.entrySet()) {
+			long delta = entry.getValue().getAndSet(0);
+
+			if (delta != 0)
+				drained.add(new Drained(entry.getKey(), entry.getValue(), delta));
+		}
+
+		if (drained.isEmpty())
+			return 0;
+
+		FileLock lock;
+
+		try {
+			lock = channel.lock();
+		} catch (IOException e) {
+			for (Drained d : drained)
+				d.counter.addAndGet(d.delta);
+
+			throw e;
+		}
+
+		int updated = 0;
+
+		try {
+			for (Drained d : drained) {
+				long delta = d.delta;
+				int slot = findSlot(kind, d.name);
+
+				if (slot < 0) {
+					if (overflowed == 0)
+						logger.warn("All " + slotCount + " slots in " + file
+								+ " are in use - counts are being lost");
+
+					overflowed += delta;
+					continue;
+				}
+
+				int offset = offset(slot) + COUNT_OFFSET;
+				buffer.putLong(offset, buffer.getLong(offset) + delta);
+				updated++;
+			}
+		} finally {
+			lock.release();
+		}
+
+		return updated;
+	}
+
+	/**
+	 * Copy every counter, by slot, into <code>counts</code>. Unused slots are
+	 * zero.
+	 *
+	 * @param counts
+	 *            At least {@link #getSlotCount()} long.
+	 * @throws IOException
+	 *             If the file cannot be locked.
+	 */
+	public synchronized void read(long[] counts) throws IOException {
+		FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+
+		try {
+			for (int slot = 0; slot < slotCount; slot++)
+				counts[slot] = buffer.getLong(offset(slot) + COUNT_OFFSET);
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * @return The kind of counter in a slot, or null if the slot is unused.
+	 * @throws IOException
+	 *             If the file cannot be locked.
+	 */
+	public synchronized Kind getKind(int slot) throws IOException {
+		int offset = offset(slot);
+		FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+
+		try {
+			if (buffer.get(offset + USED_OFFSET) == 0)
+				return null;
+
+			return Kind.values()[buffer.get(offset + KIND_OFFSET)];
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * @return The name of the counter in a slot, or null if the slot is
+	 *         unused.
+	 * @throws IOException
+	 *             If the file cannot be locked.
+	 */
+	public synchronized String getName(int slot) throws IOException {
+		int offset = offset(slot);
+		FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+
+		try {
+			if (buffer.get(offset + USED_OFFSET) == 0)
+				return null;
+
+			byte[] name = new byte[buffer.getShort(offset + LENGTH_OFFSET)];
+
+			for (int i = 0; i < name.length; i++)
+				name[i] = buffer.get(offset + NAME_OFFSET + i);
+
+			return new String(name, StandardCharsets.UTF_8);
+		} finally {
+			lock.release();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * @return Number of counts discarded because every slot was in use.
+	 */
+	public synchronized long getOverflowed() {
+		return overflowed;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		raf.close();
+	}
+
+	/**
+	 * Find the slot for a counter, claiming one if it is new - must hold the
+	 * file lock.
+	 *
+	 * @return The slot, or -1 if the counter is new and the file is full.
+	 */
+	protected int findSlot(Kind kind, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+		if (bytes.length > MAX_NAME_BYTES)
+			bytes = Arrays.copyOfRange(bytes, bytes.length - MAX_NAME_BYTES,
+					bytes.length);
+
+		int hash = Arrays.hashCode(bytes) * 31 + kind.ordinal();
+		int start = (hash & Integer.MAX_VALUE) % slotCount;
+
+		for (int i = 0; i < slotCount; i++) {
+			int slot = (start + i) % slotCount;
+			int offset = offset(slot);
+
+			if (buffer.get(offset + USED_OFFSET) == 0) {
+				buffer.put(offset + KIND_OFFSET, (byte) kind.ordinal());
+				buffer.putShort(offset + LENGTH_OFFSET, (short) bytes.length);
+				buffer.putInt(offset + HASH_OFFSET, hash);
+				buffer.putLong(offset + COUNT_OFFSET, 0);
+
+				for (int b = 0; b < bytes.length; b++)
+					buffer.put(offset + NAME_OFFSET + b, bytes[b]);
+
+				buffer.put(offset + USED_OFFSET, (byte) 1);
+				return slot;
+			}
+
+			if (buffer.getInt(offset + HASH_OFFSET) == hash
+					&& buffer.get(offset + KIND_OFFSET) == kind.ordinal()
+					&& matches(offset, bytes))
+				return slot;
+		}
+
+		return -1;
+	}
+
+	protected boolean matches(int offset, byte[] bytes) {
+		if (buffer.getShort(offset + LENGTH_OFFSET) != bytes.length)
+			return false;
+
+		for (int b = 0; b < bytes.length; b++) {
+			if (buffer.get(offset + NAME_OFFSET + b) != bytes[b])
+				return false;
+		}
+
+		return true;
+	}
+
+	protected int offset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+}
@@ -0,0 +1,63 @@
+package demo.counters;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import demo.warmup.WarmUpRequests;
+
+/**
+ * Counts every request whose handler raised an exception, resolved or not, in
+ * the {@link SharedErrorCounters}. Finds the exception the same way as the
+ * <tt>ErrorEventInterceptor</tt>.
+ * <p>
+ * Endpoints are identified by method and mapping pattern (such as
+ * <code>GET /local/orderNotFound</code>) rather than the actual URI, so there
+ * is a fixed number of them however many different URIs are requested.
+ *
+ * @author Paul Chapman
+ */
+public class SharedCounterInterceptor implements HandlerInterceptor {
+
+	protected final SharedErrorCounters counters;
+	protected final ErrorAttributes errorAttributes;
+
+	public SharedCounterInterceptor(SharedErrorCounters counters,
+			ErrorAttributes errorAttributes) {
+		this.counters = counters;
+		this.errorAttributes = errorAttributes;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		// Forwards to /error and container error dispatches are part of the
+		// original request, which is counted itself. An asynchronous request
+		// only completes on its async dispatch, so that one counts.
+		if (request.getDispatcherType() != DispatcherType.REQUEST
+				&& request.getDispatcherType() != DispatcherType.ASYNC)
+			return;
+
+		// Not a real error - see WarmUpRequests
+		if (WarmUpRequests.isWarmUp(request))
+			return;
+
+		Throwable error = ex != null ? ex
+				: errorAttributes.getError(new ServletWebRequest(request));
+
+		if (error == null)
+			return;
+
+		Object pattern = request
+				.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+		counters.record(error.getClass().getName(), request.getMethod() + ' '
+				+ (pattern == null ? "(unmapped)" : pattern));
+	}
+
+}
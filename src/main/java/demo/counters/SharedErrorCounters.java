@@ -0,0 +1,232 @@
+package demo.counters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import demo.counters.SharedCounterFile.Kind;
+
+/**
+ * Counts errors by exception class and by endpoint, for every JVM on the host,
+ * using a {@link SharedCounterFile}.
+ * <p>
+ * Request threads only increment an <tt>AtomicLong</tt> held by this JVM - they
+ * never touch the file. A background thread adds the counts to the file every
+ * <code>flushIntervalMillis</code>, taking the file lock once per kind of
+ * counter, so the cost of locking does not depend on how many errors there
+ * are. The shared counts can therefore be up to one interval behind.
+ * <p>
+ * After each flush the thread also takes a copy of all the shared counts.
+ * Copies covering the last <code>rateWindowMillis</code> are kept, so error
+ * rates across the host can be worked out - see {@link #getRates()}.
+ *
+ * @author Paul Chapman
+ */
+public class SharedErrorCounters {
+
+	protected Logger logger;
+
+	protected final SharedCounterFile file;
+	protected final long flushIntervalMillis;
+
+	private final ConcurrentMap<String, AtomicLong> exceptions = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> endpoints = new ConcurrentHashMap<String, AtomicLong>();
+
+	// Ring of copies of the shared counts, taken after each flush
+	private final long[][] samples;
+	private final long[] sampleTimes;
+	private int nextSample;
+	private int sampleCount;
+
+	private volatile boolean running;
+	private Thread worker;
+
+	// Notified by stop() so the worker need not finish its wait
+	private final Object wakeUp = new Object();
+
+	public SharedErrorCounters(SharedCounterFile file, long flushIntervalMillis,
+			long rateWindowMillis) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.file = file;
+		this.flushIntervalMillis = flushIntervalMillis;
+
+		int size = (int) Math.max(2, rateWindowMillis / flushIntervalMillis + 1);
+		this.samples = new long[size][file.getSlotCount()];
+		this.sampleTimes = new long[size];
+	}
+
+	/**
+	 * Count an error. Never blocks.
+	 *
+	 * @param exception
+	 *            Class name of the exception raised.
+	 * @param endpoint
+	 *            The endpoint that raised it.
+	 */
+	public void record(String exception, String endpoint) {
+		increment(exceptions, exception);
+		increment(endpoints, endpoint);
+	}
+
+	protected void increment(ConcurrentMap<String, AtomicLong> counters,
+			String name) {
+		AtomicLong counter = counters.get(name);
+
+		if (counter == null) {
+			AtomicLong newCounter = new AtomicLong();
+			counter = counters.putIfAbsent(name, newCounter);
+
+			if (counter == null)
+				counter = newCounter;
+		}
+
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * Start the background thread that updates the shared counts.
+	 */
+	public synchronized void start() {
+		if (running)
+			return;
+
+		logger.info("Sharing error counts via " + file.getFile() + " every "
+				+ flushIntervalMillis + "ms");
+		running = true;
+		worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		}, "shared-error-counters");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stop the background thread, adding any outstanding counts to the file,
+	 * and close the file.
+	 */
+	public synchronized void stop() {
+		if (!running)
+			return;
+
+		// Not interrupted: that would close the file's channel if the worker
+		// was waiting for the file lock
+		synchronized (wakeUp) {
+			running = false;
+			wakeUp.notifyAll();
+		}
+
+		try {
+			worker.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Whatever was counted since the worker's last flush
+		flush();
+
+		try {
+			file.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close " + file.getFile() + ": " + e);
+		}
+	}
+
+	protected void flushLoop() {
+		while (running) {
+			synchronized (wakeUp) {
+				try {
+					if (running)
+						wakeUp.wait(flushIntervalMillis);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			if (running)
+				flush();
+		}
+	}
+
+	/**
+	 * Add this JVM's counts to the shared file, then take a copy of the
+	 * shared counts for working out rates.
+	 */
+	protected void flush() {
+		try {
+			file.add(Kind.EXCEPTION, exceptions);
+			file.add(Kind.ENDPOINT, endpoints);
+
+			synchronized (samples) {
+				file.read(samples[nextSample]);
+				sampleTimes[nextSample] = System.currentTimeMillis();
+				nextSample = (nextSample + 1) % samples.length;
+				sampleCount = Math.min(sampleCount + 1, samples.length);
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to update " + file.getFile() + ": " + e);
+		}
+	}
+
+	/**
+	 * The count of every error on the host, and how often each has occurred
+	 * over the rate window (or since the first copy was taken, if that was
+	 * more recently).
+	 *
+	 * @return One entry per shared counter, in slot order.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public List<HostErrorRate> getRates() throws IOException {
+		long[] counts = new long[file.getSlotCount()];
+		List<HostErrorRate> rates = new ArrayList<HostErrorRate>();
+
+		synchronized (samples) {
+			file.read(counts);
+			long now = System.currentTimeMillis();
+			int oldest = sampleCount < samples.length ? 0 : nextSample;
+			long elapsed = sampleCount == 0 ? 0 : now - sampleTimes[oldest];
+
+			for (int slot = 0; slot < counts.length; slot++) {
+				// A slot is claimed and counted under the same lock, so an
+				// unused slot (or one claimed since) reads as zero
+				if (counts[slot] == 0)
+					continue;
+
+				Kind kind = file.getKind(slot);
+
+				if (kind == null)
+					continue;
+
+				Double perMinute = elapsed <= 0 ? null
+						: (counts[slot] - samples[oldest][slot]) * 60000.0
+								/ elapsed;
+
+				rates.add(new HostErrorRate(kind, file.getName(slot),
+						counts[slot], perMinute));
+			}
+		}
+
+		return rates;
+	}
+
+	public SharedCounterFile getFile() {
+		return file;
+	}
+
+	/**
+	 * @return How far back the rates go, in milliseconds.
+	 */
+	public long getRateWindow() {
+		return (samples.length - 1) * flushIntervalMillis;
+	}
+
+}
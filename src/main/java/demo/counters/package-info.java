@@ -0,0 +1,7 @@
+/**
+ * Error counts shared by every instance of the application on the same host,
+ * through a memory-mapped file - no network service is needed.
+ *
+ * @author Paul Chapman
+ */
+package demo.counters;
@@ -0,0 +1,197 @@
+package demo.diagnostics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Writes full diagnostics for an exception as plain text: a short summary,
+ * the request details and then every exception in the cause chain with all
+ * its stack frames. Each section (and every <code>framesPerChunk</code> stack
+ * frames) is flushed to the client as soon as it is written, so nothing is
+ * accumulated - the memory used is the same however deep the cause chain or
+ * stack trace is.
+ * <p>
+ * This is a plain body, written by the exception handler on the request
+ * thread - not a <tt>StreamingResponseBody</tt>, which Spring MVC would hand to
+ * its async executor, but only when returned by a request handler. The request
+ * is read while writing, so {@link #writeTo(OutputStream)} must be called
+ * before the request completes.
+ *
+ * @author Paul Chapman
+ */
+public class DiagnosticResponseBody {
+
+	/** Request headers whose values are never written out. */
+	protected static final String[] REDACTED_HEADERS = { HttpHeaders.AUTHORIZATION,
+			HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.COOKIE };
+
+	protected final HttpServletRequest request;
+	protected final Throwable exception;
+	protected final HttpStatus status;
+	protected final int framesPerChunk;
+
+	/**
+	 * @param request
+	 *            The request that failed.
+	 * @param exception
+	 *            What it raised.
+	 * @param status
+	 *            The response status.
+	 * @param framesPerChunk
+	 *            How many stack frames to write between each flush.
+	 */
+	public DiagnosticResponseBody(HttpServletRequest request,
+			Throwable exception, HttpStatus status, int framesPerChunk) {
+		this.request = request;
+		this.exception = exception;
+		this.status = status;
+		this.framesPerChunk = Math.max(1, framesPerChunk);
+	}
+
+	/**
+	 * Write the diagnostics, flushing as each section is written.
+	 *
+	 * @param outputStream
+	 *            Where to write them - not closed.
+	 * @throws IOException
+	 *             If the output cannot be written.
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(outputStream,
+				StandardCharsets.UTF_8));
+
+		writeSummary(out);
+		out.flush();
+
+		writeRequest(out);
+		out.flush();
+
+		writeCauses(out);
+		out.flush();
+	}
+
+	protected void writeSummary(Writer out) throws IOException {
+		out.write("Support Diagnostics\n\n");
+		writeLine(out, "Page", request.getRequestURL());
+		writeLine(out, "Occurred", new Date());
+		writeLine(out, "Response Status", status.value() + " ("
+				+ status.getReasonPhrase() + ")");
+		writeLine(out, "Exception", exception);
+	}
+
+	protected void writeRequest(Writer out) throws IOException {
+		out.write("\nRequest\n\n");
+		writeLine(out, "Method", request.getMethod());
+		writeLine(out, "URI", request.getRequestURI());
+		writeLine(out, "Query", request.getQueryString());
+		writeLine(out, "Remote Address", request.getRemoteAddr());
+
+		Enumeration<String> names = request.getHeaderNames();
+
+		while (names != null && names.hasMoreElements()) {
+			String name = names.nextElement();
+
+			if (isRedacted(name)) {
+				writeLine(out, name, "[redacted]");
+				continue;
+			}
+
+			Enumeration<String> values = request.getHeaders(name);
+
+			while (values.hasMoreElements())
+				writeLine(out, name, values.nextElement());
+		}
+	}
+
+	/**
+	 * Write each exception in the cause chain. A chain can loop back on itself
+	 * (via <code>initCause()</code>), but remembering every exception seen
+	 * would use memory in proportion to the chain's length. Instead Brent's
+	 * cycle detection is used - one extra reference - so a loop is found
+	 * having written its exceptions at most three times.
+	 */
+	protected void writeCauses(Writer out) throws IOException {
+		out.write("\nCause Chain\n");
+
+		Throwable marker = exception;
+		int power = 1;
+		int length = 0;
+		int depth = 0;
+
+		for (Throwable cause = exception; cause != null; cause = cause
+				.getCause()) {
+			if (depth > 0) {
+				if (cause == marker) {
+					out.write("\n[Circular reference: " + cause + "]\n");
+					return;
+				}
+
+				if (length == power) {
+					marker = cause;
+					power *= 2;
+					length = 0;
+				}
+
+				length++;
+			}
+
+			out.write(depth == 0 ? "\n" : "\nCaused by: ");
+			out.write(String.valueOf(cause));
+			out.write('\n');
+			writeFrames(out, cause);
+
+			int suppressed = cause.getSuppressed().length;
+
+			if (suppressed > 0)
+				out.write("\t(" + suppressed + " suppressed)\n");
+
+			out.flush();
+			depth++;
+		}
+	}
+
+	protected void writeFrames(Writer out, Throwable cause) throws IOException {
+		StackTraceElement[] frames = cause.getStackTrace();
+
+		for (int i = 0; i < frames.length; i++) {
+			out.write("\tat ");
+			out.write(frames[i].toString());
+			out.write('\n');
+
+			if ((i + 1) % framesPerChunk == 0)
+				out.flush();
+		}
+	}
+
+	protected void writeLine(Writer out, String name, Object value)
+			throws IOException {
+		if (value == null)
+			return;
+
+		out.write(name);
+		out.write(": ");
+		out.write(value.toString());
+		out.write('\n');
+	}
+
+	protected boolean isRedacted(String headerName) {
+		for (String redacted : REDACTED_HEADERS) {
+			if (redacted.equalsIgnoreCase(headerName))
+				return true;
+		}
+
+		return false;
+	}
+
+}
@@ -0,0 +1,99 @@
+package demo.diagnostics;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Diagnostic mode for the support error page. Add <code>?diagnostics</code>
+ * to a URL and, instead of building a model holding the exception for the
+ * "support" view, the exception handler calls {@link #stream} to write the
+ * full diagnostics directly - see {@link DiagnosticResponseBody}.
+ * <p>
+ * Spring MVC only accepts a <tt>StreamingResponseBody</tt> as the return value
+ * of a request handler (it is run asynchronously), not of an
+ * <tt>@ExceptionHandler</tt>. So the body is a plain object, written here on
+ * the request thread straight after the headers have been sent.
+ * <p>
+ * Off by default, as the output exposes the application's internals. To try
+ * it, set <code>demo.diagnostics.enabled=true</code> in
+ * <code>application.properties</code> or on the command line
+ * (<code>--demo.diagnostics.enabled=true</code>).
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class SupportDiagnostics {
+
+	/** Request parameter that selects diagnostic mode. */
+	public static final String DIAGNOSTICS_PARAM = "diagnostics";
+
+	protected Logger logger;
+
+	protected final boolean enabled;
+	protected final int framesPerChunk;
+
+	public SupportDiagnostics(
+			@Value("${demo.diagnostics.enabled:false}") boolean enabled,
+			@Value("${demo.diagnostics.frames-per-chunk:64}") int framesPerChunk) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.enabled = enabled;
+		this.framesPerChunk = framesPerChunk;
+	}
+
+	/**
+	 * @param request
+	 *            Current HTTP request.
+	 * @return True if diagnostics are enabled and were asked for.
+	 */
+	public boolean isRequested(HttpServletRequest request) {
+		return enabled && request.getParameter(DIAGNOSTICS_PARAM) != null;
+	}
+
+	/**
+	 * @return The diagnostics for an exception, ready to be written.
+	 */
+	public DiagnosticResponseBody createBody(HttpServletRequest request,
+			Throwable exception, HttpStatus status) {
+		return new DiagnosticResponseBody(request, exception, status,
+				framesPerChunk);
+	}
+
+	/**
+	 * Send the response headers, then stream the diagnostics. There is no
+	 * content length, so the body is sent chunked, a section at a time.
+	 *
+	 * @param request
+	 *            Current HTTP request.
+	 * @param response
+	 *            Current HTTP response - committed on return.
+	 * @param exception
+	 *            The exception to describe.
+	 * @param status
+	 *            The response status to set.
+	 * @throws IOException
+	 *             If the response cannot be written.
+	 */
+	public void stream(HttpServletRequest request, HttpServletResponse response,
+			Throwable exception, HttpStatus status) throws IOException {
+		logger.info("Streaming diagnostics for " + request.getRequestURI());
+
+		response.setStatus(status.value());
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+		response.flushBuffer();
+
+		createBody(request, exception, status).writeTo(
+				response.getOutputStream());
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Streamed diagnostic error responses - the full details of an exception,
+ * written to the client as they are produced.
+ *
+ * @author Paul Chapman
+ */
+package demo.diagnostics;
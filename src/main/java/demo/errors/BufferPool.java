@@ -0,0 +1,82 @@
+package demo.errors;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small pool of {@link PooledBuffer}s so that generating an error page does
+ * not allocate (and then grow) a new buffer every time. Buffers that have
+ * grown beyond <code>maxRetainedBytes</code> are not returned to the pool, so
+ * one unusually large page cannot pin a large buffer in memory for good.
+ * <p>
+ * Never blocks: if the pool is empty a new buffer is created, if it is full a
+ * released buffer is simply discarded.
+ *
+ * @author Paul Chapman
+ */
+public class BufferPool {
+
+	protected final BlockingQueue<PooledBuffer> buffers;
+	protected final int initialBytes;
+	protected final int maxRetainedBytes;
+
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            Maximum number of idle buffers kept.
+	 * @param initialBytes
+	 *            Initial size of a new buffer - big enough for a typical page.
+	 * @param maxRetainedBytes
+	 *            Buffers that have grown beyond this are discarded on
+	 *            release.
+	 */
+	public BufferPool(int capacity, int initialBytes, int maxRetainedBytes) {
+		this.buffers = new ArrayBlockingQueue<PooledBuffer>(capacity);
+		this.initialBytes = initialBytes;
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	/**
+	 * @return An empty buffer - must be given back using
+	 *         {@link #release(PooledBuffer)}.
+	 */
+	public PooledBuffer acquire() {
+		PooledBuffer buffer = buffers.poll();
+
+		if (buffer != null) {
+			reused.incrementAndGet();
+			return buffer;
+		}
+
+		created.incrementAndGet();
+		return new PooledBuffer(initialBytes);
+	}
+
+	/**
+	 * @param buffer
+	 *            A buffer obtained from {@link #acquire()}, no longer in use.
+	 */
+	public void release(PooledBuffer buffer) {
+		if (buffer.capacity() > maxRetainedBytes)
+			return;
+
+		buffer.clear();
+		buffers.offer(buffer);
+	}
+
+	public int getIdle() {
+		return buffers.size();
+	}
+
+	public long getCreated() {
+		return created.get();
+	}
+
+	public long getReused() {
+		return reused.get();
+	}
+
+}
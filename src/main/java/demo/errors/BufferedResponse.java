@@ -0,0 +1,93 @@
+package demo.errors;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Lets a view render into a {@link PooledBuffer} instead of the response, so
+ * the page can be sent with its length in one write - see
+ * {@link #copyBodyToResponse()}. Headers and status go straight to the
+ * response. Only a UTF-8 body is buffered - for any other character encoding
+ * the view writes to the response directly.
+ *
+ * @author Paul Chapman
+ */
+public class BufferedResponse extends HttpServletResponseWrapper {
+
+	protected final PooledBuffer buffer;
+
+	private ServletOutputStream outputStream;
+	private boolean direct;
+
+	public BufferedResponse(HttpServletResponse response, PooledBuffer buffer) {
+		super(response);
+		this.buffer = buffer;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (direct
+				|| !StandardCharsets.UTF_8.name().equalsIgnoreCase(
+						getCharacterEncoding())) {
+			direct = true;
+			return super.getWriter();
+		}
+
+		return buffer.getPrintWriter();
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (outputStream == null) {
+			outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					buffer.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					buffer.write(b, off, len);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		return outputStream;
+	}
+
+	/** Nothing is sent until the body is copied. */
+	@Override
+	public void flushBuffer() {
+	}
+
+	/**
+	 * Send whatever was buffered, setting the content length.
+	 */
+	public void copyBodyToResponse() throws IOException {
+		int length = buffer.size();
+
+		if (length == 0)
+			return;
+
+		HttpServletResponse response = (HttpServletResponse) getResponse();
+		response.setContentLength(length);
+		buffer.writeTo(response.getOutputStream());
+	}
+
+}
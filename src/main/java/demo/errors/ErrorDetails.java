@@ -0,0 +1,140 @@
+package demo.errors;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * The details of an error, as shown on the error page. Holds the same
+ * information as the map built by Spring Boot's <tt>DefaultErrorAttributes</tt>
+ * - <code>timestamp</code>, <code>status</code>, <code>error</code>, optionally
+ * <code>exception</code>, <code>trace</code> and <code>message</code>, then
+ * <code>path</code> - but as a fixed set of fields. Optional fields not
+ * required are null.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorDetails {
+
+	/** Same format Jackson uses for dates in Spring Boot's JSON errors. */
+	public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx").withZone(ZoneOffset.UTC);
+
+	protected final Date timestamp;
+	protected final int status;
+	protected final String error;
+	protected final String exception;
+	protected final String trace;
+	protected final String message;
+	protected final String path;
+
+	public ErrorDetails(Date timestamp, int status, String error,
+			String exception, String trace, String message, String path) {
+		this.timestamp = timestamp;
+		this.status = status;
+		this.error = error;
+		this.exception = exception;
+		this.trace = trace;
+		this.message = message;
+		this.path = path;
+	}
+
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public String getException() {
+		return exception;
+	}
+
+	public String getTrace() {
+		return trace;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Write as a JSON object, with the fields in the same order as Spring
+	 * Boot's JSON error response.
+	 *
+	 * @param out
+	 *            Where to write the JSON.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		out.write("{\"timestamp\":\"");
+		out.write(TIMESTAMP_FORMAT.format(timestamp.toInstant()));
+		out.write("\",\"status\":");
+		out.write(Integer.toString(status));
+		writeField(out, "error", error);
+		writeField(out, "exception", exception);
+		writeField(out, "trace", trace);
+		writeField(out, "message", message);
+		writeField(out, "path", path);
+		out.write('}');
+	}
+
+	protected void writeField(Writer out, String name, String value)
+			throws IOException {
+		if (value == null)
+			return;
+
+		out.write(",\"");
+		out.write(name);
+		out.write("\":\"");
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				out.write("\\\"");
+				break;
+			case '\\':
+				out.write("\\\\");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			case '\b':
+				out.write("\\b");
+				break;
+			case '\f':
+				out.write("\\f");
+				break;
+			default:
+				if (c < 0x20) {
+					out.write(String.format("\\u%04X", (int) c));
+				} else {
+					out.write(c);
+				}
+			}
+		}
+
+		out.write('"');
+	}
+
+}
@@ -0,0 +1,106 @@
+package demo.errors;
+
+import java.util.Date;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Everything an error view needs to know about one error, as a single model
+ * object - use <code>${errorModel.url}</code> and so on in the view. Replaces
+ * adding <code>exception</code>, <code>url</code>, <code>timestamp</code> and
+ * <code>status</code> to the model one at a time.
+ * <p>
+ * Only the time is recorded when it is created. The URL, the formatted
+ * timestamp and the <tt>Date</tt> are worked out the first time the view asks
+ * for them, so an error whose view is never rendered (such as an item in a
+ * batch) costs nothing more. Since the URL comes from the request, it must be
+ * read while the request is still being processed.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorModel {
+
+	/** Name of the model attribute holding the error model. */
+	public static final String MODEL_NAME = "errorModel";
+
+	private final HttpServletRequest request;
+	private final Throwable exception;
+	private final int status;
+	private final long timestampMillis;
+
+	private String url;
+	private String timestamp;
+	private Date date;
+
+	/**
+	 * @param request
+	 *            The request that failed.
+	 * @param exception
+	 *            What it raised.
+	 * @param status
+	 *            The response status.
+	 */
+	public ErrorModel(HttpServletRequest request, Throwable exception,
+			int status) {
+		this.request = request;
+		this.exception = exception;
+		this.status = status;
+		this.timestampMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * @param viewName
+	 *            Error view to render.
+	 * @return A model and view holding just this model.
+	 */
+	public ModelAndView toModelAndView(String viewName) {
+		return new ModelAndView(viewName, MODEL_NAME, this);
+	}
+
+	public Throwable getException() {
+		return exception;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getTimestampMillis() {
+		return timestampMillis;
+	}
+
+	/**
+	 * @return The full URL of the request that failed.
+	 */
+	public String getUrl() {
+		if (url == null)
+			url = request.getRequestURL().toString();
+
+		return url;
+	}
+
+	/**
+	 * @return When the error occurred, in the same format as
+	 *         <code>Date.toString()</code>.
+	 */
+	public String getTimestamp() {
+		if (timestamp == null)
+			timestamp = new Date(timestampMillis).toString();
+
+		return timestamp;
+	}
+
+	/**
+	 * @return When the error occurred, for a view that formats the time
+	 *         itself - such as <code>${#dates.format(errorModel.date)}</code>.
+	 */
+	public Date getDate() {
+		if (date == null)
+			date = new Date(timestampMillis);
+
+		return date;
+	}
+
+}
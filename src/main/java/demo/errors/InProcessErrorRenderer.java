@@ -0,0 +1,142 @@
+package demo.errors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.servlet.error.BasicErrorController;
+import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Generates the same response as <code>forward:/error</code> but within the
+ * current request. A forward means a second trip through the
+ * <tt>DispatcherServlet</tt> - filters, handler mapping and so on - just to
+ * reach the error controller: Spring Boot's <tt>BasicErrorController</tt> or
+ * our {@link LeanErrorController}. Here the controller is called directly
+ * instead, so the status, the model and the view are exactly what the forward
+ * would have produced.
+ * <p>
+ * As with the forward, the status code is taken from the
+ * <code>javax.servlet.error.status_code</code> request attribute and browsers
+ * get the <code>error.html</code> view whilst other clients get JSON.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class InProcessErrorRenderer {
+
+	protected Logger logger;
+
+	protected final ErrorController errorController;
+	protected final ObjectMapper mapper;
+
+	/**
+	 * @param errorController
+	 *            Either a <tt>BasicErrorController</tt> or a
+	 *            {@link LeanErrorController}.
+	 * @param mapper
+	 *            Used to write the JSON.
+	 */
+	public InProcessErrorRenderer(ErrorController errorController,
+			ObjectMapper mapper) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.errorController = errorController;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Render the error page for the current request. Intended to be returned
+	 * from an <tt>@ExceptionHandler</tt> method.
+	 *
+	 * @param request
+	 *            The current request.
+	 * @param response
+	 *            The current response - its status is set.
+	 * @return The view and model to render - empty if JSON has already been
+	 *         written to the response.
+	 * @throws Exception
+	 *             If the page or the JSON could not be written.
+	 */
+	public ModelAndView render(HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		// The forward would make this available as the page's path
+		if (request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI) == null)
+			request.setAttribute(RequestDispatcher.ERROR_REQUEST_URI,
+					request.getRequestURI());
+
+		boolean html = acceptsHtml(request);
+
+		if (errorController instanceof LeanErrorController) {
+			// Writes the response itself, nothing left to render
+			LeanErrorController leanController = (LeanErrorController) errorController;
+			logger.info("Writing error " + (html ? "page" : "JSON") + " for "
+					+ request.getRequestURI());
+
+			if (html)
+				leanController.errorHtml(request, response);
+			else
+				leanController.error(request, response);
+
+			return new ModelAndView();
+		}
+
+		BasicErrorController basicController = (BasicErrorController) errorController;
+
+		if (html) {
+			logger.info("Rendering error view for " + request.getRequestURI());
+			return basicController.errorHtml(request, response);
+		}
+
+		logger.info("Rendering error JSON for " + request.getRequestURI());
+		ResponseEntity<Map<String, Object>> entity = basicController.error(request);
+		response.setStatus(entity.getStatusCodeValue());
+
+		// No body for a 204
+		if (entity.getBody() != null) {
+			// Jackson writes UTF-8, as it does after the forward
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			mapper.writeValue(response.getOutputStream(), entity.getBody());
+		}
+
+		// Response is complete - an empty ModelAndView means nothing to render
+		return new ModelAndView();
+	}
+
+	/**
+	 * Same decision as the request mappings on <tt>BasicErrorController</tt>:
+	 * HTML only if explicitly requested, a wildcard alone means JSON.
+	 */
+	protected boolean acceptsHtml(HttpServletRequest request) {
+		List<MediaType> accepted;
+
+		try {
+			accepted = MediaType.parseMediaTypes(Collections.list(request
+					.getHeaders(HttpHeaders.ACCEPT)));
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+
+		for (MediaType mediaType : accepted) {
+			if (!mediaType.isWildcardType()
+					&& mediaType.isCompatibleWith(MediaType.TEXT_HTML))
+				return true;
+		}
+
+		return false;
+	}
+
+}
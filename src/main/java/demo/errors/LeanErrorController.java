@@ -0,0 +1,318 @@
+package demo.errors;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.ErrorProperties;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import demo.jfr.ErrorFallthroughEvent;
+import demo.jfr.JfrEvents;
+
+/**
+ * Replacement for Spring Boot's <tt>BasicErrorController</tt>, handling
+ * <code>/error</code> for exceptions that no resolver handled (such as
+ * <tt>FilterException</tt>) and for <code>forward:/error</code>. The output
+ * is the same, but it is generated with less work:
+ * <ul>
+ * <li>The error details are read from the servlet error attributes straight
+ * into an {@link ErrorDetails} rather than building a map of them. The stack
+ * trace is only turned into a string if it is going to be shown.
+ * <li>The page or JSON is written into a reused byte buffer from a
+ * {@link BufferPool} and sent in one write, with its length.
+ * </ul>
+ * The <code>error</code> view is resolved by the same view resolvers the
+ * <tt>DispatcherServlet</tt> uses, so it is rendered exactly as any other
+ * page is.
+ * Which details are shown is controlled by the usual
+ * <code>server.error.include-*</code> properties. Binding errors are not
+ * supported as none of the demos raise them, and nor are status-specific
+ * pages such as <code>error/404.html</code> as there are none - the
+ * <tt>BasicErrorController</tt> looks for them on every request.
+ * <p>
+ * If Java Flight Recorder is running, each request is recorded as an
+ * {@link ErrorFallthroughEvent}.
+ * <p>
+ * Setup by <code>ErrorControllerConfiguration</code> unless
+ * <code>demo.errors.lean-controller=false</code>. Deliberately not a
+ * <tt>@Controller</tt>, so component scanning does not pick it up regardless -
+ * the type-level <tt>@RequestMapping</tt> is enough for Spring MVC.
+ *
+ * @author Paul Chapman
+ */
+@RequestMapping("${server.error.path:${error.path:/error}}")
+public class LeanErrorController implements ErrorController {
+
+	public static final String ERROR_VIEW = "error";
+
+	protected Logger logger;
+
+	protected final ErrorAttributes errorAttributes;
+	protected final ErrorProperties errorProperties;
+	protected final List<ViewResolver> viewResolvers;
+	protected final BufferPool buffers;
+
+	/**
+	 * @param viewResolvers
+	 *            The application's view resolvers, in order - as the
+	 *            <tt>ContentNegotiatingViewResolver</tt> uses them, so not
+	 *            including it.
+	 */
+	public LeanErrorController(ErrorAttributes errorAttributes,
+			ErrorProperties errorProperties, List<ViewResolver> viewResolvers,
+			BufferPool buffers) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.errorAttributes = errorAttributes;
+		this.errorProperties = errorProperties;
+		this.viewResolvers = viewResolvers;
+		this.buffers = buffers;
+	}
+
+	/**
+	 * Render the <code>error</code> view for browsers.
+	 *
+	 * @param request
+	 *            The current request.
+	 * @param response
+	 *            The response to write the page to.
+	 * @throws Exception
+	 *             If the view cannot be resolved or rendered.
+	 */
+	@RequestMapping(produces = MediaType.TEXT_HTML_VALUE)
+	public void errorHtml(HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		if (!JfrEvents.isErrorFallthroughEnabled()) {
+			writeHtml(request, response);
+			return;
+		}
+
+		ErrorFallthroughEvent event = new ErrorFallthroughEvent();
+		event.begin();
+		writeHtml(request, response);
+		commit(event, request);
+	}
+
+	/**
+	 * Return the error details as JSON for any other client.
+	 *
+	 * @param request
+	 *            The current request.
+	 * @param response
+	 *            The response to write the JSON to.
+	 * @throws IOException
+	 *             If the JSON cannot be written.
+	 */
+	@RequestMapping
+	public void error(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		if (!JfrEvents.isErrorFallthroughEnabled()) {
+			writeJson(request, response);
+			return;
+		}
+
+		ErrorFallthroughEvent event = new ErrorFallthroughEvent();
+		event.begin();
+		writeJson(request, response);
+		commit(event, request);
+	}
+
+	protected void writeHtml(HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		ErrorDetails details = getErrorDetails(request);
+		View view = resolveErrorView(RequestContextUtils.getLocale(request));
+
+		Map<String, Object> model = new HashMap<String, Object>(16);
+		model.put("timestamp", details.getTimestamp());
+		model.put("status", details.getStatus());
+		model.put("error", details.getError());
+		model.put("exception", details.getException());
+		model.put("trace", details.getTrace());
+		model.put("message", details.getMessage());
+		model.put("path", details.getPath());
+
+		response.setStatus(getStatus(request));
+		PooledBuffer buffer = buffers.acquire();
+
+		try {
+			BufferedResponse buffered = new BufferedResponse(response, buffer);
+			view.render(model, request, buffered);
+			buffered.copyBodyToResponse();
+		} finally {
+			buffers.release(buffer);
+		}
+	}
+
+	/**
+	 * Ask each view resolver in turn, as the <tt>DispatcherServlet</tt> does.
+	 */
+	protected View resolveErrorView(Locale locale) throws Exception {
+		for (ViewResolver resolver : viewResolvers) {
+			View view = resolver.resolveViewName(ERROR_VIEW, locale);
+
+			if (view != null)
+				return view;
+		}
+
+		throw new ServletException("Could not resolve view with name '"
+				+ ERROR_VIEW + "'");
+	}
+
+	protected void writeJson(HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		int status = getStatus(request);
+		response.setStatus(status);
+
+		if (status == HttpStatus.NO_CONTENT.value())
+			return;
+
+		ErrorDetails details = getErrorDetails(request);
+
+		PooledBuffer buffer = buffers.acquire();
+
+		try {
+			details.writeJson(buffer.getWriter());
+
+			// UTF-8 without saying so, as Jackson writes it for Spring Boot
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			response.setContentLength(buffer.size());
+			buffer.writeTo(response.getOutputStream());
+		} finally {
+			buffers.release(buffer);
+		}
+	}
+
+	protected void commit(ErrorFallthroughEvent event,
+			HttpServletRequest request) {
+		if (event.shouldCommit()) {
+			event.setException(getError(request));
+			event.setPath(JfrEvents.originalPath(request));
+			event.setStatus(getStatus(request));
+			event.setDispatch(request.getDispatcherType().name());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Collect the details exactly as <tt>DefaultErrorAttributes</tt> would.
+	 */
+	protected ErrorDetails getErrorDetails(HttpServletRequest request) {
+		Object statusCode = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
+		int status;
+		String error;
+
+		if (statusCode instanceof Integer) {
+			status = (Integer) statusCode;
+			HttpStatus httpStatus = HttpStatus.resolve(status);
+			error = httpStatus == null ? "Http Status " + status
+					: httpStatus.getReasonPhrase();
+		} else {
+			// Not an error dispatch - /error requested directly
+			status = 999;
+			error = "None";
+		}
+
+		Throwable exception = getError(request);
+
+		String exceptionName = exception != null
+				&& errorProperties.isIncludeException()
+						? exception.getClass().getName() : null;
+		String trace = exception != null && isIncluded(request,
+				errorProperties.getIncludeStacktrace(), "trace")
+						? getStackTrace(exception) : null;
+		String message = isIncluded(request,
+				errorProperties.getIncludeMessage(), "message")
+						? getMessage(request, exception) : null;
+
+		return new ErrorDetails(new Date(), status, error, exceptionName,
+				trace, message, (String) request
+						.getAttribute(RequestDispatcher.ERROR_REQUEST_URI));
+	}
+
+	/**
+	 * @return The exception that caused the error, unwrapped from any
+	 *         <tt>ServletException</tt>, or null if there was none.
+	 */
+	protected Throwable getError(HttpServletRequest request) {
+		Throwable exception = errorAttributes.getError(new ServletWebRequest(
+				request));
+
+		while (exception instanceof ServletException
+				&& exception.getCause() != null)
+			exception = exception.getCause();
+
+		return exception;
+	}
+
+	/**
+	 * @return The status for the response, 500 if none has been set or it is
+	 *         not a valid HTTP status.
+	 */
+	protected int getStatus(HttpServletRequest request) {
+		Object status = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
+		return status instanceof Integer
+				&& HttpStatus.resolve((Integer) status) != null ? (Integer) status
+						: HttpStatus.INTERNAL_SERVER_ERROR.value();
+	}
+
+	protected String getMessage(HttpServletRequest request, Throwable exception) {
+		Object message = request.getAttribute(RequestDispatcher.ERROR_MESSAGE);
+
+		if (message != null && message.toString().length() > 0)
+			return message.toString();
+
+		if (exception != null && StringUtils.hasLength(exception.getMessage()))
+			return exception.getMessage();
+
+		return "No message available";
+	}
+
+	protected String getStackTrace(Throwable exception) {
+		StringWriter trace = new StringWriter();
+		exception.printStackTrace(new PrintWriter(trace));
+		return trace.toString();
+	}
+
+	/**
+	 * Same rules as <tt>BasicErrorController</tt>: always, never or only if
+	 * the named request parameter is present and not "false".
+	 */
+	protected boolean isIncluded(HttpServletRequest request,
+			ErrorProperties.IncludeAttribute include, String parameter) {
+		switch (include) {
+		case ALWAYS:
+			return true;
+		case ON_PARAM:
+			String value = request.getParameter(parameter);
+			return value != null && !"false".equalsIgnoreCase(value);
+		default:
+			return false;
+		}
+	}
+
+	public BufferPool getBuffers() {
+		return buffers;
+	}
+
+}
@@ -0,0 +1,181 @@
+package demo.errors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A reusable byte buffer, from a {@link BufferPool}, that a page or JSON body
+ * is written into before being copied to the response in one go. Text is
+ * written via its {@link #getWriter() writer}, created once along with the
+ * buffer, which encodes each character as UTF-8 straight into the buffer -
+ * unlike an <tt>OutputStreamWriter</tt>, which allocates on every write.
+ *
+ * @author Paul Chapman
+ */
+public class PooledBuffer extends ByteArrayOutputStream {
+
+	protected final Utf8Writer writer;
+	protected final PrintWriter printWriter;
+
+	/**
+	 * @param initialBytes
+	 *            Initial size of the buffer.
+	 */
+	public PooledBuffer(int initialBytes) {
+		super(initialBytes);
+		this.writer = new Utf8Writer();
+		this.printWriter = new PrintWriter(writer);
+	}
+
+	/**
+	 * @return Writes UTF-8 into this buffer.
+	 */
+	public Writer getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @return The same writer, as a <tt>PrintWriter</tt> for a servlet
+	 *         response.
+	 */
+	public PrintWriter getPrintWriter() {
+		return printWriter;
+	}
+
+	/**
+	 * @return How many bytes the buffer can hold before it has to grow.
+	 */
+	public int capacity() {
+		return buf.length;
+	}
+
+	/**
+	 * Empty the buffer, ready for reuse.
+	 */
+	public synchronized void clear() {
+		reset();
+		writer.highSurrogate = 0;
+	}
+
+	/**
+	 * Append a byte - as <code>write(int)</code> but without locking, since
+	 * only the writer's thread uses the buffer.
+	 */
+	protected void put(int b) {
+		if (count == buf.length)
+			grow(1);
+
+		buf[count++] = (byte) b;
+	}
+
+	/**
+	 * Make room for at least <code>bytes</code> more.
+	 */
+	protected void grow(int bytes) {
+		if (count + bytes > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(count + bytes, buf.length * 2));
+	}
+
+	/**
+	 * Encodes characters as UTF-8 directly into the buffer. Unpaired
+	 * surrogates are written as <code>?</code>, as the JDK's encoder does.
+	 */
+	protected class Utf8Writer extends Writer {
+		final char[] chars = new char[1024];
+		char highSurrogate;
+
+		@Override
+		public void write(int c) {
+			encode((char) c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			int end = off + len;
+
+			if (highSurrogate != 0 && off < end)
+				encode(cbuf[off++]);
+
+			grow(end - off);
+			byte[] bytes = buf;
+			int n = count;
+
+			// Most of a page is ASCII, and room for it has been made
+			for (int i = off; i < end; i++) {
+				char c = cbuf[i];
+
+				if (c < 0x80 && n < bytes.length) {
+					bytes[n++] = (byte) c;
+				} else {
+					count = n;
+					encode(c);
+
+					// A high surrogate must be followed by its pair
+					if (highSurrogate != 0 && i + 1 < end)
+						encode(cbuf[++i]);
+
+					bytes = buf;
+					n = count;
+				}
+			}
+
+			count = n;
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			// Copied in chunks, as a char[] is much quicker to walk
+			while (len > 0) {
+				int chunk = Math.min(len, chars.length);
+				str.getChars(off, off + chunk, chars, 0);
+				write(chars, 0, chunk);
+				off += chunk;
+				len -= chunk;
+			}
+		}
+
+		protected void encode(char c) {
+			if (highSurrogate != 0) {
+				char high = highSurrogate;
+				highSurrogate = 0;
+
+				if (Character.isLowSurrogate(c)) {
+					int codePoint = Character.toCodePoint(high, c);
+					put(0xF0 | (codePoint >> 18));
+					put(0x80 | ((codePoint >> 12) & 0x3F));
+					put(0x80 | ((codePoint >> 6) & 0x3F));
+					put(0x80 | (codePoint & 0x3F));
+					return;
+				}
+
+				put('?');
+			}
+
+			if (c < 0x80) {
+				put(c);
+			} else if (c < 0x800) {
+				put(0xC0 | (c >> 6));
+				put(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c)) {
+				highSurrogate = c;
+			} else if (Character.isLowSurrogate(c)) {
+				put('?');
+			} else {
+				put(0xE0 | (c >> 12));
+				put(0x80 | ((c >> 6) & 0x3F));
+				put(0x80 | (c & 0x3F));
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Support for generating the Spring Boot error page (normally produced by
+ * forwarding to <code>/error</code>).
+ *
+ * @author Paul Chapman
+ */
+package demo.errors;
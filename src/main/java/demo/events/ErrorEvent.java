@@ -0,0 +1,81 @@
+package demo.events;
+
+/**
+ * Immutable record of a single exception raised while handling a request.
+ * Getters allow Jackson to write it as JSON.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorEvent {
+
+	private final long timestamp;
+	private final String exception;
+	private final String message;
+	private final String uri;
+	private final String handler;
+	private final int status;
+	private final boolean resolved;
+
+	public ErrorEvent(long timestamp, String exception, String message,
+			String uri, String handler, int status, boolean resolved) {
+		this.timestamp = timestamp;
+		this.exception = exception;
+		this.message = message;
+		this.uri = uri;
+		this.handler = handler;
+		this.status = status;
+		this.resolved = resolved;
+	}
+
+	/**
+	 * @return When the request completed, as milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return Fully qualified class-name of the exception.
+	 */
+	public String getException() {
+		return exception;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	/**
+	 * @return The controller method that raised the exception.
+	 */
+	public String getHandler() {
+		return handler;
+	}
+
+	/**
+	 * @return HTTP status sent back to the client.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return True if an exception resolver handled the exception, false if it
+	 *         escaped to the container (and so to the <code>/error</code>
+	 *         page).
+	 */
+	public boolean isResolved() {
+		return resolved;
+	}
+
+	@Override
+	public String toString() {
+		return exception + " at " + uri + " -> " + status
+				+ (resolved ? "" : " (unresolved)");
+	}
+
+}
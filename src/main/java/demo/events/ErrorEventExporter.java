@@ -0,0 +1,199 @@
+package demo.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects {@link ErrorEvent}s in a bounded queue and writes them to an
+ * {@link ErrorEventSink} in batches. A batch is written as soon as it holds
+ * <code>batchSize</code> events, or when <code>flushIntervalMillis</code> has
+ * passed since its first event arrived, whichever comes first.
+ * <p>
+ * Request threads never block: if the queue is full the event is dropped and
+ * counted. Drops are logged by the background thread each time a batch is
+ * written, and all counts are available from {@link ErrorEventsEndpoint}.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorEventExporter {
+
+	protected Logger logger;
+
+	protected final ErrorEventSink sink;
+	protected final BlockingQueue<ErrorEvent> queue;
+	protected final int batchSize;
+	protected final long flushIntervalMillis;
+
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong exported = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+
+	private volatile boolean running;
+	private Thread worker;
+	private long droppedReported;
+
+	public ErrorEventExporter(ErrorEventSink sink, int queueCapacity,
+			int batchSize, long flushIntervalMillis) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.sink = sink;
+		this.queue = new ArrayBlockingQueue<ErrorEvent>(queueCapacity);
+		this.batchSize = batchSize;
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	/**
+	 * Queue an event for export. Never blocks.
+	 *
+	 * @param event
+	 *            The event to export.
+	 * @return False if the queue was full and the event has been dropped.
+	 */
+	public boolean offer(ErrorEvent event) {
+		if (queue.offer(event)) {
+			accepted.incrementAndGet();
+			return true;
+		}
+
+		dropped.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Start the background thread that writes the batches.
+	 */
+	public synchronized void start() {
+		if (running)
+			return;
+
+		logger.info("Exporting error events to " + sink + " in batches of "
+				+ batchSize + " every " + flushIntervalMillis + "ms");
+		running = true;
+		worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				exportLoop();
+			}
+		}, "error-event-exporter");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stop the background thread, writing out anything still queued first.
+	 */
+	public synchronized void stop() {
+		if (!running)
+			return;
+
+		running = false;
+		worker.interrupt();
+
+		try {
+			worker.join(flushIntervalMillis + 5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	protected void exportLoop() {
+		List<ErrorEvent> batch = new ArrayList<ErrorEvent>(batchSize);
+		long deadline = 0;
+
+		while (running) {
+			try {
+				long wait = batch.isEmpty() ? flushIntervalMillis
+						: deadline - System.currentTimeMillis();
+				ErrorEvent event = wait > 0
+						? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+
+				if (event != null) {
+					if (batch.isEmpty())
+						deadline = System.currentTimeMillis()
+								+ flushIntervalMillis;
+
+					batch.add(event);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+			} catch (InterruptedException e) {
+				// Woken by stop() - drop through to write what we have
+			}
+
+			if (batch.size() >= batchSize || (!batch.isEmpty()
+					&& System.currentTimeMillis() >= deadline)) {
+				write(batch);
+				batch.clear();
+			}
+		}
+
+		// Shutting down - write out whatever is left
+		queue.drainTo(batch);
+
+		for (int from = 0; from < batch.size(); from += batchSize)
+			write(batch.subList(from, Math.min(from + batchSize, batch.size())));
+	}
+
+	protected void write(List<ErrorEvent> batch) {
+		if (batch.isEmpty())
+			return;
+
+		try {
+			sink.write(batch);
+			exported.addAndGet(batch.size());
+		} catch (Exception e) {
+			failed.addAndGet(batch.size());
+			logger.warn("Failed to export " + batch.size() + " error events to "
+					+ sink + ": " + e);
+		}
+
+		batches.incrementAndGet();
+
+		long droppedNow = dropped.get();
+		if (droppedNow > droppedReported) {
+			logger.warn((droppedNow - droppedReported)
+					+ " error events dropped - export queue was full");
+			droppedReported = droppedNow;
+		}
+	}
+
+	public ErrorEventSink getSink() {
+		return sink;
+	}
+
+	public int getQueued() {
+		return queue.size();
+	}
+
+	public int getQueueCapacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getExported() {
+		return exported.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getBatches() {
+		return batches.get();
+	}
+
+}
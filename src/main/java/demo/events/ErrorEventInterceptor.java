@@ -0,0 +1,81 @@
+package demo.events;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import demo.warmup.WarmUpRequests;
+
+/**
+ * Records an {@link ErrorEvent} for every request whose handler raised an
+ * exception, whether it was then resolved or not. This sees the exceptions
+ * handled by all the demos - <tt>@ExceptionHandler</tt> methods, the
+ * <tt>@ControllerAdvice</tt>, the <tt>SimpleMappingExceptionResolver</tt> and
+ * <tt>@ResponseStatus</tt> annotations - without any of them needing to know
+ * about it.
+ * <p>
+ * Once an exception has been resolved it is no longer passed to
+ * {@link #afterCompletion}, so instead we ask Spring Boot's
+ * {@link ErrorAttributes} (which is itself an exception resolver, run first
+ * of all, and remembers the exception in the request).
+ *
+ * @author Paul Chapman
+ */
+public class ErrorEventInterceptor implements HandlerInterceptor {
+
+	protected final ErrorEventExporter exporter;
+	protected final ErrorAttributes errorAttributes;
+
+	public ErrorEventInterceptor(ErrorEventExporter exporter,
+			ErrorAttributes errorAttributes) {
+		this.exporter = exporter;
+		this.errorAttributes = errorAttributes;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		// Forwards to /error and container error dispatches are part of the
+		// original request, which records the event itself. An asynchronous request
+		// only completes on its async dispatch, so that one counts.
+		if (request.getDispatcherType() != DispatcherType.REQUEST
+				&& request.getDispatcherType() != DispatcherType.ASYNC)
+			return;
+
+		// Not a real error - see WarmUpRequests
+		if (WarmUpRequests.isWarmUp(request))
+			return;
+
+		Throwable error = ex != null ? ex
+				: errorAttributes.getError(new ServletWebRequest(request));
+
+		if (error == null)
+			return;
+
+		// An unresolved exception has not set the status yet - the container
+		// will send a 500.
+		int status = ex != null ? HttpStatus.INTERNAL_SERVER_ERROR.value()
+				: response.getStatus();
+
+		exporter.offer(new ErrorEvent(System.currentTimeMillis(),
+				error.getClass().getName(), error.getMessage(),
+				request.getRequestURI(), describe(handler), status, ex == null));
+	}
+
+	protected String describe(Object handler) {
+		if (handler instanceof HandlerMethod) {
+			HandlerMethod method = (HandlerMethod) handler;
+			return method.getBeanType().getSimpleName() + '.'
+					+ method.getMethod().getName();
+		}
+
+		return handler == null ? null : handler.getClass().getSimpleName();
+	}
+
+}
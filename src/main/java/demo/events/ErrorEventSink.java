@@ -0,0 +1,26 @@
+package demo.events;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for batches of {@link ErrorEvent}s. Only ever invoked by the
+ * {@link ErrorEventExporter}'s background thread, so implementations need not
+ * be thread-safe.
+ *
+ * @author Paul Chapman
+ */
+public interface ErrorEventSink {
+
+	/**
+	 * Write out a batch of events.
+	 *
+	 * @param batch
+	 *            Events in the order they occurred - never empty.
+	 * @throws IOException
+	 *             If the batch could not be written. The batch is counted as
+	 *             failed and is not retried.
+	 */
+	void write(List<ErrorEvent> batch) throws IOException;
+
+}
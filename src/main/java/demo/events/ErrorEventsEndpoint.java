@@ -0,0 +1,39 @@
+package demo.events;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint, <code>/actuator/errorevents</code>, reporting how many
+ * error events have been exported, dropped because the queue was full or lost
+ * because the sink failed.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "errorevents")
+public class ErrorEventsEndpoint {
+
+	protected final ErrorEventExporter exporter;
+
+	public ErrorEventsEndpoint(ErrorEventExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("sink", exporter.getSink().toString());
+		stats.put("queued", exporter.getQueued());
+		stats.put("queueCapacity", exporter.getQueueCapacity());
+		stats.put("accepted", exporter.getAccepted());
+		stats.put("exported", exporter.getExported());
+		stats.put("dropped", exporter.getDropped());
+		stats.put("failed", exporter.getFailed());
+		stats.put("batches", exporter.getBatches());
+		return stats;
+	}
+
+}
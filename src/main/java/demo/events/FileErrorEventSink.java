@@ -0,0 +1,50 @@
+package demo.events;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends each event, as a line of JSON, to a local file. A log shipper can
+ * then forward the file off-box.
+ *
+ * @author Paul Chapman
+ */
+public class FileErrorEventSink implements ErrorEventSink {
+
+	protected final File file;
+	protected final ObjectMapper mapper;
+
+	public FileErrorEventSink(File file, ObjectMapper mapper) {
+		this.file = file;
+		this.mapper = mapper;
+	}
+
+	@Override
+	public void write(List<ErrorEvent> batch) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), StandardCharsets.UTF_8));
+
+		try {
+			for (ErrorEvent event : batch) {
+				out.write(mapper.writeValueAsString(event));
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "file:" + file;
+	}
+
+}
@@ -0,0 +1,64 @@
+package demo.events;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * POSTs each batch, as a JSON array, to a collector - typically an agent
+ * listening on the local host. One HTTP call is made per batch, never per
+ * event.
+ *
+ * @author Paul Chapman
+ */
+public class HttpErrorEventSink implements ErrorEventSink {
+
+	protected final URL url;
+	protected final ObjectMapper mapper;
+	protected final int timeoutMillis;
+
+	public HttpErrorEventSink(URL url, ObjectMapper mapper, int timeoutMillis) {
+		this.url = url;
+		this.mapper = mapper;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	@Override
+	public void write(List<ErrorEvent> batch) throws IOException {
+		byte[] body = mapper.writeValueAsBytes(batch);
+
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(timeoutMillis);
+		connection.setReadTimeout(timeoutMillis);
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", "application/json");
+
+		try {
+			OutputStream out = connection.getOutputStream();
+			try {
+				out.write(body);
+			} finally {
+				out.close();
+			}
+
+			int status = connection.getResponseCode();
+			if (status < 200 || status > 299)
+				throw new IOException("Collector at " + url + " returned "
+						+ status);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return url.toString();
+	}
+
+}
@@ -0,0 +1,8 @@
+/**
+ * Exports details of every exception raised by the demo controllers, in
+ * batches, to a file or a remote collector. Nothing is sent on the request
+ * thread - events are queued and written by a single background thread.
+ *
+ * @author Paul Chapman
+ */
+package demo.events;
@@ -1,7 +1,5 @@
 package demo.example;
 
-import java.util.Date;
-
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -10,6 +8,7 @@ import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
 
 import demo.config.ExceptionConfiguration;
+import demo.errors.ErrorModel;
 
 /**
  * Not used in this application, but an example of how to extend the
@@ -59,11 +58,11 @@ public class ExampleExceptionHandlerExceptionResolver extends
 		ModelAndView mav = super.doResolveHandlerMethodException(request,
 				response, handlerMethod, exception);
 
-		// Make more information available to the view
-		mav.addObject("exception", exception);
-		mav.addObject("url", request.getRequestURL());
-		mav.addObject("timestamp", new Date());
-		mav.addObject("status", 500);
+		// Make more information available to the view. The URL and timestamp
+		// are only worked out if the view uses them - ${errorModel.date} is
+		// the timestamp as a Date, for a view that formats it itself.
+		mav.addObject(ErrorModel.MODEL_NAME,
+				new ErrorModel(request, exception, 500));
 		return mav;
 	}
 }
@@ -1,7 +1,5 @@
 package demo.example;
 
-import java.util.Date;
-
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -9,6 +7,8 @@ import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
 
 import demo.config.ExceptionConfiguration;
+import demo.errors.ErrorModel;
+import demo.metadata.CachingSimpleMappingExceptionResolver;
 
 /**
  * Not used in this application, but an example of how to extend the
@@ -20,7 +20,7 @@ import demo.config.ExceptionConfiguration;
  * @author Paul Chapman
  */
 public class ExampleSimpleMappingExceptionResolver extends
-		SimpleMappingExceptionResolver {
+		CachingSimpleMappingExceptionResolver {
 
 	/**
 	 * Also enable logging to this classe's logger by default.
@@ -51,10 +51,12 @@ public class ExampleSimpleMappingExceptionResolver extends
 				exception);
 
 		// Make more information available to the view - note that
-		// SimpleMappingExceptionResolver adds the exception already
-		mav.addObject("url", request.getRequestURL());
-		mav.addObject("timestamp", new Date());
-		mav.addObject("status", 500);
+		// SimpleMappingExceptionResolver adds the exception already. The URL
+		// and timestamp are only worked out if the view uses them -
+		// ${errorModel.date} is the timestamp as a Date, for a view that
+		// formats it itself.
+		mav.addObject(ErrorModel.MODEL_NAME,
+				new ErrorModel(request, exception, 500));
 		return mav;
 	}
 }
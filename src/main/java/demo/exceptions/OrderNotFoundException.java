@@ -15,7 +15,17 @@ public class OrderNotFoundException extends RuntimeException {
 	 */
 	private static final long serialVersionUID = -8790211652911971729L;
 
+	private final String orderId;
+
 	public OrderNotFoundException(String orderId) {
 		super(orderId + " not found");
+		this.orderId = orderId;
+	}
+
+	/**
+	 * @return The order that could not be found.
+	 */
+	public String getOrderId() {
+		return orderId;
 	}
 }
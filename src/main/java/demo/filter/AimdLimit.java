@@ -0,0 +1,127 @@
+package demo.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive concurrency limit using additive increase, multiplicative decrease
+ * (AIMD), as TCP does for its congestion window. While requests complete
+ * quickly and at least half of the limit is in use, each completion raises it
+ * by one. A request that takes longer than the latency threshold cuts it by
+ * the backoff factor - at most once per threshold period, so a burst of slow
+ * requests finishing together does not collapse it to the minimum.
+ * <p>
+ * Everything is lock-free, since it is used by every request.
+ *
+ * @author Paul Chapman
+ */
+public class AimdLimit {
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoff;
+	private final long thresholdNanos;
+
+	private final AtomicInteger limit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong lastDecrease;
+
+	/**
+	 * @param initialLimit
+	 *            Limit to start with.
+	 * @param minLimit
+	 *            Never go below this.
+	 * @param maxLimit
+	 *            Never go above this - no point exceeding the server's request
+	 *            threads.
+	 * @param backoff
+	 *            Multiplier applied when a request is too slow, such as 0.9.
+	 * @param thresholdMillis
+	 *            A request taking longer than this counts as too slow.
+	 */
+	public AimdLimit(int initialLimit, int minLimit, int maxLimit,
+			double backoff, long thresholdMillis) {
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.backoff = backoff;
+		this.thresholdNanos = thresholdMillis * 1000000;
+		this.limit = new AtomicInteger(Math.min(this.maxLimit,
+				Math.max(this.minLimit, initialLimit)));
+
+		// So the first slow request can decrease the limit straight away
+		this.lastDecrease = new AtomicLong(System.nanoTime() - thresholdNanos);
+	}
+
+	/**
+	 * Try to start a request.
+	 *
+	 * @return True if it is within the limit, in which case
+	 *         {@link #release(long)} must be called when it completes.
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+
+			if (current >= limit.get())
+				return false;
+
+			if (inFlight.compareAndSet(current, current + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * A request admitted by {@link #tryAcquire()} has completed.
+	 *
+	 * @param latencyNanos
+	 *            How long it took.
+	 */
+	public void release(long latencyNanos) {
+		release(latencyNanos, System.nanoTime());
+	}
+
+	void release(long latencyNanos, long now) {
+		int current = inFlight.getAndDecrement();
+
+		if (latencyNanos > thresholdNanos)
+			decrease(now);
+		else if (current * 2 >= limit.get())
+			increase();
+	}
+
+	protected void increase() {
+		while (true) {
+			int current = limit.get();
+
+			if (current >= maxLimit
+					|| limit.compareAndSet(current, current + 1))
+				return;
+		}
+	}
+
+	protected void decrease(long now) {
+		long last = lastDecrease.get();
+
+		// Only one decrease per threshold period, and only one thread makes it
+		if (now - last < thresholdNanos
+				|| !lastDecrease.compareAndSet(last, now))
+			return;
+
+		while (true) {
+			int current = limit.get();
+			int next = Math.max(minLimit, (int) (current * backoff));
+
+			if (next == current || limit.compareAndSet(current, next))
+				return;
+		}
+	}
+
+	public int getLimit() {
+		return limit.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+}
@@ -0,0 +1,172 @@
+package demo.filter;
+
+import java.io.IOException;
+import java.util.function.ToDoubleFunction;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rejects requests over an adaptive concurrency limit (see {@link AimdLimit})
+ * with an immediate 503 - no body, no <tt>DispatcherServlet</tt>, no
+ * exception resolvers. When error handling slows down (a database timing out,
+ * say) the limit drops, and the excess is turned away cheaply instead of
+ * waiting in the container's queue and making every request slow.
+ * <p>
+ * Runs ahead of every other filter. An asynchronous request keeps its place
+ * until it completes, although its thread has been released - but only the
+ * time it held a request thread counts as its latency. The rest is spent
+ * waiting for other work (deliberately, for the <code>/async</code> demo
+ * requests, which can wait far longer than the latency threshold) and says
+ * nothing about how busy this server is. Paths starting
+ * with the excluded prefix (<code>/actuator</code> by default) are never
+ * limited, so health checks still get an answer.
+ * <p>
+ * The limit, requests in flight and rejections are published as the metrics
+ * <code>demo.concurrency.limit</code>, <code>demo.concurrency.inflight</code>
+ * and <code>demo.concurrency.rejected</code> - see
+ * <code>/actuator/metrics</code>. Registered by Spring Boot like
+ * {@link BrokenFilter}, so it is mapped to "/*".
+ *
+ * @author Paul Chapman
+ */
+@Component
+@ConditionalOnProperty(name = "demo.limit.enabled", matchIfMissing = true)
+public class ConcurrencyLimitFilter implements Filter, Ordered {
+
+	protected Logger logger;
+
+	protected final AimdLimit limit;
+	protected final String excludedPrefix;
+	protected final Counter rejected;
+
+	public ConcurrencyLimitFilter(MeterRegistry registry,
+			@Value("${demo.limit.initial:100}") int initialLimit,
+			@Value("${demo.limit.min:10}") int minLimit,
+			@Value("${demo.limit.max:200}") int maxLimit,
+			@Value("${demo.limit.backoff:0.9}") double backoff,
+			@Value("${demo.limit.latency-threshold:1000}") long thresholdMillis,
+			@Value("${demo.limit.exclude:/actuator}") String excludedPrefix) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.limit = new AimdLimit(initialLimit, minLimit, maxLimit, backoff,
+				thresholdMillis);
+		this.excludedPrefix = excludedPrefix;
+
+		Gauge.builder("demo.concurrency.limit", limit,
+				new ToDoubleFunction<AimdLimit>() {
+					@Override
+					public double applyAsDouble(AimdLimit value) {
+						return value.getLimit();
+					}
+				}).description("Adaptive concurrency limit").register(registry);
+		Gauge.builder("demo.concurrency.inflight", limit,
+				new ToDoubleFunction<AimdLimit>() {
+					@Override
+					public double applyAsDouble(AimdLimit value) {
+						return value.getInFlight();
+					}
+				}).description("Requests being handled").register(registry);
+		this.rejected = Counter.builder("demo.concurrency.rejected")
+				.description("Requests rejected over the concurrency limit")
+				.register(registry);
+
+		logger.info("Concurrency limit " + limit.getLimit() + " (" + minLimit
+				+ "-" + maxLimit + "), slow after " + thresholdMillis + "ms");
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response,
+			FilterChain chain) throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest) || isExcluded(
+				(HttpServletRequest) request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		if (!limit.tryAcquire()) {
+			reject((HttpServletResponse) response);
+			return;
+		}
+
+		final long start = System.nanoTime();
+		boolean async = false;
+
+		try {
+			chain.doFilter(request, response);
+			async = request.isAsyncStarted();
+
+			if (async) {
+				final long threadNanos = System.nanoTime() - start;
+
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						limit.release(threadNanos);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+						// Restarted - keep listening
+						event.getAsyncContext().addListener(this);
+					}
+				});
+			}
+		} finally {
+			// Timeouts and errors are followed by onComplete too
+			if (!async)
+				limit.release(System.nanoTime() - start);
+		}
+	}
+
+	protected boolean isExcluded(HttpServletRequest request) {
+		return !excludedPrefix.isEmpty() && request.getRequestURI()
+				.startsWith(request.getContextPath() + excludedPrefix);
+	}
+
+	protected void reject(HttpServletResponse response) {
+		rejected.increment();
+		response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentLength(0);
+	}
+
+	/**
+	 * Ahead of every other filter - a rejected request should cost nothing.
+	 */
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	public AimdLimit getLimit() {
+		return limit;
+	}
+
+}
@@ -0,0 +1,230 @@
+package demo.handlers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.ControllerAdviceBean;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+/**
+ * An <tt>ExceptionHandlerExceptionResolver</tt> that invokes
+ * <tt>@ExceptionHandler</tt> methods through generated invokers (see
+ * {@link HandlerInvokerFactory}) with their argument resolvers chosen in
+ * advance, instead of reflectively with the argument resolvers searched on
+ * every call. Which handler method handles which exception is still decided
+ * by Spring.
+ * <p>
+ * Once Spring MVC has configured it, prepares the handler methods of every
+ * <tt>@ControllerAdvice</tt> and <tt>@Controller</tt>, so the work is done at
+ * startup rather than on the first exception.
+ * <p>
+ * Spring's answer is remembered for each controller class and exception
+ * class (and the class of every cause, since handlers are matched against
+ * the causes too), so the handler method is only looked up and created once.
+ * "No handler" is remembered as well. A handler method is only reused while
+ * it is bound to the same bean - the controller raising the exception, or a
+ * singleton <tt>@ControllerAdvice</tt>.
+ * <p>
+ * Installed in place of Spring MVC's own resolver by
+ * {@link demo.config.HandlerInvocationConfiguration}.
+ *
+ * @author Paul Chapman
+ */
+public class DirectExceptionHandlerExceptionResolver extends
+		ExceptionHandlerExceptionResolver {
+
+	/** Stop remembering handler methods beyond this many. */
+	protected static final int MAX_METHODS = 1000;
+
+	/**
+	 * Exceptions with more causes than this are always looked up - they are
+	 * rare and the chain may even be circular.
+	 */
+	protected static final int MAX_CAUSES = 16;
+
+	/**
+	 * What Spring's choice of handler method depends on: the class of the
+	 * controller and of the exception and its causes.
+	 */
+	protected static final class MethodKey {
+		final Class<?> handlerType;
+		/** The exception's class followed by the class of each cause. */
+		final Class<?>[] exceptionTypes;
+		final int hash;
+
+		MethodKey(Class<?> handlerType, Class<?>[] exceptionTypes) {
+			this.handlerType = handlerType;
+			this.exceptionTypes = exceptionTypes;
+			this.hash = 31 * Arrays.hashCode(exceptionTypes)
+					+ (handlerType == null ? 0 : handlerType.hashCode());
+		}
+
+		/**
+		 * @return The key, or null if the exception has too many causes.
+		 */
+		static MethodKey of(HandlerMethod handlerMethod, Exception exception) {
+			int depth = 0;
+
+			for (Throwable t = exception; t != null; t = t.getCause()) {
+				if (++depth > MAX_CAUSES)
+					return null;
+			}
+
+			Class<?>[] exceptionTypes = new Class<?>[depth];
+			Throwable t = exception;
+
+			for (int i = 0; i < depth; i++, t = t.getCause())
+				exceptionTypes[i] = t.getClass();
+
+			return new MethodKey(handlerMethod == null ? null
+					: handlerMethod.getBeanType(), exceptionTypes);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof MethodKey))
+				return false;
+
+			MethodKey other = (MethodKey) obj;
+			return hash == other.hash && handlerType == other.handlerType
+					&& Arrays.equals(exceptionTypes, other.exceptionTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * A remembered handler method (null if there is none) and the controller
+	 * it was found for.
+	 */
+	protected static final class CachedMethod {
+		final ServletInvocableHandlerMethod method;
+		final Object controller;
+
+		CachedMethod(ServletInvocableHandlerMethod method, Object controller) {
+			this.method = method;
+			this.controller = controller;
+		}
+	}
+
+	protected final HandlerInvokers invokers;
+
+	private final ConcurrentMap<MethodKey, CachedMethod> methods = new ConcurrentHashMap<MethodKey, CachedMethod>();
+
+	/** Advice beans that are always the same instance. */
+	private final Set<Object> singletonAdvice = Collections
+			.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+	public DirectExceptionHandlerExceptionResolver(HandlerInvokers invokers) {
+		this.invokers = invokers;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+
+		for (ControllerAdviceBean advice : getExceptionHandlerAdviceCache()
+				.keySet()) {
+			if (advice.getBeanType() != null)
+				invokers.prepareAll(advice.getBeanType(),
+						getArgumentResolvers().getResolvers());
+		}
+
+		ApplicationContext context = getApplicationContext();
+
+		if (context == null)
+			return;
+
+		for (String name : context.getBeanNamesForAnnotation(Controller.class)) {
+			Class<?> type = context.getType(name);
+
+			if (type != null)
+				invokers.prepareAll(type, getArgumentResolvers().getResolvers());
+		}
+
+		for (String name : context
+				.getBeanNamesForAnnotation(ControllerAdvice.class)) {
+			if (context.isSingleton(name))
+				singletonAdvice.add(context.getBean(name));
+		}
+	}
+
+	/**
+	 * Spring finds the handler method, which is then invoked using its
+	 * prepared handler. The same handler method is returned next time.
+	 */
+	@Override
+	protected ServletInvocableHandlerMethod getExceptionHandlerMethod(
+			HandlerMethod handlerMethod, Exception exception) {
+		Object controller = handlerMethod == null ? null : handlerMethod
+				.getBean();
+		MethodKey key = MethodKey.of(handlerMethod, exception);
+		CachedMethod cached = key == null ? null : methods.get(key);
+
+		if (cached != null && cached.controller == controller)
+			return cached.method;
+
+		ServletInvocableHandlerMethod method = createExceptionHandlerMethod(
+				handlerMethod, exception);
+
+		if (key != null && methods.size() < MAX_METHODS
+				&& isReusable(method, controller))
+			methods.put(key, new CachedMethod(method, controller));
+
+		return method;
+	}
+
+	/**
+	 * @return A new handler method for the exception, or null if no
+	 *         <tt>@ExceptionHandler</tt> handles it.
+	 */
+	protected ServletInvocableHandlerMethod createExceptionHandlerMethod(
+			HandlerMethod handlerMethod, Exception exception) {
+		ServletInvocableHandlerMethod method = super.getExceptionHandlerMethod(
+				handlerMethod, exception);
+
+		if (method == null)
+			return null;
+
+		DirectInvocableHandlerMethod direct = new DirectInvocableHandlerMethod(
+				method, invokers.get(method.getMethod(), getArgumentResolvers()
+						.getResolvers()));
+
+		// Spring sets these on every use, always to the same composites - set
+		// them now so a method shared between requests never lacks them
+		direct.setHandlerMethodArgumentResolvers(getArgumentResolvers());
+		direct.setHandlerMethodReturnValueHandlers(getReturnValueHandlers());
+		return direct;
+	}
+
+	/**
+	 * May the handler method be used again for the same controller? Not if it
+	 * belongs to advice that is not a singleton, since Spring would use a
+	 * different instance next time.
+	 */
+	protected boolean isReusable(ServletInvocableHandlerMethod method,
+			Object controller) {
+		return method == null || method.getBean() == controller
+				|| singletonAdvice.contains(method.getBean());
+	}
+
+	/**
+	 * @return How many handler methods (including "none") are remembered.
+	 */
+	public int getCachedMethods() {
+		return methods.size();
+	}
+
+}
@@ -0,0 +1,50 @@
+package demo.handlers;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+/**
+ * An <tt>@ExceptionHandler</tt> method invoked using its
+ * {@link PreparedHandler} instead of reflection. Only the invocation is
+ * replaced: <tt>@ResponseStatus</tt> and the return value are handled by
+ * Spring exactly as before.
+ *
+ * @author Paul Chapman
+ */
+public class DirectInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+	protected final PreparedHandler handler;
+
+	/**
+	 * @param handlerMethod
+	 *            The handler method Spring chose for the exception.
+	 * @param handler
+	 *            The same method, prepared.
+	 */
+	public DirectInvocableHandlerMethod(HandlerMethod handlerMethod,
+			PreparedHandler handler) {
+		super(handlerMethod);
+		this.handler = handler;
+	}
+
+	@Override
+	public Object invokeForRequest(NativeWebRequest request,
+			ModelAndViewContainer mavContainer, Object... providedArgs)
+			throws Exception {
+		long start = System.nanoTime();
+
+		try {
+			if (!handler.isDirect())
+				return super.invokeForRequest(request, mavContainer, providedArgs);
+
+			Object[] args = handler.resolveArguments(request, mavContainer,
+					providedArgs);
+			return handler.invoke(getBean(), args);
+		} finally {
+			handler.record(System.nanoTime() - start);
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package demo.handlers;
+
+/**
+ * Calls one <tt>@ExceptionHandler</tt> method directly - no reflection, no
+ * <tt>InvocationTargetException</tt>. Created by
+ * {@link HandlerInvokerFactory}.
+ *
+ * @author Paul Chapman
+ */
+public interface HandlerInvoker {
+
+	/**
+	 * @param bean
+	 *            The controller or controller advice.
+	 * @param args
+	 *            One argument for each parameter of the method.
+	 * @return What the method returned, or null if it is void.
+	 * @throws Exception
+	 *             Whatever the method threw, unwrapped.
+	 */
+	Object invoke(Object bean, Object[] args) throws Exception;
+
+}
@@ -0,0 +1,217 @@
+package demo.handlers;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Generates a {@link HandlerInvoker} for a method using
+ * <tt>LambdaMetafactory</tt> - the mechanism behind method references. The
+ * result is a class implementing one of the functional interfaces below that
+ * calls the method with an ordinary <tt>invokevirtual</tt>, so the JIT can
+ * inline it like any other call.
+ * <p>
+ * There is one interface per number of parameters, and separate ones for
+ * void methods, as <tt>LambdaMetafactory</tt> cannot spread an argument
+ * array or make a void method return null. Only public, non-static methods
+ * of public classes with at most {@link #MAX_PARAMETERS} parameters can be
+ * generated - others must be invoked reflectively.
+ *
+ * @author Paul Chapman
+ */
+public final class HandlerInvokerFactory {
+
+	/** Most parameters a generated invoker can pass. */
+	public static final int MAX_PARAMETERS = 4;
+
+	public interface Call0 {
+		Object call(Object bean) throws Exception;
+	}
+
+	public interface Call1 {
+		Object call(Object bean, Object a) throws Exception;
+	}
+
+	public interface Call2 {
+		Object call(Object bean, Object a, Object b) throws Exception;
+	}
+
+	public interface Call3 {
+		Object call(Object bean, Object a, Object b, Object c) throws Exception;
+	}
+
+	public interface Call4 {
+		Object call(Object bean, Object a, Object b, Object c, Object d)
+				throws Exception;
+	}
+
+	public interface Run0 {
+		void run(Object bean) throws Exception;
+	}
+
+	public interface Run1 {
+		void run(Object bean, Object a) throws Exception;
+	}
+
+	public interface Run2 {
+		void run(Object bean, Object a, Object b) throws Exception;
+	}
+
+	public interface Run3 {
+		void run(Object bean, Object a, Object b, Object c) throws Exception;
+	}
+
+	public interface Run4 {
+		void run(Object bean, Object a, Object b, Object c, Object d)
+				throws Exception;
+	}
+
+	private static final Class<?>[] CALLS = { Call0.class, Call1.class,
+			Call2.class, Call3.class, Call4.class };
+
+	private static final Class<?>[] RUNS = { Run0.class, Run1.class,
+			Run2.class, Run3.class, Run4.class };
+
+	private HandlerInvokerFactory() {
+	}
+
+	/**
+	 * @param method
+	 *            The method to invoke.
+	 * @return Why no invoker can be generated for it, or null if one can.
+	 */
+	public static String unsupportedReason(Method method) {
+		if (Modifier.isStatic(method.getModifiers()))
+			return "static method";
+		if (!Modifier.isPublic(method.getModifiers())
+				|| !Modifier.isPublic(method.getDeclaringClass().getModifiers()))
+			return "not public";
+		if (method.getParameterCount() > MAX_PARAMETERS)
+			return "more than " + MAX_PARAMETERS + " parameters";
+		return null;
+	}
+
+	/**
+	 * Generate an invoker.
+	 *
+	 * @param method
+	 *            The method to invoke - must be supported, see
+	 *            {@link #unsupportedReason(Method)}.
+	 * @return The invoker.
+	 * @throws IllegalArgumentException
+	 *             If the method is not supported or no invoker could be
+	 *             generated.
+	 */
+	public static HandlerInvoker create(Method method) {
+		String reason = unsupportedReason(method);
+
+		if (reason != null)
+			throw new IllegalArgumentException("Cannot generate invoker for "
+					+ method.toGenericString() + ": " + reason);
+
+		boolean returnsVoid = method.getReturnType() == void.class;
+		int arity = method.getParameterCount();
+		Class<?> type = (returnsVoid ? RUNS : CALLS)[arity];
+
+		try {
+			Object function = generate(method, type, returnsVoid);
+			return adapt(function, arity, returnsVoid);
+		} catch (Throwable e) {
+			throw new IllegalArgumentException("Cannot generate invoker for "
+					+ method.toGenericString(), e);
+		}
+	}
+
+	/**
+	 * Have <tt>LambdaMetafactory</tt> generate an implementation of the
+	 * functional interface that calls the method. Its arguments are cast (or
+	 * unboxed) to the method's parameter types, and a primitive result is
+	 * boxed.
+	 */
+	private static Object generate(Method method, Class<?> type,
+			boolean returnsVoid) throws Throwable {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle target = lookup.unreflect(method);
+
+		Method function = type.getMethods()[0];
+		MethodType erased = MethodType.methodType(function.getReturnType(),
+				function.getParameterTypes());
+
+		Class<?>[] parameters = new Class<?>[method.getParameterCount() + 1];
+		parameters[0] = method.getDeclaringClass();
+
+		for (int i = 0; i < method.getParameterCount(); i++)
+			parameters[i + 1] = ClassUtils
+					.resolvePrimitiveIfNecessary(method.getParameterTypes()[i]);
+
+		MethodType instantiated = MethodType.methodType(
+				returnsVoid ? void.class : Object.class, parameters);
+
+		return LambdaMetafactory.metafactory(lookup, function.getName(),
+				MethodType.methodType(type), erased, target, instantiated)
+				.getTarget().invoke();
+	}
+
+	private static HandlerInvoker adapt(Object function, int arity,
+			boolean returnsVoid) {
+		if (returnsVoid) {
+			switch (arity) {
+			case 0:
+				final Run0 r0 = (Run0) function;
+				return (bean, args) -> {
+					r0.run(bean);
+					return null;
+				};
+			case 1:
+				final Run1 r1 = (Run1) function;
+				return (bean, args) -> {
+					r1.run(bean, args[0]);
+					return null;
+				};
+			case 2:
+				final Run2 r2 = (Run2) function;
+				return (bean, args) -> {
+					r2.run(bean, args[0], args[1]);
+					return null;
+				};
+			case 3:
+				final Run3 r3 = (Run3) function;
+				return (bean, args) -> {
+					r3.run(bean, args[0], args[1], args[2]);
+					return null;
+				};
+			default:
+				final Run4 r4 = (Run4) function;
+				return (bean, args) -> {
+					r4.run(bean, args[0], args[1], args[2], args[3]);
+					return null;
+				};
+			}
+		}
+
+		switch (arity) {
+		case 0:
+			final Call0 c0 = (Call0) function;
+			return (bean, args) -> c0.call(bean);
+		case 1:
+			final Call1 c1 = (Call1) function;
+			return (bean, args) -> c1.call(bean, args[0]);
+		case 2:
+			final Call2 c2 = (Call2) function;
+			return (bean, args) -> c2.call(bean, args[0], args[1]);
+		case 3:
+			final Call3 c3 = (Call3) function;
+			return (bean, args) -> c3.call(bean, args[0], args[1], args[2]);
+		default:
+			final Call4 c4 = (Call4) function;
+			return (bean, args) -> c4.call(bean, args[0], args[1], args[2],
+					args[3]);
+		}
+	}
+
+}
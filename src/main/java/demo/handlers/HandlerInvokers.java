@@ -0,0 +1,99 @@
+package demo.handlers;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+
+/**
+ * Holds a {@link PreparedHandler} for every <tt>@ExceptionHandler</tt> method.
+ * They are prepared at startup, for every controller and controller advice,
+ * by the {@link DirectExceptionHandlerExceptionResolver} - any that were
+ * missed are prepared the first time they are used.
+ *
+ * @author Paul Chapman
+ */
+public class HandlerInvokers {
+
+	protected Logger logger;
+
+	protected final boolean direct;
+
+	private final ConcurrentMap<Method, PreparedHandler> handlers = new ConcurrentHashMap<Method, PreparedHandler>();
+
+	/**
+	 * @param direct
+	 *            Invoke handlers using generated invokers (true) or
+	 *            reflectively, as Spring normally does (false)?
+	 */
+	public HandlerInvokers(boolean direct) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.direct = direct;
+	}
+
+	/**
+	 * Prepare every <tt>@ExceptionHandler</tt> method of a class.
+	 *
+	 * @param beanType
+	 *            A controller or controller advice class - may be a CGLIB
+	 *            sub-class.
+	 * @param argumentResolvers
+	 *            The argument resolvers to choose from.
+	 */
+	public void prepareAll(Class<?> beanType,
+			List<HandlerMethodArgumentResolver> argumentResolvers) {
+		for (Method method : MethodIntrospector.selectMethods(
+				ClassUtils.getUserClass(beanType),
+				ExceptionHandlerMethodResolver.EXCEPTION_HANDLER_METHODS))
+			get(method, argumentResolvers);
+	}
+
+	/**
+	 * @param method
+	 *            An <tt>@ExceptionHandler</tt> method.
+	 * @param argumentResolvers
+	 *            The argument resolvers to choose from, if it has not been
+	 *            prepared yet.
+	 * @return Its prepared handler.
+	 */
+	public PreparedHandler get(Method method,
+			List<HandlerMethodArgumentResolver> argumentResolvers) {
+		PreparedHandler handler = handlers.get(method);
+
+		if (handler == null) {
+			handler = new PreparedHandler(method, argumentResolvers, direct);
+			PreparedHandler existing = handlers.putIfAbsent(method, handler);
+
+			if (existing != null)
+				return existing;
+
+			logger.info("Prepared " + method.getDeclaringClass().getSimpleName()
+					+ "." + method.getName() + "() - "
+					+ (handler.isDirect() ? "direct"
+							: "reflective (" + handler.getReflectiveReason() + ")"));
+		}
+
+		return handler;
+	}
+
+	/**
+	 * @return True if generated invokers are used where possible.
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	public Collection<PreparedHandler> getHandlers() {
+		return new ArrayList<PreparedHandler>(handlers.values());
+	}
+
+}
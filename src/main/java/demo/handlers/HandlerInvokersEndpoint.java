@@ -0,0 +1,56 @@
+package demo.handlers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint, <code>/actuator/handlerinvokers</code>, showing for each
+ * <tt>@ExceptionHandler</tt> method whether it is invoked directly or
+ * reflectively (and why), how often it has been invoked and the average time
+ * taken - including resolving its arguments.
+ * <p>
+ * To compare the two, run the same load (see
+ * <tt>demo.benchmark.ErrorMixBenchmark</tt>) once with
+ * <code>demo.handlers.invocation=direct</code> and once with
+ * <code>reflective</code>.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "handlerinvokers")
+public class HandlerInvokersEndpoint {
+
+	protected final HandlerInvokers invokers;
+
+	public HandlerInvokersEndpoint(HandlerInvokers invokers) {
+		this.invokers = invokers;
+	}
+
+	@ReadOperation
+	public Map<String, Object> handlers() {
+		Map<String, Object> handlers = new TreeMap<String, Object>();
+
+		for (PreparedHandler handler : invokers.getHandlers()) {
+			Map<String, Object> stats = new LinkedHashMap<String, Object>();
+			stats.put("direct", handler.isDirect());
+
+			if (!handler.isDirect())
+				stats.put("reason", handler.getReflectiveReason());
+
+			stats.put("invocations", handler.getInvocations());
+			stats.put("averageMicros", handler.getInvocations() == 0 ? 0.0
+					: handler.getNanos() / 1000.0 / handler.getInvocations());
+			handlers.put(handler.getMethod().getDeclaringClass().getName() + "."
+					+ handler.getMethod().getName(), stats);
+		}
+
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("invocation", invokers.isDirect() ? "direct" : "reflective");
+		result.put("handlers", handlers);
+		return result;
+	}
+
+}
@@ -0,0 +1,185 @@
+package demo.handlers;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Everything worked out in advance for one <tt>@ExceptionHandler</tt> method:
+ * its generated {@link HandlerInvoker} and, for each parameter, the argument
+ * resolver that supports it. Resolving the arguments then needs no search
+ * through the argument resolvers and no new <tt>MethodParameter</tt>s.
+ * <p>
+ * If no invoker could be generated (see
+ * {@link HandlerInvokerFactory#unsupportedReason(Method)}), or direct
+ * invocation is turned off, the method is invoked reflectively by Spring as
+ * usual. Either way, the number of invocations and the time they took are
+ * recorded - see {@link HandlerInvokersEndpoint}.
+ *
+ * @author Paul Chapman
+ */
+public class PreparedHandler {
+
+	private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+
+	private final Method method;
+	private final HandlerInvoker invoker;
+	private final String reflectiveReason;
+	private final MethodParameter[] parameters;
+	private final Class<?>[] parameterTypes;
+	private final HandlerMethodArgumentResolver[] resolvers;
+
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	/**
+	 * @param method
+	 *            The <tt>@ExceptionHandler</tt> method.
+	 * @param argumentResolvers
+	 *            The resolvers of the <tt>ExceptionHandlerExceptionResolver</tt>,
+	 *            in order.
+	 * @param direct
+	 *            Generate an invoker, if possible?
+	 */
+	public PreparedHandler(Method method,
+			List<HandlerMethodArgumentResolver> argumentResolvers, boolean direct) {
+		this.method = method;
+
+		int count = method.getParameterCount();
+		this.parameters = new MethodParameter[count];
+		this.parameterTypes = new Class<?>[count];
+		this.resolvers = new HandlerMethodArgumentResolver[count];
+
+		for (int i = 0; i < count; i++) {
+			MethodParameter parameter = new MethodParameter(method, i);
+			parameter.initParameterNameDiscovery(PARAMETER_NAMES);
+			parameters[i] = parameter;
+			parameterTypes[i] = parameter.getParameterType();
+			resolvers[i] = findResolver(parameter, argumentResolvers);
+		}
+
+		String reason = direct ? HandlerInvokerFactory.unsupportedReason(method)
+				: "direct invocation disabled";
+		HandlerInvoker generated = null;
+
+		if (reason == null) {
+			try {
+				generated = HandlerInvokerFactory.create(method);
+			} catch (IllegalArgumentException e) {
+				reason = String.valueOf(e.getCause());
+			}
+		}
+
+		this.invoker = generated;
+		this.reflectiveReason = reason;
+	}
+
+	/**
+	 * Same order as Spring's own search, so the same resolver is chosen.
+	 */
+	protected static HandlerMethodArgumentResolver findResolver(
+			MethodParameter parameter,
+			List<HandlerMethodArgumentResolver> argumentResolvers) {
+		if (argumentResolvers != null) {
+			for (HandlerMethodArgumentResolver resolver : argumentResolvers)
+				if (resolver.supportsParameter(parameter))
+					return resolver;
+		}
+
+		// Only a provided argument (the exception or handler) will do
+		return null;
+	}
+
+	/**
+	 * Work out the arguments as Spring would: a provided argument (the
+	 * exception, any of its causes, or the handler method that raised it) of
+	 * the right type if there is one, otherwise whatever the resolver chosen
+	 * for that parameter returns.
+	 *
+	 * @return One argument per parameter.
+	 * @throws IllegalStateException
+	 *             If a parameter has no resolver and no provided argument
+	 *             matches it.
+	 */
+	public Object[] resolveArguments(NativeWebRequest request,
+			ModelAndViewContainer mavContainer, Object[] providedArgs)
+			throws Exception {
+		Object[] args = new Object[parameters.length];
+
+		for (int i = 0; i < parameters.length; i++) {
+			Object arg = findProvidedArgument(parameterTypes[i], providedArgs);
+
+			if (arg == null) {
+				if (resolvers[i] == null)
+					throw new IllegalStateException("Could not resolve parameter ["
+							+ i + "] in " + method.toGenericString()
+							+ ": No suitable resolver");
+
+				// Exception handlers have no data binder factory
+				arg = resolvers[i].resolveArgument(parameters[i], mavContainer,
+						request, null);
+			}
+
+			args[i] = arg;
+		}
+
+		return args;
+	}
+
+	protected static Object findProvidedArgument(Class<?> type,
+			Object[] providedArgs) {
+		if (providedArgs != null) {
+			for (Object provided : providedArgs)
+				if (type.isInstance(provided))
+					return provided;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Call the method with the generated invoker.
+	 */
+	public Object invoke(Object bean, Object[] args) throws Exception {
+		return invoker.invoke(bean, args);
+	}
+
+	public void record(long elapsedNanos) {
+		invocations.increment();
+		nanos.add(elapsedNanos);
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return True if invoked by a generated invoker, false if reflectively.
+	 */
+	public boolean isDirect() {
+		return invoker != null;
+	}
+
+	/**
+	 * @return Why the method is invoked reflectively, or null if it is not.
+	 */
+	public String getReflectiveReason() {
+		return reflectiveReason;
+	}
+
+	public long getInvocations() {
+		return invocations.sum();
+	}
+
+	public long getNanos() {
+		return nanos.sum();
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Invocation of <tt>@ExceptionHandler</tt> methods through invokers generated
+ * at startup, instead of reflection.
+ *
+ * @author Paul Chapman
+ */
+package demo.handlers;
@@ -0,0 +1,16 @@
+package demo.health;
+
+/**
+ * The kinds of failure the {@link ErrorRateWindow} keeps rates for.
+ *
+ * @author Paul Chapman
+ */
+public enum ErrorPath {
+
+	/** A database exception, however its handler chose to show it. */
+	DATABASE,
+
+	/** Any other server error - usually an exception no resolver handled. */
+	UNHANDLED;
+
+}
@@ -0,0 +1,110 @@
+package demo.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Reports how the application is failing, from the rates in the
+ * {@link ErrorRateWindow}. If the rate of either {@link ErrorPath} reaches
+ * the degraded rate the status becomes <tt>DEGRADED</tt>; at the
+ * out-of-service rate it becomes <tt>OUT_OF_SERVICE</tt>, which the health
+ * endpoint returns as a 503 so a load balancer stops sending traffic here.
+ * <p>
+ * To stop the status flapping when the rate hovers around a threshold, it
+ * only drops back to a better status once the rate is below the threshold
+ * multiplied by the recovery factor. Rates from fewer than the minimum number
+ * of requests are not trusted and count as zero - so an instance taken out of
+ * service recovers once its old failures have left the window, and is tried
+ * again.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorRateHealthIndicator implements HealthIndicator {
+
+	public static final Status DEGRADED = new Status("DEGRADED",
+			"Error rate is high");
+
+	/** Statuses in order, best first. */
+	private static final Status[] LEVELS = { Status.UP, DEGRADED,
+			Status.OUT_OF_SERVICE };
+
+	protected Logger logger;
+
+	protected final ErrorRateWindow window;
+	protected final long minRequests;
+	protected final double degradedRate;
+	protected final double outOfServiceRate;
+	protected final double recovery;
+
+	private int level;
+
+	/**
+	 * @param window
+	 *            The rates to report on.
+	 * @param minRequests
+	 *            Fewest requests in the window for the rates to count.
+	 * @param degradedRate
+	 *            Failure rate (a fraction) that makes the status DEGRADED.
+	 * @param outOfServiceRate
+	 *            Failure rate that makes the status OUT_OF_SERVICE.
+	 * @param recovery
+	 *            How far below a threshold (as a fraction of it) the rate must
+	 *            fall before the status improves again.
+	 */
+	public ErrorRateHealthIndicator(ErrorRateWindow window, long minRequests,
+			double degradedRate, double outOfServiceRate, double recovery) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.window = window;
+		this.minRequests = minRequests;
+		this.degradedRate = degradedRate;
+		this.outOfServiceRate = outOfServiceRate;
+		this.recovery = recovery;
+	}
+
+	/**
+	 * Synchronized so two health checks at once cannot both change the
+	 * status - requests only touch the window, which never blocks.
+	 */
+	@Override
+	public synchronized Health health() {
+		ErrorRateWindow.Snapshot snapshot = window.snapshot();
+		boolean enough = snapshot.getRequests() >= minRequests;
+		double worst = 0.0;
+
+		Health.Builder builder = new Health.Builder();
+
+		for (ErrorPath path : ErrorPath.values()) {
+			double rate = snapshot.getRate(path);
+			builder.withDetail(path.name().toLowerCase() + "Rate", rate);
+
+			if (enough)
+				worst = Math.max(worst, rate);
+		}
+
+		int raised = levelFor(worst, 1.0);
+		int lowered = levelFor(worst, recovery);
+		int next = raised > level ? raised : lowered < level ? lowered : level;
+
+		if (next != level) {
+			logger.warn("Error rate " + worst + " - health changed from "
+					+ LEVELS[level].getCode() + " to " + LEVELS[next].getCode());
+			level = next;
+		}
+
+		return builder.status(LEVELS[level])
+				.withDetail("requests", snapshot.getRequests())
+				.withDetail("windowSeconds", window.getWindowMillis() / 1000)
+				.build();
+	}
+
+	protected int levelFor(double rate, double factor) {
+		if (rate >= outOfServiceRate * factor)
+			return 2;
+
+		return rate >= degradedRate * factor ? 1 : 0;
+	}
+
+}
@@ -0,0 +1,82 @@
+package demo.health;
+
+import java.sql.SQLException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.dao.DataAccessException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import demo.exceptions.DatabaseException;
+import demo.warmup.WarmUpRequests;
+
+/**
+ * Feeds every request into the {@link ErrorRateWindow}. Finds the exception
+ * the same way as the <tt>ErrorEventInterceptor</tt> - from Spring Boot's
+ * {@link ErrorAttributes}, which is the first resolver to see it.
+ * <p>
+ * Database exceptions count as failures whatever status they are shown with,
+ * except a 4xx - the demo handlers show most of them with a 200, but the
+ * database is no healthier for that. Any other exception only counts if the
+ * response is a 5xx, which includes every exception no resolver handled.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorRateInterceptor implements HandlerInterceptor {
+
+	protected final ErrorRateWindow window;
+	protected final ErrorAttributes errorAttributes;
+
+	public ErrorRateInterceptor(ErrorRateWindow window,
+			ErrorAttributes errorAttributes) {
+		this.window = window;
+		this.errorAttributes = errorAttributes;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		// As for the ErrorEventInterceptor, count each request once
+		if (request.getDispatcherType() != DispatcherType.REQUEST
+				&& request.getDispatcherType() != DispatcherType.ASYNC)
+			return;
+
+		// Not a real error - see WarmUpRequests
+		if (WarmUpRequests.isWarmUp(request))
+			return;
+
+		Throwable error = ex != null ? ex
+				: errorAttributes.getError(new ServletWebRequest(request));
+
+		// An unresolved exception has not set the status yet - the container
+		// will send a 500.
+		int status = ex != null ? 500 : response.getStatus();
+
+		window.record(classify(error, status));
+	}
+
+	protected ErrorPath classify(Throwable error, int status) {
+		if (error != null && isDatabaseError(error))
+			return status >= 400 && status < 500 ? null : ErrorPath.DATABASE;
+
+		return status >= 500 ? ErrorPath.UNHANDLED : null;
+	}
+
+	protected boolean isDatabaseError(Throwable error) {
+		for (Throwable t = error; t != null; t = t.getCause()) {
+			if (t instanceof SQLException || t instanceof DataAccessException
+					|| t instanceof DatabaseException)
+				return true;
+
+			if (t.getCause() == t)
+				break;
+		}
+
+		return false;
+	}
+
+}
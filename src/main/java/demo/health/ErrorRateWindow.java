@@ -0,0 +1,146 @@
+package demo.health;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts requests and failures over a rolling time window, without locking.
+ * The window is a ring of buckets, each covering
+ * <code>windowMillis / buckets</code>. Each bucket remembers which interval it
+ * holds counts for and is cleared by the first request to reuse it, so old
+ * counts drop out as time passes without any background thread.
+ * <p>
+ * A request that arrives just as its bucket is being cleared may be lost, or
+ * counted against the old interval. Rates are only used for health, so being
+ * occasionally off by one request is a fair price for never blocking a
+ * request thread.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorRateWindow {
+
+	/** Per bucket: interval, requests, then one count per ErrorPath. */
+	private static final int FIELDS = 2 + ErrorPath.values().length;
+	private static final int INTERVAL = 0;
+	private static final int REQUESTS = 1;
+
+	private final long windowMillis;
+	private final long bucketMillis;
+	private final int buckets;
+	private final AtomicLongArray counts;
+
+	/**
+	 * @param windowMillis
+	 *            How far back the rates go.
+	 * @param buckets
+	 *            How many pieces the window is split into - more means old
+	 *            counts drop out more smoothly.
+	 */
+	public ErrorRateWindow(long windowMillis, int buckets) {
+		if (windowMillis <= 0 || buckets <= 0)
+			throw new IllegalArgumentException(
+					"Window and buckets must be positive");
+
+		this.buckets = buckets;
+		this.bucketMillis = Math.max(1, windowMillis / buckets);
+		this.windowMillis = bucketMillis * buckets;
+		this.counts = new AtomicLongArray(buckets * FIELDS);
+
+		for (int i = 0; i < buckets; i++)
+			counts.set(i * FIELDS + INTERVAL, -1);
+	}
+
+	/**
+	 * Count a request.
+	 *
+	 * @param path
+	 *            How it failed, or null if it did not.
+	 */
+	public void record(ErrorPath path) {
+		record(path, System.currentTimeMillis());
+	}
+
+	void record(ErrorPath path, long now) {
+		long interval = now / bucketMillis;
+		int base = (int) (interval % buckets) * FIELDS;
+		long current = counts.get(base + INTERVAL);
+
+		if (current != interval) {
+			if (current > interval)
+				return; // A stale clock reading - too old to count
+
+			// Whoever wins the race clears the bucket for the new interval
+			if (counts.compareAndSet(base + INTERVAL, current, interval)) {
+				for (int i = REQUESTS; i < FIELDS; i++)
+					counts.set(base + i, 0);
+			}
+		}
+
+		counts.incrementAndGet(base + REQUESTS);
+
+		if (path != null)
+			counts.incrementAndGet(base + REQUESTS + 1 + path.ordinal());
+	}
+
+	/**
+	 * @return The counts for the current window.
+	 */
+	public Snapshot snapshot() {
+		return snapshot(System.currentTimeMillis());
+	}
+
+	Snapshot snapshot(long now) {
+		long newest = now / bucketMillis;
+		long oldest = newest - buckets + 1;
+		long requests = 0;
+		long[] failures = new long[ErrorPath.values().length];
+
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			int base = bucket * FIELDS;
+			long interval = counts.get(base + INTERVAL);
+
+			if (interval < oldest || interval > newest)
+				continue;
+
+			requests += counts.get(base + REQUESTS);
+
+			for (int i = 0; i < failures.length; i++)
+				failures[i] += counts.get(base + REQUESTS + 1 + i);
+		}
+
+		return new Snapshot(requests, failures);
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	/**
+	 * Counts of requests and failures over the window.
+	 */
+	public static class Snapshot {
+		private final long requests;
+		private final long[] failures;
+
+		Snapshot(long requests, long[] failures) {
+			this.requests = requests;
+			this.failures = failures;
+		}
+
+		public long getRequests() {
+			return requests;
+		}
+
+		public long getFailures(ErrorPath path) {
+			return failures[path.ordinal()];
+		}
+
+		/**
+		 * @return Failures as a fraction of requests - 0 if there were none.
+		 */
+		public double getRate(ErrorPath path) {
+			return requests == 0 ? 0.0
+					: (double) failures[path.ordinal()] / requests;
+		}
+	}
+
+}
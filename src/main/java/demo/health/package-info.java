@@ -0,0 +1,8 @@
+/**
+ * Health based on how the application is failing, not just on whether its
+ * infrastructure is up, so a load balancer can move traffic away from an
+ * instance whose error rate is climbing.
+ *
+ * @author Paul Chapman
+ */
+package demo.health;
@@ -0,0 +1,98 @@
+package demo.jdbc;
+
+import java.sql.SQLException;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.dao.PermissionDeniedDataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.UncategorizedDataAccessException;
+
+/**
+ * The kinds of failure a <tt>SQLException</tt> can be translated to, each
+ * knowing how to create its <tt>DataAccessException</tt>. Used as the values
+ * in the lookup tables of {@link SqlStateExceptionTranslator}.
+ *
+ * @author Paul Chapman
+ */
+public enum SqlErrorCategory {
+
+	BAD_SQL {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new InvalidDataAccessResourceUsageException(message, cause);
+		}
+	},
+
+	DATA_INTEGRITY_VIOLATION {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new DataIntegrityViolationException(message, cause);
+		}
+	},
+
+	DUPLICATE_KEY {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new DuplicateKeyException(message, cause);
+		}
+	},
+
+	PERMISSION_DENIED {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new PermissionDeniedDataAccessException(message, cause);
+		}
+	},
+
+	RESOURCE_FAILURE {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new DataAccessResourceFailureException(message, cause);
+		}
+	},
+
+	CONCURRENCY_FAILURE {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new ConcurrencyFailureException(message, cause);
+		}
+	},
+
+	DEADLOCK_LOSER {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new DeadlockLoserDataAccessException(message, cause);
+		}
+	},
+
+	QUERY_TIMEOUT {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new QueryTimeoutException(message, cause);
+		}
+	},
+
+	UNCATEGORIZED {
+		@Override
+		public DataAccessException create(String message, SQLException cause) {
+			return new UncategorizedDataAccessException(message, cause);
+		}
+	};
+
+	/**
+	 * @param message
+	 *            Message for the new exception.
+	 * @param cause
+	 *            The <tt>SQLException</tt> being translated.
+	 * @return The exception for this category.
+	 */
+	public abstract DataAccessException create(String message,
+			SQLException cause);
+
+}
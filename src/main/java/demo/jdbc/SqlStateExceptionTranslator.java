@@ -0,0 +1,350 @@
+package demo.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLInvalidAuthorizationSpecException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Translates a <tt>SQLException</tt> into the matching
+ * <tt>DataAccessException</tt>, so exception handlers can pick their view and
+ * status from the type of failure rather than examining the
+ * <tt>SQLException</tt> themselves. Similar to Spring JDBC's own translators,
+ * but every decision is a table lookup - no string matching:
+ * <ol>
+ * <li>The vendor error code, if the database in use is known (set
+ * <code>demo.jdbc.database</code>), is looked up in a sorted array.
+ * <li>The full five character SQLState, for the few states more specific than
+ * their class (such as <code>23505</code>, unique violation), is encoded as
+ * a number and looked up in a sorted array.
+ * <li>The two character SQLState class is encoded as an index into an array
+ * holding every possible class.
+ * <li>Otherwise the JDBC 4 subclass of <tt>SQLException</tt>, if any, is used.
+ * </ol>
+ * A batch failure (such as <tt>BatchUpdateException</tt>) often carries no
+ * useful SQLState itself, so {@link #translate(String, SQLException)} falls
+ * back to the exceptions chained using <code>getNextException()</code>, and
+ * {@link #translateAll(String, SQLException)} translates every one of them.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class SqlStateExceptionTranslator {
+
+	/** Never follow more than this many chained exceptions. */
+	public static final int MAX_CHAIN = 100;
+
+	/** SQLState characters are digits or (uppercase) letters. */
+	protected static final int RADIX = 36;
+
+	/**
+	 * Every possible SQLState class, indexed by
+	 * {@link #encode(String, int) encode(state, 2)}.
+	 */
+	protected static final SqlErrorCategory[] CLASS_TABLE = new SqlErrorCategory[RADIX
+			* RADIX];
+
+	/** SQLStates more specific than their class. */
+	protected static final CodeTable STATE_TABLE;
+
+	static {
+		// Classes as used by Spring's SQLStateSQLExceptionTranslator
+		classes(SqlErrorCategory.BAD_SQL, "07", "21", "2A", "37", "42", "65");
+		classes(SqlErrorCategory.DATA_INTEGRITY_VIOLATION, "01", "02", "22",
+				"23", "27", "44");
+		classes(SqlErrorCategory.RESOURCE_FAILURE, "08", "53", "54", "57", "58",
+				"JW", "JZ", "S1");
+		classes(SqlErrorCategory.CONCURRENCY_FAILURE, "40", "61");
+		classes(SqlErrorCategory.PERMISSION_DENIED, "28");
+
+		Map<Integer, SqlErrorCategory> states = new TreeMap<Integer, SqlErrorCategory>();
+		states.put(encode("23505", 5), SqlErrorCategory.DUPLICATE_KEY);
+		states.put(encode("40P01", 5), SqlErrorCategory.DEADLOCK_LOSER);
+		states.put(encode("42501", 5), SqlErrorCategory.PERMISSION_DENIED);
+		states.put(encode("57014", 5), SqlErrorCategory.QUERY_TIMEOUT);
+		states.put(encode("HYT00", 5), SqlErrorCategory.QUERY_TIMEOUT);
+		states.put(encode("HYT01", 5), SqlErrorCategory.QUERY_TIMEOUT);
+		STATE_TABLE = new CodeTable(states);
+	}
+
+	/**
+	 * Sorted codes and their categories - a binary search of an
+	 * <code>int[]</code> is much cheaper than a map of boxed keys.
+	 */
+	protected static final class CodeTable {
+		final int[] codes;
+		final SqlErrorCategory[] categories;
+
+		CodeTable(Map<Integer, SqlErrorCategory> entries) {
+			Map<Integer, SqlErrorCategory> sorted = new TreeMap<Integer, SqlErrorCategory>(
+					entries);
+			codes = new int[sorted.size()];
+			categories = new SqlErrorCategory[sorted.size()];
+
+			int i = 0;
+			for (Map.Entry<Integer, SqlErrorCategory> entry : sorted.entrySet()) {
+				codes[i] = entry.getKey();
+				categories[i++] = entry.getValue();
+			}
+		}
+
+		SqlErrorCategory get(int code) {
+			int i = Arrays.binarySearch(codes, code);
+			return i < 0 ? null : categories[i];
+		}
+
+		int size() {
+			return codes.length;
+		}
+	}
+
+	protected Logger logger;
+
+	protected final String database;
+	protected final CodeTable vendorCodes;
+
+	/**
+	 * @param database
+	 *            Database in use, to know what its vendor error codes mean -
+	 *            "mysql", "oracle" or "h2". Anything else means only the
+	 *            SQLState is used.
+	 */
+	public SqlStateExceptionTranslator(
+			@Value("${demo.jdbc.database:generic}") String database) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.database = database;
+		this.vendorCodes = new CodeTable(vendorCodes(database));
+		logger.info("Translating SQLExceptions for database '" + database
+				+ "' using " + vendorCodes.size() + " vendor codes");
+	}
+
+	/**
+	 * Work out the category of a single exception, ignoring any chained to it.
+	 * Creates nothing, so handlers that only need to know the kind of failure
+	 * can use this directly.
+	 *
+	 * @param ex
+	 *            The exception to categorize.
+	 * @return Its category, {@link SqlErrorCategory#UNCATEGORIZED} if unknown.
+	 */
+	public SqlErrorCategory categorize(SQLException ex) {
+		SqlErrorCategory category = null;
+
+		if (ex.getErrorCode() != 0)
+			category = vendorCodes.get(ex.getErrorCode());
+
+		String state = ex.getSQLState();
+
+		if (category == null && state != null) {
+			if (state.length() == 5) {
+				int code = encode(state, 5);
+				if (code >= 0)
+					category = STATE_TABLE.get(code);
+			}
+
+			if (category == null && state.length() >= 2) {
+				int code = encode(state, 2);
+				if (code >= 0)
+					category = CLASS_TABLE[code];
+			}
+		}
+
+		if (category == null)
+			category = categorizeByType(ex);
+
+		return category;
+	}
+
+	/**
+	 * Translate an exception. If it cannot be categorized itself, the first
+	 * chained exception that can is used instead. The original exception is
+	 * always the cause of the result.
+	 *
+	 * @param task
+	 *            What was being attempted - used in the message.
+	 * @param ex
+	 *            The exception to translate.
+	 * @return The translated exception - never null.
+	 */
+	public DataAccessException translate(String task, SQLException ex) {
+		SQLException source = ex;
+		SqlErrorCategory category = categorize(ex);
+
+		if (category == SqlErrorCategory.UNCATEGORIZED) {
+			SQLException next = ex.getNextException();
+
+			for (int i = 1; next != null && next != ex && i < MAX_CHAIN; i++) {
+				SqlErrorCategory nextCategory = categorize(next);
+
+				if (nextCategory != SqlErrorCategory.UNCATEGORIZED) {
+					source = next;
+					category = nextCategory;
+					break;
+				}
+
+				next = next.getNextException();
+			}
+		}
+
+		return category.create(buildMessage(task, source), ex);
+	}
+
+	/**
+	 * Translate every exception in a chain, such as the individual failures
+	 * of a batch update.
+	 *
+	 * @param task
+	 *            What was being attempted - used in the messages.
+	 * @param ex
+	 *            The first exception in the chain.
+	 * @return One translated exception per <tt>SQLException</tt>, in chain
+	 *         order.
+	 */
+	public List<DataAccessException> translateAll(String task, SQLException ex) {
+		if (ex.getNextException() == null)
+			return Collections.singletonList(categorize(ex).create(
+					buildMessage(task, ex), ex));
+
+		List<DataAccessException> translated = new ArrayList<DataAccessException>();
+		SQLException next = ex;
+
+		for (int i = 0; next != null && i < MAX_CHAIN; i++) {
+			translated.add(categorize(next).create(buildMessage(task, next), next));
+			next = next.getNextException();
+
+			if (next == ex)
+				break;
+		}
+
+		return translated;
+	}
+
+	public String getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Last resort - the standard subclasses of <tt>SQLException</tt>.
+	 */
+	protected SqlErrorCategory categorizeByType(SQLException ex) {
+		if (ex instanceof SQLIntegrityConstraintViolationException)
+			return SqlErrorCategory.DATA_INTEGRITY_VIOLATION;
+		else if (ex instanceof SQLSyntaxErrorException)
+			return SqlErrorCategory.BAD_SQL;
+		else if (ex instanceof SQLInvalidAuthorizationSpecException)
+			return SqlErrorCategory.PERMISSION_DENIED;
+		else if (ex instanceof SQLTimeoutException)
+			return SqlErrorCategory.QUERY_TIMEOUT;
+		else if (ex instanceof SQLTransactionRollbackException)
+			return SqlErrorCategory.CONCURRENCY_FAILURE;
+		else if (ex instanceof SQLNonTransientConnectionException
+				|| ex instanceof SQLTransientConnectionException)
+			return SqlErrorCategory.RESOURCE_FAILURE;
+		else
+			return SqlErrorCategory.UNCATEGORIZED;
+	}
+
+	protected String buildMessage(String task, SQLException ex) {
+		return task + "; SQL state [" + ex.getSQLState() + "]; error code ["
+				+ ex.getErrorCode() + "]; " + ex.getMessage();
+	}
+
+	/**
+	 * Encode the first <code>length</code> characters of a SQLState as a
+	 * base-36 number.
+	 *
+	 * @return The number, or -1 if the state is too short or contains an
+	 *         invalid character.
+	 */
+	protected static int encode(String state, int length) {
+		if (state.length() < length)
+			return -1;
+
+		int code = 0;
+
+		for (int i = 0; i < length; i++) {
+			int digit = Character.digit(state.charAt(i), RADIX);
+
+			if (digit < 0)
+				return -1;
+
+			code = code * RADIX + digit;
+		}
+
+		return code;
+	}
+
+	private static void classes(SqlErrorCategory category, String... classes) {
+		for (String sqlClass : classes)
+			CLASS_TABLE[encode(sqlClass, 2)] = category;
+	}
+
+	/**
+	 * Vendor error codes worth knowing for the common databases. PostgreSQL
+	 * is not listed as it reports everything using the SQLState.
+	 */
+	protected static Map<Integer, SqlErrorCategory> vendorCodes(String database) {
+		Map<Integer, SqlErrorCategory> codes = new TreeMap<Integer, SqlErrorCategory>();
+		String name = database == null ? "" : database.toLowerCase();
+
+		if (name.equals("mysql") || name.equals("mariadb")) {
+			vendorCodes(codes, SqlErrorCategory.DUPLICATE_KEY, 1062, 1022);
+			vendorCodes(codes, SqlErrorCategory.DATA_INTEGRITY_VIOLATION, 1048,
+					1451, 1452, 1364);
+			vendorCodes(codes, SqlErrorCategory.BAD_SQL, 1054, 1064, 1146);
+			vendorCodes(codes, SqlErrorCategory.PERMISSION_DENIED, 1044, 1045,
+					1142, 1143);
+			vendorCodes(codes, SqlErrorCategory.DEADLOCK_LOSER, 1213);
+			vendorCodes(codes, SqlErrorCategory.CONCURRENCY_FAILURE, 1205);
+			vendorCodes(codes, SqlErrorCategory.QUERY_TIMEOUT, 1317, 3024);
+		} else if (name.equals("oracle")) {
+			vendorCodes(codes, SqlErrorCategory.DUPLICATE_KEY, 1);
+			vendorCodes(codes, SqlErrorCategory.DATA_INTEGRITY_VIOLATION, 1400,
+					1722, 2291, 2292);
+			vendorCodes(codes, SqlErrorCategory.BAD_SQL, 900, 903, 904, 917,
+					936, 942);
+			vendorCodes(codes, SqlErrorCategory.PERMISSION_DENIED, 1031);
+			vendorCodes(codes, SqlErrorCategory.DEADLOCK_LOSER, 60);
+			vendorCodes(codes, SqlErrorCategory.CONCURRENCY_FAILURE, 54);
+			vendorCodes(codes, SqlErrorCategory.QUERY_TIMEOUT, 1013);
+			vendorCodes(codes, SqlErrorCategory.RESOURCE_FAILURE, 17002, 17447);
+		} else if (name.equals("h2")) {
+			vendorCodes(codes, SqlErrorCategory.DUPLICATE_KEY, 23001, 23505);
+			vendorCodes(codes, SqlErrorCategory.DATA_INTEGRITY_VIOLATION, 22001,
+					22003, 22012, 22018, 22025, 23000, 23002, 23003, 23502,
+					23503, 23506, 23507, 23513);
+			vendorCodes(codes, SqlErrorCategory.BAD_SQL, 42000, 42001, 42101,
+					42102, 42111, 42112, 42121, 42122, 42132);
+			vendorCodes(codes, SqlErrorCategory.DEADLOCK_LOSER, 40001);
+			vendorCodes(codes, SqlErrorCategory.CONCURRENCY_FAILURE, 50200);
+			vendorCodes(codes, SqlErrorCategory.QUERY_TIMEOUT, 57014);
+			vendorCodes(codes, SqlErrorCategory.RESOURCE_FAILURE, 90046, 90100,
+					90117, 90121);
+		}
+
+		return codes;
+	}
+
+	private static void vendorCodes(Map<Integer, SqlErrorCategory> codes,
+			SqlErrorCategory category, int... vendorCodes) {
+		for (int vendorCode : vendorCodes)
+			codes.put(vendorCode, category);
+	}
+
+}
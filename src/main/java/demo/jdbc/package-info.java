@@ -0,0 +1,7 @@
+/**
+ * Translation of <tt>SQLException</tt>s into the (local copy of) Spring's
+ * <tt>DataAccessException</tt> hierarchy.
+ *
+ * @author Paul Chapman
+ */
+package demo.jdbc;
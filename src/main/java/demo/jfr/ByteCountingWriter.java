@@ -0,0 +1,74 @@
+package demo.jfr;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Passes everything through to another writer, counting how many bytes it
+ * comes to in UTF-8 - the encoding of every error page. Used by a
+ * {@link RecordingView} for the size of an {@link ErrorViewRenderedEvent}.
+ *
+ * @author Paul Chapman
+ */
+public class ByteCountingWriter extends FilterWriter {
+
+	private long bytes;
+	private boolean highSurrogate;
+
+	public ByteCountingWriter(Writer out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		out.write(c);
+		count((char) c);
+	}
+
+	@Override
+	public void write(char[] chars, int off, int len) throws IOException {
+		out.write(chars, off, len);
+
+		for (int i = off; i < off + len; i++)
+			count(chars[i]);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		out.write(str, off, len);
+
+		for (int i = off; i < off + len; i++)
+			count(str.charAt(i));
+	}
+
+	/**
+	 * A surrogate pair is one 4-byte character, which may arrive split
+	 * across two writes.
+	 */
+	protected void count(char c) {
+		if (Character.isHighSurrogate(c)) {
+			highSurrogate = true;
+			return;
+		}
+
+		if (highSurrogate && Character.isLowSurrogate(c))
+			bytes += 4;
+		else if (c < 0x80)
+			bytes += 1;
+		else if (c < 0x800)
+			bytes += 2;
+		else
+			bytes += 3;
+
+		highSurrogate = false;
+	}
+
+	/**
+	 * @return The bytes written so far.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+}
@@ -0,0 +1,62 @@
+package demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event: a request ended up at <code>/error</code> - an
+ * exception no resolver handled (or one thrown by a filter), a
+ * <code>forward:/error</code>, or an error status such as a 404. Its duration
+ * is the time taken to write the error response.
+ * <p>
+ * Committed by the <tt>LeanErrorController</tt> - none are recorded if
+ * <code>demo.errors.lean-controller=false</code>.
+ *
+ * @author Paul Chapman
+ */
+@Name(ErrorFallthroughEvent.NAME)
+@Label("Error Fallthrough")
+@Category({ "Demo", "Exceptions" })
+@Description("A request was handled by the /error fallback")
+@StackTrace(false)
+public class ErrorFallthroughEvent extends Event {
+
+	public static final String NAME = "demo.ErrorFallthrough";
+
+	@Label("Exception Class")
+	@Description("Empty for an error status without an exception")
+	private String exceptionClass;
+
+	@Label("Path")
+	@Description("The URL originally requested")
+	private String path;
+
+	@Label("Status")
+	private int status;
+
+	@Label("Dispatch")
+	@Description("ERROR from the container, FORWARD from forward:/error, REQUEST if rendered in-process")
+	private String dispatch;
+
+	public void setException(Throwable exception) {
+		this.exceptionClass = exception == null ? null
+				: exception.getClass().getName();
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public void setDispatch(String dispatch) {
+		this.dispatch = dispatch;
+	}
+
+}
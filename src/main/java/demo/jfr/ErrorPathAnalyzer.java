@@ -0,0 +1,175 @@
+package demo.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes the project's events in a Flight Recorder file by error path -
+ * which resolver and view handled each kind of exception, what ended up at
+ * <code>/error</code> and how big and slow each error page was. A plain Java
+ * program:
+ *
+ * <pre>
+ * java -cp target/classes demo.jfr.ErrorPathAnalyzer recording.jfr
+ * </pre>
+ *
+ * Record with the settings in <code>mvc-exceptions.jfc</code> - see the
+ * README.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorPathAnalyzer {
+
+	/**
+	 * Count, total and longest duration, and total size, of the events on
+	 * one path.
+	 */
+	protected static class Summary {
+		long count;
+		long totalNanos;
+		long maxNanos;
+		long totalBytes;
+		long routed;
+
+		void add(RecordedEvent event) {
+			long nanos = event.getDuration().toNanos();
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		double averageMillis() {
+			return count == 0 ? 0 : totalNanos / 1e6 / count;
+		}
+
+		double maxMillis() {
+			return maxNanos / 1e6;
+		}
+	}
+
+	private final Map<String, Summary> resolved = new TreeMap<String, Summary>();
+	private final Map<String, Summary> fallthroughs = new TreeMap<String, Summary>();
+	private final Map<String, Summary> rendered = new TreeMap<String, Summary>();
+	private final Map<String, Summary> paths = new TreeMap<String, Summary>();
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: ErrorPathAnalyzer <recording.jfr>");
+			System.exit(2);
+		}
+
+		ErrorPathAnalyzer analyzer = new ErrorPathAnalyzer();
+		analyzer.read(Paths.get(args[0]));
+		analyzer.print();
+	}
+
+	public void read(Path file) throws IOException {
+		try (RecordingFile recording = new RecordingFile(file)) {
+			while (recording.hasMoreEvents())
+				add(recording.readEvent());
+		}
+	}
+
+	protected void add(RecordedEvent event) {
+		String name = event.getEventType().getName();
+
+		if (name.equals(ExceptionResolvedEvent.NAME)) {
+			String key = event.getString("exceptionClass") + " -> "
+					+ event.getString("resolver") + " -> "
+					+ describeView(event.getString("view"));
+			Summary summary = summary(resolved, key);
+			summary.add(event);
+
+			if (event.getBoolean("routed"))
+				summary.routed++;
+
+			summary(paths, event.getString("path")).add(event);
+		} else if (name.equals(ErrorFallthroughEvent.NAME)) {
+			String exception = event.getString("exceptionClass");
+			String key = (exception == null ? "(no exception)" : exception)
+					+ " -> /error " + event.getInt("status") + " ("
+					+ event.getString("dispatch") + ")";
+			summary(fallthroughs, key).add(event);
+			summary(paths, event.getString("path")).add(event);
+		} else if (name.equals(ErrorViewRenderedEvent.NAME)) {
+			Summary summary = summary(rendered, event.getString("template"));
+			summary.add(event);
+			summary.totalBytes += event.getLong("bytes");
+		}
+	}
+
+	protected String describeView(String view) {
+		return view == null || view.isEmpty() ? "(response written)" : view;
+	}
+
+	protected Summary summary(Map<String, Summary> summaries, String key) {
+		Summary summary = summaries.get(key);
+
+		if (summary == null) {
+			summary = new Summary();
+			summaries.put(key, summary);
+		}
+
+		return summary;
+	}
+
+	public void print() {
+		System.out.println("Resolved (exception -> resolver -> view)");
+		for (Map.Entry<String, Summary> entry : sorted(resolved)) {
+			Summary summary = entry.getValue();
+			System.out.printf(Locale.ROOT,
+					"  %8d  avg %8.3fms  max %8.3fms  routed %3d%%  %s%n",
+					summary.count, summary.averageMillis(), summary.maxMillis(),
+					summary.routed * 100 / summary.count, entry.getKey());
+		}
+
+		System.out.println();
+		System.out.println("Fell through to /error (exception -> status)");
+		for (Map.Entry<String, Summary> entry : sorted(fallthroughs))
+			printTimes(entry);
+
+		System.out.println();
+		System.out.println("Error views rendered (template)");
+		for (Map.Entry<String, Summary> entry : sorted(rendered)) {
+			Summary summary = entry.getValue();
+			System.out.printf(Locale.ROOT,
+					"  %8d  avg %8.3fms  max %8.3fms  avg %8d bytes  %s%n",
+					summary.count, summary.averageMillis(), summary.maxMillis(),
+					summary.totalBytes / summary.count, entry.getKey());
+		}
+
+		System.out.println();
+		System.out.println("Errors by URL");
+		for (Map.Entry<String, Summary> entry : sorted(paths))
+			printTimes(entry);
+	}
+
+	protected void printTimes(Map.Entry<String, Summary> entry) {
+		Summary summary = entry.getValue();
+		System.out.printf(Locale.ROOT, "  %8d  avg %8.3fms  max %8.3fms  %s%n",
+				summary.count, summary.averageMillis(), summary.maxMillis(),
+				entry.getKey());
+	}
+
+	/**
+	 * Most frequent first.
+	 */
+	protected List<Map.Entry<String, Summary>> sorted(
+			Map<String, Summary> summaries) {
+		List<Map.Entry<String, Summary>> entries = new ArrayList<Map.Entry<String, Summary>>(
+				summaries.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue().count,
+				a.getValue().count));
+		return entries;
+	}
+
+}
@@ -0,0 +1,52 @@
+package demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event: an error page was rendered. Its duration is the
+ * time taken to render it and write it to the response.
+ * <p>
+ * Committed by a {@link RecordingView} around each of the error views, which
+ * are only wrapped while this event is being recorded.
+ *
+ * @author Paul Chapman
+ */
+@Name(ErrorViewRenderedEvent.NAME)
+@Label("Error View Rendered")
+@Category({ "Demo", "Exceptions" })
+@Description("An error page was rendered")
+@StackTrace(false)
+public class ErrorViewRenderedEvent extends Event {
+
+	public static final String NAME = "demo.ErrorViewRendered";
+
+	@Label("Template")
+	private String template;
+
+	@Label("Size")
+	@Description("Bytes written, UTF-8 encoded")
+	@DataAmount
+	private long bytes;
+
+	@Label("Path")
+	private String path;
+
+	public void setTemplate(String template) {
+		this.template = template;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+}
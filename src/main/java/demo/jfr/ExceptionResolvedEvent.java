@@ -0,0 +1,68 @@
+package demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event: an exception raised by a handler was resolved. Its
+ * duration is the time taken to resolve it, including any
+ * <tt>@ExceptionHandler</tt> method, but not rendering the view.
+ * <p>
+ * Committed by the <tt>RoutingHandlerExceptionResolver</tt>, which sees every
+ * exception - none are recorded if <code>demo.routing.enabled=false</code>.
+ * An exception that no resolver handles is recorded as an
+ * {@link ErrorFallthroughEvent} instead, once it reaches <code>/error</code>.
+ *
+ * @author Paul Chapman
+ */
+@Name(ExceptionResolvedEvent.NAME)
+@Label("Exception Resolved")
+@Category({ "Demo", "Exceptions" })
+@Description("An exception raised by a handler was resolved")
+@StackTrace(false)
+public class ExceptionResolvedEvent extends Event {
+
+	public static final String NAME = "demo.ExceptionResolved";
+
+	@Label("Exception Class")
+	private String exceptionClass;
+
+	@Label("Resolver")
+	private String resolver;
+
+	@Label("View")
+	@Description("View name, view class, or empty if the response was written directly")
+	private String view;
+
+	@Label("Path")
+	private String path;
+
+	@Label("Routed")
+	@Description("Sent straight to the resolver that handled it last time")
+	private boolean routed;
+
+	public void setException(Throwable exception) {
+		this.exceptionClass = exception.getClass().getName();
+	}
+
+	public void setResolver(String resolver) {
+		this.resolver = resolver;
+	}
+
+	public void setView(String view) {
+		this.view = view;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public void setRouted(boolean routed) {
+		this.routed = routed;
+	}
+
+}
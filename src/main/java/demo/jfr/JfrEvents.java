@@ -0,0 +1,67 @@
+package demo.jfr;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+
+import jdk.jfr.EventType;
+
+/**
+ * Whether each of the project's Flight Recorder events is being recorded.
+ * Checked before creating an event, so that when Flight Recorder is off (or
+ * the event is disabled in its settings) nothing is allocated, timed or
+ * counted - not even where the event would be passed to another method,
+ * which the JIT may not be able to optimize away.
+ *
+ * @author Paul Chapman
+ */
+public final class JfrEvents {
+
+	private static final EventType EXCEPTION_RESOLVED = EventType
+			.getEventType(ExceptionResolvedEvent.class);
+
+	private static final EventType ERROR_VIEW_RENDERED = EventType
+			.getEventType(ErrorViewRenderedEvent.class);
+
+	private static final EventType ERROR_FALLTHROUGH = EventType
+			.getEventType(ErrorFallthroughEvent.class);
+
+	private JfrEvents() {
+	}
+
+	/**
+	 * @return Is any recording collecting {@link ExceptionResolvedEvent}s?
+	 */
+	public static boolean isExceptionResolvedEnabled() {
+		return EXCEPTION_RESOLVED.isEnabled();
+	}
+
+	/**
+	 * @return Is any recording collecting {@link ErrorViewRenderedEvent}s?
+	 */
+	public static boolean isErrorViewRenderedEnabled() {
+		return ERROR_VIEW_RENDERED.isEnabled();
+	}
+
+	/**
+	 * @return Is any recording collecting {@link ErrorFallthroughEvent}s?
+	 */
+	public static boolean isErrorFallthroughEnabled() {
+		return ERROR_FALLTHROUGH.isEnabled();
+	}
+
+	/**
+	 * @param request
+	 *            The current request.
+	 * @return The URL originally requested, rather than <code>/error</code>
+	 *         after an error dispatch or a forward.
+	 */
+	public static String originalPath(HttpServletRequest request) {
+		Object path = request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI);
+
+		if (path == null)
+			path = request.getAttribute(RequestDispatcher.FORWARD_REQUEST_URI);
+
+		return path == null ? request.getRequestURI() : path.toString();
+	}
+
+}
@@ -0,0 +1,104 @@
+package demo.jfr;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.servlet.View;
+
+/**
+ * Renders an error page with another view, recording it as an
+ * {@link ErrorViewRenderedEvent}. The page is counted as it is written, so
+ * it must be written using the response's writer - as Thymeleaf does.
+ *
+ * @author Paul Chapman
+ */
+public class RecordingView implements View {
+
+	protected final String viewName;
+	protected final View view;
+
+	/**
+	 * @param viewName
+	 *            The name the view was resolved from, recorded as the
+	 *            template.
+	 * @param view
+	 *            The view that renders the page.
+	 */
+	public RecordingView(String viewName, View view) {
+		this.viewName = viewName;
+		this.view = view;
+	}
+
+	@Override
+	public String getContentType() {
+		return view.getContentType();
+	}
+
+	@Override
+	public void render(Map<String, ?> model, HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		ErrorViewRenderedEvent event = new ErrorViewRenderedEvent();
+		event.begin();
+		CountingResponse counting = new CountingResponse(response);
+		view.render(model, request, counting);
+
+		if (event.shouldCommit()) {
+			event.setTemplate(viewName);
+			event.setBytes(counting.getBytes());
+			event.setPath(JfrEvents.originalPath(request));
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return The view that renders the page.
+	 */
+	public View getView() {
+		return view;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " '" + viewName + "'";
+	}
+
+	/**
+	 * Counts what is written to the response's writer.
+	 */
+	protected static class CountingResponse extends HttpServletResponseWrapper {
+
+		private ByteCountingWriter counter;
+		private PrintWriter writer;
+
+		public CountingResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				counter = new ByteCountingWriter(super.getWriter());
+				writer = new PrintWriter(counter);
+			}
+
+			return writer;
+		}
+
+		/**
+		 * @return The bytes written so far.
+		 */
+		public long getBytes() {
+			if (writer == null)
+				return 0;
+
+			writer.flush();
+			return counter.getBytes();
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package demo.jfr;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
+
+/**
+ * While Java Flight Recorder is recording {@link ErrorViewRenderedEvent}s,
+ * resolves the error views to the Thymeleaf view wrapped in a
+ * {@link RecordingView}. The rest of the time it resolves nothing and the
+ * <tt>ThymeleafViewResolver</tt>, which this runs ahead of, is used as
+ * usual - so there is no cost unless the event is wanted.
+ * <p>
+ * Which views are error pages is set by <code>demo.jfr.error-views</code>.
+ * Spring Boot's <tt>ContentNegotiatingViewResolver</tt> picks up any
+ * <tt>ViewResolver</tt> bean, so being a <tt>@Component</tt> is all the setup
+ * required.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class RecordingViewResolver implements ViewResolver, Ordered {
+
+	/** Ahead of the <tt>ThymeleafViewResolver</tt> (lowest precedence - 5). */
+	public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 10;
+
+	protected final ObjectProvider<ThymeleafViewResolver> thymeleaf;
+
+	private final Set<String> viewNames = new LinkedHashSet<String>();
+
+	/**
+	 * @param thymeleaf
+	 *            Resolves the views being recorded.
+	 * @param viewNames
+	 *            The error views.
+	 */
+	public RecordingViewResolver(
+			ObjectProvider<ThymeleafViewResolver> thymeleaf,
+			@Value("${demo.jfr.error-views:support,error,databaseError,creditCardError}") String[] viewNames) {
+		this.thymeleaf = thymeleaf;
+
+		for (String viewName : viewNames) {
+			if (!viewName.trim().isEmpty())
+				this.viewNames.add(viewName.trim());
+		}
+	}
+
+	@Override
+	public View resolveViewName(String viewName, Locale locale)
+			throws Exception {
+		// Null means "not mine", try the next resolver
+		if (!JfrEvents.isErrorViewRenderedEnabled()
+				|| !viewNames.contains(viewName))
+			return null;
+
+		ThymeleafViewResolver resolver = thymeleaf.getIfAvailable();
+		View view = resolver == null ? null : resolver.resolveViewName(
+				viewName, locale);
+		return view == null ? null : new RecordingView(viewName, view);
+	}
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	/**
+	 * @return The views recorded.
+	 */
+	public Set<String> getViewNames() {
+		return Collections.unmodifiableSet(viewNames);
+	}
+
+}
@@ -0,0 +1,8 @@
+/**
+ * Java Flight Recorder events for exception resolution, the
+ * <code>/error</code> fallback and error page rendering, and an analyzer for
+ * recordings containing them.
+ *
+ * @author Paul Chapman
+ */
+package demo.jfr;
@@ -43,11 +43,13 @@ public class Main extends SpringBootServletInitializer {
 	 * </ul>
 	 * <p>
 	 * Demo mode is the default - set to "java-config" or "xml-config" to match
-	 * however you intend to use Spring for a more realistic setup.
+	 * however you intend to use Spring for a more realistic setup. Can also be
+	 * set without recompiling, using <code>-Ddemo.profile=...</code>.
 	 * 
 	 * @see Profiles
 	 */
-	public static final String activeProfile = Profiles.DEMO_CONFIG_PROFILE;
+	public static final String activeProfile = System.getProperty(
+			"demo.profile", Profiles.DEMO_CONFIG_PROFILE);
 
 	// Local logger
 	protected Logger logger;
@@ -82,8 +84,10 @@ public class Main extends SpringBootServletInitializer {
 
 	/**
 	 * Back to the future: run the application as a Java application and it will
-	 * pick up a container (Tomcat, Jetty) automatically if present. Pulls in Tomcat
-	 * by default, running in embedded mode.
+	 * pick up a container (Tomcat, Undertow, Jetty) automatically if present.
+	 * Pulls in Tomcat by default, running in embedded mode - build with
+	 * <code>-Pundertow</code> or <code>-Pjetty</code> for
+	 * the others.
 	 * <p>
 	 * This application can also run as a traditional war file because it extends
 	 * <code>SpringBootServletInitializer</code> as well.
@@ -0,0 +1,53 @@
+package demo.metadata;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+/**
+ * A {@link ResponseStatusExceptionResolver} that gets each exception's
+ * <tt>@ResponseStatus</tt> from the {@link ExceptionMetadataRegistry} instead
+ * of searching the class hierarchy every time. Otherwise the logic is the
+ * same as the original: check the exception, then each cause in turn.
+ *
+ * @author Paul Chapman
+ */
+public class CachingResponseStatusExceptionResolver extends
+		ResponseStatusExceptionResolver {
+
+	protected final ExceptionMetadataRegistry registry;
+
+	public CachingResponseStatusExceptionResolver(
+			ExceptionMetadataRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	protected ModelAndView doResolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		try {
+			if (ex instanceof ResponseStatusException)
+				return resolveResponseStatusException(
+						(ResponseStatusException) ex, request, response, handler);
+
+			ResponseStatus status = registry.get(ex.getClass()).getResponseStatus();
+
+			if (status != null)
+				return resolveResponseStatus(status, request, response, handler, ex);
+
+			if (ex.getCause() instanceof Exception)
+				return doResolveException(request, response, handler,
+						(Exception) ex.getCause());
+		} catch (Exception resolveEx) {
+			logger.warn("Failure while trying to resolve exception ["
+					+ ex.getClass().getName() + "]", resolveEx);
+		}
+
+		return null;
+	}
+
+}
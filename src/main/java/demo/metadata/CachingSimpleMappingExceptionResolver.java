@@ -0,0 +1,258 @@
+package demo.metadata;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
+
+/**
+ * A {@link SimpleMappingExceptionResolver} that remembers the view it found
+ * for each exception class instead of matching every mapping against the
+ * exception's class hierarchy each time. The views are worked out from this
+ * resolver's own mappings, so several instances (each profile has its own)
+ * never see each other's views.
+ * <p>
+ * The configuration may be changed whilst requests are being handled. It is
+ * held as one immutable {@link ViewMappings} snapshot - the mappings, the
+ * excluded exceptions, the default view, the status codes and the views found
+ * so far - and each change publishes a new snapshot in one volatile write.
+ * Resolving an exception reads the snapshot once and uses nothing else, so a
+ * request sees either the old configuration or the new one, never a mixture.
+ * The mappings are copied when set: to change them, call
+ * {@link #setExceptionMappings(Properties)} again rather than modifying the
+ * <code>Properties</code> passed in.
+ *
+ * @author Paul Chapman
+ */
+public class CachingSimpleMappingExceptionResolver extends
+		SimpleMappingExceptionResolver {
+
+	/** Cached in place of null, which a <tt>ConcurrentMap</tt> cannot hold. */
+	protected static final String NO_VIEW = new String();
+
+	/**
+	 * The configuration in force and the views found using it. Never
+	 * modified once published, apart from adding views to the cache - each
+	 * change creates a new one, with an empty cache.
+	 */
+	protected static final class ViewMappings {
+		/** False to resolve nothing - see {@link #isResolving()}. */
+		final boolean resolving;
+		/** The instance the resolver was given - and passes back to us. */
+		final Properties source;
+		final Properties exceptionMappings;
+		final Class<?>[] excludedExceptions;
+		final String defaultErrorView;
+		final Map<String, Integer> statusCodes;
+		final Integer defaultStatusCode;
+		final ConcurrentMap<Class<?>, String> views = new ConcurrentHashMap<Class<?>, String>();
+
+		ViewMappings(boolean resolving, Properties source,
+				Class<?>[] excludedExceptions, String defaultErrorView,
+				Map<String, Integer> statusCodes, Integer defaultStatusCode) {
+			this.resolving = resolving;
+			this.source = source;
+			this.exceptionMappings = new Properties();
+
+			if (source != null)
+				this.exceptionMappings.putAll(source);
+
+			this.excludedExceptions = excludedExceptions;
+			this.defaultErrorView = defaultErrorView;
+			this.statusCodes = Collections
+					.unmodifiableMap(new HashMap<String, Integer>(statusCodes));
+			this.defaultStatusCode = defaultStatusCode;
+		}
+
+		ViewMappings withResolving(boolean resolving) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+
+		ViewMappings withExceptionMappings(Properties source) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+
+		ViewMappings withExcludedExceptions(Class<?>[] excludedExceptions) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+
+		ViewMappings withDefaultErrorView(String defaultErrorView) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+
+		ViewMappings withStatusCodes(Map<String, Integer> statusCodes) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+
+		ViewMappings withDefaultStatusCode(Integer defaultStatusCode) {
+			return new ViewMappings(resolving, source, excludedExceptions,
+					defaultErrorView, statusCodes, defaultStatusCode);
+		}
+	}
+
+	protected volatile ViewMappings viewMappings = new ViewMappings(true,
+			null, new Class<?>[0], null, Collections.<String, Integer> emptyMap(),
+			null);
+
+	@Override
+	public synchronized void setExceptionMappings(Properties mappings) {
+		super.setExceptionMappings(mappings);
+		viewMappings = viewMappings.withExceptionMappings(mappings);
+	}
+
+	@Override
+	public synchronized void setExcludedExceptions(
+			Class<?>... excludedExceptions) {
+		super.setExcludedExceptions(excludedExceptions);
+		viewMappings = viewMappings.withExcludedExceptions(excludedExceptions
+				.clone());
+	}
+
+	@Override
+	public synchronized void setDefaultErrorView(String defaultErrorView) {
+		super.setDefaultErrorView(defaultErrorView);
+		viewMappings = viewMappings.withDefaultErrorView(defaultErrorView);
+	}
+
+	@Override
+	public synchronized void setStatusCodes(Properties statusCodes) {
+		super.setStatusCodes(statusCodes);
+		viewMappings = viewMappings.withStatusCodes(getStatusCodesAsMap());
+	}
+
+	@Override
+	public synchronized void addStatusCode(String viewName, int statusCode) {
+		super.addStatusCode(viewName, statusCode);
+		viewMappings = viewMappings.withStatusCodes(getStatusCodesAsMap());
+	}
+
+	@Override
+	public synchronized void setDefaultStatusCode(int defaultStatusCode) {
+		super.setDefaultStatusCode(defaultStatusCode);
+		viewMappings = viewMappings.withDefaultStatusCode(defaultStatusCode);
+	}
+
+	/**
+	 * @return False if exceptions are currently never resolved.
+	 */
+	protected boolean isResolving() {
+		return viewMappings.resolving;
+	}
+
+	/**
+	 * Stop or start resolving exceptions, for sub-classes that can be switched
+	 * off.
+	 */
+	protected synchronized void setResolving(boolean resolving) {
+		viewMappings = viewMappings.withResolving(resolving);
+	}
+
+	/**
+	 * Stop or start resolving exceptions and replace the mappings, as one
+	 * change - no request sees one without the other.
+	 */
+	protected synchronized void setResolving(boolean resolving,
+			Properties mappings) {
+		super.setExceptionMappings(mappings);
+		viewMappings = viewMappings.withExceptionMappings(mappings)
+				.withResolving(resolving);
+	}
+
+	/**
+	 * Same as <tt>SimpleMappingExceptionResolver</tt>, but everything is read
+	 * from one {@link ViewMappings} snapshot.
+	 */
+	@Override
+	protected ModelAndView doResolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		ViewMappings current = viewMappings;
+
+		if (!current.resolving)
+			return null;
+
+		String viewName = determineViewName(current, ex);
+
+		if (viewName == null)
+			return null;
+
+		Integer statusCode = current.statusCodes.get(viewName);
+
+		if (statusCode == null)
+			statusCode = current.defaultStatusCode;
+
+		if (statusCode != null)
+			applyStatusCodeIfPossible(request, response, statusCode);
+
+		return getModelAndView(viewName, ex, request);
+	}
+
+	protected String determineViewName(ViewMappings current, Exception ex) {
+		for (Class<?> excluded : current.excludedExceptions) {
+			if (excluded.equals(ex.getClass()))
+				return null;
+		}
+
+		String viewName = findView(current, ex);
+		return viewName != null ? viewName : current.defaultErrorView;
+	}
+
+	/**
+	 * Look up the view for the exception using the mappings given. These are
+	 * always the mappings most recently set, unless they changed since this
+	 * request started - then the view is worked out from the older mappings,
+	 * without using or updating the cache.
+	 */
+	@Override
+	protected String findMatchingViewName(Properties exceptionMappings,
+			Exception ex) {
+		ViewMappings current = viewMappings;
+
+		if (exceptionMappings != current.source)
+			return super.findMatchingViewName(exceptionMappings, ex);
+
+		for (Class<?> excluded : current.excludedExceptions) {
+			if (excluded.equals(ex.getClass()))
+				return null;
+		}
+
+		return findView(current, ex);
+	}
+
+	/**
+	 * The mapped view for the exception, from the snapshot's cache or worked
+	 * out and cached - in that snapshot only.
+	 */
+	protected String findView(ViewMappings current, Exception ex) {
+		String view = current.views.get(ex.getClass());
+
+		if (view == null) {
+			view = ExceptionMetadataRegistry.findMappedView(
+					current.exceptionMappings, ex.getClass());
+			current.views.putIfAbsent(ex.getClass(), view == null ? NO_VIEW
+					: view);
+		}
+
+		return view == NO_VIEW ? null : view;
+	}
+
+	/**
+	 * @return How many exception classes have a cached view (or none).
+	 */
+	public int getCachedViewCount() {
+		return viewMappings.views.size();
+	}
+
+}
@@ -0,0 +1,71 @@
+package demo.metadata;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Everything the handlers and resolvers need to know about an exception
+ * class. Immutable - created once per class by the
+ * {@link ExceptionMetadataRegistry}.
+ *
+ * @author Paul Chapman
+ */
+public class ExceptionMetadata {
+
+	private final Class<?> exceptionType;
+	private final ResponseStatus responseStatus;
+	private final HttpStatus status;
+	private final String reason;
+
+	public ExceptionMetadata(Class<?> exceptionType,
+			ResponseStatus responseStatus) {
+		this.exceptionType = exceptionType;
+		this.responseStatus = responseStatus;
+		this.status = responseStatus == null
+				? HttpStatus.INTERNAL_SERVER_ERROR : responseStatus.code();
+		this.reason = responseStatus == null
+				|| responseStatus.reason().isEmpty() ? null
+						: responseStatus.reason();
+	}
+
+	public Class<?> getExceptionType() {
+		return exceptionType;
+	}
+
+	/**
+	 * @return Is the class (or a super-class) annotated with
+	 *         <tt>@ResponseStatus</tt>?
+	 */
+	public boolean isAnnotated() {
+		return responseStatus != null;
+	}
+
+	/**
+	 * @return The (merged) <tt>@ResponseStatus</tt> annotation or null.
+	 */
+	public ResponseStatus getResponseStatus() {
+		return responseStatus;
+	}
+
+	/**
+	 * @return The annotated status or 500 (Internal Server Error) if not
+	 *         annotated.
+	 */
+	public HttpStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return The annotated reason or null if none.
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return exceptionType.getName() + ": status=" + status.value()
+				+ (reason == null ? "" : " (" + reason + ")");
+	}
+
+}
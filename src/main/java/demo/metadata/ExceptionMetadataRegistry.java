@@ -0,0 +1,112 @@
+package demo.metadata;
+
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
+
+/**
+ * Works out the {@link ExceptionMetadata} for each exception class the first
+ * time it is seen, and remembers it. Looking for <tt>@ResponseStatus</tt>
+ * means searching the class hierarchy, so there is no point doing it more than
+ * once. Annotations cannot change whilst the application runs, so neither can
+ * the metadata.
+ * <p>
+ * Mapped views depend on the mappings of each
+ * {@link SimpleMappingExceptionResolver}, so are not held here - see
+ * {@link CachingSimpleMappingExceptionResolver}, which caches its own.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class ExceptionMetadataRegistry {
+
+	private final ConcurrentMap<Class<?>, ExceptionMetadata> metadata = new ConcurrentHashMap<Class<?>, ExceptionMetadata>();
+
+	/**
+	 * Get the metadata for an exception class.
+	 *
+	 * @param exceptionType
+	 *            The class of the exception.
+	 * @return Its metadata - never null.
+	 */
+	public ExceptionMetadata get(Class<?> exceptionType) {
+		ExceptionMetadata result = metadata.get(exceptionType);
+
+		if (result == null) {
+			result = create(exceptionType);
+			ExceptionMetadata existing = metadata.putIfAbsent(exceptionType,
+					result);
+			if (existing != null)
+				result = existing;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return How many exception classes have metadata.
+	 */
+	public int size() {
+		return metadata.size();
+	}
+
+	protected ExceptionMetadata create(Class<?> exceptionType) {
+		ResponseStatus responseStatus = AnnotatedElementUtils
+				.findMergedAnnotation(exceptionType, ResponseStatus.class);
+		return new ExceptionMetadata(exceptionType, responseStatus);
+	}
+
+	/**
+	 * Same rules as <tt>SimpleMappingExceptionResolver</tt>: the mapping
+	 * matching the closest super-class wins and, at the same depth, the
+	 * longest mapping wins.
+	 *
+	 * @param mappings
+	 *            Exception-name to view-name mappings.
+	 * @param exceptionType
+	 *            The class of the exception.
+	 * @return The view, or null if no mapping matches.
+	 */
+	public static String findMappedView(Properties mappings,
+			Class<?> exceptionType) {
+		String viewName = null;
+		String dominantMapping = null;
+		int deepest = Integer.MAX_VALUE;
+
+		for (Enumeration<?> names = mappings.propertyNames(); names
+				.hasMoreElements();) {
+			String mapping = (String) names.nextElement();
+			int depth = getDepth(mapping, exceptionType);
+
+			if (depth >= 0 && (depth < deepest || (depth == deepest
+					&& dominantMapping != null
+					&& mapping.length() > dominantMapping.length()))) {
+				deepest = depth;
+				dominantMapping = mapping;
+				viewName = mappings.getProperty(mapping);
+			}
+		}
+
+		return viewName;
+	}
+
+	protected static int getDepth(String mapping, Class<?> exceptionType) {
+		int depth = 0;
+
+		for (Class<?> type = exceptionType; type != null
+				&& type != Throwable.class; type = type.getSuperclass()) {
+			if (type.getName().contains(mapping))
+				return depth;
+			depth++;
+		}
+
+		return -1;
+	}
+
+}
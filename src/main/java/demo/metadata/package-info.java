@@ -0,0 +1,9 @@
+/**
+ * Per exception-class metadata - <tt>@ResponseStatus</tt> details and mapped
+ * views - worked out once: annotations are shared by all the exception
+ * handlers and resolvers in the application, views are cached by each
+ * mapping resolver.
+ *
+ * @author Paul Chapman
+ */
+package demo.metadata;
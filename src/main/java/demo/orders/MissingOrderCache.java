@@ -0,0 +1,139 @@
+package demo.orders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Order IDs recently found not to exist. Each is forgotten after a fixed
+ * time-to-live, and once the cache is full the oldest is dropped to make room,
+ * so a client asking for millions of different IDs cannot use up memory.
+ * <p>
+ * A plain <tt>LinkedHashMap</tt> in insertion order does both jobs: the
+ * eldest entry is the oldest, and is the one to evict. Every operation is a
+ * single map access, so one lock is fine.
+ *
+ * @author Paul Chapman
+ */
+public class MissingOrderCache implements
+		ApplicationListener<OrderCreatedEvent> {
+
+	private final long ttlMillis;
+	private final int maxSize;
+	private final Map<String, Long> expiries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * @param ttlMillis
+	 *            How long an order is remembered as missing.
+	 * @param maxSize
+	 *            Most orders remembered at once.
+	 */
+	@SuppressWarnings("serial")
+	public MissingOrderCache(long ttlMillis, final int maxSize) {
+		this.ttlMillis = ttlMillis;
+		this.maxSize = maxSize;
+		this.expiries = new LinkedHashMap<String, Long>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Remember an order does not exist.
+	 *
+	 * @param orderId
+	 *            The missing order.
+	 */
+	public void put(String orderId) {
+		long expiry = System.currentTimeMillis() + ttlMillis;
+
+		synchronized (expiries) {
+			// Remove first, so it moves to the end as the newest entry
+			expiries.remove(orderId);
+			expiries.put(orderId, expiry);
+		}
+	}
+
+	/**
+	 * @param orderId
+	 *            The order to check.
+	 * @return Milliseconds for which the order is still known to be missing,
+	 *         or 0 if it is not known to be.
+	 */
+	public long getRemainingMillis(String orderId) {
+		long now = System.currentTimeMillis();
+		Long expiry;
+
+		synchronized (expiries) {
+			expiry = expiries.get(orderId);
+
+			if (expiry == null)
+				return 0;
+
+			if (expiry <= now) {
+				expiries.remove(orderId);
+				return 0;
+			}
+		}
+
+		hits.incrementAndGet();
+		return expiry - now;
+	}
+
+	/**
+	 * Forget an order was missing - call when it is created.
+	 *
+	 * @param orderId
+	 *            The order.
+	 */
+	public void invalidate(String orderId) {
+		synchronized (expiries) {
+			if (expiries.remove(orderId) != null)
+				invalidations.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(OrderCreatedEvent event) {
+		invalidate(event.getOrderId());
+	}
+
+	public void clear() {
+		synchronized (expiries) {
+			expiries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (expiries) {
+			return expiries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	/**
+	 * @return Requests answered from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+}
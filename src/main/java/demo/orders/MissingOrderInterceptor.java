@@ -0,0 +1,194 @@
+package demo.orders;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ValueConstants;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import demo.exceptions.OrderNotFoundException;
+import demo.metadata.ExceptionMetadata;
+import demo.warmup.WarmUpRequests;
+
+/**
+ * Answers requests for an order known to be missing with a 404 straight away,
+ * before the handler runs - so the order is not looked up again, and no
+ * <tt>OrderNotFoundException</tt> is created or passed through the exception
+ * resolvers. The response is the same 404, with the same reason, as the
+ * <tt>@ResponseStatus</tt> on the exception produces.
+ * <p>
+ * Only applies to the configured lookup mappings (such as
+ * <code>/local/orderNotFound</code>). The order ID is the request parameter
+ * given, or that parameter's default value. An order is remembered as missing
+ * when a lookup raises <tt>OrderNotFoundException</tt>. Both kinds of 404 tell
+ * the client, by <code>Cache-Control</code>, how long it may cache the answer.
+ * <p>
+ * Warm-up requests (see {@link WarmUpRequests}) are left alone: they always
+ * run the lookup, so its error path gets warmed up, and the orders they ask
+ * for are not remembered as missing.
+ *
+ * @author Paul Chapman
+ */
+public class MissingOrderInterceptor implements HandlerInterceptor {
+
+	/** Set when a lookup fails, for the error dispatch that follows. */
+	public static final String MISSING_ATTRIBUTE = MissingOrderInterceptor.class
+			.getName() + ".MISSING";
+
+	/** The default value of a request parameter with none. */
+	private static final String NO_DEFAULT = "";
+
+	protected final MissingOrderCache cache;
+	protected final ErrorAttributes errorAttributes;
+	protected final ExceptionMetadata metadata;
+	protected final Set<String> lookups;
+	protected final String idParameter;
+
+	private final ConcurrentMap<Method, String> defaultIds = new ConcurrentHashMap<Method, String>();
+
+	/**
+	 * @param cache
+	 *            The orders known to be missing.
+	 * @param errorAttributes
+	 *            Finds the exception a lookup raised.
+	 * @param metadata
+	 *            The status and reason <tt>OrderNotFoundException</tt> is
+	 *            annotated with.
+	 * @param lookups
+	 *            Mapping patterns of the handlers that look up an order.
+	 * @param idParameter
+	 *            The request parameter holding the order ID.
+	 */
+	public MissingOrderInterceptor(MissingOrderCache cache,
+			ErrorAttributes errorAttributes, ExceptionMetadata metadata,
+			Set<String> lookups, String idParameter) {
+		this.cache = cache;
+		this.errorAttributes = errorAttributes;
+		this.metadata = metadata;
+		this.lookups = lookups;
+		this.idParameter = idParameter;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request,
+			HttpServletResponse response, Object handler) throws IOException {
+		// The 404 from a failed lookup is rendered by an error dispatch
+		if (request.getDispatcherType() == DispatcherType.ERROR) {
+			Object remaining = request.getAttribute(MISSING_ATTRIBUTE);
+
+			if (remaining != null)
+				setCacheControl(response, (Long) remaining);
+
+			return true;
+		}
+
+		if (request.getDispatcherType() != DispatcherType.REQUEST
+				|| WarmUpRequests.isWarmUp(request) || !isLookup(request))
+			return true;
+
+		String orderId = getOrderId(request, handler);
+		long remaining = orderId == null ? 0
+				: cache.getRemainingMillis(orderId);
+
+		if (remaining == 0)
+			return true;
+
+		setCacheControl(response, remaining);
+		response.sendError(metadata.getStatus().value(), metadata.getReason());
+		return false;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		// An asynchronous lookup fails on its async dispatch
+		if (request.getDispatcherType() != DispatcherType.REQUEST
+				&& request.getDispatcherType() != DispatcherType.ASYNC)
+			return;
+
+		// Not a real lookup - see WarmUpRequests
+		if (WarmUpRequests.isWarmUp(request))
+			return;
+
+		Throwable error = ex != null ? ex
+				: errorAttributes.getError(new ServletWebRequest(request));
+
+		if (!(error instanceof OrderNotFoundException) || !isLookup(request))
+			return;
+
+		String orderId = ((OrderNotFoundException) error).getOrderId();
+
+		if (orderId != null) {
+			cache.put(orderId);
+
+			// Too late to add headers - the status has been sent as an error
+			request.setAttribute(MISSING_ATTRIBUTE, cache.getTtlMillis());
+		}
+	}
+
+	protected boolean isLookup(HttpServletRequest request) {
+		Object pattern = request
+				.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return pattern != null && lookups.contains(pattern);
+	}
+
+	protected String getOrderId(HttpServletRequest request, Object handler) {
+		String orderId = request.getParameter(idParameter);
+
+		if (orderId != null || !(handler instanceof HandlerMethod))
+			return orderId;
+
+		HandlerMethod method = (HandlerMethod) handler;
+		String defaultId = defaultIds.get(method.getMethod());
+
+		if (defaultId == null) {
+			defaultId = findDefaultId(method);
+			defaultIds.putIfAbsent(method.getMethod(), defaultId);
+		}
+
+		return defaultId == NO_DEFAULT ? null : defaultId;
+	}
+
+	/**
+	 * The default value of the handler's <tt>@RequestParam</tt> for the order
+	 * ID, if it has one.
+	 */
+	protected String findDefaultId(HandlerMethod method) {
+		for (MethodParameter parameter : method.getMethodParameters()) {
+			RequestParam param = parameter
+					.getParameterAnnotation(RequestParam.class);
+
+			if (param != null && idParameter.equals(param.name())
+					&& !ValueConstants.DEFAULT_NONE.equals(param.defaultValue()))
+				return param.defaultValue();
+		}
+
+		return NO_DEFAULT;
+	}
+
+	protected void setCacheControl(HttpServletResponse response,
+			long remainingMillis) {
+		// Whole seconds, rounded up so it is never 0
+		long seconds = (remainingMillis + 999) / 1000;
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl
+				.maxAge(seconds, TimeUnit.SECONDS).cachePrivate()
+				.getHeaderValue());
+	}
+
+}
@@ -0,0 +1,50 @@
+package demo.orders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Actuator endpoint, <code>/actuator/missingorders</code>, showing how many
+ * orders are remembered as missing and how many requests that has answered.
+ * <code>DELETE /actuator/missingorders/{orderId}</code> forgets one - for
+ * orders created outside this application - and
+ * <code>DELETE /actuator/missingorders</code> forgets them all.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "missingorders")
+public class MissingOrdersEndpoint {
+
+	protected final MissingOrderCache cache;
+
+	public MissingOrdersEndpoint(MissingOrderCache cache) {
+		this.cache = cache;
+	}
+
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("size", cache.size());
+		stats.put("maxSize", cache.getMaxSize());
+		stats.put("ttlSeconds", cache.getTtlMillis() / 1000);
+		stats.put("hits", cache.getHits());
+		stats.put("invalidations", cache.getInvalidations());
+		return stats;
+	}
+
+	@DeleteOperation
+	public void invalidate(@Selector String orderId) {
+		cache.invalidate(orderId);
+	}
+
+	@DeleteOperation
+	public void clear() {
+		cache.clear();
+	}
+
+}
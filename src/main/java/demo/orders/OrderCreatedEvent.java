@@ -0,0 +1,33 @@
+package demo.orders;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Publish when an order is created, so the {@link MissingOrderCache} stops
+ * answering 404 for it. Nothing in this demo creates orders, but a real
+ * application must publish this (or call
+ * {@link MissingOrderCache#invalidate(String)}) wherever it does.
+ *
+ * @author Paul Chapman
+ */
+@SuppressWarnings("serial")
+public class OrderCreatedEvent extends ApplicationEvent {
+
+	private final String orderId;
+
+	/**
+	 * @param source
+	 *            Whatever created the order.
+	 * @param orderId
+	 *            The new order.
+	 */
+	public OrderCreatedEvent(Object source, String orderId) {
+		super(source);
+		this.orderId = orderId;
+	}
+
+	public String getOrderId() {
+		return orderId;
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Remembers orders known not to exist, so repeated requests for them are
+ * answered without looking them up again.
+ *
+ * @author Paul Chapman
+ */
+package demo.orders;
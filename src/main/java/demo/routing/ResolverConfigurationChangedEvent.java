@@ -0,0 +1,25 @@
+package demo.routing;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by any exception resolver whose behaviour changes whilst the
+ * application is running - such as the
+ * <tt>SwitchableSimpleMappingExceptionResolver</tt> being turned on or off.
+ * Tells the {@link RoutingHandlerExceptionResolver} to forget the routes it
+ * has learned.
+ *
+ * @author Paul Chapman
+ */
+@SuppressWarnings("serial")
+public class ResolverConfigurationChangedEvent extends ApplicationEvent {
+
+	/**
+	 * @param resolver
+	 *            The resolver whose configuration changed.
+	 */
+	public ResolverConfigurationChangedEvent(Object resolver) {
+		super(resolver);
+	}
+
+}
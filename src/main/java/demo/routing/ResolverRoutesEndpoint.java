@@ -0,0 +1,36 @@
+package demo.routing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint, <code>/actuator/resolverroutes</code>, showing the routes
+ * the {@link RoutingHandlerExceptionResolver} has learned and how many
+ * resolver invocations routing has saved.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "resolverroutes")
+public class ResolverRoutesEndpoint {
+
+	protected final RoutingHandlerExceptionResolver resolver;
+
+	public ResolverRoutesEndpoint(RoutingHandlerExceptionResolver resolver) {
+		this.resolver = resolver;
+	}
+
+	@ReadOperation
+	public Map<String, Object> routes() {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("routed", resolver.getRouted());
+		result.put("fallbacks", resolver.getFallbacks());
+		result.put("fullWalks", resolver.getFullWalks());
+		result.put("skippedInvocations", resolver.getSkipped());
+		result.put("routes", resolver.getRoutes());
+		return result;
+	}
+
+}
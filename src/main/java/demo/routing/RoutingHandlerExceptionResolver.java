@@ -0,0 +1,476 @@
+package demo.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
+
+import demo.jfr.ExceptionResolvedEvent;
+import demo.jfr.JfrEvents;
+
+/**
+ * Replaces the chain of exception resolvers the <tt>DispatcherServlet</tt>
+ * would normally walk. For any given exception class (and causes, and
+ * controller) the outcome is nearly always the same - for example an
+ * <tt>InvalidCreditCardException</tt> always falls through every resolver to
+ * the <tt>SimpleMappingExceptionResolver</tt>. So this resolver remembers
+ * which resolver handled each kind of exception, and next time goes straight
+ * to it.
+ * <ul>
+ * <li>If the remembered resolver declines, the rest of the chain is walked
+ * (without asking that resolver again) and the route learned again.
+ * <li>If no resolver handled the exception, nothing is remembered - the full
+ * chain is walked every time, so a resolver that starts handling it later is
+ * never missed.
+ * <li>All routes are forgotten when the application context is refreshed or
+ * a {@link ResolverConfigurationChangedEvent} is published.
+ * </ul>
+ * Routes are keyed by the class of the exception and of every cause, since
+ * both <tt>@ExceptionHandler</tt> methods and <tt>@ResponseStatus</tt> are
+ * matched against the causes too.
+ * Resolvers that are also {@link ErrorAttributes} (Spring Boot's
+ * <tt>DefaultErrorAttributes</tt>) never handle anything but must see every
+ * exception, so they are always invoked first.
+ * <p>
+ * Each exception resolved is recorded as an {@link ExceptionResolvedEvent} if
+ * Java Flight Recorder is running.
+ * <p>
+ * Installed by {@link RoutingResolverPostProcessor}.
+ *
+ * @author Paul Chapman
+ */
+public class RoutingHandlerExceptionResolver implements HandlerExceptionResolver,
+		Ordered, ApplicationListener<ApplicationEvent> {
+
+	/** Stop learning new routes beyond this many. */
+	protected static final int MAX_ROUTES = 1000;
+
+	/**
+	 * Exceptions with more causes than this are never routed - they are rare
+	 * and the chain may even be circular.
+	 */
+	protected static final int MAX_CAUSES = 16;
+
+	/**
+	 * What the routes are keyed by - everything the standard resolvers use to
+	 * make their decision, plus the scope of any
+	 * {@link ScopedExceptionResolver}.
+	 */
+	protected static final class RouteKey {
+		/** The exception's class followed by the class of each cause. */
+		final Class<?>[] exceptionTypes;
+		final Class<?> handlerType;
+		final Object scope;
+		final int hash;
+
+		RouteKey(Class<?>[] exceptionTypes, Object handler, Object scope) {
+			this.exceptionTypes = exceptionTypes;
+			this.handlerType = handler instanceof HandlerMethod
+					? ((HandlerMethod) handler).getBeanType()
+					: handler == null ? null : handler.getClass();
+			this.scope = scope;
+			this.hash = 31 * (31 * Arrays.hashCode(exceptionTypes)
+					+ (handlerType == null ? 0 : handlerType.hashCode()))
+					+ ObjectUtils.nullSafeHashCode(scope);
+		}
+
+		/**
+		 * @return The key, or null if the exception has too many causes to
+		 *         be routed.
+		 */
+		static RouteKey of(Exception exception, Object handler, Object scope) {
+			int depth = 0;
+
+			for (Throwable t = exception; t != null; t = t.getCause()) {
+				if (++depth > MAX_CAUSES)
+					return null;
+			}
+
+			Class<?>[] exceptionTypes = new Class<?>[depth];
+			Throwable t = exception;
+
+			for (int i = 0; i < depth; i++, t = t.getCause())
+				exceptionTypes[i] = t.getClass();
+
+			return new RouteKey(exceptionTypes, handler, scope);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RouteKey))
+				return false;
+
+			RouteKey other = (RouteKey) obj;
+			return hash == other.hash
+					&& Arrays.equals(exceptionTypes, other.exceptionTypes)
+					&& handlerType == other.handlerType
+					&& ObjectUtils.nullSafeEquals(scope, other.scope);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(exceptionTypes[0].getName());
+
+			for (int i = 1; i < exceptionTypes.length; i++)
+				sb.append(" caused by ").append(exceptionTypes[i].getName());
+
+			if (handlerType != null)
+				sb.append(" in ").append(handlerType.getSimpleName());
+
+			if (scope != null)
+				sb.append(" scope ").append(scope);
+
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * The resolvers and the routes learned for them. Replaced as a whole
+	 * whenever anything changes, so a request always sees one consistent
+	 * version.
+	 */
+	protected static final class Chain {
+		final List<HandlerExceptionResolver> observers;
+		final List<HandlerExceptionResolver> resolvers;
+		final List<ScopedExceptionResolver> scoped;
+		final ConcurrentMap<RouteKey, Integer> routes = new ConcurrentHashMap<RouteKey, Integer>();
+
+		Chain(List<HandlerExceptionResolver> observers,
+				List<HandlerExceptionResolver> resolvers,
+				List<ScopedExceptionResolver> scoped) {
+			this.observers = observers;
+			this.resolvers = resolvers;
+			this.scoped = scoped;
+		}
+	}
+
+	protected Logger logger;
+
+	protected final HandlerExceptionResolverComposite mvcResolvers;
+	protected final ApplicationContext context;
+
+	private volatile Chain chain;
+
+	private final AtomicLong routed = new AtomicLong();
+	private final AtomicLong fallbacks = new AtomicLong();
+	private final AtomicLong fullWalks = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+
+	/**
+	 * @param mvcResolvers
+	 *            The composite created by Spring MVC, which this replaces.
+	 * @param context
+	 *            Used to find all the other resolvers.
+	 */
+	public RoutingHandlerExceptionResolver(
+			HandlerExceptionResolverComposite mvcResolvers,
+			ApplicationContext context) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.mvcResolvers = mvcResolvers;
+		this.context = context;
+	}
+
+	/**
+	 * Same position in the chain as the composite it replaced.
+	 */
+	@Override
+	public int getOrder() {
+		return mvcResolvers.getOrder();
+	}
+
+	@Override
+	public ModelAndView resolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		if (!JfrEvents.isExceptionResolvedEnabled())
+			return doResolveException(request, response, handler, ex, null);
+
+		ExceptionResolvedEvent event = new ExceptionResolvedEvent();
+		event.begin();
+
+		ModelAndView mav = doResolveException(request, response, handler, ex,
+				event);
+
+		if (mav != null && event.shouldCommit()) {
+			event.setException(ex);
+			event.setView(viewOf(mav));
+			event.setPath(request.getRequestURI());
+			event.commit();
+		}
+
+		return mav;
+	}
+
+	/**
+	 * @param event
+	 *            Told which resolver handled the exception, or null if Flight
+	 *            Recorder is not recording.
+	 */
+	protected ModelAndView doResolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex,
+			ExceptionResolvedEvent event) {
+		Chain current = getChain();
+
+		for (HandlerExceptionResolver observer : current.observers)
+			observer.resolveException(request, response, handler, ex);
+
+		RouteKey key = RouteKey.of(ex, handler, getScope(current, request));
+		Integer route = key == null ? null : current.routes.get(key);
+		int declined = -1;
+
+		if (route != null) {
+			HandlerExceptionResolver resolver = current.resolvers.get(route);
+			ModelAndView mav = resolver.resolveException(request, response,
+					handler, ex);
+
+			if (mav != null) {
+				routed.incrementAndGet();
+				skipped.addAndGet(route);
+
+				if (event != null) {
+					event.setResolver(nameOf(resolver));
+					event.setRouted(true);
+				}
+
+				return mav;
+			}
+
+			// Route no longer valid - fall back to the rest of the chain
+			fallbacks.incrementAndGet();
+			declined = route;
+		}
+
+		fullWalks.incrementAndGet();
+
+		for (int i = 0; i < current.resolvers.size(); i++) {
+			if (i == declined)
+				continue;
+
+			HandlerExceptionResolver resolver = current.resolvers.get(i);
+			ModelAndView mav = resolver.resolveException(request, response,
+					handler, ex);
+
+			if (mav != null) {
+				learn(current, key, i);
+
+				if (event != null)
+					event.setResolver(nameOf(resolver));
+
+				return mav;
+			}
+		}
+
+		// Unresolved - so walk the chain again next time
+		if (key != null)
+			current.routes.remove(key);
+
+		return null;
+	}
+
+	/**
+	 * The view name, the class of the view, or empty if the resolver wrote
+	 * the response itself.
+	 */
+	protected String viewOf(ModelAndView mav) {
+		if (mav.getViewName() != null)
+			return mav.getViewName();
+
+		return mav.getView() == null ? ""
+				: ClassUtils.getUserClass(mav.getView()).getSimpleName();
+	}
+
+	/**
+	 * The combined scope of every {@link ScopedExceptionResolver} - usually
+	 * there are none, or just one.
+	 */
+	protected Object getScope(Chain current, HttpServletRequest request) {
+		if (current.scoped.isEmpty())
+			return null;
+
+		if (current.scoped.size() == 1)
+			return current.scoped.get(0).getScope(request);
+
+		List<Object> scopes = new ArrayList<Object>(current.scoped.size());
+
+		for (ScopedExceptionResolver resolver : current.scoped)
+			scopes.add(resolver.getScope(request));
+
+		return scopes;
+	}
+
+	protected void learn(Chain current, RouteKey key, int route) {
+		if (key != null && current.routes.size() < MAX_ROUTES)
+			current.routes.put(key, route);
+	}
+
+	/**
+	 * Forget all routes when the context is refreshed (the resolvers may have
+	 * changed) or a resolver announces its configuration has changed.
+	 */
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ContextRefreshedEvent
+				|| event instanceof ResolverConfigurationChangedEvent) {
+			logger.info("Resolver configuration changed - forgetting all routes");
+			chain = null;
+		}
+	}
+
+	protected Chain getChain() {
+		Chain current = chain;
+
+		if (current == null) {
+			current = buildChain();
+			chain = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * Collect the resolvers in the order the <tt>DispatcherServlet</tt> would
+	 * have used them, with the contents of the Spring MVC composite in its
+	 * place.
+	 */
+	protected Chain buildChain() {
+		List<HandlerExceptionResolver> beans = new ArrayList<HandlerExceptionResolver>(
+				BeanFactoryUtils.beansOfTypeIncludingAncestors(context,
+						HandlerExceptionResolver.class, true, false).values());
+		AnnotationAwareOrderComparator.sort(beans);
+
+		List<HandlerExceptionResolver> observers = new ArrayList<HandlerExceptionResolver>();
+		List<HandlerExceptionResolver> resolvers = new ArrayList<HandlerExceptionResolver>();
+		List<ScopedExceptionResolver> scoped = new ArrayList<ScopedExceptionResolver>();
+
+		for (HandlerExceptionResolver resolver : beans) {
+			if (resolver instanceof ScopedExceptionResolver)
+				scoped.add((ScopedExceptionResolver) resolver);
+
+			if (resolver == this)
+				resolvers.addAll(mvcResolvers.getExceptionResolvers());
+			else if (resolver instanceof ErrorAttributes)
+				observers.add(resolver);
+			else
+				resolvers.add(resolver);
+		}
+
+		logger.info("Routing exceptions to " + describe(resolvers));
+		return new Chain(Collections.unmodifiableList(observers),
+				Collections.unmodifiableList(resolvers),
+				Collections.unmodifiableList(scoped));
+	}
+
+	protected List<String> describe(List<HandlerExceptionResolver> resolvers) {
+		List<String> names = new ArrayList<String>();
+
+		for (HandlerExceptionResolver resolver : resolvers)
+			names.add(nameOf(resolver));
+
+		return names;
+	}
+
+	/**
+	 * Resolvers may be class-based proxies, so use the original class-name.
+	 */
+	protected String nameOf(HandlerExceptionResolver resolver) {
+		return ClassUtils.getUserClass(resolver).getSimpleName();
+	}
+
+	/**
+	 * @return The Spring MVC composite this replaced - its resolvers are used
+	 *         in its place.
+	 */
+	public HandlerExceptionResolverComposite getMvcResolvers() {
+		return mvcResolvers;
+	}
+
+	/**
+	 * @return The routes learned so far - exception to resolver name.
+	 */
+	public Map<String, String> getRoutes() {
+		Chain current = getChain();
+		Map<String, String> routes = new LinkedHashMap<String, String>();
+
+		for (Map.Entry<RouteKey, Integer> route : current.routes.entrySet())
+			routes.put(route.getKey().toString(),
+					nameOf(current.resolvers.get(route.getValue())));
+
+		return routes;
+	}
+
+	/**
+	 * @return The resolvers, in the order the <tt>DispatcherServlet</tt>
+	 *         would have used them - without any routing.
+	 */
+	public List<HandlerExceptionResolver> getResolvers() {
+		return getChain().resolvers;
+	}
+
+	/**
+	 * @return Resolvers such as <tt>DefaultErrorAttributes</tt> that see
+	 *         every exception but never handle any.
+	 */
+	public List<HandlerExceptionResolver> getObservers() {
+		return getChain().observers;
+	}
+
+	/**
+	 * @return Exceptions sent straight to their resolver.
+	 */
+	public long getRouted() {
+		return routed.get();
+	}
+
+	/**
+	 * @return Routes that were tried but declined, forcing a walk of the rest
+	 *         of the chain.
+	 */
+	public long getFallbacks() {
+		return fallbacks.get();
+	}
+
+	/**
+	 * @return Exceptions that went through the chain - no route, the route
+	 *         declined or no resolver handles them.
+	 */
+	public long getFullWalks() {
+		return fullWalks.get();
+	}
+
+	/**
+	 * @return Total resolver invocations avoided by routing.
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+}
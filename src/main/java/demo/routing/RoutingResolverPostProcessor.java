@@ -0,0 +1,63 @@
+package demo.routing;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
+
+/**
+ * Installs the {@link RoutingHandlerExceptionResolver}:
+ * <ol>
+ * <li>The <tt>DispatcherServlet</tt> is told not to look for every
+ * <tt>HandlerExceptionResolver</tt> bean, but to use only the one called
+ * <code>handlerExceptionResolver</code>.
+ * <li>That bean (the composite Spring MVC sets up) is replaced by the routing
+ * resolver, which then finds all the others itself.
+ * </ol>
+ * Runs after any other post-processors, so they see the original composite.
+ *
+ * @author Paul Chapman
+ */
+public class RoutingResolverPostProcessor implements BeanPostProcessor,
+		ApplicationContextAware, Ordered {
+
+	private ApplicationContext context;
+
+	@Override
+	public void setApplicationContext(ApplicationContext context)
+			throws BeansException {
+		this.context = context;
+	}
+
+	@Override
+	public int getOrder() {
+		return LOWEST_PRECEDENCE;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		if (bean instanceof DispatcherServlet) {
+			((DispatcherServlet) bean).setDetectAllHandlerExceptionResolvers(false);
+		} else if (DispatcherServlet.HANDLER_EXCEPTION_RESOLVER_BEAN_NAME.equals(beanName)
+				&& bean instanceof HandlerExceptionResolverComposite) {
+			RoutingHandlerExceptionResolver router = new RoutingHandlerExceptionResolver(
+					(HandlerExceptionResolverComposite) bean, context);
+
+			// Spring only registers beans declared as listeners, so must be
+			// done explicitly for the replacement
+			if (context instanceof ConfigurableApplicationContext)
+				((ConfigurableApplicationContext) context).addApplicationListener(router);
+
+			return router;
+		}
+
+		// Must return the bean or we lose it!
+		return bean;
+	}
+
+}
@@ -0,0 +1,29 @@
+package demo.routing;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+/**
+ * A resolver whose decision depends on the request as well as on the
+ * exception and the handler - for example on the URL. The
+ * {@link RoutingHandlerExceptionResolver} adds its scope to the route key, so
+ * a route learned in one scope is never used in another.
+ *
+ * @author Paul Chapman
+ */
+public interface ScopedExceptionResolver extends HandlerExceptionResolver {
+
+	/**
+	 * Requests with equal scopes (and the same exception and handler) must
+	 * always be resolved the same way. Keep the number of distinct scopes
+	 * small - each one has its own routes.
+	 *
+	 * @param request
+	 *            The current request.
+	 * @return What this resolver's decision depends on, or null if it will not
+	 *         handle anything for this request.
+	 */
+	Object getScope(HttpServletRequest request);
+
+}
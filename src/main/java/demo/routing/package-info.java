@@ -0,0 +1,7 @@
+/**
+ * Routing of exceptions straight to the resolver that handled the same kind of
+ * exception last time, instead of trying every resolver in turn.
+ *
+ * @author Paul Chapman
+ */
+package demo.routing;
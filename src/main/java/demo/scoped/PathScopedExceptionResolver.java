@@ -0,0 +1,152 @@
+package demo.scoped;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.AbstractHandlerExceptionResolver;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.WebUtils;
+
+import demo.routing.ScopedExceptionResolver;
+
+/**
+ * Like a <tt>SimpleMappingExceptionResolver</tt>, but with different
+ * exception mappings under different URL prefixes - so, for example, a
+ * <tt>DatabaseException</tt> can have one view under <code>/global</code> and
+ * another under <code>/throw</code>.
+ * <p>
+ * Restricting a <tt>SimpleMappingExceptionResolver</tt> to part of the
+ * application means giving it <tt>mappedHandlers</tt>, which are checked one
+ * at a time, and one resolver per area. Here the prefixes are compiled into a
+ * {@link PathTrie}, so finding the mappings for a request costs the same
+ * however many prefixes there are.
+ * <p>
+ * Runs just ahead of any <tt>SimpleMappingExceptionResolver</tt>, which acts
+ * as the fallback outside the configured prefixes.
+ *
+ * @author Paul Chapman
+ */
+public class PathScopedExceptionResolver extends
+		AbstractHandlerExceptionResolver implements ScopedExceptionResolver {
+
+	/** Ahead of a <tt>SimpleMappingExceptionResolver</tt> left at its default. */
+	public static final int DEFAULT_ORDER = Ordered.LOWEST_PRECEDENCE - 10;
+
+	public static final String DEFAULT_EXCEPTION_ATTRIBUTE = "exception";
+
+	private volatile PathTrie trie = new PathTrie(
+			Collections.<String, Properties> emptyMap());
+
+	private String exceptionAttribute = DEFAULT_EXCEPTION_ATTRIBUTE;
+
+	private Integer statusCode;
+
+	public PathScopedExceptionResolver() {
+		setOrder(DEFAULT_ORDER);
+	}
+
+	/**
+	 * Set the exception mappings for each URL prefix. A longer prefix inherits
+	 * the mappings of any shorter one it starts with, and can override them.
+	 *
+	 * @param prefixMappings
+	 *            Exception-name to view-name mappings (as for
+	 *            <tt>SimpleMappingExceptionResolver</tt>) keyed by URL prefix,
+	 *            such as <code>/global</code>.
+	 */
+	public void setExceptionMappings(Map<String, Properties> prefixMappings) {
+		this.trie = new PathTrie(prefixMappings);
+	}
+
+	/**
+	 * Set the name of the model attribute holding the exception. Default is
+	 * "exception", or use null to leave it out.
+	 *
+	 * @param exceptionAttribute
+	 *            The name of the model attribute.
+	 */
+	public void setExceptionAttribute(String exceptionAttribute) {
+		this.exceptionAttribute = exceptionAttribute;
+	}
+
+	/**
+	 * Set the HTTP status to return with the error views. By default the
+	 * status is left alone, as <tt>SimpleMappingExceptionResolver</tt> does.
+	 *
+	 * @param statusCode
+	 *            The status, such as 500.
+	 */
+	public void setStatusCode(Integer statusCode) {
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * @return The mappings of every configured prefix.
+	 */
+	public List<ScopedMappings> getScopes() {
+		return trie.getScopes();
+	}
+
+	/**
+	 * The scope is the {@link ScopedMappings} of the longest prefix the path
+	 * starts with, so every request under the same prefix shares one.
+	 */
+	@Override
+	public ScopedMappings getScope(HttpServletRequest request) {
+		return trie.find(getPath(request));
+	}
+
+	@Override
+	protected ModelAndView doResolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		ScopedMappings scope = getScope(request);
+
+		if (scope == null)
+			return null;
+
+		String viewName = scope.getView(ex.getClass());
+
+		if (viewName == null)
+			return null;
+
+		if (statusCode != null && !WebUtils.isIncludeRequest(request)) {
+			response.setStatus(statusCode);
+			request.setAttribute(WebUtils.ERROR_STATUS_CODE_ATTRIBUTE,
+					statusCode);
+		}
+
+		ModelAndView mav = new ModelAndView(viewName);
+
+		if (exceptionAttribute != null)
+			mav.addObject(exceptionAttribute, ex);
+
+		return mav;
+	}
+
+	/**
+	 * Use the path Spring MVC has already parsed if there is one, otherwise
+	 * the request URI without the context path.
+	 */
+	protected String getPath(HttpServletRequest request) {
+		if (ServletRequestPathUtils.hasCachedPath(request))
+			return ServletRequestPathUtils.getCachedPathValue(request);
+
+		String uri = request.getRequestURI();
+		String contextPath = request.getContextPath();
+		return uri.startsWith(contextPath) ? uri.substring(contextPath.length())
+				: uri;
+	}
+
+	@Override
+	protected String buildLogMessage(Exception ex, HttpServletRequest request) {
+		return "Resolved [" + ex + "] under " + getScope(request);
+	}
+
+}
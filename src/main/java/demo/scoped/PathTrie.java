@@ -0,0 +1,135 @@
+package demo.scoped;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable trie of URL path segments, compiled once from the configured
+ * prefixes. Each node holds the {@link ScopedMappings} for its prefix, already
+ * merged with those of its ancestors, so finding the mappings for a request
+ * is one hash-map lookup per path segment - the number of prefixes configured
+ * makes no difference.
+ * <p>
+ * Prefixes match whole segments only: <code>/global</code> covers
+ * <code>/global/databaseError1</code> but not <code>/globalSettings</code>.
+ *
+ * @author Paul Chapman
+ */
+public class PathTrie {
+
+	private static final class Node {
+		final Map<String, Node> children = new HashMap<String, Node>();
+		Properties mappings;
+		ScopedMappings scope;
+	}
+
+	private final Node root = new Node();
+	private final List<ScopedMappings> scopes = new ArrayList<ScopedMappings>();
+
+	/**
+	 * @param prefixMappings
+	 *            Exception mappings keyed by URL prefix. A longer prefix adds
+	 *            to, or overrides, the mappings of a shorter one.
+	 */
+	public PathTrie(Map<String, Properties> prefixMappings) {
+		for (Map.Entry<String, Properties> entry : prefixMappings.entrySet()) {
+			Node node = root;
+
+			for (String segment : split(entry.getKey())) {
+				Node child = node.children.get(segment);
+
+				if (child == null) {
+					child = new Node();
+					node.children.put(segment, child);
+				}
+
+				node = child;
+			}
+
+			node.mappings = entry.getValue();
+		}
+
+		compile(root, "", null);
+	}
+
+	/**
+	 * Find the mappings that apply to a path.
+	 *
+	 * @param path
+	 *            Request path, excluding the context path.
+	 * @return The mappings of the longest configured prefix of the path, or
+	 *         null if none is.
+	 */
+	public ScopedMappings find(String path) {
+		Node node = root;
+		ScopedMappings found = root.scope;
+		int length = path.length();
+		int start = 0;
+
+		while (start < length) {
+			int end = path.indexOf('/', start);
+
+			if (end < 0)
+				end = length;
+
+			if (end > start) {
+				node = node.children.get(path.substring(start, end));
+
+				if (node == null)
+					break;
+
+				found = node.scope;
+			}
+
+			start = end + 1;
+		}
+
+		return found;
+	}
+
+	/**
+	 * @return The mappings of every configured prefix.
+	 */
+	public List<ScopedMappings> getScopes() {
+		return Collections.unmodifiableList(scopes);
+	}
+
+	/**
+	 * Give each node its mappings merged over those of its ancestors. A node
+	 * without mappings of its own shares its parent's.
+	 */
+	private void compile(Node node, String prefix, ScopedMappings inherited) {
+		if (node.mappings == null)
+			node.scope = inherited;
+		else {
+			Properties merged = new Properties();
+
+			if (inherited != null)
+				merged.putAll(inherited.getMappings());
+
+			merged.putAll(node.mappings);
+			node.scope = new ScopedMappings(prefix.isEmpty() ? "/" : prefix,
+					merged);
+			scopes.add(node.scope);
+		}
+
+		for (Map.Entry<String, Node> child : node.children.entrySet())
+			compile(child.getValue(), prefix + "/" + child.getKey(),
+					node.scope);
+	}
+
+	private static List<String> split(String prefix) {
+		List<String> segments = new ArrayList<String>();
+
+		for (String segment : prefix.split("/"))
+			if (!segment.isEmpty())
+				segments.add(segment);
+
+		return segments;
+	}
+
+}
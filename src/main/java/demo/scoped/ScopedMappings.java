@@ -0,0 +1,72 @@
+package demo.scoped;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import demo.metadata.ExceptionMetadataRegistry;
+
+/**
+ * The exception mappings that apply under one URL prefix - its own plus any
+ * inherited from shorter prefixes. The view for each exception class is
+ * worked out the first time it is seen and remembered, so after that a lookup
+ * is a single hash-map access however many mappings there are.
+ *
+ * @author Paul Chapman
+ */
+public class ScopedMappings {
+
+	/** Remembers that no mapping matched - the map cannot hold null. */
+	private static final String NONE = "";
+
+	private final String prefix;
+	private final Properties mappings;
+	private final ConcurrentMap<Class<?>, String> views = new ConcurrentHashMap<Class<?>, String>();
+
+	/**
+	 * @param prefix
+	 *            The URL prefix these mappings apply under.
+	 * @param mappings
+	 *            Exception-name to view-name mappings, in the same format as
+	 *            <tt>SimpleMappingExceptionResolver</tt>.
+	 */
+	public ScopedMappings(String prefix, Properties mappings) {
+		this.prefix = prefix;
+		this.mappings = mappings;
+	}
+
+	/**
+	 * Get the view mapped to an exception class.
+	 *
+	 * @param exceptionType
+	 *            The class of the exception.
+	 * @return The view name, or null if there is no mapping for it.
+	 */
+	public String getView(Class<?> exceptionType) {
+		String view = views.get(exceptionType);
+
+		if (view == null) {
+			view = ExceptionMetadataRegistry.findMappedView(mappings,
+					exceptionType);
+			if (view == null)
+				view = NONE;
+			views.putIfAbsent(exceptionType, view);
+		}
+
+		return view == NONE ? null : view;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public Properties getMappings() {
+		return mappings;
+	}
+
+	@Override
+	public String toString() {
+		return prefix;
+	}
+
+}
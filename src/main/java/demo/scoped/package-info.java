@@ -0,0 +1,8 @@
+/**
+ * Exception mappings that only apply under a given URL prefix, looked up in a
+ * path trie so the cost depends on the depth of the path rather than on how
+ * many prefixes are configured.
+ *
+ * @author Paul Chapman
+ */
+package demo.scoped;
@@ -0,0 +1,65 @@
+package demo.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends each span, as a line of JSON, to a local file.
+ *
+ * @author Paul Chapman
+ */
+public class FileSpanExporter implements SpanExporter, Closeable {
+
+	protected Logger logger;
+	protected final File file;
+	protected final ObjectMapper mapper;
+
+	private final Writer out;
+
+	public FileSpanExporter(File file, ObjectMapper mapper) throws IOException {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.file = file;
+		this.mapper = mapper;
+		this.out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), StandardCharsets.UTF_8));
+		logger.info("Writing resolver spans to " + file);
+	}
+
+	@Override
+	public void export(List<Span> spans) {
+		try {
+			// Convert first so the lock is only held for the write
+			StringBuilder lines = new StringBuilder();
+
+			for (Span span : spans)
+				lines.append(mapper.writeValueAsString(span)).append('\n');
+
+			synchronized (out) {
+				out.write(lines.toString());
+				out.flush();
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to write spans to " + file + ": " + e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (out) {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package demo.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recent traces in memory, plus running totals for each
+ * resolver, for display by {@link ResolverTracesEndpoint}.
+ *
+ * @author Paul Chapman
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+	/**
+	 * Running totals for a single resolver.
+	 */
+	public static class ResolverStatistics {
+		private final AtomicLong attempts = new AtomicLong();
+		private final AtomicLong handled = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		public long getAttempts() {
+			return attempts.get();
+		}
+
+		public long getHandled() {
+			return handled.get();
+		}
+
+		public double getAverageMicros() {
+			long count = attempts.get();
+			return count == 0 ? 0.0 : totalNanos.get() / 1000.0 / count;
+		}
+	}
+
+	protected final int capacity;
+
+	private final Deque<List<Span>> traces;
+	private final ConcurrentMap<String, ResolverStatistics> statistics = new ConcurrentHashMap<String, ResolverStatistics>();
+
+	/**
+	 * @param capacity
+	 *            How many traces to keep.
+	 */
+	public InMemorySpanExporter(int capacity) {
+		this.capacity = capacity;
+		this.traces = new ArrayDeque<List<Span>>(capacity);
+	}
+
+	@Override
+	public void export(List<Span> spans) {
+		// First span is the root, the rest are resolver attempts
+		for (Span span : spans.subList(1, spans.size())) {
+			String resolver = String.valueOf(span.getAttributes().get(ResolverTracer.RESOLVER));
+			ResolverStatistics stats = statistics.get(resolver);
+
+			if (stats == null) {
+				statistics.putIfAbsent(resolver, new ResolverStatistics());
+				stats = statistics.get(resolver);
+			}
+
+			stats.attempts.incrementAndGet();
+			stats.totalNanos.addAndGet(span.getDurationNanos());
+
+			if (Boolean.TRUE.equals(span.getAttributes().get(ResolverTracer.HANDLED)))
+				stats.handled.incrementAndGet();
+		}
+
+		synchronized (traces) {
+			if (traces.size() == capacity)
+				traces.removeFirst();
+			traces.addLast(spans);
+		}
+	}
+
+	/**
+	 * @return The most recent traces, oldest first.
+	 */
+	public List<List<Span>> getTraces() {
+		synchronized (traces) {
+			return new ArrayList<List<Span>>(traces);
+		}
+	}
+
+	public Map<String, ResolverStatistics> getStatistics() {
+		return new LinkedHashMap<String, ResolverStatistics>(statistics);
+	}
+
+}
@@ -0,0 +1,129 @@
+package demo.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Records a span for every attempt by an exception resolver to handle an
+ * exception. All the attempts made for one request become children of a
+ * single root span, held in the request until the chain finishes.
+ * <p>
+ * The trace is exported as soon as a resolver handles the exception. If none
+ * do, it is exported when the request completes - which is why this is also a
+ * <tt>HandlerInterceptor</tt>.
+ *
+ * @author Paul Chapman
+ */
+public class ResolverTracer implements HandlerInterceptor {
+
+	/** Span attribute: the resolver's class-name. */
+	public static final String RESOLVER = "resolver";
+
+	/** Span attribute: the resolver's order (if it has one). */
+	public static final String ORDER = "order";
+
+	/** Span attribute: the exception being resolved. */
+	public static final String EXCEPTION = "exception";
+
+	/** Span attribute: did this resolver handle the exception? */
+	public static final String HANDLED = "handled";
+
+	/** Span attribute: the view chosen, if any. */
+	public static final String VIEW = "view";
+
+	/** Root span attribute: the resolver that handled the exception. */
+	public static final String HANDLED_BY = "handledBy";
+
+	protected static final String TRACE_ATTRIBUTE = ResolverTracer.class
+			.getName() + ".TRACE";
+
+	protected final SpanExporter exporter;
+
+	public ResolverTracer(SpanExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	/**
+	 * A resolver is about to try and handle an exception.
+	 *
+	 * @return The span for this attempt - pass to {@link #endAttempt}.
+	 */
+	public Span startAttempt(HttpServletRequest request, Exception exception,
+			String resolver, Integer order) {
+		List<Span> trace = getTrace(request);
+
+		if (trace == null) {
+			trace = new ArrayList<Span>();
+			trace.add(new Span("resolve " + exception.getClass().getSimpleName())
+					.setAttribute(EXCEPTION, exception.getClass().getName()));
+			request.setAttribute(TRACE_ATTRIBUTE, trace);
+		}
+
+		Span span = new Span(trace.get(0), resolver).setAttribute(RESOLVER, resolver);
+
+		if (order != null)
+			span.setAttribute(ORDER, order);
+
+		trace.add(span);
+		return span;
+	}
+
+	/**
+	 * A resolver has finished its attempt.
+	 *
+	 * @param result
+	 *            What the resolver returned - null if it did not handle the
+	 *            exception.
+	 */
+	public void endAttempt(HttpServletRequest request, Span span,
+			ModelAndView result) {
+		span.end();
+		span.setAttribute(HANDLED, result != null);
+
+		if (result != null) {
+			if (!result.isEmpty())
+				span.setAttribute(VIEW, result.getViewName());
+
+			List<Span> trace = getTrace(request);
+
+			if (trace != null) {
+				trace.get(0).setAttribute(HANDLED_BY, span.getName());
+				finish(request, trace);
+			}
+		}
+	}
+
+	/**
+	 * If no resolver handled the exception, the trace is still waiting to be
+	 * exported.
+	 */
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		List<Span> trace = getTrace(request);
+
+		if (trace != null)
+			finish(request, trace);
+	}
+
+	protected void finish(HttpServletRequest request, List<Span> trace) {
+		request.removeAttribute(TRACE_ATTRIBUTE);
+
+		Span root = trace.get(0);
+		root.end();
+		root.setAttribute(HANDLED, root.getAttributes().containsKey(HANDLED_BY));
+		exporter.export(trace);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected List<Span> getTrace(HttpServletRequest request) {
+		return (List<Span>) request.getAttribute(TRACE_ATTRIBUTE);
+	}
+
+}
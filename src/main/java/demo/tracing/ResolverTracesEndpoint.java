@@ -0,0 +1,43 @@
+package demo.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint, <code>/actuator/resolvertraces</code>, showing the
+ * average time taken by each exception resolver, how often it handled the
+ * exception and the most recent traces. Only has data to show if the
+ * {@link InMemorySpanExporter} is in use.
+ *
+ * @author Paul Chapman
+ */
+@Endpoint(id = "resolvertraces")
+public class ResolverTracesEndpoint {
+
+	protected final SpanExporter exporter;
+
+	public ResolverTracesEndpoint(SpanExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	@ReadOperation
+	public Map<String, Object> traces() {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("exporter", exporter.getClass().getSimpleName());
+
+		if (exporter instanceof InMemorySpanExporter) {
+			InMemorySpanExporter memory = (InMemorySpanExporter) exporter;
+			result.put("resolvers", memory.getStatistics());
+			result.put("traces", memory.getTraces());
+		} else {
+			result.put("resolvers", Collections.emptyMap());
+		}
+
+		return result;
+	}
+
+}
@@ -0,0 +1,100 @@
+package demo.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A minimal trace span - just enough to show where time goes in the
+ * exception resolver chain. Getters allow Jackson to write it as JSON.
+ *
+ * @author Paul Chapman
+ */
+public class Span {
+
+	private final String traceId;
+	private final String spanId;
+	private final String parentId;
+	private final String name;
+	private final long startMicros;
+	private final long startNanos;
+	private long durationNanos;
+	private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Start a new root span, beginning a new trace.
+	 */
+	public Span(String name) {
+		this(newId(), null, name);
+	}
+
+	/**
+	 * Start a child of the given span.
+	 */
+	public Span(Span parent, String name) {
+		this(parent.traceId, parent.spanId, name);
+	}
+
+	protected Span(String traceId, String parentId, String name) {
+		this.traceId = traceId;
+		this.spanId = newId();
+		this.parentId = parentId;
+		this.name = name;
+		this.startMicros = System.currentTimeMillis() * 1000;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Set the duration to the time since the span started. May be called
+	 * more than once - the last call wins.
+	 */
+	public void end() {
+		durationNanos = System.nanoTime() - startNanos;
+	}
+
+	public Span setAttribute(String key, Object value) {
+		attributes.put(key, value);
+		return this;
+	}
+
+	public String getTraceId() {
+		return traceId;
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	public String getParentId() {
+		return parentId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Start time, as microseconds since the epoch.
+	 */
+	public long getStartMicros() {
+		return startMicros;
+	}
+
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public Map<String, Object> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + (durationNanos / 1000) + "us " + attributes;
+	}
+
+	protected static String newId() {
+		return Long.toHexString(ThreadLocalRandom.current().nextLong());
+	}
+
+}
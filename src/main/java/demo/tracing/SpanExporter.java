@@ -0,0 +1,22 @@
+package demo.tracing;
+
+import java.util.List;
+
+/**
+ * Destination for completed traces. Invoked on the request thread, so must be
+ * thread-safe and quick.
+ *
+ * @author Paul Chapman
+ */
+public interface SpanExporter {
+
+	/**
+	 * Export a completed trace.
+	 *
+	 * @param spans
+	 *            The root span followed by its children, in the order they
+	 *            started.
+	 */
+	void export(List<Span> spans);
+
+}
@@ -0,0 +1,124 @@
+package demo.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
+
+/**
+ * Wraps every <tt>HandlerExceptionResolver</tt> so that each call to
+ * <code>resolveException()</code> is recorded by the {@link ResolverTracer}.
+ * <p>
+ * The <tt>DispatcherServlet</tt> only sees the top-level resolver beans. The
+ * most interesting resolvers (for <tt>@ExceptionHandler</tt>,
+ * <tt>@ResponseStatus</tt> and Spring's own exceptions) are hidden inside a
+ * {@link HandlerExceptionResolverComposite}, so its contents are wrapped
+ * instead of the composite itself.
+ * <p>
+ * Resolvers are wrapped using class-based (CGLIB) proxies, so they can still
+ * be injected by their own type - as the
+ * <tt>SimpleMappingExceptionResolver</tt> is in several places.
+ *
+ * @author Paul Chapman
+ */
+public class TracingResolverPostProcessor implements BeanPostProcessor,
+		Ordered {
+
+	protected final ObjectProvider<ResolverTracer> tracer;
+
+	/**
+	 * @param tracer
+	 *            Looked up lazily as post-processors are created before
+	 *            ordinary beans.
+	 */
+	public TracingResolverPostProcessor(ObjectProvider<ResolverTracer> tracer) {
+		this.tracer = tracer;
+	}
+
+	/**
+	 * Run before other post-processors, which may replace the resolvers.
+	 */
+	@Override
+	public int getOrder() {
+		return HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		if (bean instanceof HandlerExceptionResolverComposite) {
+			HandlerExceptionResolverComposite composite = (HandlerExceptionResolverComposite) bean;
+			List<HandlerExceptionResolver> traced = new ArrayList<HandlerExceptionResolver>();
+
+			for (HandlerExceptionResolver resolver : composite.getExceptionResolvers())
+				traced.add(trace(resolver));
+
+			composite.setExceptionResolvers(traced);
+			return composite;
+		} else if (bean instanceof HandlerExceptionResolver) {
+			return trace((HandlerExceptionResolver) bean);
+		}
+
+		// Must return the bean or we lose it!
+		return bean;
+	}
+
+	protected HandlerExceptionResolver trace(HandlerExceptionResolver resolver) {
+		ProxyFactory factory = new ProxyFactory(resolver);
+		factory.setProxyTargetClass(true);
+		factory.addAdvice(new TracingAdvice(resolver));
+		return (HandlerExceptionResolver) factory.getProxy(resolver.getClass()
+				.getClassLoader());
+	}
+
+	/**
+	 * Times <code>resolveException()</code>, passing all other calls straight
+	 * through.
+	 */
+	protected class TracingAdvice implements MethodInterceptor {
+
+		private final String name;
+		private final Integer order;
+
+		public TracingAdvice(HandlerExceptionResolver resolver) {
+			this.name = resolver.getClass().getSimpleName();
+			this.order = resolver instanceof Ordered
+					? ((Ordered) resolver).getOrder() : null;
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			if (!invocation.getMethod().getName().equals("resolveException"))
+				return invocation.proceed();
+
+			Object[] args = invocation.getArguments();
+			HttpServletRequest request = (HttpServletRequest) args[0];
+			ResolverTracer resolverTracer = tracer.getObject();
+			Span span = resolverTracer.startAttempt(request, (Exception) args[3],
+					name, order);
+			ModelAndView result = null;
+
+			try {
+				result = (ModelAndView) invocation.proceed();
+				return result;
+			} catch (Throwable t) {
+				span.setAttribute("error", t.toString());
+				throw t;
+			} finally {
+				resolverTracer.endAttempt(request, span, result);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,9 @@
+/**
+ * Tracing of the exception resolver chain. Every attempt by a
+ * <tt>HandlerExceptionResolver</tt> to handle an exception is recorded as a
+ * child span of a single "resolve" span per request, so you can see which
+ * resolvers ran, which one handled the exception and how long each took.
+ *
+ * @author Paul Chapman
+ */
+package demo.tracing;
@@ -1,14 +1,37 @@
 package demo.utils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
 import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
 
+import demo.routing.RoutingHandlerExceptionResolver;
+
 /**
  * A simple implementation of a <tt>BeanPostProcessor</tt> that logs every bean
  * created by Spring. When working with Spring Boot, a lot of beans get created
@@ -18,29 +41,111 @@ import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite
  * MVC automatically, whether you are using Spring Boot or not. To see what
  * beans are created, examine the <tt>@Bean</tt> methods in
  * {@link WebMvcConfigurationSupport}.
- * 
+ * <p>
+ * It also profiles startup, timing every bean from instantiation until it is
+ * fully initialized. A bean's dependencies are usually created while it is
+ * being created, so each thread keeps a stack of the beans in progress and
+ * the time spent on nested beans is subtracted to give each bean's own time.
+ * Once the application context has started, the slowest beans and the order
+ * of the exception resolver chain are logged - they are also available from
+ * {@link BeanTimingsEndpoint}. Beans created after startup are not timed.
+ * <p>
+ * A <tt>PriorityOrdered</tt> post-processor is registered before any other,
+ * so it sees nearly every bean.
+ *
  * @author Paul Chapman
  */
 @Component
-public class BeanLogger implements BeanPostProcessor {
+public class BeanLogger implements InstantiationAwareBeanPostProcessor,
+		PriorityOrdered, ApplicationContextAware, EnvironmentAware,
+		ApplicationListener<ContextRefreshedEvent> {
+
+	/** A bean being created. */
+	protected static class InProgress {
+		final String name;
+		final long start = System.nanoTime();
+		long initStart;
+		long nestedNanos;
+
+		InProgress(String name) {
+			this.name = name;
+		}
+	}
 
 	protected Logger logger;
-	protected boolean enabled = false;
+	protected boolean enabled;
+	protected int reportSize;
+
+	private volatile boolean profiling;
+	private final ThreadLocal<Deque<InProgress>> inProgress = new ThreadLocal<Deque<InProgress>>();
+	private final List<BeanTiming> timings = new ArrayList<BeanTiming>();
+	private volatile List<Map<String, Object>> resolverChain = Collections.emptyList();
+	private ApplicationContext context;
 
 	public BeanLogger() {
 		logger = LoggerFactory.getLogger(getClass());
 	}
 
+	/**
+	 * Created before <tt>@Value</tt> injection is available, so read the
+	 * properties here:
+	 * <ul>
+	 * <li><code>demo.beans.log</code> - log each bean as it is created.
+	 * <li><code>demo.beans.profile</code> - time each bean as it is created.
+	 * <li><code>demo.beans.report-size</code> - how many of the slowest beans
+	 * to log.
+	 * </ul>
+	 */
+	@Override
+	public void setEnvironment(Environment environment) {
+		enabled = environment.getProperty("demo.beans.log", Boolean.class,
+				false);
+		profiling = environment.getProperty("demo.beans.profile",
+				Boolean.class, true);
+		reportSize = environment.getProperty("demo.beans.report-size",
+				Integer.class, 20);
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext context) {
+		this.context = context;
+	}
+
+	@Override
+	public Object postProcessBeforeInstantiation(Class<?> beanClass,
+			String beanName) throws BeansException {
+		if (profiling)
+			stack().push(new InProgress(beanName));
+
+		// Carry on and create the bean as normal
+		return null;
+	}
+
 	@Override
 	public Object postProcessBeforeInitialization(Object bean, String beanName)
 			throws BeansException {
-		// Nothing to do. Must return the bean or we lose it!
+		if (profiling) {
+			InProgress current = stack().peek();
+
+			if (current != null && current.name.equals(beanName))
+				current.initStart = System.nanoTime();
+		}
+
+		// Must return the bean or we lose it!
 		return bean;
 	}
 
 	@Override
 	public Object postProcessAfterInitialization(Object bean, String beanName)
 			throws BeansException {
+		if (profiling)
+			finished(bean, beanName);
+
 		if (!enabled)
 			return bean; // Must return the bean or we lose it!
 
@@ -68,4 +173,179 @@ public class BeanLogger implements BeanPostProcessor {
 		return bean;
 	}
 
+	/**
+	 * Record the time taken by a bean. Objects made by a <tt>FactoryBean</tt>
+	 * are post-processed without being instantiated here, so will not be in
+	 * progress. A bean whose creation failed is never finished - it is
+	 * discarded when the bean that was being created before it finishes.
+	 */
+	protected void finished(Object bean, String beanName) {
+		Deque<InProgress> stack = stack();
+		InProgress current = null;
+
+		for (Iterator<InProgress> i = stack.iterator(); i.hasNext();) {
+			if (i.next().name.equals(beanName)) {
+				while (current == null || !current.name.equals(beanName))
+					current = stack.pop();
+				break;
+			}
+		}
+
+		if (current == null)
+			return;
+
+		long now = System.nanoTime();
+		long total = now - current.start;
+		InProgress parent = stack.peek();
+
+		if (parent != null)
+			parent.nestedNanos += total;
+
+		BeanTiming timing = new BeanTiming(beanName,
+				ClassUtils.getUserClass(bean).getName(),
+				parent == null ? null : parent.name, stack.size(), total,
+				total - current.nestedNanos,
+				current.initStart == 0 ? 0 : now - current.initStart);
+
+		synchronized (timings) {
+			timings.add(timing);
+		}
+	}
+
+	protected Deque<InProgress> stack() {
+		Deque<InProgress> stack = inProgress.get();
+
+		if (stack == null) {
+			stack = new ArrayDeque<InProgress>();
+			inProgress.set(stack);
+		}
+
+		return stack;
+	}
+
+	/**
+	 * Startup is complete - stop timing and log the report.
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!profiling || event.getApplicationContext() != context)
+			return;
+
+		profiling = false;
+		inProgress.remove();
+		resolverChain = describeResolverChain();
+
+		List<BeanTiming> slowest = getSlowest(reportSize);
+		logger.info(String.format(
+				"Startup report: %d beans took %.1fms. Slowest (by own time):",
+				getBeanCount(), getTotalNanos() / 1e6));
+
+		for (BeanTiming timing : slowest)
+			logger.info("   " + timing);
+
+		logger.info("Exception resolver chain:");
+
+		for (Map<String, Object> resolver : resolverChain)
+			logger.info("   " + resolver);
+	}
+
+	/**
+	 * The exception resolvers in the order the <tt>DispatcherServlet</tt> uses
+	 * them, with the contents of any composite.
+	 */
+	protected List<Map<String, Object>> describeResolverChain() {
+		List<HandlerExceptionResolver> resolvers = new ArrayList<HandlerExceptionResolver>(
+				BeanFactoryUtils.beansOfTypeIncludingAncestors(context,
+						HandlerExceptionResolver.class, true, false).values());
+		AnnotationAwareOrderComparator.sort(resolvers);
+
+		List<Map<String, Object>> chain = new ArrayList<Map<String, Object>>();
+
+		for (HandlerExceptionResolver resolver : resolvers) {
+			Map<String, Object> description = new LinkedHashMap<String, Object>();
+			description.put("type", ClassUtils.getUserClass(resolver).getName());
+			description.put("order", resolver instanceof Ordered
+					? ((Ordered) resolver).getOrder() : Ordered.LOWEST_PRECEDENCE);
+
+			HandlerExceptionResolverComposite composite = resolver instanceof RoutingHandlerExceptionResolver
+					? ((RoutingHandlerExceptionResolver) resolver).getMvcResolvers()
+					: resolver instanceof HandlerExceptionResolverComposite
+							? (HandlerExceptionResolverComposite) resolver : null;
+
+			if (composite != null) {
+				List<String> delegates = new ArrayList<String>();
+
+				for (HandlerExceptionResolver delegate : composite
+						.getExceptionResolvers())
+					delegates.add(ClassUtils.getUserClass(delegate).getName());
+
+				description.put("resolvers", delegates);
+			}
+
+			chain.add(description);
+		}
+
+		return chain;
+	}
+
+	/**
+	 * @param limit
+	 *            Maximum number to return.
+	 * @return The beans that took longest to create, not counting the time
+	 *         spent creating their dependencies.
+	 */
+	public List<BeanTiming> getSlowest(int limit) {
+		List<BeanTiming> sorted;
+
+		synchronized (timings) {
+			sorted = new ArrayList<BeanTiming>(timings);
+		}
+
+		Collections.sort(sorted, new Comparator<BeanTiming>() {
+			@Override
+			public int compare(BeanTiming t1, BeanTiming t2) {
+				return Long.compare(t2.getSelfNanos(), t1.getSelfNanos());
+			}
+		});
+
+		return sorted.subList(0, Math.min(limit, sorted.size()));
+	}
+
+	/**
+	 * @return Number of beans timed.
+	 */
+	public int getBeanCount() {
+		synchronized (timings) {
+			return timings.size();
+		}
+	}
+
+	/**
+	 * @return Time taken creating beans - the total of the beans not nested
+	 *         inside another.
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+
+		synchronized (timings) {
+			for (BeanTiming timing : timings) {
+				if (timing.getDepth() == 0)
+					total += timing.getTotalNanos();
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * @return The exception resolvers, in order, as found at startup.
+	 */
+	public List<Map<String, Object>> getResolverChain() {
+		return resolverChain;
+	}
+
+	public int getReportSize() {
+		return reportSize;
+	}
+
 }
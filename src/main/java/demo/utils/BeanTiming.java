@@ -0,0 +1,83 @@
+package demo.utils;
+
+/**
+ * How long one bean took to create, as measured by {@link BeanLogger}. The
+ * total includes creating any beans it depends on that did not exist yet -
+ * those are nested inside it. Self time excludes them.
+ *
+ * @author Paul Chapman
+ */
+public class BeanTiming {
+
+	private final String name;
+	private final String type;
+	private final String parent;
+	private final int depth;
+	private final long totalNanos;
+	private final long selfNanos;
+	private final long initNanos;
+
+	public BeanTiming(String name, String type, String parent, int depth,
+			long totalNanos, long selfNanos, long initNanos) {
+		this.name = name;
+		this.type = type;
+		this.parent = parent;
+		this.depth = depth;
+		this.totalNanos = totalNanos;
+		this.selfNanos = selfNanos;
+		this.initNanos = initNanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return The bean whose creation caused this one to be created, or null
+	 *         if it was created directly by the application context.
+	 */
+	public String getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return Number of beans this was nested inside.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return From instantiation until fully initialized.
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return Total less the time spent creating nested beans.
+	 */
+	public long getSelfNanos() {
+		return selfNanos;
+	}
+
+	/**
+	 * @return From <code>postProcessBeforeInitialization</code> to
+	 *         <code>postProcessAfterInitialization</code> - init methods and
+	 *         <code>afterPropertiesSet</code>, plus any beans they create.
+	 */
+	public long getInitNanos() {
+		return initNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s) total %.1fms, self %.1fms, init %.1fms",
+				name, type, totalNanos / 1e6, selfNanos / 1e6, initNanos / 1e6);
+	}
+
+}
@@ -0,0 +1,60 @@
+package demo.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint, <code>/actuator/beantimings</code>, showing where startup
+ * time went: the beans that took longest to create (as timed by
+ * {@link BeanLogger}) and the order of the exception resolver chain. Use
+ * <code>?limit=N</code> to see more or fewer beans.
+ *
+ * @author Paul Chapman
+ */
+@Component
+@Endpoint(id = "beantimings")
+public class BeanTimingsEndpoint {
+
+	protected final BeanLogger beanLogger;
+
+	public BeanTimingsEndpoint(BeanLogger beanLogger) {
+		this.beanLogger = beanLogger;
+	}
+
+	@ReadOperation
+	public Map<String, Object> timings(@Nullable Integer limit) {
+		List<Map<String, Object>> slowest = new ArrayList<Map<String, Object>>();
+
+		for (BeanTiming timing : beanLogger.getSlowest(
+				limit == null ? beanLogger.getReportSize() : limit)) {
+			Map<String, Object> bean = new LinkedHashMap<String, Object>();
+			bean.put("name", timing.getName());
+			bean.put("type", timing.getType());
+			bean.put("parent", timing.getParent());
+			bean.put("depth", timing.getDepth());
+			bean.put("selfMillis", millis(timing.getSelfNanos()));
+			bean.put("totalMillis", millis(timing.getTotalNanos()));
+			bean.put("initMillis", millis(timing.getInitNanos()));
+			slowest.add(bean);
+		}
+
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("beans", beanLogger.getBeanCount());
+		stats.put("totalMillis", millis(beanLogger.getTotalNanos()));
+		stats.put("slowest", slowest);
+		stats.put("resolverChain", beanLogger.getResolverChain());
+		return stats;
+	}
+
+	protected double millis(long nanos) {
+		return Math.round(nanos / 1e4) / 100.0;
+	}
+
+}
@@ -0,0 +1,265 @@
+package demo.view;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.AbstractContext;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.spring5.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * Processes <code>demo:replace-cached="template :: selector"</code>. The
+ * element is replaced by the selected fragment exactly as
+ * <code>th:substituteby</code> would do, but the fragment is only rendered
+ * once. After that its output is written straight from the cache.
+ * <p>
+ * Only use this for fragments whose output depends on nothing but the
+ * application's context path (which forms part of the cache key, because
+ * <code>@{...}</code> link expressions depend on it). Anything using the
+ * model, the locale or the session must still use <code>th:replace</code>.
+ * <p>
+ * Links are also passed to <code>HttpServletResponse.encodeURL()</code>,
+ * which adds the session id (<code>;jsessionid=...</code>) when the session
+ * is tracked by URL rewriting rather than a cookie. Output rendered for such
+ * a response belongs to that session only, so it is neither taken from nor
+ * put in the cache - the fragment is rendered every time instead (counted as
+ * bypassed).
+ * <p>
+ * The hit and miss counts and timings allow the saving to be measured - see
+ * {@link FragmentCacheEndpoint}.
+ *
+ * @author Paul Chapman
+ */
+public class CachedFragmentProcessor extends AbstractAttributeTagProcessor {
+
+	public static final String ATTRIBUTE_NAME = "replace-cached";
+
+	public static final int PRECEDENCE = 100;
+
+	protected Logger logger;
+	protected final ObjectProvider<ITemplateEngine> templateEngine;
+	protected final boolean enabled;
+
+	private final ConcurrentMap<String, String> cache = new ConcurrentHashMap<String, String>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong bypassed = new AtomicLong();
+	private final AtomicLong hitNanos = new AtomicLong();
+	private final AtomicLong missNanos = new AtomicLong();
+
+	public CachedFragmentProcessor(String dialectPrefix,
+			ObjectProvider<ITemplateEngine> templateEngine, boolean enabled) {
+		super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME,
+				true, PRECEDENCE, true);
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.templateEngine = templateEngine;
+		this.enabled = enabled;
+	}
+
+	@Override
+	protected void doProcess(ITemplateContext context,
+			IProcessableElementTag tag, AttributeName attributeName,
+			String attributeValue, IElementTagStructureHandler structureHandler) {
+		// Already fully processed, so Thymeleaf must not process it again
+		structureHandler.replaceWith(getFragment(attributeValue, context),
+				false);
+	}
+
+	/**
+	 * The output of a fragment, from the cache if possible. Also used by views
+	 * that write the page without Thymeleaf but still need the header and
+	 * footer.
+	 *
+	 * @param fragmentSpec
+	 *            Such as <code>header :: copy</code>.
+	 * @param context
+	 *            Context to render the fragment with on a cache miss.
+	 * @return The rendered fragment.
+	 */
+	public String getFragment(String fragmentSpec, IContext context) {
+		long start = System.nanoTime();
+
+		if (enabled && !isCacheable(context)) {
+			bypassed.incrementAndGet();
+			return render(context, fragmentSpec);
+		}
+
+		String key = fragmentSpec.trim() + '|' + getContextPath(context);
+		String output = enabled ? cache.get(key) : null;
+
+		if (output != null) {
+			hits.incrementAndGet();
+			hitNanos.addAndGet(System.nanoTime() - start);
+		} else {
+			output = render(context, fragmentSpec);
+
+			if (enabled) {
+				String existing = cache.putIfAbsent(key, output);
+				if (existing == null)
+					logger.info("Cached fragment " + key + " ("
+							+ output.length() + " chars)");
+			}
+
+			misses.incrementAndGet();
+			missNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		return output;
+	}
+
+	/**
+	 * Look up a fragment without a Thymeleaf context, which is only needed
+	 * if it must be rendered.
+	 *
+	 * @param fragmentSpec
+	 *            Such as <code>header :: copy</code>.
+	 * @param request
+	 *            The current request.
+	 * @param response
+	 *            The current response.
+	 * @return The cached output, or null if the fragment has not been cached
+	 *         or the cache may not be used for this response - call
+	 *         {@link #getFragment(String, IContext)} instead.
+	 */
+	public String getCachedFragment(String fragmentSpec,
+			HttpServletRequest request, HttpServletResponse response) {
+		if (!enabled || !isCacheable(request, response))
+			return null;
+
+		long start = System.nanoTime();
+		String output = cache.get(fragmentSpec.trim() + '|'
+				+ request.getContextPath());
+
+		if (output != null) {
+			hits.incrementAndGet();
+			hitNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		return output;
+	}
+
+	/**
+	 * Render the fragment using a context holding just what the fragment is
+	 * allowed to depend on.
+	 */
+	protected String render(IContext context, String fragmentSpec) {
+		int separator = fragmentSpec.indexOf("::");
+
+		if (separator < 0)
+			throw new TemplateProcessingException("Expected 'template :: selector' but got '"
+					+ fragmentSpec + "'");
+
+		String template = fragmentSpec.substring(0, separator).trim();
+		String selector = fragmentSpec.substring(separator + 2).trim();
+
+		AbstractContext fragmentContext;
+
+		if (context instanceof IWebContext) {
+			IWebContext webContext = (IWebContext) context;
+			fragmentContext = new WebContext(webContext.getRequest(),
+					webContext.getResponse(), webContext.getServletContext(),
+					context.getLocale());
+		} else {
+			fragmentContext = new Context(context.getLocale());
+		}
+
+		// Spring's expression support is needed for @{...} links
+		Object evaluationContext = context.getVariable(
+				ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME);
+
+		if (evaluationContext != null)
+			fragmentContext.setVariable(
+					ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+					evaluationContext);
+
+		return templateEngine.getObject().process(new TemplateSpec(template,
+				Collections.singleton(selector), TemplateMode.HTML, null),
+				fragmentContext);
+	}
+
+	protected boolean isCacheable(IContext context) {
+		if (!(context instanceof IWebContext))
+			return true;
+
+		IWebContext webContext = (IWebContext) context;
+		return isCacheable(webContext.getRequest(), webContext.getResponse());
+	}
+
+	/**
+	 * Can the cached output be used for this response? Not if the response
+	 * rewrites URLs - then every link in the fragment carries this session's
+	 * id.
+	 */
+	protected boolean isCacheable(HttpServletRequest request,
+			HttpServletResponse response) {
+		String path = request.getContextPath() + '/';
+		return response.encodeURL(path).equals(path);
+	}
+
+	protected String getContextPath(IContext context) {
+		return context instanceof IWebContext
+				? ((IWebContext) context).getRequest().getContextPath()
+				: "";
+	}
+
+	/**
+	 * Discard all cached output, forcing each fragment to be rendered again.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getCachedFragments() {
+		return cache.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return How many fragments were rendered without the cache because
+	 *         their links were rewritten to carry a session id.
+	 */
+	public long getBypassed() {
+		return bypassed.get();
+	}
+
+	public long getHitNanos() {
+		return hitNanos.get();
+	}
+
+	public long getMissNanos() {
+		return missNanos.get();
+	}
+
+}
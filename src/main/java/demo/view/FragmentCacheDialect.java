@@ -0,0 +1,69 @@
+package demo.view;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.standard.StandardDialect;
+
+/**
+ * A Thymeleaf dialect providing <code>demo:replace-cached</code>, a drop-in
+ * alternative to <code>th:substituteby</code> for fragments whose output never
+ * changes between requests, such as <code>header :: copy</code> and
+ * <code>footer :: copy</code> which every page (including all the error pages)
+ * pulls in.
+ * <p>
+ * Spring Boot automatically adds any <tt>IDialect</tt> bean to its template
+ * engine, so being a <tt>@Component</tt> is all the setup required. See
+ * {@link CachedFragmentProcessor} for how the output is cached.
+ *
+ * @author Paul Chapman
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect {
+
+	public static final String NAME = "Fragment Cache";
+
+	public static final String PREFIX = "demo";
+
+	private final CachedFragmentProcessor processor;
+
+	/**
+	 * Create the dialect. The template engine is looked up lazily because it
+	 * depends on this dialect in turn.
+	 *
+	 * @param templateEngine
+	 *            Provides the engine used to render a fragment on a cache miss.
+	 * @param enabled
+	 *            Whether to cache at all. Set
+	 *            <code>demo.thymeleaf.fragment-cache</code> to false if you are
+	 *            editing the header or footer whilst the application runs.
+	 */
+	public FragmentCacheDialect(ObjectProvider<ITemplateEngine> templateEngine,
+			@Value("${demo.thymeleaf.fragment-cache:true}") boolean enabled) {
+		// Run before the Standard Dialect so our attribute is seen first
+		super(NAME, PREFIX, StandardDialect.PROCESSOR_PRECEDENCE - 100);
+		this.processor = new CachedFragmentProcessor(PREFIX, templateEngine,
+				enabled);
+	}
+
+	/**
+	 * The processor doing the work, also the holder of the cache statistics.
+	 *
+	 * @return The single processor in this dialect.
+	 */
+	public CachedFragmentProcessor getProcessor() {
+		return processor;
+	}
+
+	@Override
+	public Set<IProcessor> getProcessors(String dialectPrefix) {
+		return Collections.<IProcessor> singleton(processor);
+	}
+
+}
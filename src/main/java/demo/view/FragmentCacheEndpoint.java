@@ -0,0 +1,55 @@
+package demo.view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint, <code>/actuator/fragmentcache</code>, showing how
+ * effective the {@link FragmentCacheDialect} is. Compare the average time
+ * taken by a miss (a full Thymeleaf render of the fragment) against the
+ * average time taken by a hit to see the saving per page. A DELETE request
+ * empties the cache.
+ *
+ * @author Paul Chapman
+ */
+@Component
+@Endpoint(id = "fragmentcache")
+public class FragmentCacheEndpoint {
+
+	protected final CachedFragmentProcessor processor;
+
+	public FragmentCacheEndpoint(FragmentCacheDialect dialect) {
+		this.processor = dialect.getProcessor();
+	}
+
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		long hits = processor.getHits();
+		long misses = processor.getMisses();
+
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("enabled", processor.isEnabled());
+		stats.put("cachedFragments", processor.getCachedFragments());
+		stats.put("hits", hits);
+		stats.put("misses", misses);
+		stats.put("bypassed", processor.getBypassed());
+		stats.put("averageHitMicros", average(processor.getHitNanos(), hits));
+		stats.put("averageMissMicros", average(processor.getMissNanos(), misses));
+		return stats;
+	}
+
+	@DeleteOperation
+	public void clear() {
+		processor.clear();
+	}
+
+	protected double average(long nanos, long count) {
+		return count == 0 ? 0.0 : nanos / 1000.0 / count;
+	}
+
+}
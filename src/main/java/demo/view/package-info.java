@@ -0,0 +1,7 @@
+/**
+ * View-layer support shared by all the demos - a Thymeleaf dialect that
+ * caches the rendered output of the common header and footer fragments.
+ *
+ * @author Paul Chapman
+ */
+package demo.view;
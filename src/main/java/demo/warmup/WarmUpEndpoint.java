@@ -0,0 +1,53 @@
+package demo.warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint, <code>/actuator/warmup</code>, showing the warm-up curve:
+ * how long each pass over the error paths took as the JVM warmed up.
+ *
+ * @author Paul Chapman
+ */
+@Component
+@ConditionalOnProperty(name = "demo.warmup.enabled", matchIfMissing = true)
+@Endpoint(id = "warmup")
+public class WarmUpEndpoint {
+
+	protected final WarmUpRunner runner;
+
+	public WarmUpEndpoint(WarmUpRunner runner) {
+		this.runner = runner;
+	}
+
+	@ReadOperation
+	public Map<String, Object> curve() {
+		List<Map<String, Object>> rounds = new ArrayList<Map<String, Object>>();
+
+		for (WarmUpRound round : runner.getRounds()) {
+			Map<String, Object> entry = new LinkedHashMap<String, Object>();
+			entry.put("round", round.getRound());
+			entry.put("requests", round.getRequests());
+			entry.put("totalMillis", round.getTotalNanos() / 1000000.0);
+			entry.put("averageMicros", round.getRequests() == 0 ? 0.0
+					: round.getTotalNanos() / 1000.0 / round.getRequests());
+			entry.put("slowestPath", round.getSlowestPath());
+			entry.put("slowestMicros", round.getSlowestNanos() / 1000.0);
+			rounds.add(entry);
+		}
+
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("paths", runner.getPaths());
+		result.put("stable", runner.isStable());
+		result.put("rounds", rounds);
+		return result;
+	}
+
+}
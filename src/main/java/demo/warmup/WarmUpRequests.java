@@ -0,0 +1,38 @@
+package demo.warmup;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Identifies the requests made by the {@link WarmUpRunner}, so the error
+ * counters, error events and missing order cache can ignore them - they are
+ * not real errors.
+ * <p>
+ * A request only counts as warm-up while the warm-up is running, so sending
+ * the header later hides nothing.
+ *
+ * @author Paul Chapman
+ */
+public final class WarmUpRequests {
+
+	/** Header sent with every warm-up request. */
+	public static final String HEADER = "X-Demo-Warm-Up";
+
+	private static volatile boolean running;
+
+	private WarmUpRequests() {
+	}
+
+	/**
+	 * @param request
+	 *            The current request.
+	 * @return True if this request was made by the warm-up.
+	 */
+	public static boolean isWarmUp(HttpServletRequest request) {
+		return running && request.getHeader(HEADER) != null;
+	}
+
+	static void setRunning(boolean running) {
+		WarmUpRequests.running = running;
+	}
+
+}
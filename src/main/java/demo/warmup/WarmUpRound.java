@@ -0,0 +1,52 @@
+package demo.warmup;
+
+/**
+ * The timings of one pass of the {@link WarmUpRunner} over every path.
+ *
+ * @author Paul Chapman
+ */
+public class WarmUpRound {
+
+	private final int round;
+	private final int requests;
+	private final long totalNanos;
+	private final String slowestPath;
+	private final long slowestNanos;
+
+	public WarmUpRound(int round, int requests, long totalNanos,
+			String slowestPath, long slowestNanos) {
+		this.round = round;
+		this.requests = requests;
+		this.totalNanos = totalNanos;
+		this.slowestPath = slowestPath;
+		this.slowestNanos = slowestNanos;
+	}
+
+	public int getRound() {
+		return round;
+	}
+
+	public int getRequests() {
+		return requests;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public String getSlowestPath() {
+		return slowestPath;
+	}
+
+	public long getSlowestNanos() {
+		return slowestNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "round " + round + ": " + requests + " requests in "
+				+ totalNanos / 1000000 + "ms, slowest " + slowestPath + " "
+				+ slowestNanos / 1000 + "us";
+	}
+
+}
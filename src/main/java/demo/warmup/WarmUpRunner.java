@@ -0,0 +1,277 @@
+package demo.warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import demo1.web.ExceptionHandlingController;
+import demo2.web.ControllerWithoutExceptionHandlers;
+import demo3.web.ExceptionThrowingController;
+import demo5.web.ReturnOrRedirectController;
+
+/**
+ * Requests every GET mapping of the demo controllers, as both a browser and a
+ * REST client, over and over until the time each pass takes stops falling.
+ * Until then the first request for each kind of exception is slow: its
+ * classes are loaded, handler methods and resolvers are looked up for the
+ * first time, templates are parsed and the code has not yet been compiled by
+ * the JIT.
+ * <p>
+ * Spring Boot runs <tt>ApplicationRunner</tt>s before it publishes the
+ * <tt>ApplicationReadyEvent</tt>, so <code>/actuator/health/readiness</code>
+ * reports <tt>OUT_OF_SERVICE</tt> until the warm-up is over and a load
+ * balancer sends no traffic here in the meantime.
+ * <p>
+ * Requests are made in-process over the loopback interface, through the
+ * embedded server, so the servlet container's forward to <code>/error</code>
+ * for unresolved exceptions gets warmed up too. They are marked with the
+ * {@link WarmUpRequests#HEADER} so they are not counted as real errors.
+ * Mappings with path variables are skipped - there is no sensible value to
+ * use. The warm-up curve is logged and shown by
+ * <code>/actuator/warmup</code>.
+ *
+ * @author Paul Chapman
+ */
+@Component
+@ConditionalOnProperty(name = "demo.warmup.enabled", matchIfMissing = true)
+public class WarmUpRunner implements ApplicationRunner {
+
+	/** The controllers whose error paths are warmed up. */
+	protected static final Class<?>[] CONTROLLERS = {
+			ExceptionHandlingController.class,
+			ControllerWithoutExceptionHandlers.class,
+			ExceptionThrowingController.class, ReturnOrRedirectController.class };
+
+	/** Each path is requested as a browser and as a REST client would. */
+	protected static final String[] ACCEPT = { MediaType.TEXT_HTML_VALUE,
+			MediaType.APPLICATION_JSON_VALUE };
+
+	protected Logger logger;
+
+	protected final RequestMappingHandlerMapping handlerMapping;
+	protected final Environment environment;
+	protected final int minRounds;
+	protected final int maxRounds;
+	protected final int stableRounds;
+	protected final double tolerance;
+
+	private final List<WarmUpRound> rounds = Collections
+			.synchronizedList(new ArrayList<WarmUpRound>());
+	private volatile List<String> paths = Collections.emptyList();
+	private volatile boolean stable;
+
+	/**
+	 * @param handlerMapping
+	 *            Holds the mappings of every controller.
+	 * @param environment
+	 *            Provides the port the server is listening on.
+	 * @param minRounds
+	 *            Always make at least this many passes.
+	 * @param maxRounds
+	 *            Give up after this many passes, stable or not.
+	 * @param stableRounds
+	 *            Stop once this many passes in a row are within the tolerance
+	 *            of the one before.
+	 * @param tolerance
+	 *            How much a pass may differ from the one before, as a fraction
+	 *            of its time, and still count as stable.
+	 */
+	public WarmUpRunner(
+			@Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping,
+			Environment environment,
+			@Value("${demo.warmup.min-rounds:5}") int minRounds,
+			@Value("${demo.warmup.max-rounds:50}") int maxRounds,
+			@Value("${demo.warmup.stable-rounds:3}") int stableRounds,
+			@Value("${demo.warmup.tolerance:0.1}") double tolerance) {
+		this.logger = LoggerFactory.getLogger(getClass());
+		this.handlerMapping = handlerMapping;
+		this.environment = environment;
+		this.minRounds = minRounds;
+		this.maxRounds = Math.max(minRounds, maxRounds);
+		this.stableRounds = stableRounds;
+		this.tolerance = tolerance;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		String port = environment.getProperty("local.server.port");
+
+		if (port == null) {
+			logger.info("No web server - skipping warm-up");
+			return;
+		}
+
+		paths = findPaths();
+		String base = "http://localhost:" + port;
+		logger.info("Warming up " + paths.size() + " paths against " + base);
+
+		WarmUpRequests.setRunning(true);
+		long start = System.nanoTime();
+
+		try {
+			int stableCount = 0;
+			long previous = -1;
+
+			for (int round = 1; round <= maxRounds; round++) {
+				WarmUpRound result = runRound(round, base);
+				rounds.add(result);
+				logger.info("Warm-up " + result);
+
+				if (previous > 0 && Math.abs(result.getTotalNanos() - previous) <= previous
+						* tolerance)
+					stableCount++;
+				else
+					stableCount = 0;
+
+				previous = result.getTotalNanos();
+
+				if (round >= minRounds && stableCount >= stableRounds) {
+					stable = true;
+					break;
+				}
+			}
+		} finally {
+			WarmUpRequests.setRunning(false);
+		}
+
+		logger.info("Warm-up " + (stable ? "stable" : "NOT stable") + " after "
+				+ rounds.size() + " rounds, "
+				+ (System.nanoTime() - start) / 1000000 + "ms - see /actuator/warmup");
+	}
+
+	/**
+	 * Every GET mapping of the {@link #CONTROLLERS} that has no path
+	 * variables. Controllers not in use by the current profile have no
+	 * mappings, so are simply left out.
+	 */
+	protected List<String> findPaths() {
+		Set<String> found = new TreeSet<String>();
+
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping
+				.getHandlerMethods().entrySet()) {
+			if (!isWarmedUp(entry.getValue().getBeanType()))
+				continue;
+
+			Set<RequestMethod> methods = entry.getKey().getMethodsCondition()
+					.getMethods();
+
+			if (!methods.isEmpty() && !methods.contains(RequestMethod.GET))
+				continue;
+
+			for (String pattern : entry.getKey().getPatternValues()) {
+				if (pattern.indexOf('{') < 0 && pattern.indexOf('*') < 0)
+					found.add(pattern);
+			}
+		}
+
+		return Collections.unmodifiableList(new ArrayList<String>(found));
+	}
+
+	protected boolean isWarmedUp(Class<?> beanType) {
+		for (Class<?> controller : CONTROLLERS)
+			if (controller.isAssignableFrom(beanType))
+				return true;
+
+		return false;
+	}
+
+	protected WarmUpRound runRound(int round, String base) {
+		long total = 0;
+		long slowest = 0;
+		String slowestPath = null;
+		int requests = 0;
+
+		for (String path : paths) {
+			for (String accept : ACCEPT) {
+				long nanos = request(base + path, accept);
+				total += nanos;
+				requests++;
+
+				if (nanos > slowest) {
+					slowest = nanos;
+					slowestPath = path + " (" + accept + ")";
+				}
+			}
+		}
+
+		return new WarmUpRound(round, requests, total, slowestPath, slowest);
+	}
+
+	/**
+	 * Make one request and read all of the response. Failures are logged, not
+	 * thrown - the warm-up must never stop the application starting.
+	 *
+	 * @return How long the request took, in nanoseconds.
+	 */
+	protected long request(String url, String accept) {
+		long start = System.nanoTime();
+
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url)
+					.openConnection();
+			connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+			connection.setRequestProperty(WarmUpRequests.HEADER, "true");
+			connection.setInstanceFollowRedirects(false);
+
+			int status = connection.getResponseCode();
+			InputStream in = status < 400 ? connection.getInputStream()
+					: connection.getErrorStream();
+
+			if (in != null) {
+				try {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0)
+						;
+				} finally {
+					in.close();
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("GET " + url + " failed: " + e);
+		}
+
+		return System.nanoTime() - start;
+	}
+
+	public List<WarmUpRound> getRounds() {
+		synchronized (rounds) {
+			return new ArrayList<WarmUpRound>(rounds);
+		}
+	}
+
+	public List<String> getPaths() {
+		return paths;
+	}
+
+	/**
+	 * @return True if the warm-up stopped because the timings had settled,
+	 *         false if it is still running or ran out of rounds.
+	 */
+	public boolean isStable() {
+		return stable;
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Warm-up of every error path before the application reports itself ready, so
+ * the first real requests do not pay for class loading and empty caches.
+ *
+ * @author Paul Chapman
+ */
+package demo.warmup;
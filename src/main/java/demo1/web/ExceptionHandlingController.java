@@ -1,28 +1,39 @@
 package demo1.web;
 
 import java.sql.SQLException;
-import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.ModelAndView;
 
+import demo.async.DelayedOperations;
+import demo.diagnostics.SupportDiagnostics;
+import demo.errors.ErrorModel;
 import demo.exceptions.DatabaseException;
 import demo.exceptions.InvalidCreditCardException;
 import demo.exceptions.OrderNotFoundException;
 import demo.exceptions.SupportInfoException;
 import demo.exceptions.UnhandledException;
+import demo.jdbc.SqlStateExceptionTranslator;
+import demo.metadata.ExceptionMetadata;
+import demo.metadata.ExceptionMetadataRegistry;
 
 /**
  * A controller whose request-handler methods deliberately throw exceptions to
@@ -38,11 +49,60 @@ import demo.exceptions.UnhandledException;
 public class ExceptionHandlingController {
 
 	protected Logger logger;
+	protected ExceptionMetadataRegistry metadataRegistry;
+	protected SqlStateExceptionTranslator exceptionTranslator;
+	protected SupportDiagnostics diagnostics;
+	protected DelayedOperations delayedOperations;
 
 	public ExceptionHandlingController() {
 		logger = LoggerFactory.getLogger(getClass());
 	}
 
+	/**
+	 * Registry holding the <tt>@ResponseStatus</tt> details of each exception
+	 * class, so they are only looked up once.
+	 * 
+	 * @param metadataRegistry
+	 */
+	@Autowired
+	public void setExceptionMetadataRegistry(
+			ExceptionMetadataRegistry metadataRegistry) {
+		this.metadataRegistry = metadataRegistry;
+	}
+
+	/**
+	 * Translates <tt>SQLException</tt>s into <tt>DataAccessException</tt>s, so
+	 * the type of database failure is known.
+	 * 
+	 * @param exceptionTranslator
+	 */
+	@Autowired
+	public void setExceptionTranslator(
+			SqlStateExceptionTranslator exceptionTranslator) {
+		this.exceptionTranslator = exceptionTranslator;
+	}
+
+	/**
+	 * Streams full diagnostics, instead of the support page, when
+	 * <code>?diagnostics</code> is added to the URL.
+	 * 
+	 * @param diagnostics
+	 */
+	@Autowired
+	public void setSupportDiagnostics(SupportDiagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Runs the operations behind the asynchronous request handlers.
+	 * 
+	 * @param delayedOperations
+	 */
+	@Autowired
+	public void setDelayedOperations(DelayedOperations delayedOperations) {
+		this.delayedOperations = delayedOperations;
+	}
+
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
 	/* . . . . . . . . . . . . . . REQUEST HANDLERS . . . . . . . . . . . . .. */
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
@@ -73,14 +133,17 @@ public class ExceptionHandlingController {
 	 * No handler is needed for this exception since it is annotated with
 	 * <tt>@ResponseStatus</tt>.
 	 * 
+	 * @param id
+	 *            The order to look for - there are none.
 	 * @return Nothing - it always throws the exception.
 	 * @throws OrderNotFoundException
 	 *             Always thrown.
 	 */
 	@GetMapping("/orderNotFound")
-	String throwOrderNotFoundException() {
-		logger.info("Throw OrderNotFoundException for unknown order 12345");
-		throw new OrderNotFoundException("12345");
+	String throwOrderNotFoundException(
+			@RequestParam(name = "id", defaultValue = "12345") String id) {
+		logger.info("Throw OrderNotFoundException for unknown order " + id);
+		throw new OrderNotFoundException(id);
 	}
 
 	/**
@@ -183,6 +246,33 @@ public class ExceptionHandlingController {
 		throw new UnhandledException("Some exception occurred");
 	}
 
+	/**
+	 * Asynchronous version of the handlers above - after <code>delay</code>
+	 * milliseconds, does the same as the handler of the same name (so
+	 * <code>/local/async/orderNotFound</code> fails like
+	 * <code>/local/orderNotFound</code>). No request thread is held while
+	 * waiting. When the future fails, the exception is resolved on the async
+	 * dispatch by the same <tt>@ExceptionHandler</tt> methods as the synchronous handlers.
+	 * 
+	 * @param operation
+	 *            Name of the handler to imitate.
+	 * @param id
+	 *            Optional order or card number.
+	 * @param delay
+	 *            Milliseconds to wait before failing.
+	 * @return Completes with "OK" for the <code>ok</code> operation, otherwise
+	 *         exceptionally.
+	 */
+	@GetMapping("/async/{operation}")
+	@ResponseBody
+	CompletableFuture<Object> async(@PathVariable String operation,
+			@RequestParam(required = false) String id,
+			@RequestParam(defaultValue = "0") long delay) {
+		logger.info("Run " + operation + " asynchronously after " + delay
+				+ "ms");
+		return delayedOperations.execute(getClass(), operation, id, delay);
+	}
+
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
 	/* . . . . . . . . . . . . . EXCEPTION HANDLERS . . . . . . . . . . . . .. */
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
@@ -200,15 +290,30 @@ public class ExceptionHandlingController {
 
 	/**
 	 * Convert a predefined exception to an HTTP Status code and specify the
-	 * name of a specific view that will be used to display the error.
+	 * name of a specific view that will be used to display the error. A
+	 * <tt>SQLException</tt> is translated first, so the status reflects the
+	 * type of failure.
 	 * 
 	 * @return Exception view.
 	 */
 	@ExceptionHandler({ SQLException.class, DataAccessException.class })
-	public String databaseError(Exception exception) {
-		// Nothing to do. Return value 'databaseError' used as logical view name
-		// of an error page, passed to view-resolver(s) in usual way.
-		logger.error("Request raised " + exception.getClass().getSimpleName());
+	public String databaseError(Exception exception,
+			HttpServletResponse response) {
+		DataAccessException translated = exception instanceof SQLException
+				? exceptionTranslator.translate("Request",
+						(SQLException) exception)
+				: (DataAccessException) exception;
+
+		logger.error("Request raised " + exception.getClass().getSimpleName()
+				+ " (" + translated.getClass().getSimpleName() + ")");
+
+		if (translated instanceof DataIntegrityViolationException)
+			response.setStatus(HttpStatus.CONFLICT.value());
+		else if (translated instanceof TransientDataAccessException)
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value()); // Retry
+
+		// Return value 'databaseError' used as logical view name of an error
+		// page, passed to view-resolver(s) in usual way.
 		return "databaseError";
 	}
 
@@ -221,28 +326,32 @@ public class ExceptionHandlingController {
 	 *            Current HTTP request.
 	 * @param exception
 	 *            The exception thrown - always {@link SupportInfoException}.
+	 * @param response
+	 *            Current HTTP response - written directly in diagnostic mode.
 	 * @return The model and view used by the DispatcherServlet to generate
-	 *         output.
+	 *         output, or null if diagnostics were streamed instead.
 	 * @throws Exception
 	 */
 	@ExceptionHandler(SupportInfoException.class)
-	public ModelAndView handleError(HttpServletRequest req, Exception exception)
-			throws Exception {
+	public ModelAndView handleError(HttpServletRequest req, Exception exception,
+			HttpServletResponse response) throws Exception {
 
 		// Rethrow annotated exceptions or they will be processed here instead.
-		if (AnnotationUtils.findAnnotation(exception.getClass(),
-				ResponseStatus.class) != null)
+		ExceptionMetadata metadata = metadataRegistry.get(exception.getClass());
+
+		if (metadata.isAnnotated())
 			throw exception;
 
 		logger.error("Request: " + req.getRequestURI() + " raised " + exception);
 
-		ModelAndView mav = new ModelAndView();
-		mav.addObject("exception", exception);
-		mav.addObject("url", req.getRequestURL());
-		mav.addObject("timestamp", new Date().toString());
-		mav.addObject("status", 500);
+		if (diagnostics.isRequested(req)) {
+			// Response already written, no view to render
+			diagnostics.stream(req, response, exception, metadata.getStatus());
+			return null;
+		}
 
-		mav.setViewName("support");
-		return mav;
+		// The view reads the exception, url, timestamp and status from this
+		return new ErrorModel(req, exception, metadata.getStatus().value())
+				.toModelAndView("support");
 	}
 }
\ No newline at end of file
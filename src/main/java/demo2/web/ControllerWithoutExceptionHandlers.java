@@ -1,15 +1,23 @@
 package demo2.web;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import demo.async.DelayedOperations;
+import demo.exceptions.DatabaseException;
+import demo.exceptions.InvalidCreditCardException;
 import demo.exceptions.OrderNotFoundException;
 import demo.exceptions.SupportInfoException;
 
@@ -27,11 +35,22 @@ import demo.exceptions.SupportInfoException;
 public class ControllerWithoutExceptionHandlers {
 
 	protected Logger logger;
+	protected DelayedOperations delayedOperations;
 
 	public ControllerWithoutExceptionHandlers() {
 		logger = LoggerFactory.getLogger(getClass());
 	}
 
+	/**
+	 * Runs the operations behind the asynchronous request handlers.
+	 * 
+	 * @param delayedOperations
+	 */
+	@Autowired
+	public void setDelayedOperations(DelayedOperations delayedOperations) {
+		this.delayedOperations = delayedOperations;
+	}
+
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
 	/* . . . . . . . . . . . . . . REQUEST HANDLERS . . . . . . . . . . . . . . */
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
@@ -62,14 +81,17 @@ public class ControllerWithoutExceptionHandlers {
 	 * No handler is needed for this exception since it is annotated with
 	 * <tt>@ResponseStatus</tt>.
 	 * 
+	 * @param id
+	 *            The order to look for - there are none.
 	 * @return Nothing - it always throws the exception.
 	 * @throws OrderNotFoundException
 	 *             Always thrown.
 	 */
 	@GetMapping("/orderNotFound")
-	String throwOrderNotFoundException() {
-		logger.info("Throw OrderNotFoundException for unknown order 12345");
-		throw new OrderNotFoundException("12345");
+	String throwOrderNotFoundException(
+			@RequestParam(name = "id", defaultValue = "12345") String id) {
+		logger.info("Throw OrderNotFoundException for unknown order " + id);
+		throw new OrderNotFoundException(id);
 	}
 
 	/**
@@ -114,6 +136,38 @@ public class ControllerWithoutExceptionHandlers {
 		throw new DataAccessException("Error accessing database");
 	}
 
+	/**
+	 * Simulates an illegal credit-card exception by always throwing
+	 * <tt>InvalidCreditCardException</tt>. Not handled by the
+	 * <tt>@ControllerAdvice</tt> - under <code>/global</code> it is mapped to a
+	 * view by the <tt>PathScopedExceptionResolver</tt> instead.
+	 * 
+	 * @return Nothing - it always throws the exception.
+	 * @throws InvalidCreditCardException
+	 *             Always thrown.
+	 */
+	@GetMapping("/invalidCreditCard")
+	String throwInvalidCreditCard() throws Exception {
+		logger.info("Throw InvalidCreditCardException");
+		throw new InvalidCreditCardException("1234123412341234");
+	}
+
+	/**
+	 * Simulates a database exception by always throwing
+	 * <tt>DatabaseException</tt>. Not handled by the
+	 * <tt>@ControllerAdvice</tt> - under <code>/global</code> it is mapped to a
+	 * view by the <tt>PathScopedExceptionResolver</tt> instead.
+	 * 
+	 * @return Nothing - it always throws the exception.
+	 * @throws DatabaseException
+	 *             Always thrown.
+	 */
+	@GetMapping("/databaseException")
+	String throwDatabaseException() throws Exception {
+		logger.info("Throw DatabaseException");
+		throw new DatabaseException("Database not found: info.db");
+	}
+
 	/**
 	 * Always throws a <tt>SupportInfoException</tt>. Must be caught by an
 	 * exception handler.
@@ -128,5 +182,33 @@ public class ControllerWithoutExceptionHandlers {
 		throw new SupportInfoException("Custom exception occurred");
 	}
 
+	/**
+	 * Asynchronous version of the handlers above - after <code>delay</code>
+	 * milliseconds, does the same as the handler of the same name (so
+	 * <code>/global/async/orderNotFound</code> fails like
+	 * <code>/global/orderNotFound</code>). Only those handlers can be imitated
+	 * - any other operation is not found. No request thread is held while
+	 * waiting. When the future fails, the exception is resolved on the async
+	 * dispatch by the same <tt>@ControllerAdvice</tt> as the synchronous handlers.
+	 * 
+	 * @param operation
+	 *            Name of the handler to imitate.
+	 * @param id
+	 *            Optional order or card number.
+	 * @param delay
+	 *            Milliseconds to wait before failing.
+	 * @return Completes with "OK" for the <code>ok</code> operation, otherwise
+	 *         exceptionally.
+	 */
+	@GetMapping("/async/{operation}")
+	@ResponseBody
+	CompletableFuture<Object> async(@PathVariable String operation,
+			@RequestParam(required = false) String id,
+			@RequestParam(defaultValue = "0") long delay) {
+		logger.info("Run " + operation + " asynchronously after " + delay
+				+ "ms");
+		return delayedOperations.execute(getClass(), operation, id, delay);
+	}
+
 
 }
@@ -1,22 +1,28 @@
 package demo2.web;
 
 import java.sql.SQLException;
-import java.util.Date;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.ModelAndView;
 
+import demo.diagnostics.SupportDiagnostics;
+import demo.errors.ErrorModel;
 import demo.exceptions.SupportInfoException;
+import demo.jdbc.SqlStateExceptionTranslator;
+import demo.metadata.ExceptionMetadata;
+import demo.metadata.ExceptionMetadataRegistry;
 import demo1.web.ExceptionHandlingController;
 
 /**
@@ -31,11 +37,49 @@ import demo1.web.ExceptionHandlingController;
 public class GlobalExceptionHandlingControllerAdvice {
 
 	protected Logger logger;
+	protected ExceptionMetadataRegistry metadataRegistry;
+	protected SqlStateExceptionTranslator exceptionTranslator;
+	protected SupportDiagnostics diagnostics;
 
 	public GlobalExceptionHandlingControllerAdvice() {
 		logger = LoggerFactory.getLogger(getClass());
 	}
 
+	/**
+	 * Registry holding the <tt>@ResponseStatus</tt> details of each exception
+	 * class, so they are only looked up once.
+	 * 
+	 * @param metadataRegistry
+	 */
+	@Autowired
+	public void setExceptionMetadataRegistry(
+			ExceptionMetadataRegistry metadataRegistry) {
+		this.metadataRegistry = metadataRegistry;
+	}
+
+	/**
+	 * Translates <tt>SQLException</tt>s into <tt>DataAccessException</tt>s, so
+	 * the type of database failure is known.
+	 * 
+	 * @param exceptionTranslator
+	 */
+	@Autowired
+	public void setExceptionTranslator(
+			SqlStateExceptionTranslator exceptionTranslator) {
+		this.exceptionTranslator = exceptionTranslator;
+	}
+
+	/**
+	 * Streams full diagnostics, instead of the support page, when
+	 * <code>?diagnostics</code> is added to the URL.
+	 * 
+	 * @param diagnostics
+	 */
+	@Autowired
+	public void setSupportDiagnostics(SupportDiagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
 	/* . . . . . . . . . . . . . EXCEPTION HANDLERS . . . . . . . . . . . . . . */
 	/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - */
@@ -53,15 +97,30 @@ public class GlobalExceptionHandlingControllerAdvice {
 
 	/**
 	 * Convert a predefined exception to an HTTP Status code and specify the
-	 * name of a specific view that will be used to display the error.
+	 * name of a specific view that will be used to display the error. A
+	 * <tt>SQLException</tt> is translated first, so the status reflects the
+	 * type of failure.
 	 * 
 	 * @return Exception view.
 	 */
 	@ExceptionHandler({ SQLException.class, DataAccessException.class })
-	public String databaseError(Exception exception) {
-		// Nothing to do. Return value 'databaseError' used as logical view name
-		// of an error page, passed to view-resolver(s) in usual way.
-		logger.error("Request raised " + exception.getClass().getSimpleName());
+	public String databaseError(Exception exception,
+			HttpServletResponse response) {
+		DataAccessException translated = exception instanceof SQLException
+				? exceptionTranslator.translate("Request",
+						(SQLException) exception)
+				: (DataAccessException) exception;
+
+		logger.error("Request raised " + exception.getClass().getSimpleName()
+				+ " (" + translated.getClass().getSimpleName() + ")");
+
+		if (translated instanceof DataIntegrityViolationException)
+			response.setStatus(HttpStatus.CONFLICT.value());
+		else if (translated instanceof TransientDataAccessException)
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value()); // Retry
+
+		// Return value 'databaseError' used as logical view name of an error
+		// page, passed to view-resolver(s) in usual way.
 		return "databaseError";
 	}
 
@@ -74,28 +133,32 @@ public class GlobalExceptionHandlingControllerAdvice {
 	 *            Current HTTP request.
 	 * @param exception
 	 *            The exception thrown - always {@link SupportInfoException}.
+	 * @param response
+	 *            Current HTTP response - written directly in diagnostic mode.
 	 * @return The model and view used by the DispatcherServlet to generate
-	 *         output.
+	 *         output, or null if diagnostics were streamed instead.
 	 * @throws Exception
 	 */
 	@ExceptionHandler(SupportInfoException.class)
-	public ModelAndView handleError(HttpServletRequest req, Exception exception)
-			throws Exception {
+	public ModelAndView handleError(HttpServletRequest req, Exception exception,
+			HttpServletResponse response) throws Exception {
 
 		// Rethrow annotated exceptions or they will be processed here instead.
-		if (AnnotationUtils.findAnnotation(exception.getClass(),
-				ResponseStatus.class) != null)
+		ExceptionMetadata metadata = metadataRegistry.get(exception.getClass());
+
+		if (metadata.isAnnotated())
 			throw exception;
 
 		logger.error("Request: " + req.getRequestURI() + " raised " + exception);
 
-		ModelAndView mav = new ModelAndView();
-		mav.addObject("exception", exception);
-		mav.addObject("url", req.getRequestURL());
-		mav.addObject("timestamp", new Date().toString());
-		mav.addObject("status", 500);
+		if (diagnostics.isRequested(req)) {
+			// Response already written, no view to render
+			diagnostics.stream(req, response, exception, metadata.getStatus());
+			return null;
+		}
 
-		mav.setViewName("support");
-		return mav;
+		// The view reads the exception, url, timestamp and status from this
+		return new ErrorModel(req, exception, metadata.getStatus().value())
+				.toModelAndView("support");
 	}
 }
\ No newline at end of file
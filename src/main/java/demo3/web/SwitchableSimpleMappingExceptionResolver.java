@@ -1,22 +1,37 @@
 package demo3.web;
 
+import java.util.Properties;
+
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.web.servlet.handler.AbstractHandlerExceptionResolver;
 import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
 
+import demo.metadata.CachingSimpleMappingExceptionResolver;
+import demo.routing.ResolverConfigurationChangedEvent;
+
 /**
  * A sub-class of {@link SimpleMappingExceptionResolver} that can be turned on
  * and off for demonstration purposes (you wouldn't do this in a real
  * application).
+ * <p>
+ * It is switched by the {@link SwitchController} whilst other threads are
+ * handling requests. Whether it is enabled is part of the configuration
+ * snapshot it inherits, so a request handled after the switch always sees the
+ * new state, and {@link #setConfiguration(boolean, Properties)} switches and
+ * changes the mappings together. Changing the state or the mappings tells the
+ * routing resolver to forget its routes, after the change has been made.
  */
 public class SwitchableSimpleMappingExceptionResolver extends
-		SimpleMappingExceptionResolver {
+		CachingSimpleMappingExceptionResolver implements
+		ApplicationEventPublisherAware {
 
-	protected boolean enabled = false;
+	protected volatile ApplicationEventPublisher publisher;
 
 	public SwitchableSimpleMappingExceptionResolver(boolean enabled) {
-		this.enabled = enabled;
+		setResolving(enabled);
 	}
 
 	/**
@@ -25,7 +40,7 @@ public class SwitchableSimpleMappingExceptionResolver extends
 	 * @return Is enabled?
 	 */
 	public boolean isEnabled() {
-		return enabled;
+		return isResolving();
 	}
 
 	/**
@@ -36,16 +51,55 @@ public class SwitchableSimpleMappingExceptionResolver extends
 	 *            Set to enabled?
 	 */
 	public void setEnabled(boolean enabled) {
-		this.enabled = enabled;
+		setResolving(enabled);
+		configurationChanged();
+	}
+
+	/**
+	 * Switch on or off and replace the mappings in one step: no request is
+	 * resolved using the new state with the old mappings, or the other way
+	 * round.
+	 * 
+	 * @param enabled
+	 *            Set to enabled?
+	 * @param mappings
+	 *            The new exception mappings.
+	 */
+	public void setConfiguration(boolean enabled, Properties mappings) {
+		setResolving(enabled, mappings);
+		configurationChanged();
+	}
+
+	/**
+	 * The mappings can also be changed whilst the application is running.
+	 */
+	@Override
+	public void setExceptionMappings(Properties mappings) {
+		super.setExceptionMappings(mappings);
+		configurationChanged();
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
 	}
 
 	/**
 	 * Resolver only handles exceptions if enabled. Overrides method inherited
-	 * from {@link AbstractHandlerExceptionResolver}
+	 * from {@link AbstractHandlerExceptionResolver}. Checked again, with the
+	 * mappings, when the exception is resolved.
 	 */
 	@Override
 	protected boolean shouldApplyTo(HttpServletRequest request, Object handler) {
-		return enabled && super.shouldApplyTo(request, handler);
+		return isResolving() && super.shouldApplyTo(request, handler);
+	}
+
+	protected void configurationChanged() {
+		ApplicationEventPublisher current = publisher;
+
+		// Anything caching which resolver handles which exception must forget
+		if (current != null)
+			current.publishEvent(new ResolverConfigurationChangedEvent(this));
 	}
 
 }
\ No newline at end of file
@@ -1,15 +1,19 @@
 package demo5.web;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
 
+import demo.errors.InProcessErrorRenderer;
 import demo.exceptions.OrderNotFoundException;
 
 /**
@@ -23,7 +27,7 @@ import demo.exceptions.OrderNotFoundException;
 public class ReturnOrRedirectController {
 
 	enum Action {
-		RETURN_ACTION, FORWARD_ACTION
+		RETURN_ACTION, FORWARD_ACTION, RENDER_ACTION
 	}
 
 	@SuppressWarnings("serial")
@@ -37,10 +41,23 @@ public class ReturnOrRedirectController {
 
 	protected Logger logger;
 
+	protected InProcessErrorRenderer errorRenderer;
+
 	public ReturnOrRedirectController() {
 		logger = LoggerFactory.getLogger(getClass());
 	}
 
+	/**
+	 * Used to generate the <code>/error</code> page without forwarding to it.
+	 * 
+	 * @param errorRenderer
+	 *            The renderer to use.
+	 */
+	@Autowired
+	public void setErrorRenderer(InProcessErrorRenderer errorRenderer) {
+		this.errorRenderer = errorRenderer;
+	}
+
 /**
 	 * Throws a {@link DemoException} with the action "return" - see
 	 * {@link 
@@ -69,6 +86,18 @@ public class ReturnOrRedirectController {
 		throw new DemoException(Action.FORWARD_ACTION);
 	}
 
+	/**
+	 * Throws a {@link DemoException} with the action "render" - see
+	 * {@link #handleDemoException(DemoException, HttpServletRequest, HttpServletResponse)}.
+	 * 
+	 * @return Nothing - it always throws the exception.
+	 */
+	@GetMapping("/demo5/render")
+	String throwDemoException3() {
+		logger.info("Throw DemoException - ask hander to render '/error' in-process");
+		throw new DemoException(Action.RENDER_ACTION);
+	}
+
 	/**
 	 * Handle a {@link DemoException} by returning the "error" view by name or
 	 * redirecting to the "/error" URL. The first shows the error page with no
@@ -76,20 +105,29 @@ public class ReturnOrRedirectController {
 	 * The second forces a redirect via Spring Boot's internal
 	 * BasicErrorController whose <code>@GetMapping</code> method adds
 	 * exception and other details into the Model for the error view to use.
+	 * The third produces the same output as the second, but without the
+	 * forward - see {@link InProcessErrorRenderer}.
 	 * 
 	 * @return Exception view.
+	 * @throws Exception
+	 *             If the error response could not be written.
 	 */
 	@ExceptionHandler
-	public String handleDemoException(DemoException exception,
-			HttpServletRequest req) {
+	public ModelAndView handleDemoException(DemoException exception,
+			HttpServletRequest req, HttpServletResponse response)
+			throws Exception {
 		logger.error("Handle DemoExeption - action is " + exception.action);
 
 		// Because we are handling the error, the server thinks everything is
 		// OK, so the status is 200. So let's set it to something else.
 		req.setAttribute("javax.servlet.error.status_code",
 				HttpStatus.BAD_REQUEST.value());
-		return exception.action == Action.RETURN_ACTION ? "error"
-				: "forward:/error";
+
+		if (exception.action == Action.RENDER_ACTION)
+			return errorRenderer.render(req, response);
+
+		return new ModelAndView(exception.action == Action.RETURN_ACTION ? "error"
+				: "forward:/error");
 	}
 
 }
@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown on a concurrency
+ * failure, such as failing to acquire a lock. Our demo application just needs
+ * it to demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class ConcurrencyFailureException extends TransientDataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = -351132154207636344L;
+
+	public ConcurrencyFailureException(String msg) {
+		super(msg);
+	}
+
+	public ConcurrencyFailureException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
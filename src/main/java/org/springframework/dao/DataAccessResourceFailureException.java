@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when a resource,
+ * such as the database connection, fails completely. Our demo application just
+ * needs it to demonstrate how it might be handled. The definition is copied
+ * here for convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class DataAccessResourceFailureException extends DataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 6393417680999908606L;
+
+	public DataAccessResourceFailureException(String msg) {
+		super(msg);
+	}
+
+	public DataAccessResourceFailureException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
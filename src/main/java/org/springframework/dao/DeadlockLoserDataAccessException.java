@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when the current
+ * transaction was chosen as a deadlock victim. Our demo application just needs
+ * it to demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class DeadlockLoserDataAccessException extends ConcurrencyFailureException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = -7917849903404418263L;
+
+	public DeadlockLoserDataAccessException(String msg) {
+		super(msg);
+	}
+
+	public DeadlockLoserDataAccessException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
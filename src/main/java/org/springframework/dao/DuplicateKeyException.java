@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when an insert or
+ * update breaks a primary key or unique constraint. Our demo application just
+ * needs it to demonstrate how it might be handled. The definition is copied
+ * here for convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class DuplicateKeyException extends DataIntegrityViolationException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 3269231114901845946L;
+
+	public DuplicateKeyException(String msg) {
+		super(msg);
+	}
+
+	public DuplicateKeyException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when a resource is
+ * used incorrectly, such as invalid SQL. Our demo application just needs it to
+ * demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class InvalidDataAccessResourceUsageException extends DataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 3345365015279918560L;
+
+	public InvalidDataAccessResourceUsageException(String msg) {
+		super(msg);
+	}
+
+	public InvalidDataAccessResourceUsageException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when the underlying
+ * resource denied permission to access it. Our demo application just needs it
+ * to demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class PermissionDeniedDataAccessException extends DataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 6725119518395634475L;
+
+	public PermissionDeniedDataAccessException(String msg) {
+		super(msg);
+	}
+
+	public PermissionDeniedDataAccessException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when a query timed
+ * out or was cancelled. Our demo application just needs it to demonstrate how
+ * it might be handled. The definition is copied here for convenience rather
+ * than pulling in the Spring JDBC dependencies (the hierarchy is simplified
+ * slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class QueryTimeoutException extends TransientDataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 7357591653797884506L;
+
+	public QueryTimeoutException(String msg) {
+		super(msg);
+	}
+
+	public QueryTimeoutException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Root of the exceptions for
+ * failures that might succeed if retried. Our demo application just needs it to
+ * demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class TransientDataAccessException extends DataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 504714658966994037L;
+
+	public TransientDataAccessException(String msg) {
+		super(msg);
+	}
+
+	public TransientDataAccessException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
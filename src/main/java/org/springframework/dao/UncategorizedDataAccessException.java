@@ -0,0 +1,27 @@
+package org.springframework.dao;
+
+/**
+ * Spring's database support defines this exception. Thrown when nothing more
+ * specific is known about the failure. Our demo application just needs it to
+ * demonstrate how it might be handled. The definition is copied here for
+ * convenience rather than pulling in the Spring JDBC dependencies (the
+ * hierarchy is simplified slightly).
+ * 
+ * @author Copied from Spring
+ */
+public class UncategorizedDataAccessException extends DataAccessException {
+
+	/**
+	 * Unique ID for Serialized object
+	 */
+	private static final long serialVersionUID = 9135009730275643655L;
+
+	public UncategorizedDataAccessException(String msg) {
+		super(msg);
+	}
+
+	public UncategorizedDataAccessException(String msg, Throwable t) {
+		super(msg, t);
+	}
+
+}
@@ -0,0 +1,178 @@
+package demo.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import demo.main.TestApplication;
+
+/**
+ * Checks an asynchronous request handler releases its container thread while
+ * the failing work is pending. More slow requests are made at once than the
+ * container has request threads (on Tomcat and Undertow - Jetty needs more
+ * threads than that just to start): while they wait, none of them is holding
+ * a request thread, as counted by a filter, and other requests are still
+ * served. Each one then fails just as its synchronous equivalent does.
+ * A controller only runs the operations it has a handler for.
+ * <p>
+ * Nothing here depends on the container, so it runs with any of them.
+ *
+ * @author Paul Chapman
+ */
+public class DelayedOperationsTest {
+
+	protected static final int THREADS = 2;
+	protected static final int REQUESTS = 6;
+	protected static final long DELAY_MILLIS = 3000;
+
+	/** Requests currently being handled on a container thread. */
+	static final AtomicInteger active = new AtomicInteger();
+
+	static ConfigurableApplicationContext application;
+
+	/**
+	 * Counts the requests in the filter chain. An asynchronous request leaves
+	 * the chain, and gives its thread back, as soon as the work is started.
+	 */
+	public static class ActiveRequestFilter implements Filter {
+
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response,
+				FilterChain chain) throws IOException, ServletException {
+			active.incrementAndGet();
+
+			try {
+				chain.doFilter(request, response);
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Not annotated, so that only this test's application has the filter.
+	 */
+	public static class ActiveRequestConfiguration {
+
+		@Bean
+		public FilterRegistrationBean<ActiveRequestFilter> activeRequestFilter() {
+			return new FilterRegistrationBean<ActiveRequestFilter>(
+					new ActiveRequestFilter());
+		}
+	}
+
+	@BeforeAll
+	public static void startApplication() {
+		application = TestApplication.start(
+				new Class<?>[] { ActiveRequestConfiguration.class },
+				"demo.counters.enabled=false",
+				"server.tomcat.threads.max=" + THREADS,
+				"server.tomcat.threads.min-spare=" + THREADS,
+				"server.undertow.threads.worker=" + THREADS,
+				"demo.async.threads=" + REQUESTS);
+	}
+
+	@AfterAll
+	public static void stopApplication() {
+		if (application != null)
+			application.close();
+	}
+
+	@Test
+	public void containerThreadIsReleasedWhileWorkIsPending() throws Exception {
+		DelayedOperations operations = application
+				.getBean(DelayedOperations.class);
+		ExecutorService clients = Executors.newFixedThreadPool(REQUESTS);
+		List<Future<Integer>> statuses = new ArrayList<Future<Integer>>();
+
+		try {
+			for (int i = 0; i < REQUESTS; i++)
+				statuses.add(clients.submit(() -> status("/local/async/orderNotFound?delay="
+						+ DELAY_MILLIS)));
+
+			// Every request has been accepted and its work scheduled - more
+			// than there are request threads to hold them - and the request
+			// threads have gone back to the pool
+			waitFor(REQUESTS, operations::getPending);
+			waitFor(0, active::get);
+
+			// So other requests are served at once
+			long start = System.nanoTime();
+			assertEquals(200, status("/local/"));
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+					- start);
+			assertTrue(millis < DELAY_MILLIS / 2, "Waited " + millis + "ms");
+			assertTrue(operations.getPending() > 0,
+					"Work finished before the check");
+
+			// Then each fails just as /local/orderNotFound does
+			for (Future<Integer> status : statuses)
+				assertEquals(status("/local/orderNotFound"), (int) status.get(
+						DELAY_MILLIS * 3, TimeUnit.MILLISECONDS));
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	@Test
+	public void onlyTheControllersOwnOperationsAreRun() throws Exception {
+		assertEquals(status("/global/orderNotFound"),
+				status("/global/async/orderNotFound"));
+		assertEquals(status("/global/supportInfoException"),
+				status("/global/async/supportInfoException"));
+
+		// /global has no handler for this, only /local does
+		assertEquals(404, status("/global/async/unhandledException"));
+		assertEquals(status("/local/unhandledException"),
+				status("/local/async/unhandledException"));
+	}
+
+	/**
+	 * Wait for a count to reach the value expected, for no more than a
+	 * quarter of the delay - so long before the work runs.
+	 */
+	protected void waitFor(int expected, IntSupplier count)
+			throws InterruptedException {
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS / 4);
+
+		while (count.getAsInt() != expected && System.nanoTime() < deadline)
+			Thread.sleep(10);
+
+		assertEquals(expected, count.getAsInt());
+	}
+
+	protected int status(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				TestApplication.baseUrl(application) + path).openConnection();
+		connection.setRequestProperty("Accept", "text/html");
+		int status = connection.getResponseCode();
+		connection.disconnect();
+		return status;
+	}
+
+}
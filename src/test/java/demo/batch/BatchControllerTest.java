@@ -0,0 +1,218 @@
+package demo.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.exceptions.OrderNotFoundException;
+import demo.main.TestApplication;
+
+/**
+ * Runs every {@link DemoOperation} in one batch and checks each result
+ * matches what requesting the operation's URL on its own produces - in
+ * particular that the controller's own <tt>@ExceptionHandler</tt> methods are
+ * used.
+ *
+ * @author Paul Chapman
+ */
+public class BatchControllerTest {
+
+	static ConfigurableApplicationContext application;
+
+	protected final ObjectMapper mapper = new ObjectMapper();
+
+	@BeforeAll
+	public static void startApplication() {
+		application = TestApplication.start("demo.counters.enabled=false");
+	}
+
+	@AfterAll
+	public static void stopApplication() {
+		if (application != null)
+			application.close();
+	}
+
+	@Test
+	public void eachResultMatchesTheIndividualRequest() throws IOException {
+		StringBuilder batch = new StringBuilder("[");
+
+		for (DemoOperation operation : DemoOperation.values())
+			batch.append(batch.length() == 1 ? "" : ",")
+					.append("{\"operation\":\"")
+					.append(operation.getOperationName()).append("\"}");
+
+		JsonNode results = post("/batch", batch.append("]").toString());
+		assertEquals(DemoOperation.values().length, results.size());
+
+		for (DemoOperation operation : DemoOperation.values()) {
+			JsonNode result = results.get(operation.ordinal());
+			assertEquals(operation.getOperationName(), result.get("operation")
+					.asText());
+
+			if (operation.getPath() == null) {
+				assertEquals(200, result.get("status").asInt());
+				assertEquals(DemoOperation.OK_RESULT, result.get("result")
+						.asText());
+				continue;
+			}
+
+			assertEquals(status(operation.getPath()), result.get("status")
+					.asInt(), operation.getOperationName());
+		}
+	}
+
+	@Test
+	public void controllerExceptionHandlersAreUsed() throws IOException {
+		JsonNode results = post("/batch",
+				"[{\"operation\":\"dataIntegrityViolation\"},"
+						+ "{\"operation\":\"databaseError1\"},"
+						+ "{\"operation\":\"supportInfoException\"},"
+						+ "{\"operation\":\"orderNotFound\",\"id\":\"42\"},"
+						+ "{\"operation\":\"noSuchOperation\"}]");
+
+		// ExceptionHandlingController.conflict()
+		assertEquals(409, results.get(0).get("status").asInt());
+		assertEquals("Data integrity violation", results.get(0).get("message")
+				.asText());
+
+		// ExceptionHandlingController.databaseError()
+		assertEquals("databaseError", results.get(1).get("view").asText());
+
+		// ExceptionHandlingController.handleError()
+		assertEquals("support", results.get(2).get("view").asText());
+
+		// @ResponseStatus
+		assertEquals(404, results.get(3).get("status").asInt());
+
+		assertEquals(400, results.get(4).get("status").asInt());
+		assertFalse(results.get(4).get("view").isTextual());
+	}
+
+	@Test
+	public void handlersAreInvokedWithTheId() throws Exception {
+		final DemoHandlers handlers = application.getBean(DemoHandlers.class);
+
+		assertEquals("42 not found", assertThrows(
+				OrderNotFoundException.class,
+				() -> handlers.invoke(DemoOperation.ORDER_NOT_FOUND, "42"))
+				.getMessage());
+
+		// The @RequestParam's default value
+		assertEquals("12345 not found", assertThrows(
+				OrderNotFoundException.class,
+				() -> handlers.invoke(DemoOperation.ORDER_NOT_FOUND, null))
+				.getMessage());
+
+		assertEquals(DemoOperation.OK_RESULT,
+				handlers.invoke(DemoOperation.OK, null));
+	}
+
+	@Test
+	public void unfinishedOperationsTimeOut() {
+		// Never runs anything, so nothing ever finishes
+		AsyncTaskExecutor stalled = new AsyncTaskExecutor() {
+			@Override
+			public void execute(Runnable task) {
+			}
+
+			@Override
+			public void execute(Runnable task, long startTimeout) {
+			}
+
+			@Override
+			public Future<?> submit(Runnable task) {
+				return new CompletableFuture<Object>();
+			}
+
+			@Override
+			public <T> Future<T> submit(Callable<T> task) {
+				return new CompletableFuture<T>();
+			}
+		};
+
+		BatchExecutor executor = new BatchExecutor(stalled, application,
+				application.getBean(DemoHandlers.class), 100, 200);
+		BatchOperation ok = new BatchOperation();
+		ok.setOperation(DemoOperation.OK.getOperationName());
+
+		long start = System.nanoTime();
+		List<BatchItemResult> results = executor.execute(Arrays.asList(ok, ok),
+				new MockHttpServletRequest("POST", "/batch"),
+				new MockHttpServletResponse());
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// One deadline for the whole batch, not one per operation
+		assertTrue(millis >= 200 && millis < 2000, "Took " + millis + "ms");
+		assertEquals(2, results.size());
+
+		for (BatchItemResult result : results) {
+			assertEquals(503, result.getStatus());
+			assertEquals(TimeoutException.class.getName(), result.getException());
+			assertFalse(result.isHandled());
+		}
+	}
+
+	protected JsonNode post(String path, String body) throws IOException {
+		HttpURLConnection connection = open(path);
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", "application/json");
+		connection.setRequestProperty("Accept", "application/json");
+		connection.setDoOutput(true);
+		OutputStream out = connection.getOutputStream();
+
+		try {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		} finally {
+			out.close();
+		}
+
+		assertEquals(200, connection.getResponseCode());
+		InputStream in = connection.getInputStream();
+
+		try {
+			return mapper.readTree(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	protected int status(String path) throws IOException {
+		HttpURLConnection connection = open(path);
+		connection.setRequestProperty("Accept", "text/html");
+		int status = connection.getResponseCode();
+		connection.disconnect();
+		return status;
+	}
+
+	protected HttpURLConnection open(String path) throws IOException {
+		return (HttpURLConnection) new URL(TestApplication.baseUrl(application)
+				+ path).openConnection();
+	}
+
+}
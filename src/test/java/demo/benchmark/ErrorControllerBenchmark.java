@@ -0,0 +1,213 @@
+package demo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.springframework.boot.autoconfigure.web.servlet.error.BasicErrorController;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.view.ContentNegotiatingViewResolver;
+
+import demo.errors.LeanErrorController;
+
+/**
+ * How much the {@link LeanErrorController} saves over Spring Boot's
+ * <tt>BasicErrorController</tt>. The application is started twice, once with
+ * each controller, and each controller is called directly with the request
+ * attributes an unhandled exception leaves behind. Both pages are rendered
+ * by the same Thymeleaf <code>error</code> view and the JSON is
+ * written as Spring MVC would write the <tt>BasicErrorController</tt>'s map,
+ * so the difference is in collecting the details and writing them out.
+ * <p>
+ * Thymeleaf's caches are switched on (<code>spring.thymeleaf.cache=true</code>,
+ * as in production) - otherwise the <tt>BasicErrorController</tt> looks for
+ * status-specific templates on disk for every page, which is not the
+ * controller's own work.
+ * <p>
+ * Responses are written to a {@link Response}, since the output stream of
+ * Spring's mock response writes arrays one byte at a time.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.ErrorControllerBenchmark [-Dexec.args="warm-up-seconds seconds"]
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class ErrorControllerBenchmark {
+
+	/**
+	 * A mock response whose output stream writes arrays in one go, as a
+	 * container's does - the body is discarded.
+	 */
+	protected static class Response extends MockHttpServletResponse {
+		protected final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		private final ServletOutputStream outputStream = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				body.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				body.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return outputStream;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark benchmark = new Microbenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 5,
+				args.length > 1 ? Integer.parseInt(args[1]) : 5);
+		final ConfigurableApplicationContext lean = Microbenchmark
+				.startApplication("demo.counters.enabled=false",
+						"spring.thymeleaf.cache=true");
+		final ConfigurableApplicationContext basic = Microbenchmark
+				.startApplication("demo.counters.enabled=false",
+						"spring.thymeleaf.cache=true",
+						"demo.errors.lean-controller=false");
+
+		try {
+			final LeanErrorController leanController = lean
+					.getBean(LeanErrorController.class);
+			final BasicErrorController basicController = basic
+					.getBean(BasicErrorController.class);
+			final List<ViewResolver> resolvers = viewResolvers(basic);
+			System.out.println("Views: "
+					+ resolve(resolvers, LeanErrorController.ERROR_VIEW) + ", "
+					+ resolve(viewResolvers(lean), LeanErrorController.ERROR_VIEW));
+			final MappingJackson2HttpMessageConverter converter = basic
+					.getBean(MappingJackson2HttpMessageConverter.class);
+
+			Microbenchmark.Result basicHtml = benchmark.measure(
+					"HTML BasicErrorController", () -> {
+						MockHttpServletRequest request = errorRequest(basic,
+								"text/html");
+						MockHttpServletResponse response = new Response();
+						ModelAndView mav = basicController.errorHtml(request,
+								response);
+						View view = resolve(resolvers, mav.getViewName());
+						view.render(mav.getModel(), request, response);
+						return response;
+					});
+			Microbenchmark.Result leanHtml = benchmark.measure(
+					"HTML LeanErrorController", () -> {
+						MockHttpServletRequest request = errorRequest(lean,
+								"text/html");
+						MockHttpServletResponse response = new Response();
+						leanController.errorHtml(request, response);
+						return response;
+					});
+			benchmark.compare(basicHtml, leanHtml);
+
+			Microbenchmark.Result basicJson = benchmark.measure(
+					"JSON BasicErrorController", () -> {
+						MockHttpServletRequest request = errorRequest(basic,
+								"application/json");
+						MockHttpServletResponse response = new Response();
+						ResponseEntity<Map<String, Object>> entity = basicController
+								.error(request);
+						response.setStatus(entity.getStatusCodeValue());
+						converter.write(entity.getBody(),
+								MediaType.APPLICATION_JSON,
+								new ServletServerHttpResponse(response));
+						return response;
+					});
+			Microbenchmark.Result leanJson = benchmark.measure(
+					"JSON LeanErrorController", () -> {
+						MockHttpServletRequest request = errorRequest(lean,
+								"application/json");
+						MockHttpServletResponse response = new Response();
+						leanController.error(request, response);
+						return response;
+					});
+			benchmark.compare(basicJson, leanJson);
+		} finally {
+			lean.close();
+			basic.close();
+		}
+	}
+
+	/**
+	 * The error dispatch the container makes for an exception thrown by
+	 * <code>/broken</code>.
+	 */
+	protected static MockHttpServletRequest errorRequest(
+			ConfigurableApplicationContext context, String accept) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/error");
+		request.setDispatcherType(DispatcherType.ERROR);
+		request.addHeader("Accept", accept);
+		request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE,
+				context);
+		request.setAttribute(RequestDispatcher.ERROR_STATUS_CODE, 500);
+		request.setAttribute(RequestDispatcher.ERROR_EXCEPTION,
+				new IllegalStateException("Failure in BrokenFilter"));
+		request.setAttribute(RequestDispatcher.ERROR_REQUEST_URI, "/broken");
+		return request;
+	}
+
+	/**
+	 * Every view resolver bar the content negotiating one, in order - as the
+	 * <tt>LeanErrorController</tt> uses them.
+	 */
+	protected static List<ViewResolver> viewResolvers(
+			ConfigurableApplicationContext context) {
+		List<ViewResolver> resolvers = new ArrayList<ViewResolver>();
+
+		for (ViewResolver resolver : context.getBeansOfType(ViewResolver.class)
+				.values()) {
+			if (!(resolver instanceof ContentNegotiatingViewResolver))
+				resolvers.add(resolver);
+		}
+
+		AnnotationAwareOrderComparator.sort(resolvers);
+		return resolvers;
+	}
+
+	protected static View resolve(List<ViewResolver> resolvers, String viewName)
+			throws Exception {
+		for (ViewResolver resolver : resolvers) {
+			View view = resolver.resolveViewName(viewName, Locale.ROOT);
+
+			if (view != null)
+				return view;
+		}
+
+		throw new IllegalStateException("No view " + viewName);
+	}
+
+}
@@ -0,0 +1,329 @@
+package demo.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load generator for comparing the embedded containers (see
+ * <code>container-benchmark.sh</code>). A plain Java program - it needs
+ * nothing but the JDK, so it runs from <code>target/test-classes</code>
+ * against an application already started on any container.
+ * <p>
+ * Two commands:
+ * <dl>
+ * <dt><code>check &lt;base-url&gt;</code></dt>
+ * <dd>Requests every path in the {@link #MIX} once, as a browser and as a
+ * REST client, and prints the status and content type of each response. Run
+ * against each container, the output must be identical - the same resolvers
+ * handled the same exceptions, the {@link demo.filter.BrokenFilter} exception
+ * and unknown URLs reached <code>/error</code> and so on.</dd>
+ * <dt><code>load &lt;base-url&gt; &lt;threads&gt; &lt;warm-up-seconds&gt; &lt;seconds&gt;</code></dt>
+ * <dd>Requests the paths in the mix round-robin on every thread, as fast as
+ * the application answers. Nothing is measured during the warm-up. Prints
+ * requests per second, the 50th, 99th and 99.9th percentile latencies in
+ * milliseconds, the number of 503s (from the concurrency limit) and the
+ * number of requests that failed outright.</dd>
+ * <dt><code>paths &lt;base-url&gt; &lt;warm-up-seconds&gt; &lt;seconds&gt; &lt;path&gt;...</code></dt>
+ * <dd>Compares a few paths, such as <code>/demo5/forward</code> and
+ * <code>/demo5/render</code>, on one thread. The paths are requested in turn,
+ * so any drift in the application's speed affects them all equally - first
+ * as a browser for the warm-up and measured time, then as a REST client.
+ * Prints the mean, 50th and 99th percentile latencies in milliseconds for
+ * each path and content type.</dd>
+ * </dl>
+ *
+ * @author Paul Chapman
+ */
+public class ErrorMixBenchmark {
+
+	/**
+	 * The error-heavy mix: one path for each way an exception is handled -
+	 * by <tt>@ExceptionHandler</tt> methods in the controller and in a
+	 * <tt>@ControllerAdvice</tt>, by the <tt>SimpleMappingExceptionResolver</tt>
+	 * and the <tt>PathScopedExceptionResolver</tt>,
+	 * by <tt>@ResponseStatus</tt>, by a filter and by the <code>/error</code>
+	 * fallback - plus a normal page for comparison.
+	 */
+	protected static final String[] MIX = { "/local/",
+			"/local/orderNotFound", "/local/dataIntegrityViolation",
+			"/local/databaseError1", "/local/databaseError2",
+			"/local/invalidCreditCard", "/local/databaseException",
+			"/local/supportInfoException", "/local/unhandledException",
+			"/global/orderNotFound", "/global/databaseError1",
+			"/global/supportInfoException", "/global/databaseException",
+			"/throw/databaseException",
+			"/throw/invalidCreditCard", "/throw/unhandledException",
+			"/demo5/return", "/demo5/forward", "/demo5/render", "/broken",
+			"/unknown" };
+
+	/** Each path is requested as a browser and as a REST client would. */
+	protected static final String[] ACCEPT = { "text/html", "application/json" };
+
+	protected static final int HTTP_UNAVAILABLE = 503;
+	protected static final int FAILED = -1;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].equals("check")) {
+			check(args[1]);
+		} else if (args.length == 5 && args[0].equals("load")) {
+			load(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+					Integer.parseInt(args[4]));
+		} else if (args.length >= 5 && args[0].equals("paths")) {
+			paths(args[1], Integer.parseInt(args[2]),
+					Integer.parseInt(args[3]),
+					Arrays.copyOfRange(args, 4, args.length));
+		} else {
+			System.err.println("Usage: ErrorMixBenchmark check <base-url>");
+			System.err.println("       ErrorMixBenchmark load <base-url> "
+					+ "<threads> <warm-up-seconds> <seconds>");
+			System.err.println("       ErrorMixBenchmark paths <base-url> "
+					+ "<warm-up-seconds> <seconds> <path>...");
+			System.exit(2);
+		}
+	}
+
+	protected static void check(String base) throws IOException {
+		for (String path : MIX) {
+			for (String accept : ACCEPT) {
+				HttpURLConnection connection = open(base + path, accept);
+				int status = connection.getResponseCode();
+				System.out.println(path + " " + accept + " " + status + " "
+						+ normalise(connection.getContentType()));
+				drain(connection, status);
+			}
+		}
+	}
+
+	/**
+	 * Containers differ in how they write the same content type - Jetty
+	 * gives <tt>text/html;charset=utf-8</tt> where Tomcat gives
+	 * <tt>text/html;charset=UTF-8</tt> - so compare them in one form.
+	 */
+	protected static String normalise(String contentType) {
+		if (contentType == null)
+			return "-";
+
+		return contentType.replace(" ", "").toLowerCase(Locale.ROOT);
+	}
+
+	protected static void load(String base, int threads, int warmUpSeconds,
+			int seconds) throws InterruptedException {
+		final String[] urls = new String[MIX.length];
+
+		for (int i = 0; i < MIX.length; i++)
+			urls[i] = base + MIX[i];
+
+		final AtomicBoolean measuring = new AtomicBoolean();
+		final AtomicBoolean stopping = new AtomicBoolean();
+		final Worker[] workers = new Worker[threads];
+
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(urls, i, measuring, stopping);
+			workers[i].start();
+		}
+
+		Thread.sleep(warmUpSeconds * 1000L);
+		measuring.set(true);
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+		stopping.set(true);
+		long elapsed = System.nanoTime() - start;
+
+		int total = 0;
+		long unavailable = 0;
+		long failed = 0;
+
+		for (Worker worker : workers) {
+			worker.join();
+			total += worker.count;
+			unavailable += worker.unavailable;
+			failed += worker.failed;
+		}
+
+		long[] latencies = new long[total];
+		int next = 0;
+
+		for (Worker worker : workers) {
+			System.arraycopy(worker.latencies, 0, latencies, next, worker.count);
+			next += worker.count;
+		}
+
+		Arrays.sort(latencies);
+		System.out.printf(Locale.ROOT, "%.0f %.2f %.2f %.2f %d %d%n",
+				total * 1e9 / elapsed, percentile(latencies, 0.5),
+				percentile(latencies, 0.99), percentile(latencies, 0.999),
+				unavailable, failed);
+	}
+
+	protected static void paths(String base, int warmUpSeconds, int seconds,
+			String[] paths) {
+		for (String accept : ACCEPT) {
+			long[][] latencies = new long[paths.length][];
+			int[] counts = new int[paths.length];
+			long failed = 0;
+
+			for (int i = 0; i < paths.length; i++)
+				latencies[i] = new long[65536];
+
+			long warmUpEnd = System.nanoTime() + warmUpSeconds * 1000000000L;
+
+			while (System.nanoTime() < warmUpEnd) {
+				for (String path : paths)
+					request(base + path, accept);
+			}
+
+			long end = System.nanoTime() + seconds * 1000000000L;
+
+			while (System.nanoTime() < end) {
+				for (int i = 0; i < paths.length; i++) {
+					long begin = System.nanoTime();
+					int status = request(base + paths[i], accept);
+					long nanos = System.nanoTime() - begin;
+
+					if (status == FAILED) {
+						failed++;
+						continue;
+					}
+
+					if (counts[i] == latencies[i].length)
+						latencies[i] = Arrays.copyOf(latencies[i], counts[i] * 2);
+
+					latencies[i][counts[i]++] = nanos;
+				}
+			}
+
+			for (int i = 0; i < paths.length; i++) {
+				long[] sorted = Arrays.copyOf(latencies[i], counts[i]);
+				long total = 0;
+
+				for (long nanos : sorted)
+					total += nanos;
+
+				Arrays.sort(sorted);
+				System.out.printf(Locale.ROOT, "%s %s %d %.3f %.3f %.3f%n",
+						paths[i], accept, sorted.length,
+						sorted.length == 0 ? 0 : total / 1e6 / sorted.length,
+						percentile(sorted, 0.5), percentile(sorted, 0.99));
+			}
+
+			if (failed > 0)
+				System.out.println(failed + " requests failed");
+		}
+	}
+
+	/** @return The latency at the given fraction, in milliseconds. */
+	protected static double percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0)
+			return 0;
+
+		int index = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	/**
+	 * Make one request and read all of the response.
+	 *
+	 * @return The status, or {@link #FAILED} if there was no response.
+	 */
+	protected static int request(String url, String accept) {
+		try {
+			HttpURLConnection connection = open(url, accept);
+			int status = connection.getResponseCode();
+			drain(connection, status);
+			return status;
+		} catch (IOException e) {
+			return FAILED;
+		}
+	}
+
+	protected static HttpURLConnection open(String url, String accept)
+			throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url)
+				.openConnection();
+		connection.setRequestProperty("Accept", accept);
+		connection.setInstanceFollowRedirects(false);
+		return connection;
+	}
+
+	/**
+	 * Read the body to the end, so the connection goes back into the JDK's
+	 * keep-alive cache for the next request.
+	 */
+	protected static void drain(HttpURLConnection connection, int status)
+			throws IOException {
+		InputStream in = status < 400 ? connection.getInputStream()
+				: connection.getErrorStream();
+
+		if (in == null)
+			return;
+
+		try {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) >= 0)
+				;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Requests the mix over and over, recording the latency of each request
+	 * made once measuring has started. Each thread starts at a different
+	 * point in the mix, so the threads are not all on the same path at once.
+	 */
+	protected static class Worker extends Thread {
+
+		private final String[] urls;
+		private final AtomicBoolean measuring;
+		private final AtomicBoolean stopping;
+		private int position;
+
+		long[] latencies = new long[65536];
+		int count;
+		long unavailable;
+		long failed;
+
+		Worker(String[] urls, int start, AtomicBoolean measuring,
+				AtomicBoolean stopping) {
+			super("benchmark-" + start);
+			this.urls = urls;
+			this.position = start * ACCEPT.length;
+			this.measuring = measuring;
+			this.stopping = stopping;
+		}
+
+		@Override
+		public void run() {
+			while (!stopping.get()) {
+				int index = position++ % (urls.length * ACCEPT.length);
+				long begin = System.nanoTime();
+				int status = request(urls[index / ACCEPT.length],
+						ACCEPT[index % ACCEPT.length]);
+				long nanos = System.nanoTime() - begin;
+
+				if (!measuring.get())
+					continue;
+
+				if (status == FAILED) {
+					failed++;
+					continue;
+				}
+
+				if (status == HTTP_UNAVAILABLE)
+					unavailable++;
+
+				if (count == latencies.length)
+					latencies = Arrays.copyOf(latencies, count * 2);
+
+				latencies[count++] = nanos;
+			}
+		}
+
+	}
+
+}
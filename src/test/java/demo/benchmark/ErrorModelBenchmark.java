@@ -0,0 +1,83 @@
+package demo.benchmark;
+
+import java.util.Date;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.ModelAndView;
+
+import demo.errors.ErrorModel;
+import demo.exceptions.SupportInfoException;
+
+/**
+ * How much the {@link ErrorModel} saves over adding the
+ * <code>exception</code>, <code>url</code>, <code>timestamp</code> and
+ * <code>status</code> attributes one at a time, as the support handlers used
+ * to. Only building the model is measured - no application is started.
+ * <p>
+ * Each model is measured twice: as built, which is all an error whose view is
+ * never rendered (such as a <code>/batch</code> item) costs, and with the
+ * values read as <code>support.html</code> reads them - the URL twice and the
+ * timestamp once. The old <code>url</code> attribute is the request's
+ * <tt>StringBuffer</tt>, so the view converts it each time.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.ErrorModelBenchmark [-Dexec.args="warm-up-seconds seconds"]
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class ErrorModelBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark.quietLogging();
+		Microbenchmark benchmark = new Microbenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 5,
+				args.length > 1 ? Integer.parseInt(args[1]) : 5);
+
+		final MockHttpServletRequest request = new MockHttpServletRequest(
+				"GET", "/local/supportInfoException");
+		final Exception exception = new SupportInfoException(
+				"Custom exception occurred");
+
+		Microbenchmark.Result attributes = benchmark.measure(
+				"Separate attributes", () -> attributes(request, exception));
+		Microbenchmark.Result model = benchmark.measure("ErrorModel",
+				() -> new ErrorModel(request, exception, 500)
+						.toModelAndView("support"));
+		benchmark.compare(attributes, model);
+
+		Microbenchmark.Result attributesRead = benchmark.measure(
+				"Separate attributes, read by the view", () -> {
+					ModelAndView mav = attributes(request, exception);
+					Object url = mav.getModel().get("url");
+					return url.toString().length() + url.toString().length()
+							+ mav.getModel().get("timestamp").hashCode();
+				});
+		Microbenchmark.Result modelRead = benchmark.measure(
+				"ErrorModel, read by the view", () -> {
+					ModelAndView mav = new ErrorModel(request, exception, 500)
+							.toModelAndView("support");
+					ErrorModel errorModel = (ErrorModel) mav.getModel().get(
+							ErrorModel.MODEL_NAME);
+					return errorModel.getUrl().length()
+							+ errorModel.getUrl().length()
+							+ errorModel.getTimestamp().hashCode();
+				});
+		benchmark.compare(attributesRead, modelRead);
+	}
+
+	/**
+	 * The model the support handlers used to build.
+	 */
+	protected static ModelAndView attributes(MockHttpServletRequest request,
+			Exception exception) {
+		ModelAndView mav = new ModelAndView();
+		mav.addObject("exception", exception);
+		mav.addObject("url", request.getRequestURL());
+		mav.addObject("timestamp", new Date().toString());
+		mav.addObject("status", 500);
+		mav.setViewName("support");
+		return mav;
+	}
+
+}
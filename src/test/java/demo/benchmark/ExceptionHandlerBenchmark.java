@@ -0,0 +1,115 @@
+package demo.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import demo.handlers.DirectExceptionHandlerExceptionResolver;
+import demo.main.TestApplication;
+import demo1.web.ExceptionHandlingController;
+import demo2.web.ControllerWithoutExceptionHandlers;
+
+/**
+ * How much the {@link DirectExceptionHandlerExceptionResolver} saves over
+ * Spring's own <tt>ExceptionHandlerExceptionResolver</tt>, which looks up and
+ * creates the handler method for every exception and invokes it
+ * reflectively. The application is started three times: with Spring's
+ * resolver (<code>demo.handlers.enabled=false</code>), with the direct
+ * resolver invoking handlers reflectively
+ * (<code>demo.handlers.invocation=reflective</code>) and with the direct
+ * resolver as normally configured. Only the resolver is measured.
+ * <p>
+ * A <tt>DataIntegrityViolationException</tt> is resolved by the
+ * <code>conflict()</code> handler of the controller itself
+ * (<code>/local</code>) and of the <tt>@ControllerAdvice</tt>
+ * (<code>/global</code>). Both handlers log an error, so those loggers are
+ * switched off.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.ExceptionHandlerBenchmark [-Dexec.args="warm-up-seconds seconds"]
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class ExceptionHandlerBenchmark {
+
+	protected static final String[] QUIET = { "demo.counters.enabled=false",
+			"logging.level.demo1=OFF", "logging.level.demo2=OFF" };
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark benchmark = new Microbenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 5,
+				args.length > 1 ? Integer.parseInt(args[1]) : 5);
+		ConfigurableApplicationContext spring = Microbenchmark
+				.startApplication(with("demo.handlers.enabled=false"));
+		ConfigurableApplicationContext reflective = Microbenchmark
+				.startApplication(with("demo.handlers.invocation=reflective"));
+		ConfigurableApplicationContext direct = Microbenchmark
+				.startApplication(with("demo.handlers.invocation=direct"));
+
+		try {
+			ConfigurableApplicationContext[] contexts = { spring, reflective,
+					direct };
+			String[] names = { "Spring", "reflective", "direct" };
+			String[][] cases = {
+					{ "/local/dataIntegrityViolation",
+							"throwDataIntegrityViolationException" },
+					{ "/global/dataIntegrityViolation",
+							"throwDataIntegrityViolationException" } };
+			Class<?>[] controllers = { ExceptionHandlingController.class,
+					ControllerWithoutExceptionHandlers.class };
+
+			for (int c = 0; c < cases.length; c++) {
+				final String url = cases[c][0];
+				Microbenchmark.Result baseline = null;
+
+				for (int i = 0; i < contexts.length; i++) {
+					final HandlerExceptionResolver resolver = TestApplication
+							.exceptionHandlerResolver(contexts[i]);
+					final HandlerMethod handler = RoutingBenchmark.handler(
+							contexts[i], controllers[c], cases[c][1]);
+					final Exception ex = new DataIntegrityViolationException(
+							"Duplicate key");
+
+					if (c == 0)
+						System.out.println(names[i] + ": "
+								+ ClassUtils.getUserClass(resolver).getSimpleName());
+
+					Microbenchmark.Result result = benchmark.measure(url + " "
+							+ names[i], () -> {
+						MockHttpServletResponse response = new MockHttpServletResponse();
+						resolver.resolveException(new MockHttpServletRequest(
+								"GET", url), response, handler, ex);
+						return response;
+					});
+
+					if (baseline == null)
+						baseline = result;
+					else
+						benchmark.compare(baseline, result);
+				}
+			}
+
+			System.out.println("Handler methods cached: "
+					+ ((DirectExceptionHandlerExceptionResolver) TestApplication
+							.exceptionHandlerResolver(direct))
+							.getCachedMethods());
+		} finally {
+			direct.close();
+			reflective.close();
+			spring.close();
+		}
+	}
+
+	protected static String[] with(String property) {
+		String[] properties = new String[QUIET.length + 1];
+		System.arraycopy(QUIET, 0, properties, 0, QUIET.length);
+		properties[QUIET.length] = property;
+		return properties;
+	}
+
+}
@@ -0,0 +1,178 @@
+package demo.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.main.TestApplication;
+
+/**
+ * A minimal harness for the in-process benchmarks in this package. Each
+ * operation is run repeatedly on the calling thread for a warm-up period
+ * (so the JIT has compiled it) and then for a measured period, recording the
+ * average time and the average number of bytes allocated per operation.
+ * <p>
+ * The benchmarks are plain Java programs run from the test classpath, not
+ * tests, so they are not run by the build. For example:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.RoutingBenchmark
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class Microbenchmark {
+
+	/**
+	 * One invocation of the code being measured. Whatever it returns is
+	 * consumed, so the JIT cannot discard the work.
+	 */
+	public interface Operation {
+		Object run() throws Exception;
+	}
+
+	/**
+	 * Time and allocation per operation.
+	 */
+	public static class Result {
+		public final String name;
+		public final long operations;
+		public final double nanosPerOperation;
+		public final double bytesPerOperation;
+
+		Result(String name, long operations, double nanosPerOperation,
+				double bytesPerOperation) {
+			this.name = name;
+			this.operations = operations;
+			this.nanosPerOperation = nanosPerOperation;
+			this.bytesPerOperation = bytesPerOperation;
+		}
+	}
+
+	protected final long warmUpNanos;
+	protected final long measureNanos;
+	protected final List<Result> results = new ArrayList<Result>();
+
+	/** Sink for the operations' results. */
+	protected volatile int consumed;
+
+	/**
+	 * @param warmUpSeconds
+	 *            How long to run each operation before measuring it.
+	 * @param measureSeconds
+	 *            How long to measure each operation for.
+	 */
+	public Microbenchmark(int warmUpSeconds, int measureSeconds) {
+		this.warmUpNanos = TimeUnit.SECONDS.toNanos(warmUpSeconds);
+		this.measureNanos = TimeUnit.SECONDS.toNanos(measureSeconds);
+	}
+
+	/**
+	 * Warm up and then measure an operation, printing the result.
+	 */
+	public Result measure(String name, Operation operation) throws Exception {
+		run(operation, warmUpNanos);
+
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long operations = run(operation, measureNanos);
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+
+		Result result = new Result(name, operations,
+				(double) elapsed / operations, (double) allocated / operations);
+		results.add(result);
+		System.out.printf(Locale.ROOT, "%-50s %12.1f ns/op %10.0f B/op%n",
+				name, result.nanosPerOperation, result.bytesPerOperation);
+		return result;
+	}
+
+	/**
+	 * Print how much faster, and how much less allocation, the second result
+	 * shows over the first.
+	 */
+	public void compare(Result baseline, Result result) {
+		System.out.printf(Locale.ROOT,
+				"  %s vs %s: %+.1f%% time, %+.1f%% bytes%n", result.name,
+				baseline.name,
+				100.0 * (result.nanosPerOperation - baseline.nanosPerOperation)
+						/ baseline.nanosPerOperation,
+				baseline.bytesPerOperation == 0 ? 0.0
+						: 100.0 * (result.bytesPerOperation - baseline.bytesPerOperation)
+								/ baseline.bytesPerOperation);
+	}
+
+	/**
+	 * Start the whole application - see {@link TestApplication}.
+	 *
+	 * @param properties
+	 *            Extra properties, such as
+	 *            <code>demo.routing.enabled=false</code>.
+	 */
+	public static ConfigurableApplicationContext startApplication(
+			String... properties) {
+		return TestApplication.start(properties);
+	}
+
+	/**
+	 * Warnings and errors only, for benchmarks that do not start the
+	 * application (which would configure logging itself).
+	 */
+	public static void quietLogging() {
+		org.slf4j.Logger root = LoggerFactory
+				.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+
+		if (root instanceof ch.qos.logback.classic.Logger)
+			((ch.qos.logback.classic.Logger) root)
+					.setLevel(ch.qos.logback.classic.Level.WARN);
+	}
+
+	public List<Result> getResults() {
+		return results;
+	}
+
+	/**
+	 * Run the operation in batches until the time is up - so the clock is
+	 * not read after every operation.
+	 *
+	 * @return The number of operations run.
+	 */
+	protected long run(Operation operation, long nanos) throws Exception {
+		long deadline = System.nanoTime() + nanos;
+		long operations = 0;
+		int hash = 0;
+
+		do {
+			for (int i = 0; i < 100; i++) {
+				Object value = operation.run();
+				hash += value == null ? 0 : System.identityHashCode(value);
+			}
+
+			operations += 100;
+		} while (System.nanoTime() < deadline);
+
+		consumed = hash;
+		return operations;
+	}
+
+	/**
+	 * @return Bytes allocated by the current thread so far - only available
+	 *         on HotSpot, otherwise zero.
+	 */
+	protected static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory
+				.getThreadMXBean();
+
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+		return 0;
+	}
+
+}
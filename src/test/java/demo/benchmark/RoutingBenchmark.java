@@ -0,0 +1,160 @@
+package demo.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import demo.exceptions.DatabaseException;
+import demo.exceptions.InvalidCreditCardException;
+import demo.exceptions.OrderNotFoundException;
+import demo.routing.RoutingHandlerExceptionResolver;
+import demo2.web.ControllerWithoutExceptionHandlers;
+import demo3.web.ExceptionThrowingController;
+import demo3.web.SwitchableSimpleMappingExceptionResolver;
+
+/**
+ * How much time the {@link RoutingHandlerExceptionResolver} saves. Each
+ * exception is resolved twice in the running application: once by asking
+ * every resolver in turn, exactly as the <tt>DispatcherServlet</tt> does
+ * without routing, and once by the routing resolver. Only resolution is
+ * measured - not the controller, the view or the rest of the request.
+ * <p>
+ * The two <code>/throw</code> exceptions fall through every other resolver to
+ * the <tt>SimpleMappingExceptionResolver</tt> at the end of the chain (so it
+ * is switched on first), which is where routing saves the most. The
+ * <tt>@ResponseStatus</tt> exception is handled part way down the chain.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.RoutingBenchmark [-Dexec.args="warm-up-seconds seconds"]
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class RoutingBenchmark {
+
+	/**
+	 * An exception raised by a controller method at a URL.
+	 */
+	protected static class Case {
+		final String url;
+		final HandlerMethod handler;
+		final Exception exception;
+
+		Case(String url, HandlerMethod handler, Exception exception) {
+			this.url = url;
+			this.handler = handler;
+			this.exception = exception;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark benchmark = new Microbenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 5,
+				args.length > 1 ? Integer.parseInt(args[1]) : 5);
+		ConfigurableApplicationContext context = Microbenchmark
+				.startApplication("demo.routing.enabled=true");
+
+		try {
+			context.getBean(SwitchableSimpleMappingExceptionResolver.class)
+					.setEnabled(true);
+
+			final RoutingHandlerExceptionResolver router = (RoutingHandlerExceptionResolver) context
+					.getBean(DispatcherServlet.HANDLER_EXCEPTION_RESOLVER_BEAN_NAME);
+			final List<HandlerExceptionResolver> observers = router.getObservers();
+			final List<HandlerExceptionResolver> resolvers = router.getResolvers();
+
+			Case[] cases = {
+					new Case("/throw/invalidCreditCard", handler(context,
+							ExceptionThrowingController.class,
+							"throwInvalidCreditCard"),
+							new InvalidCreditCardException("1234123412341234")),
+					new Case("/throw/databaseException", handler(context,
+							ExceptionThrowingController.class,
+							"throwDatabaseException"), new DatabaseException(
+							"Database not found: info.db")),
+					new Case("/global/orderNotFound", handler(context,
+							ControllerWithoutExceptionHandlers.class,
+							"throwOrderNotFoundException"),
+							new OrderNotFoundException("12345")) };
+
+			for (final Case c : cases) {
+				final Object handler = c.handler;
+				final Exception ex = c.exception;
+
+				Microbenchmark.Result chain = benchmark.measure(c.url
+						+ " full chain", () -> {
+					MockHttpServletRequest request = new MockHttpServletRequest(
+							"GET", c.url);
+					MockHttpServletResponse response = new MockHttpServletResponse();
+
+					for (HandlerExceptionResolver observer : observers)
+						observer.resolveException(request, response, handler, ex);
+
+					for (HandlerExceptionResolver resolver : resolvers) {
+						ModelAndView mav = resolver.resolveException(request,
+								response, handler, ex);
+
+						if (mav != null)
+							return mav;
+					}
+
+					return null;
+				});
+
+				Microbenchmark.Result routed = benchmark.measure(c.url
+						+ " routed", () -> router.resolveException(
+						new MockHttpServletRequest("GET", c.url),
+						new MockHttpServletResponse(), handler, ex));
+
+				benchmark.compare(chain, routed);
+			}
+
+			System.out.println();
+			System.out.println("Chain: " + names(resolvers));
+			System.out.println("Routes: " + router.getRoutes());
+			System.out.printf(Locale.ROOT,
+					"Resolver invocations skipped per routed exception: %.1f%n",
+					(double) router.getSkipped() / Math.max(1, router.getRouted()));
+		} finally {
+			context.close();
+		}
+	}
+
+	protected static HandlerMethod handler(ConfigurableApplicationContext context,
+			Class<?> controller, String name) {
+		Object bean = context.getBean(controller);
+		Method method = null;
+
+		for (Method candidate : ReflectionUtils.getAllDeclaredMethods(controller)) {
+			if (candidate.getName().equals(name))
+				method = candidate;
+		}
+
+		if (method == null)
+			throw new IllegalArgumentException("No method " + name + " in "
+					+ controller.getName());
+
+		return new HandlerMethod(bean, method);
+	}
+
+	protected static String names(List<HandlerExceptionResolver> resolvers) {
+		StringBuilder sb = new StringBuilder();
+
+		for (HandlerExceptionResolver resolver : resolvers)
+			sb.append(sb.length() == 0 ? "" : ", ").append(
+					ClassUtils.getUserClass(resolver).getSimpleName());
+
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,89 @@
+package demo.benchmark;
+
+import java.util.Properties;
+
+import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
+
+import demo.exceptions.DatabaseException;
+import demo.exceptions.InvalidCreditCardException;
+import demo.exceptions.OrderNotFoundException;
+import demo.metadata.CachingSimpleMappingExceptionResolver;
+
+/**
+ * How much time the {@link CachingSimpleMappingExceptionResolver} saves
+ * finding the error view for an exception, compared with the
+ * <tt>SimpleMappingExceptionResolver</tt> it extends. Both are given the
+ * mappings the application uses and only the lookup is measured - no
+ * application is started.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=demo.benchmark.ViewLookupBenchmark [-Dexec.args="warm-up-seconds seconds"]
+ * </pre>
+ *
+ * @author Paul Chapman
+ */
+public class ViewLookupBenchmark {
+
+	/**
+	 * Exposes the lookup, passing the mappings it was given - as
+	 * <tt>SimpleMappingExceptionResolver</tt> does.
+	 */
+	protected static class Plain extends SimpleMappingExceptionResolver {
+		protected Properties mappings;
+
+		@Override
+		public void setExceptionMappings(Properties mappings) {
+			super.setExceptionMappings(mappings);
+			this.mappings = mappings;
+		}
+
+		public String find(Exception ex) {
+			return findMatchingViewName(mappings, ex);
+		}
+	}
+
+	protected static class Caching extends CachingSimpleMappingExceptionResolver {
+		protected Properties mappings;
+
+		@Override
+		public synchronized void setExceptionMappings(Properties mappings) {
+			super.setExceptionMappings(mappings);
+			this.mappings = mappings;
+		}
+
+		public String find(Exception ex) {
+			return findMatchingViewName(mappings, ex);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark.quietLogging();
+		Microbenchmark benchmark = new Microbenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 5,
+				args.length > 1 ? Integer.parseInt(args[1]) : 5);
+
+		// As in ExceptionConfiguration
+		Properties mappings = new Properties();
+		mappings.setProperty("DatabaseException", "databaseException");
+		mappings.setProperty("InvalidCreditCardException", "creditCardError");
+
+		final Plain plain = new Plain();
+		plain.setExceptionMappings(mappings);
+		final Caching caching = new Caching();
+		caching.setExceptionMappings(mappings);
+
+		Exception[] exceptions = { new DatabaseException("Database not found"),
+				new InvalidCreditCardException("1234123412341234"),
+				new OrderNotFoundException("12345") };
+
+		for (final Exception ex : exceptions) {
+			String name = ex.getClass().getSimpleName();
+			Microbenchmark.Result uncached = benchmark.measure(name
+					+ " SimpleMapping", () -> plain.find(ex));
+			Microbenchmark.Result cached = benchmark.measure(name
+					+ " CachingSimpleMapping", () -> caching.find(ex));
+			benchmark.compare(uncached, cached);
+		}
+	}
+
+}
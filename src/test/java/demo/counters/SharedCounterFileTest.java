@@ -0,0 +1,133 @@
+package demo.counters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import demo.counters.SharedCounterFile.Kind;
+
+/**
+ * Checks no count is lost on its way from the pending counters to the
+ * {@link SharedCounterFile}.
+ *
+ * @author Paul Chapman
+ */
+public class SharedCounterFileTest {
+
+	@TempDir
+	Path directory;
+
+	SharedCounterFile file;
+	ConcurrentMap<String, AtomicLong> pending = new ConcurrentHashMap<String, AtomicLong>();
+
+	@BeforeEach
+	public void openFile() throws IOException {
+		file = new SharedCounterFile(new File(directory.toFile(), "counters"),
+				16);
+	}
+
+	@AfterEach
+	public void closeFile() throws IOException {
+		file.close();
+	}
+
+	@Test
+	public void incrementsDuringAFlushAreKept() throws Exception {
+		final AtomicLong counter = new AtomicLong();
+		pending.put("demo.exceptions.OrderNotFoundException", counter);
+		final int threads = 4;
+		final int increments = 200000;
+		Thread[] writers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++) {
+			writers[t] = new Thread(() -> {
+				for (int i = 0; i < increments; i++)
+					counter.incrementAndGet();
+			});
+			writers[t].start();
+		}
+
+		boolean running = true;
+
+		while (running) {
+			file.add(Kind.EXCEPTION, pending);
+			running = false;
+
+			for (Thread writer : writers)
+				running |= writer.isAlive();
+		}
+
+		file.add(Kind.EXCEPTION, pending);
+		assertEquals((long) threads * increments, total());
+		assertEquals(0, counter.get());
+	}
+
+	@Test
+	public void countsArePutBackIfTheFileCannotBeLocked() throws Exception {
+		AtomicLong counter = new AtomicLong(5);
+		pending.put("GET /local/orderNotFound", counter);
+		file.close();
+
+		assertThrows(IOException.class, () -> file.add(Kind.ENDPOINT, pending));
+		assertEquals(5, counter.get());
+	}
+
+	@Test
+	public void slotsAreReadUnderTheLock() throws Exception {
+		pending.put("GET /local/orderNotFound", new AtomicLong(3));
+		file.add(Kind.ENDPOINT, pending);
+
+		int used = 0;
+
+		for (int slot = 0; slot < file.getSlotCount(); slot++) {
+			if (file.getKind(slot) == null) {
+				assertNull(file.getName(slot));
+				continue;
+			}
+
+			assertEquals(Kind.ENDPOINT, file.getKind(slot));
+			assertEquals("GET /local/orderNotFound", file.getName(slot));
+			used++;
+		}
+
+		assertEquals(1, used);
+	}
+
+	@Test
+	public void stoppingAddsCountsSinceTheLastFlush() throws Exception {
+		// Far longer than the test, so only stop() can add the counts
+		SharedErrorCounters counters = new SharedErrorCounters(file, 600000,
+				600000);
+		counters.start();
+		counters.record("demo.exceptions.OrderNotFoundException",
+				"GET /local/orderNotFound");
+		counters.stop();
+
+		file = new SharedCounterFile(file.getFile(), 16);
+		assertEquals(2, total());
+	}
+
+	protected long total() throws IOException {
+		long[] counts = new long[file.getSlotCount()];
+		file.read(counts);
+		long total = 0;
+
+		for (long count : counts)
+			total += count;
+
+		return total;
+	}
+
+}
@@ -0,0 +1,75 @@
+package demo.errors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link BufferPool} and the UTF-8 written by its
+ * {@link PooledBuffer}s.
+ *
+ * @author Paul Chapman
+ */
+public class BufferPoolTest {
+
+	/** ASCII, two and three byte characters and a surrogate pair. */
+	protected static final String TEXT = "<p>Café €5 😀 \"done\"</p>";
+
+	@Test
+	public void writesTheSameBytesAsTheJdk() throws IOException {
+		PooledBuffer buffer = new PooledBuffer(4);
+
+		buffer.getWriter().write(TEXT);
+		buffer.getPrintWriter().print(TEXT.toCharArray());
+
+		// The pair split across two writes, then one character at a time
+		int split = TEXT.indexOf('\ud83d') + 1;
+		buffer.getWriter().write(TEXT, 0, split);
+		buffer.getWriter().write(TEXT, split, TEXT.length() - split);
+
+		for (int i = 0; i < TEXT.length(); i++)
+			buffer.getWriter().write(TEXT.charAt(i));
+
+		String expected = TEXT + TEXT + TEXT + TEXT;
+		assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+				buffer.toByteArray());
+	}
+
+	@Test
+	public void unpairedSurrogatesAreReplaced() throws IOException {
+		PooledBuffer buffer = new PooledBuffer(16);
+		buffer.getWriter().write("a\ude00b\ud83dc");
+		assertEquals("a?b?c", new String(buffer.toByteArray(),
+				StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void buffersAreReusedUnlessTheyHaveGrownTooLarge()
+			throws IOException {
+		BufferPool pool = new BufferPool(2, 64, 128);
+		PooledBuffer buffer = pool.acquire();
+		buffer.getWriter().write("Small page");
+		pool.release(buffer);
+
+		PooledBuffer reused = pool.acquire();
+		assertSame(buffer, reused);
+		assertEquals(0, reused.size());
+
+		// Grown past the limit, then emptied - still not kept
+		reused.getWriter().write(new String(new char[200]).replace('\0', 'x'));
+		reused.clear();
+		pool.release(reused);
+
+		assertEquals(0, pool.getIdle());
+		assertNotSame(buffer, pool.acquire());
+		assertEquals(2, pool.getCreated());
+		assertEquals(1, pool.getReused());
+	}
+
+}
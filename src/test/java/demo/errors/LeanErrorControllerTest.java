@@ -0,0 +1,138 @@
+package demo.errors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.servlet.error.BasicErrorController;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.main.TestApplication;
+
+/**
+ * Checks the {@link LeanErrorController} produces the same responses as
+ * Spring Boot's <tt>BasicErrorController</tt>. The application is started
+ * twice, once with each controller, and every path that ends up at
+ * <code>/error</code> is requested from both - as a browser and as a REST
+ * client. Status, content type and body must match, apart from the time.
+ *
+ * @author Paul Chapman
+ */
+public class LeanErrorControllerTest {
+
+	/** Every way of reaching <code>/error</code> in the demos. */
+	protected static final String[] PATHS = { "/broken", "/unknown",
+			"/demo5/forward", "/demo5/render", "/throw/unhandledException",
+			"/error" };
+
+	protected static final String[] ACCEPT = { "text/html", "application/json" };
+
+	/** Show everything that can be shown, so all of it is compared. */
+	protected static final String[] PROPERTIES = {
+			"server.error.include-exception=true",
+			"server.error.include-message=always", "demo.counters.enabled=false" };
+
+	static ConfigurableApplicationContext lean;
+	static ConfigurableApplicationContext basic;
+
+	static class Response {
+		final int status;
+		final String contentType;
+		final String body;
+
+		Response(int status, String contentType, String body) {
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+		}
+	}
+
+	@BeforeAll
+	public static void startApplications() {
+		lean = TestApplication.start(PROPERTIES);
+		String[] basicProperties = new String[PROPERTIES.length + 1];
+		System.arraycopy(PROPERTIES, 0, basicProperties, 0, PROPERTIES.length);
+		basicProperties[PROPERTIES.length] = "demo.errors.lean-controller=false";
+		basic = TestApplication.start(basicProperties);
+	}
+
+	@AfterAll
+	public static void stopApplications() {
+		if (lean != null)
+			lean.close();
+
+		if (basic != null)
+			basic.close();
+	}
+
+	@Test
+	public void controllersAreTheOnesBeingCompared() {
+		assertEquals(1, lean.getBeansOfType(LeanErrorController.class).size());
+		assertEquals(0, lean.getBeansOfType(BasicErrorController.class).size());
+		assertEquals(0, basic.getBeansOfType(LeanErrorController.class).size());
+		assertEquals(1, basic.getBeansOfType(BasicErrorController.class).size());
+	}
+
+	@Test
+	public void responsesMatchBasicErrorController() throws IOException {
+		for (String path : PATHS) {
+			for (String accept : ACCEPT) {
+				String what = path + " (" + accept + ")";
+				Response expected = get(basic, path, accept);
+				Response actual = get(lean, path, accept);
+
+				assertTrue(expected.status >= 400, what + " is not an error");
+				assertEquals(expected.status, actual.status, what);
+				assertEquals(expected.contentType, actual.contentType, what);
+				assertEquals(expected.body, actual.body, what);
+			}
+		}
+	}
+
+	protected Response get(ConfigurableApplicationContext context, String path,
+			String accept) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				TestApplication.baseUrl(context) + path).openConnection();
+		connection.setRequestProperty("Accept", accept);
+		int status = connection.getResponseCode();
+		String contentType = connection.getContentType();
+		InputStream in = status < 400 ? connection.getInputStream()
+				: connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		if (in != null) {
+			try {
+				byte[] buffer = new byte[8192];
+				int n;
+
+				while ((n = in.read(buffer)) >= 0)
+					body.write(buffer, 0, n);
+			} finally {
+				in.close();
+			}
+		}
+
+		return new Response(status, contentType == null ? null : contentType
+				.replace(" ", "").toLowerCase(Locale.ROOT), withoutTime(body
+				.toString(StandardCharsets.UTF_8.name())));
+	}
+
+	/**
+	 * The only part of the output that should differ.
+	 */
+	protected static String withoutTime(String body) {
+		return body.replaceAll("\"timestamp\":\"[^\"]*\"", "\"timestamp\":\"\"")
+				.replaceAll("(<b>Occurred:</b> <span>)[^<]*(</span>)", "$1$2");
+	}
+
+}
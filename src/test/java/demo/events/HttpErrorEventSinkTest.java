@@ -0,0 +1,225 @@
+package demo.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the {@link ErrorEventExporter} against an {@link HttpErrorEventSink}
+ * posting to a stub collector - the JDK's own HTTP server, started in-process
+ * on a free port.
+ *
+ * @author Paul Chapman
+ */
+public class HttpErrorEventSinkTest {
+
+	protected static final long TIMEOUT_SECONDS = 10;
+
+	protected final ObjectMapper mapper = new ObjectMapper();
+
+	/** The body of every POST received by the stub, in order. */
+	protected final LinkedBlockingQueue<JsonNode> received = new LinkedBlockingQueue<JsonNode>();
+
+	/** Status the stub answers with. */
+	protected volatile int status = 200;
+
+	protected HttpServer server;
+	protected ErrorEventExporter exporter;
+
+	@BeforeEach
+	public void startCollector() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/errors", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				InputStream in = exchange.getRequestBody();
+
+				try {
+					if (exchange.getRequestMethod().equals("POST")
+							&& exchange.getRequestHeaders().getFirst(
+									"Content-Type").equals("application/json"))
+						received.add(mapper.readTree(in));
+				} finally {
+					in.close();
+				}
+
+				exchange.sendResponseHeaders(status, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void stop() {
+		if (exporter != null)
+			exporter.stop();
+
+		server.stop(0);
+	}
+
+	protected ErrorEventExporter createExporter(int queueCapacity,
+			int batchSize, long flushIntervalMillis) throws IOException {
+		URL url = new URL("http://localhost:" + server.getAddress().getPort()
+				+ "/errors");
+		exporter = new ErrorEventExporter(new HttpErrorEventSink(url, mapper,
+				5000), queueCapacity, batchSize, flushIntervalMillis);
+		return exporter;
+	}
+
+	protected ErrorEvent event(int i) {
+		return new ErrorEvent(1000L + i, "demo.exceptions.OrderNotFoundException",
+				"Order " + i, "/local/orderNotFound", "ExceptionHandlingController.orderNotFound",
+				404, true);
+	}
+
+	protected JsonNode nextBatch() throws InterruptedException {
+		return received.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void fullBatchesArePostedAsJsonArrays() throws Exception {
+		// Queue everything before starting, so the batches are full
+		createExporter(100, 3, 60000);
+
+		for (int i = 0; i < 6; i++)
+			assertTrue(exporter.offer(event(i)));
+
+		exporter.start();
+
+		List<JsonNode> events = new ArrayList<JsonNode>();
+
+		for (int batch = 0; batch < 2; batch++) {
+			JsonNode array = nextBatch();
+			assertTrue(array != null && array.isArray(), "Batch " + batch);
+			assertEquals(3, array.size());
+
+			for (JsonNode event : array)
+				events.add(event);
+		}
+
+		// In the order they occurred
+		for (int i = 0; i < 6; i++)
+			assertEquals(1000L + i, events.get(i).get("timestamp").asLong());
+
+		JsonNode first = events.get(0);
+		assertEquals("demo.exceptions.OrderNotFoundException",
+				first.get("exception").asText());
+		assertEquals("/local/orderNotFound", first.get("uri").asText());
+		assertEquals(404, first.get("status").asInt());
+		assertTrue(first.get("resolved").asBoolean());
+
+		waitFor(2, exporter::getBatches);
+		assertEquals(6, exporter.getExported());
+		assertEquals(0, exporter.getFailed());
+		assertEquals(0, exporter.getDropped());
+	}
+
+	@Test
+	public void partialBatchIsPostedOnceTheIntervalPasses() throws Exception {
+		createExporter(100, 50, 200);
+		exporter.start();
+		long start = System.nanoTime();
+		exporter.offer(event(0));
+
+		JsonNode events = nextBatch();
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(events != null, "No batch within " + TIMEOUT_SECONDS + "s");
+		assertEquals(1, events.size());
+		assertTrue(millis >= 150, "Posted after " + millis
+				+ "ms - before the flush interval");
+	}
+
+	@Test
+	public void eventsOverCapacityAreDroppedAndCounted() throws Exception {
+		createExporter(2, 10, 100);
+
+		assertTrue(exporter.offer(event(0)));
+		assertTrue(exporter.offer(event(1)));
+		assertFalse(exporter.offer(event(2)));
+		assertFalse(exporter.offer(event(3)));
+
+		assertEquals(2, exporter.getAccepted());
+		assertEquals(2, exporter.getDropped());
+		assertEquals(2, exporter.getQueued());
+
+		// Only the accepted events reach the collector
+		exporter.start();
+		assertEquals(2, nextBatch().size());
+		waitFor(1, exporter::getBatches);
+		assertEquals(2, exporter.getExported());
+		assertEquals(0, received.size());
+	}
+
+	@Test
+	public void rejectedBatchesAreCountedAsFailed() throws Exception {
+		status = 503;
+		createExporter(100, 2, 60000);
+
+		for (int i = 0; i < 4; i++)
+			exporter.offer(event(i));
+
+		exporter.start();
+		waitFor(2, exporter::getBatches);
+
+		assertEquals(4, exporter.getFailed());
+		assertEquals(0, exporter.getExported());
+	}
+
+	@Test
+	public void stopWritesOutWhateverIsQueued() throws Exception {
+		createExporter(100, 50, 60000);
+		exporter.start();
+
+		for (int i = 0; i < 5; i++)
+			exporter.offer(event(i));
+
+		exporter.stop();
+
+		int total = 0;
+		JsonNode events;
+
+		while ((events = received.poll()) != null)
+			total += events.size();
+
+		assertEquals(5, total);
+		assertEquals(5, exporter.getExported());
+	}
+
+	/**
+	 * The counts are updated by the exporter's thread once the collector has
+	 * answered, so may lag behind what the stub has seen.
+	 */
+	protected void waitFor(long expected, LongSupplier count)
+			throws InterruptedException {
+		long deadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+		while (count.getAsLong() != expected && System.nanoTime() < deadline)
+			Thread.sleep(10);
+
+		assertEquals(expected, count.getAsLong());
+	}
+
+}
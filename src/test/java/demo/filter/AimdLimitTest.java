@@ -0,0 +1,155 @@
+package demo.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link AimdLimit} admits no more requests than its limit, even
+ * from many threads at once, and how the limit grows and shrinks - using the
+ * package-private release method that takes the time, so nothing waits.
+ *
+ * @author Paul Chapman
+ */
+public class AimdLimitTest {
+
+	protected static final long THRESHOLD_MILLIS = 1000;
+	protected static final long FAST = 0;
+	protected static final long SLOW = TimeUnit.MILLISECONDS
+			.toNanos(THRESHOLD_MILLIS) + 1;
+
+	@Test
+	public void admitsUpToTheLimit() {
+		AimdLimit limit = new AimdLimit(3, 3, 3, 0.5, THRESHOLD_MILLIS);
+
+		for (int i = 0; i < 3; i++)
+			assertTrue(limit.tryAcquire());
+
+		assertFalse(limit.tryAcquire());
+		assertEquals(3, limit.getInFlight());
+
+		limit.release(FAST);
+		assertEquals(2, limit.getInFlight());
+		assertTrue(limit.tryAcquire());
+		assertFalse(limit.tryAcquire());
+	}
+
+	@Test
+	public void concurrentRequestsNeverExceedTheLimit() throws Exception {
+		final int max = 4;
+		final AimdLimit limit = new AimdLimit(max, max, max, 0.5,
+				THRESHOLD_MILLIS);
+		final AtomicInteger holding = new AtomicInteger();
+		final AtomicInteger mostHeld = new AtomicInteger();
+		final AtomicInteger admitted = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t = 0; t < 16; t++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					for (int i = 0; i < 20000; i++) {
+						if (!limit.tryAcquire())
+							continue;
+
+						int held = holding.incrementAndGet();
+						mostHeld.accumulateAndGet(held, Math::max);
+						admitted.incrementAndGet();
+						holding.decrementAndGet();
+						limit.release(FAST);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		start.countDown();
+
+		for (Thread thread : threads)
+			thread.join();
+
+		assertTrue(mostHeld.get() <= max, mostHeld.get() + " held at once");
+		assertTrue(admitted.get() > 0);
+		assertEquals(0, limit.getInFlight());
+		assertEquals(max, limit.getLimit());
+	}
+
+	@Test
+	public void increasesWhileAtLeastHalfIsInUse() {
+		AimdLimit limit = new AimdLimit(10, 1, 12, 0.5, THRESHOLD_MILLIS);
+		acquire(limit, 5);
+
+		// 5 of 10 in use
+		limit.release(FAST);
+		assertEquals(11, limit.getLimit());
+
+		// 4 of 11 - too few to need more
+		limit.release(FAST);
+		assertEquals(11, limit.getLimit());
+
+		acquire(limit, 8);
+		limit.release(FAST);
+		assertEquals(12, limit.getLimit());
+		limit.release(FAST);
+		assertEquals(12, limit.getLimit(), "Above the maximum");
+	}
+
+	@Test
+	public void decreasesOncePerThreshold() {
+		AimdLimit limit = new AimdLimit(100, 10, 200, 0.5, THRESHOLD_MILLIS);
+		long now = System.nanoTime();
+		acquire(limit, 10);
+
+		limit.release(SLOW, now);
+		assertEquals(50, limit.getLimit());
+
+		// Other slow requests finishing in the same period
+		limit.release(SLOW, now + 1);
+		limit.release(SLOW, now + SLOW - 2);
+		assertEquals(50, limit.getLimit());
+
+		limit.release(SLOW, now + SLOW);
+		assertEquals(25, limit.getLimit());
+		limit.release(SLOW, now + 2 * SLOW);
+		assertEquals(12, limit.getLimit());
+
+		// Never below the minimum
+		limit.release(SLOW, now + 3 * SLOW);
+		assertEquals(10, limit.getLimit());
+		limit.release(SLOW, now + 4 * SLOW);
+		assertEquals(10, limit.getLimit());
+		assertEquals(3, limit.getInFlight());
+	}
+
+	@Test
+	public void initialLimitIsWithinBounds() {
+		assertEquals(10, new AimdLimit(5, 10, 20, 0.5, THRESHOLD_MILLIS)
+				.getLimit());
+		assertEquals(20, new AimdLimit(50, 10, 20, 0.5, THRESHOLD_MILLIS)
+				.getLimit());
+		assertEquals(1, new AimdLimit(0, 0, 0, 0.5, THRESHOLD_MILLIS)
+				.getLimit());
+	}
+
+	protected void acquire(AimdLimit limit, int requests) {
+		for (int i = 0; i < requests; i++)
+			assertTrue(limit.tryAcquire());
+	}
+
+}
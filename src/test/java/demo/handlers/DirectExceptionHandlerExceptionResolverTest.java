@@ -0,0 +1,109 @@
+package demo.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import demo.main.TestApplication;
+import demo1.web.ExceptionHandlingController;
+import demo2.web.ControllerWithoutExceptionHandlers;
+import demo2.web.GlobalExceptionHandlingControllerAdvice;
+
+/**
+ * Checks the {@link DirectExceptionHandlerExceptionResolver} reuses the
+ * handler methods Spring chose, and only where Spring would have chosen the
+ * same one.
+ *
+ * @author Paul Chapman
+ */
+public class DirectExceptionHandlerExceptionResolverTest {
+
+	static ConfigurableApplicationContext context;
+	static DirectExceptionHandlerExceptionResolver resolver;
+
+	@BeforeAll
+	public static void start() {
+		context = TestApplication.start("demo.counters.enabled=false",
+				"logging.level.demo1=OFF", "logging.level.demo2=OFF");
+		resolver = (DirectExceptionHandlerExceptionResolver) TestApplication
+				.exceptionHandlerResolver(context);
+	}
+
+	@AfterAll
+	public static void stop() {
+		context.close();
+	}
+
+	protected HandlerMethod handler(Class<?> controller) {
+		Method method = ReflectionUtils.findMethod(controller,
+				"throwDataIntegrityViolationException");
+		return new HandlerMethod(context.getBean(controller), method);
+	}
+
+	@Test
+	public void handlerMethodIsFoundOnceAndReused() {
+		HandlerMethod local = handler(ExceptionHandlingController.class);
+		ServletInvocableHandlerMethod first = resolver.getExceptionHandlerMethod(
+				local, new DataIntegrityViolationException("1"));
+		ServletInvocableHandlerMethod second = resolver.getExceptionHandlerMethod(
+				local, new DataIntegrityViolationException("2"));
+
+		assertNotNull(first);
+		assertSame(first, second);
+		assertSame(local.getBean(), first.getBean());
+		assertEquals("conflict", first.getMethod().getName());
+
+		// Same exception from another controller - the advice handles it
+		HandlerMethod global = handler(ControllerWithoutExceptionHandlers.class);
+		ServletInvocableHandlerMethod advice = resolver.getExceptionHandlerMethod(
+				global, new DataIntegrityViolationException("3"));
+
+		assertSame(context.getBean(GlobalExceptionHandlingControllerAdvice.class),
+				advice.getBean());
+		assertSame(advice, resolver.getExceptionHandlerMethod(global,
+				new DataIntegrityViolationException("4")));
+	}
+
+	@Test
+	public void handlerMethodsAreKeyedByTheCauses() {
+		HandlerMethod local = handler(ExceptionHandlingController.class);
+		Exception unhandled = new IllegalStateException("No cause");
+		Exception handled = new IllegalStateException(
+				new DataIntegrityViolationException("Cause"));
+
+		assertNull(resolver.getExceptionHandlerMethod(local, unhandled));
+		assertEquals("conflict",
+				resolver.getExceptionHandlerMethod(local, handled).getMethod()
+						.getName());
+		assertNull(resolver.getExceptionHandlerMethod(local, unhandled));
+	}
+
+	@Test
+	public void reusedHandlerMethodSendsTheSameResponse() {
+		HandlerMethod local = handler(ExceptionHandlingController.class);
+
+		for (int i = 0; i < 3; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			assertNotNull(resolver.resolveException(new MockHttpServletRequest(
+					"GET", "/local/dataIntegrityViolation"), response, local,
+					new DataIntegrityViolationException("Duplicate")));
+			assertEquals(409, response.getStatus());
+			assertEquals("Data integrity violation", response.getErrorMessage());
+		}
+	}
+
+}
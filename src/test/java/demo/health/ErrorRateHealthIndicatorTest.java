@@ -0,0 +1,112 @@
+package demo.health;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Checks the {@link ErrorRateHealthIndicator}'s status rises as soon as a
+ * threshold is reached, but only falls again once the rate is below the
+ * threshold times the recovery factor - and that too few requests count as
+ * no failures at all.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorRateHealthIndicatorTest {
+
+	protected static final long WINDOW = 1000;
+	protected static final int MIN_REQUESTS = 10;
+
+	/** A window whose clock is set by the test. */
+	protected static class ClockedWindow extends ErrorRateWindow {
+		long now = 1000000;
+
+		ClockedWindow() {
+			super(WINDOW, 10);
+		}
+
+		@Override
+		public Snapshot snapshot() {
+			return snapshot(now);
+		}
+	}
+
+	ClockedWindow window = new ClockedWindow();
+
+	/** Degraded at 10%, out of service at 50%, recover at half of those. */
+	ErrorRateHealthIndicator indicator = new ErrorRateHealthIndicator(window,
+			MIN_REQUESTS, 0.1, 0.5, 0.5);
+
+	@Test
+	public void statusRisesAtOnceAndRecoversBelowTheRecoveryRate() {
+		assertEquals(Status.UP, healthAfter(20, 0, ErrorPath.DATABASE));
+		assertEquals(ErrorRateHealthIndicator.DEGRADED,
+				healthAfter(20, 2, ErrorPath.DATABASE));
+		assertEquals(Status.OUT_OF_SERVICE,
+				healthAfter(20, 10, ErrorPath.UNHANDLED));
+
+		// Below 50% but not below 25%
+		assertEquals(Status.OUT_OF_SERVICE,
+				healthAfter(20, 6, ErrorPath.UNHANDLED));
+		assertEquals(Status.OUT_OF_SERVICE,
+				healthAfter(20, 5, ErrorPath.UNHANDLED));
+		assertEquals(ErrorRateHealthIndicator.DEGRADED,
+				healthAfter(20, 4, ErrorPath.UNHANDLED));
+
+		// Below 10% but not below 5%
+		assertEquals(ErrorRateHealthIndicator.DEGRADED,
+				healthAfter(20, 1, ErrorPath.DATABASE));
+		assertEquals(Status.UP, healthAfter(40, 1, ErrorPath.DATABASE));
+
+		// And straight from UP to OUT_OF_SERVICE
+		assertEquals(Status.OUT_OF_SERVICE,
+				healthAfter(20, 15, ErrorPath.DATABASE));
+		assertEquals(Status.UP, healthAfter(20, 0, ErrorPath.DATABASE));
+	}
+
+	@Test
+	public void worstPathDecides() {
+		window.now += 2 * WINDOW;
+		record(10, 1, ErrorPath.DATABASE);
+		record(10, 10, ErrorPath.UNHANDLED);
+
+		// 5% and 50% of the requests
+		Health health = indicator.health();
+		assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+		assertEquals(0.05, health.getDetails().get("databaseRate"));
+		assertEquals(0.5, health.getDetails().get("unhandledRate"));
+	}
+
+	@Test
+	public void tooFewRequestsCountAsNoFailures() {
+		assertEquals(Status.UP, healthAfter(MIN_REQUESTS - 1, MIN_REQUESTS - 1,
+				ErrorPath.UNHANDLED));
+		assertEquals(Status.OUT_OF_SERVICE,
+				healthAfter(MIN_REQUESTS, MIN_REQUESTS, ErrorPath.UNHANDLED));
+
+		// Old failures leave the window and the instance is tried again
+		window.now += 2 * WINDOW;
+		Health health = indicator.health();
+		assertEquals(Status.UP, health.getStatus());
+		assertEquals(0L, health.getDetails().get("requests"));
+	}
+
+	/**
+	 * Start a new window, then record requests, some of them failing.
+	 *
+	 * @return The health status with just those requests in the window.
+	 */
+	protected Status healthAfter(int requests, int failures, ErrorPath path) {
+		window.now += 2 * WINDOW;
+		record(requests, failures, path);
+		return indicator.health().getStatus();
+	}
+
+	protected void record(int requests, int failures, ErrorPath path) {
+		for (int i = 0; i < requests; i++)
+			window.record(i < failures ? path : null, window.now);
+	}
+
+}
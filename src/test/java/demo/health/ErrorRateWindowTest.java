@@ -0,0 +1,90 @@
+package demo.health;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link ErrorRateWindow} counts into the right bucket, clears a
+ * bucket when it is reused and leaves old buckets out of the counts - using
+ * the package-private methods that take the time, so nothing waits.
+ *
+ * @author Paul Chapman
+ */
+public class ErrorRateWindowTest {
+
+	/** Ten buckets of 100ms. */
+	protected static final long WINDOW = 1000;
+
+	/** The start of a bucket. */
+	protected static final long T = 1000000;
+
+	ErrorRateWindow window = new ErrorRateWindow(WINDOW, 10);
+
+	@Test
+	public void countsRequestsAndFailuresInTheWindow() {
+		window.record(null, T);
+		window.record(ErrorPath.DATABASE, T + 50);
+		window.record(ErrorPath.UNHANDLED, T + 150);
+		window.record(ErrorPath.UNHANDLED, T + 999);
+
+		ErrorRateWindow.Snapshot snapshot = window.snapshot(T + 999);
+		assertEquals(4, snapshot.getRequests());
+		assertEquals(1, snapshot.getFailures(ErrorPath.DATABASE));
+		assertEquals(2, snapshot.getFailures(ErrorPath.UNHANDLED));
+		assertEquals(0.25, snapshot.getRate(ErrorPath.DATABASE), 0.0);
+		assertEquals(0.5, snapshot.getRate(ErrorPath.UNHANDLED), 0.0);
+	}
+
+	@Test
+	public void reusedBucketIsCleared() {
+		window.record(ErrorPath.DATABASE, T);
+		window.record(ErrorPath.DATABASE, T + 50);
+		window.record(null, T + 150);
+
+		// A whole window later - the first bucket again
+		window.record(null, T + WINDOW);
+
+		ErrorRateWindow.Snapshot snapshot = window.snapshot(T + WINDOW);
+		assertEquals(2, snapshot.getRequests());
+		assertEquals(0, snapshot.getFailures(ErrorPath.DATABASE));
+	}
+
+	@Test
+	public void oldBucketsExpireWithoutBeingReused() {
+		window.record(ErrorPath.DATABASE, T);
+		window.record(ErrorPath.UNHANDLED, T + 150);
+
+		assertEquals(2, window.snapshot(T + WINDOW - 1).getRequests());
+		assertEquals(1, window.snapshot(T + WINDOW).getRequests());
+		assertEquals(0, window.snapshot(T + WINDOW).getFailures(
+				ErrorPath.DATABASE));
+		assertEquals(0, window.snapshot(T + WINDOW + 100).getRequests());
+		assertEquals(0.0, window.snapshot(T + 5 * WINDOW).getRate(
+				ErrorPath.UNHANDLED), 0.0);
+	}
+
+	@Test
+	public void staleTimeIsNotCounted() {
+		window.record(null, T + WINDOW);
+
+		// Same bucket, but the interval before - must not clear or add to it
+		window.record(ErrorPath.DATABASE, T);
+
+		ErrorRateWindow.Snapshot snapshot = window.snapshot(T + WINDOW);
+		assertEquals(1, snapshot.getRequests());
+		assertEquals(0, snapshot.getFailures(ErrorPath.DATABASE));
+	}
+
+	@Test
+	public void windowIsAWholeNumberOfBuckets() {
+		assertEquals(999, new ErrorRateWindow(1000, 9).getWindowMillis());
+		assertEquals(5, new ErrorRateWindow(3, 5).getWindowMillis());
+		assertThrows(IllegalArgumentException.class,
+				() -> new ErrorRateWindow(0, 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ErrorRateWindow(1000, 0));
+	}
+
+}
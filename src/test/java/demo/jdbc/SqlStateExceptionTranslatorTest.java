@@ -0,0 +1,236 @@
+package demo.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.UncategorizedDataAccessException;
+
+import demo.jdbc.SqlStateExceptionTranslator.CodeTable;
+
+/**
+ * Checks the lookup tables of the {@link SqlStateExceptionTranslator} and how
+ * it follows exceptions chained using <code>getNextException()</code> -
+ * including chains that are too long or go round in a circle.
+ *
+ * @author Paul Chapman
+ */
+public class SqlStateExceptionTranslatorTest {
+
+	protected static final String TASK = "Saving order";
+
+	SqlStateExceptionTranslator generic = new SqlStateExceptionTranslator(
+			"generic");
+
+	@Test
+	public void statesAreEncodedInBase36() {
+		assertEquals(0, SqlStateExceptionTranslator.encode("00", 2));
+		assertEquals(2 * 36 + 3, SqlStateExceptionTranslator.encode("23", 2));
+		assertEquals(35 * 36 + 35, SqlStateExceptionTranslator.encode("ZZ", 2));
+		assertEquals((((2 * 36 + 3) * 36 + 5) * 36 + 0) * 36 + 5,
+				SqlStateExceptionTranslator.encode("23505", 5));
+
+		// Only the first characters are used
+		assertEquals(SqlStateExceptionTranslator.encode("23", 2),
+				SqlStateExceptionTranslator.encode("23505", 2));
+
+		assertEquals(-1, SqlStateExceptionTranslator.encode("2", 2));
+		assertEquals(-1, SqlStateExceptionTranslator.encode("2-000", 5));
+		assertEquals(-1, SqlStateExceptionTranslator.encode("", 2));
+	}
+
+	@Test
+	public void classTableHoldsEveryClass() {
+		SqlErrorCategory[] table = SqlStateExceptionTranslator.CLASS_TABLE;
+		assertEquals(36 * 36, table.length);
+		assertEquals(SqlErrorCategory.DATA_INTEGRITY_VIOLATION, table[encode2("23")]);
+		assertEquals(SqlErrorCategory.BAD_SQL, table[encode2("42")]);
+		assertEquals(SqlErrorCategory.BAD_SQL, table[encode2("2A")]);
+		assertEquals(SqlErrorCategory.RESOURCE_FAILURE, table[encode2("08")]);
+		assertEquals(SqlErrorCategory.RESOURCE_FAILURE, table[encode2("S1")]);
+		assertEquals(SqlErrorCategory.CONCURRENCY_FAILURE, table[encode2("40")]);
+		assertEquals(SqlErrorCategory.PERMISSION_DENIED, table[encode2("28")]);
+		assertNull(table[encode2("HY")]);
+
+		int classes = 0;
+
+		for (SqlErrorCategory category : table) {
+			if (category != null)
+				classes++;
+		}
+
+		assertEquals(23, classes);
+	}
+
+	@Test
+	public void specificStatesOverrideTheirClass() {
+		assertEquals(SqlErrorCategory.DUPLICATE_KEY, categorize(generic, "23505", 0));
+		assertEquals(SqlErrorCategory.DATA_INTEGRITY_VIOLATION,
+				categorize(generic, "23000", 0));
+		assertEquals(SqlErrorCategory.DEADLOCK_LOSER, categorize(generic, "40P01", 0));
+		assertEquals(SqlErrorCategory.CONCURRENCY_FAILURE,
+				categorize(generic, "40001", 0));
+		assertEquals(SqlErrorCategory.QUERY_TIMEOUT, categorize(generic, "HYT00", 0));
+		assertEquals(SqlErrorCategory.UNCATEGORIZED, categorize(generic, "HY000", 0));
+
+		CodeTable states = SqlStateExceptionTranslator.STATE_TABLE;
+		assertEquals(6, states.size());
+		assertSorted(states);
+	}
+
+	@Test
+	public void vendorCodesAreOnlyUsedForTheirDatabase() {
+		SqlStateExceptionTranslator mysql = new SqlStateExceptionTranslator(
+				"MySQL");
+
+		// MySQL reports a duplicate key as 1062 with the general state 23000
+		assertEquals(SqlErrorCategory.DUPLICATE_KEY, categorize(mysql, "23000", 1062));
+		assertEquals(SqlErrorCategory.DATA_INTEGRITY_VIOLATION,
+				categorize(generic, "23000", 1062));
+
+		// An unknown code falls back to the state
+		assertEquals(SqlErrorCategory.BAD_SQL, categorize(mysql, "42000", 9999));
+
+		assertEquals(SqlErrorCategory.DEADLOCK_LOSER,
+				categorize(new SqlStateExceptionTranslator("oracle"), null, 60));
+		assertEquals(SqlErrorCategory.RESOURCE_FAILURE,
+				categorize(new SqlStateExceptionTranslator("h2"), null, 90046));
+	}
+
+	@Test
+	public void vendorTablesAreSorted() {
+		for (String database : new String[] { "mysql", "mariadb", "oracle",
+				"h2" }) {
+			Map<Integer, SqlErrorCategory> codes = SqlStateExceptionTranslator
+					.vendorCodes(database);
+			CodeTable table = new CodeTable(codes);
+			assertTrue(table.size() > 0, database);
+			assertEquals(codes.size(), table.size(), database);
+			assertSorted(table);
+
+			for (Map.Entry<Integer, SqlErrorCategory> entry : codes.entrySet())
+				assertEquals(entry.getValue(), table.get(entry.getKey()),
+						database + " " + entry.getKey());
+		}
+
+		assertEquals(0, SqlStateExceptionTranslator.vendorCodes("postgresql")
+				.size());
+		assertEquals(0, SqlStateExceptionTranslator.vendorCodes(null).size());
+	}
+
+	@Test
+	public void typeIsTheLastResort() {
+		assertEquals(SqlErrorCategory.QUERY_TIMEOUT,
+				generic.categorize(new SQLTimeoutException("Too slow")));
+		assertEquals(SqlErrorCategory.UNCATEGORIZED,
+				generic.categorize(new SQLException("Unknown")));
+	}
+
+	@Test
+	public void translateFallsBackToTheNextException() {
+		BatchUpdateException batch = new BatchUpdateException("Batch failed",
+				new int[0]);
+		batch.setNextException(new SQLException("Unknown"));
+		batch.setNextException(new SQLException("Duplicate", "23505"));
+
+		DataAccessException translated = generic.translate(TASK, batch);
+		assertInstanceOf(DuplicateKeyException.class, translated);
+		assertSame(batch, translated.getCause());
+		assertTrue(translated.getMessage().contains("[23505]"),
+				translated.getMessage());
+
+		// The exception's own category comes first
+		SQLException first = new SQLException("Null", "23000");
+		first.setNextException(new SQLException("Duplicate", "23505"));
+		assertInstanceOf(DataIntegrityViolationException.class,
+				generic.translate(TASK, first));
+	}
+
+	@Test
+	public void translateAllTranslatesTheWholeChain() {
+		SQLException first = new SQLException("Duplicate", "23505");
+		first.setNextException(new SQLException("Null", "23000"));
+
+		List<DataAccessException> translated = generic.translateAll(TASK,
+				first);
+		assertEquals(2, translated.size());
+		assertInstanceOf(DuplicateKeyException.class, translated.get(0));
+		assertInstanceOf(DataIntegrityViolationException.class,
+				translated.get(1));
+		assertSame(first.getNextException(), translated.get(1).getCause());
+
+		assertEquals(1, generic.translateAll(TASK, new SQLException("Alone"))
+				.size());
+	}
+
+	@Test
+	public void longChainsAreCutShort() {
+		SQLException first = new SQLException("First");
+		SQLException last = first;
+
+		for (int i = 0; i < SqlStateExceptionTranslator.MAX_CHAIN * 2; i++) {
+			SQLException next = new SQLException("Next " + i);
+			last.setNextException(next);
+			last = next;
+		}
+
+		assertEquals(SqlStateExceptionTranslator.MAX_CHAIN, generic
+				.translateAll(TASK, first).size());
+
+		// Beyond the limit, so never found
+		last.setNextException(new SQLException("Duplicate", "23505"));
+		assertInstanceOf(UncategorizedDataAccessException.class,
+				generic.translate(TASK, first));
+	}
+
+	@Test
+	public void circularChainsEnd() {
+		// Back to the first exception
+		SQLException first = new SQLException("First");
+		SQLException second = new SQLException("Second");
+		first.setNextException(second);
+		second.setNextException(first);
+
+		assertEquals(2, generic.translateAll(TASK, first).size());
+		assertSame(first, generic.translate(TASK, first).getCause());
+
+		// Round a loop that does not include the first exception
+		SQLException start = new SQLException("Start");
+		SQLException loop = new SQLException("Loop");
+		start.setNextException(loop);
+		loop.setNextException(new SQLException("Back"));
+		loop.getNextException().setNextException(loop);
+
+		assertEquals(SqlStateExceptionTranslator.MAX_CHAIN, generic
+				.translateAll(TASK, start).size());
+		assertSame(start, generic.translate(TASK, start).getCause());
+	}
+
+	protected static int encode2(String sqlClass) {
+		return SqlStateExceptionTranslator.encode(sqlClass, 2);
+	}
+
+	protected SqlErrorCategory categorize(
+			SqlStateExceptionTranslator translator, String state, int code) {
+		return translator.categorize(new SQLException("Failed", state, code));
+	}
+
+	protected void assertSorted(CodeTable table) {
+		for (int i = 1; i < table.codes.length; i++)
+			assertTrue(table.codes[i - 1] < table.codes[i], "Codes not sorted at "
+					+ i);
+	}
+
+}
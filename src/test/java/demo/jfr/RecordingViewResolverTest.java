@@ -0,0 +1,114 @@
+package demo.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.main.TestApplication;
+
+/**
+ * Checks an error page is recorded as an {@link ErrorViewRenderedEvent}, with
+ * its size, while Flight Recorder is collecting the event - and that the
+ * {@link RecordingViewResolver} stays out of the way when it is not.
+ *
+ * @author Paul Chapman
+ */
+public class RecordingViewResolverTest {
+
+	static ConfigurableApplicationContext application;
+
+	@BeforeAll
+	public static void startApplication() {
+		application = TestApplication.start();
+	}
+
+	@AfterAll
+	public static void stopApplication() {
+		application.close();
+	}
+
+	@Test
+	public void nothingIsWrappedWhenNotRecording() throws Exception {
+		assertNull(application.getBean(RecordingViewResolver.class)
+				.resolveViewName("error", Locale.ROOT));
+	}
+
+	@Test
+	public void errorPageIsRecorded() throws Exception {
+		Path file = Files.createTempFile("error-views", ".jfr");
+		int bytes;
+
+		try {
+			Recording recording = new Recording();
+
+			try {
+				recording.enable(ErrorViewRenderedEvent.NAME);
+				recording.start();
+				bytes = getErrorPage("/broken");
+				recording.stop();
+				recording.dump(file);
+			} finally {
+				recording.close();
+			}
+
+			List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				if (event.getEventType().getName()
+						.equals(ErrorViewRenderedEvent.NAME))
+					events.add(event);
+			}
+
+			assertEquals(1, events.size(), "Events: " + events);
+			assertEquals("error", events.get(0).getString("template"));
+			assertEquals("/broken", events.get(0).getString("path"));
+			assertEquals(bytes, events.get(0).getLong("bytes"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * @return The size of the page.
+	 */
+	protected int getErrorPage(String path) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				TestApplication.baseUrl(application) + path).openConnection();
+		connection.setRequestProperty("Accept", "text/html");
+		assertEquals(500, connection.getResponseCode());
+
+		InputStream in = connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+
+			while ((n = in.read(buffer)) != -1)
+				body.write(buffer, 0, n);
+		} finally {
+			in.close();
+		}
+
+		return body.size();
+	}
+
+}
@@ -0,0 +1,102 @@
+package demo.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+
+import demo.routing.RoutingHandlerExceptionResolver;
+
+/**
+ * Starts the whole application, as {@link Main} would, for the tests and
+ * benchmarks that need it running - on a free port, without warming up and
+ * with quiet logging (including the warning the
+ * <tt>SimpleMappingExceptionResolver</tt> logs for every exception).
+ *
+ * @author Paul Chapman
+ */
+public class TestApplication {
+
+	/**
+	 * @param properties
+	 *            Extra properties, such as
+	 *            <code>demo.routing.enabled=false</code>.
+	 * @return The running application - close it when done.
+	 */
+	public static ConfigurableApplicationContext start(String... properties) {
+		return start(new Class<?>[0], properties);
+	}
+
+	/**
+	 * @param sources
+	 *            Extra configuration classes, such as a test's own beans.
+	 *            Leave them unannotated, or component scanning will add them
+	 *            to every test's application.
+	 * @param properties
+	 *            Extra properties, such as
+	 *            <code>demo.routing.enabled=false</code>.
+	 * @return The running application - close it when done.
+	 */
+	public static ConfigurableApplicationContext start(Class<?>[] sources,
+			String... properties) {
+		List<String> args = new ArrayList<String>(Arrays.asList(
+				"server.port=0", "demo.warmup.enabled=false",
+				"logging.level.root=WARN",
+				"logging.level.org.springframework.web=WARN",
+				"logging.level.demo1.ExceptionLogger=ERROR"));
+		args.addAll(Arrays.asList(properties));
+
+		// As command-line arguments, to override application.properties
+		for (int i = 0; i < args.size(); i++)
+			args.set(i, "--" + args.get(i));
+
+		return new SpringApplicationBuilder(Main.class).sources(sources)
+				.profiles(Main.getProfiles())
+				.run(args.toArray(new String[args.size()]));
+	}
+
+	/**
+	 * @return The URL of the running application, such as
+	 *         <code>http://localhost:12345</code>.
+	 */
+	public static String baseUrl(ConfigurableApplicationContext context) {
+		return "http://localhost:"
+				+ ((WebServerApplicationContext) context).getWebServer()
+						.getPort();
+	}
+
+	/**
+	 * @return The <tt>ExceptionHandlerExceptionResolver</tt> the
+	 *         <tt>DispatcherServlet</tt> uses - it is not a bean itself.
+	 */
+	public static ExceptionHandlerExceptionResolver exceptionHandlerResolver(
+			ConfigurableApplicationContext context) {
+		List<HandlerExceptionResolver> resolvers = new ArrayList<HandlerExceptionResolver>();
+		resolvers.add(context.getBean(
+				DispatcherServlet.HANDLER_EXCEPTION_RESOLVER_BEAN_NAME,
+				HandlerExceptionResolver.class));
+
+		for (int i = 0; i < resolvers.size(); i++) {
+			HandlerExceptionResolver resolver = resolvers.get(i);
+
+			if (resolver instanceof ExceptionHandlerExceptionResolver)
+				return (ExceptionHandlerExceptionResolver) resolver;
+			else if (resolver instanceof RoutingHandlerExceptionResolver)
+				resolvers.addAll(((RoutingHandlerExceptionResolver) resolver)
+						.getResolvers());
+			else if (resolver instanceof HandlerExceptionResolverComposite)
+				resolvers.addAll(((HandlerExceptionResolverComposite) resolver)
+						.getExceptionResolvers());
+		}
+
+		throw new IllegalStateException("No ExceptionHandlerExceptionResolver");
+	}
+
+}
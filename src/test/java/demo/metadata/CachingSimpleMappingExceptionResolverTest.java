@@ -0,0 +1,117 @@
+package demo.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import demo.exceptions.DatabaseException;
+import demo.exceptions.InvalidCreditCardException;
+import demo.exceptions.OrderNotFoundException;
+
+/**
+ * Checks the {@link CachingSimpleMappingExceptionResolver} finds the same
+ * views as the <tt>SimpleMappingExceptionResolver</tt> and that each instance
+ * only ever uses its own mappings.
+ *
+ * @author Paul Chapman
+ */
+public class CachingSimpleMappingExceptionResolverTest {
+
+	/**
+	 * Exposes the lookup, passing it the mappings most recently set - as
+	 * <tt>SimpleMappingExceptionResolver</tt> does.
+	 */
+	static class Resolver extends CachingSimpleMappingExceptionResolver {
+		Properties mappings;
+
+		Resolver(String... mappings) {
+			setExceptionMappings(properties(mappings));
+		}
+
+		@Override
+		public synchronized void setExceptionMappings(Properties mappings) {
+			super.setExceptionMappings(mappings);
+			this.mappings = mappings;
+		}
+
+		String find(Exception ex) {
+			return findMatchingViewName(mappings, ex);
+		}
+	}
+
+	static Properties properties(String... mappings) {
+		Properties properties = new Properties();
+
+		for (int i = 0; i < mappings.length; i += 2)
+			properties.setProperty(mappings[i], mappings[i + 1]);
+
+		return properties;
+	}
+
+	@Test
+	public void findsTheClosestAndLongestMatch() {
+		Resolver resolver = new Resolver("Exception", "general",
+				"RuntimeException", "runtime", "DatabaseException",
+				"databaseException", "demo.exceptions.DatabaseException",
+				"qualified");
+
+		assertEquals("qualified", resolver.find(new DatabaseException("x")));
+		assertEquals("runtime", resolver.find(new RuntimeException()));
+		assertEquals("general", resolver.find(new Exception()));
+		assertEquals(3, resolver.getCachedViewCount());
+
+		// Same again, from the cache
+		assertEquals("qualified", resolver.find(new DatabaseException("y")));
+		assertEquals(3, resolver.getCachedViewCount());
+	}
+
+	@Test
+	public void unmappedAndExcludedExceptionsHaveNoView() {
+		Resolver resolver = new Resolver("DatabaseException", "databaseException");
+		assertNull(resolver.find(new OrderNotFoundException("1")));
+		assertNull(resolver.find(new OrderNotFoundException("2")));
+
+		resolver.setExcludedExceptions(DatabaseException.class);
+		assertNull(resolver.find(new DatabaseException("x")));
+	}
+
+	@Test
+	public void resolversDoNotShareMappings() {
+		Resolver first = new Resolver("DatabaseException", "first");
+		Resolver second = new Resolver("DatabaseException", "second",
+				"InvalidCreditCardException", "creditCardError");
+
+		// Created second, but the first still uses its own mappings
+		assertEquals("first", first.find(new DatabaseException("x")));
+		assertNull(first.find(new InvalidCreditCardException("1234")));
+		assertEquals("second", second.find(new DatabaseException("x")));
+		assertEquals("creditCardError",
+				second.find(new InvalidCreditCardException("1234")));
+	}
+
+	@Test
+	public void usesTheMappingsItIsGiven() {
+		Resolver resolver = new Resolver("DatabaseException", "cached");
+		assertEquals("cached", resolver.find(new DatabaseException("x")));
+
+		// Mappings read by a request before they were changed
+		assertEquals("older", resolver.findMatchingViewName(
+				properties("DatabaseException", "older"),
+				new DatabaseException("x")));
+		assertEquals("cached", resolver.find(new DatabaseException("x")));
+	}
+
+	@Test
+	public void changingTheMappingsForgetsTheViews() {
+		Resolver resolver = new Resolver("DatabaseException", "old");
+		assertEquals("old", resolver.find(new DatabaseException("x")));
+
+		resolver.setExceptionMappings(properties("DatabaseException", "new"));
+		assertEquals(0, resolver.getCachedViewCount());
+		assertEquals("new", resolver.find(new DatabaseException("x")));
+	}
+
+}
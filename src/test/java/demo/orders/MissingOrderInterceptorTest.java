@@ -0,0 +1,102 @@
+package demo.orders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.HandlerMapping;
+
+import demo.exceptions.OrderNotFoundException;
+import demo.metadata.ExceptionMetadata;
+import demo.warmup.WarmUpRequests;
+import demo.warmup.WarmUpTesting;
+
+/**
+ * Checks the {@link MissingOrderInterceptor} answers for orders known to be
+ * missing - but never for warm-up requests, which must not change what it
+ * knows either.
+ *
+ * @author Paul Chapman
+ */
+public class MissingOrderInterceptorTest {
+
+	protected static final String LOOKUP = "/local/orderNotFound";
+
+	MissingOrderCache cache;
+	MissingOrderInterceptor interceptor;
+
+	@BeforeEach
+	public void createInterceptor() {
+		cache = new MissingOrderCache(60000, 100);
+		interceptor = new MissingOrderInterceptor(cache,
+				new DefaultErrorAttributes(), new ExceptionMetadata(
+						OrderNotFoundException.class,
+						AnnotatedElementUtils.findMergedAnnotation(
+								OrderNotFoundException.class,
+								ResponseStatus.class)),
+				Collections.singleton(LOOKUP), "id");
+	}
+
+	@AfterEach
+	public void stopWarmUp() {
+		WarmUpTesting.setRunning(false);
+	}
+
+	protected MockHttpServletRequest lookup(String id, boolean warmUp) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				LOOKUP);
+		request.setParameter("id", id);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+				LOOKUP);
+
+		if (warmUp)
+			request.addHeader(WarmUpRequests.HEADER, "true");
+
+		return request;
+	}
+
+	@Test
+	public void missingOrderIsAnsweredWithoutTheHandler() throws Exception {
+		MockHttpServletRequest request = lookup("42", false);
+		assertTrue(interceptor.preHandle(request,
+				new MockHttpServletResponse(), null));
+		interceptor.afterCompletion(request, new MockHttpServletResponse(),
+				null, new OrderNotFoundException("42"));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertFalse(interceptor.preHandle(lookup("42", false), response, null));
+		assertEquals(404, response.getStatus());
+	}
+
+	@Test
+	public void warmUpRequestsAreIgnored() throws Exception {
+		WarmUpTesting.setRunning(true);
+
+		// Not remembered as missing
+		interceptor.afterCompletion(lookup("42", true),
+				new MockHttpServletResponse(), null,
+				new OrderNotFoundException("42"));
+		assertEquals(0, cache.size());
+
+		// Nor answered from the cache, so the lookup still runs
+		cache.put("43");
+		assertTrue(interceptor.preHandle(lookup("43", true),
+				new MockHttpServletResponse(), null));
+		assertEquals(0, cache.getHits());
+
+		// Real requests still are
+		assertFalse(interceptor.preHandle(lookup("43", false),
+				new MockHttpServletResponse(), null));
+	}
+
+}
@@ -0,0 +1,183 @@
+package demo.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerExceptionResolverComposite;
+
+/**
+ * Checks the routes learned by the {@link RoutingHandlerExceptionResolver}
+ * never change the outcome - only how quickly it is reached.
+ *
+ * @author Paul Chapman
+ */
+public class RoutingHandlerExceptionResolverTest {
+
+	/**
+	 * Handles one exception type, wherever it appears in the cause chain,
+	 * when switched on - and counts how often it is asked.
+	 */
+	static class StubResolver implements HandlerExceptionResolver, Ordered {
+		volatile Class<? extends Throwable> handles;
+		final int order;
+		final ModelAndView mav;
+		volatile boolean enabled = true;
+		int invocations;
+
+		StubResolver(Class<? extends Throwable> handles, int order, String view) {
+			this.handles = handles;
+			this.order = order;
+			this.mav = new ModelAndView(view);
+		}
+
+		@Override
+		public ModelAndView resolveException(HttpServletRequest request,
+				HttpServletResponse response, Object handler, Exception ex) {
+			invocations++;
+
+			if (!enabled)
+				return null;
+
+			for (Throwable t = ex; t != null; t = t.getCause()) {
+				if (handles.isInstance(t))
+					return mav;
+			}
+
+			return null;
+		}
+
+		@Override
+		public int getOrder() {
+			return order;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class OuterException extends RuntimeException {
+		OuterException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class MiddleException extends RuntimeException {
+		MiddleException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	StubResolver first;
+	StubResolver second;
+	StubResolver last;
+	StaticApplicationContext context;
+	RoutingHandlerExceptionResolver router;
+
+	@BeforeEach
+	public void createRouter() {
+		first = new StubResolver(IllegalStateException.class, 1, "first");
+		second = new StubResolver(IllegalArgumentException.class, 2, "second");
+		last = new StubResolver(UnsupportedOperationException.class, 3, "last");
+
+		HandlerExceptionResolverComposite composite = new HandlerExceptionResolverComposite();
+		composite.setExceptionResolvers(Collections
+				.<HandlerExceptionResolver> singletonList(first));
+		composite.setOrder(0);
+
+		context = new StaticApplicationContext();
+		context.getBeanFactory().registerSingleton("second", second);
+		context.getBeanFactory().registerSingleton("last", last);
+		router = new RoutingHandlerExceptionResolver(composite, context);
+		context.getBeanFactory().registerSingleton("handlerExceptionResolver",
+				router);
+		context.refresh();
+	}
+
+	protected ModelAndView resolve(Exception ex) {
+		return router.resolveException(new MockHttpServletRequest("GET", "/test"),
+				new MockHttpServletResponse(), null, ex);
+	}
+
+	@Test
+	public void routesStraightToTheResolverThatHandledItLastTime() {
+		assertSame(last.mav, resolve(new UnsupportedOperationException()));
+		assertEquals(1, first.invocations);
+		assertEquals(1, second.invocations);
+
+		assertSame(last.mav, resolve(new UnsupportedOperationException()));
+		assertEquals(1, first.invocations);
+		assertEquals(1, second.invocations);
+		assertEquals(2, last.invocations);
+		assertEquals(1, router.getRouted());
+		assertEquals(2, router.getSkipped());
+	}
+
+	@Test
+	public void unresolvedExceptionsAlwaysWalkTheChain() {
+		last.enabled = false;
+		assertNull(resolve(new UnsupportedOperationException()));
+		assertNull(resolve(new UnsupportedOperationException()));
+		assertEquals(2, last.invocations);
+
+		// Starts handling it without announcing any change - still found
+		last.enabled = true;
+		assertSame(last.mav, resolve(new UnsupportedOperationException()));
+		assertEquals(0, router.getRouted());
+	}
+
+	@Test
+	public void declinedRouteIsNotAskedAgain() {
+		assertSame(second.mav, resolve(new IllegalArgumentException()));
+		second.enabled = false;
+		second.invocations = 0;
+
+		assertNull(resolve(new IllegalArgumentException()));
+		assertEquals(1, second.invocations);
+		assertEquals(1, router.getFallbacks());
+	}
+
+	@Test
+	public void routesAreKeyedByTheWholeCauseChain() {
+		// Same exception and immediate cause, different root cause
+		Exception toSecond = new OuterException(new MiddleException(
+				new IllegalArgumentException()));
+		Exception toLast = new OuterException(new MiddleException(
+				new UnsupportedOperationException()));
+
+		assertSame(second.mav, resolve(toSecond));
+		assertSame(last.mav, resolve(toLast));
+		assertSame(second.mav, resolve(toSecond));
+		assertSame(last.mav, resolve(toLast));
+		assertEquals(0, router.getFallbacks());
+		assertEquals(2, router.getRoutes().size());
+	}
+
+	@Test
+	public void configurationChangeForgetsRoutes() {
+		assertSame(last.mav, resolve(new UnsupportedOperationException()));
+		assertEquals(1, router.getRoutes().size());
+
+		// An earlier resolver now handles it - and says so
+		second.handles = UnsupportedOperationException.class;
+		context.publishEvent(new ResolverConfigurationChangedEvent(second));
+		assertEquals(0, router.getRoutes().size());
+
+		assertSame(second.mav, resolve(new UnsupportedOperationException()));
+		assertSame(second.mav, resolve(new UnsupportedOperationException()));
+		assertEquals(1, router.getRouted());
+	}
+
+}
@@ -0,0 +1,74 @@
+package demo.scoped;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.main.TestApplication;
+
+/**
+ * Checks the exceptions mapped under <code>/global</code> by
+ * <tt>ScopedMappingConfiguration</tt> are ones the <code>/global</code>
+ * controller really throws and its <tt>@ControllerAdvice</tt> leaves alone -
+ * so the {@link PathScopedExceptionResolver} chooses their page - whether
+ * thrown by the request handler or later, asynchronously.
+ *
+ * @author Paul Chapman
+ */
+public class PathScopedExceptionResolverTest {
+
+	static ConfigurableApplicationContext application;
+
+	@BeforeAll
+	public static void startApplication() {
+		application = TestApplication.start();
+	}
+
+	@AfterAll
+	public static void stopApplication() {
+		application.close();
+	}
+
+	@Test
+	public void globalExceptionsUseTheirScopedViews() throws IOException {
+		assertPage("/global/databaseException", "<h1>Database Error</h1>");
+		assertPage("/global/async/databaseException",
+				"<h1>Database Error</h1>");
+		assertPage("/global/invalidCreditCard", "<h1>Credit Card Error</h1>");
+	}
+
+	protected void assertPage(String path, String heading) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				TestApplication.baseUrl(application) + path).openConnection();
+		connection.setRequestProperty("Accept", "text/html");
+		assertEquals(500, connection.getResponseCode(), path);
+
+		InputStream in = connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+
+			while ((n = in.read(buffer)) != -1)
+				body.write(buffer, 0, n);
+		} finally {
+			in.close();
+		}
+
+		String page = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(page.contains(heading), path + " gave " + page);
+	}
+
+}
@@ -0,0 +1,126 @@
+package demo.scoped;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import demo.exceptions.DatabaseException;
+import demo.exceptions.InvalidCreditCardException;
+import demo.exceptions.OrderNotFoundException;
+
+/**
+ * Checks the {@link PathTrie} matches whole path segments and merges each
+ * prefix's mappings over those of shorter prefixes, and that a
+ * {@link ScopedMappings} remembers the view for each exception class.
+ *
+ * @author Paul Chapman
+ */
+public class PathTrieTest {
+
+	protected static Properties mappings(String... exceptionsAndViews) {
+		Properties mappings = new Properties();
+
+		for (int i = 0; i < exceptionsAndViews.length; i += 2)
+			mappings.setProperty(exceptionsAndViews[i], exceptionsAndViews[i + 1]);
+
+		return mappings;
+	}
+
+	protected static PathTrie trie() {
+		Map<String, Properties> prefixes = new LinkedHashMap<String, Properties>();
+		prefixes.put("/global", mappings("DatabaseException", "databaseError",
+				"InvalidCreditCardException", "creditCardError"));
+		prefixes.put("/global/admin/", mappings("DatabaseException",
+				"adminError", "SQLException", "adminError"));
+		prefixes.put("/throw", mappings("OrderNotFoundException", "orders"));
+		return new PathTrie(prefixes);
+	}
+
+	@Test
+	public void prefixesMatchWholeSegments() {
+		PathTrie trie = trie();
+		assertEquals("/global", trie.find("/global").getPrefix());
+		assertEquals("/global", trie.find("/global/").getPrefix());
+		assertEquals("/global", trie.find("/global/databaseError1").getPrefix());
+		assertEquals("/global", trie.find("//global//x").getPrefix());
+
+		assertNull(trie.find("/globalSettings"));
+		assertNull(trie.find("/glob"));
+		assertNull(trie.find("/local/global"));
+		assertNull(trie.find("/"));
+		assertNull(trie.find(""));
+	}
+
+	@Test
+	public void longestPrefixWins() {
+		PathTrie trie = trie();
+		assertEquals("/global/admin", trie.find("/global/admin").getPrefix());
+		assertEquals("/global/admin", trie.find("/global/admin/users/1")
+				.getPrefix());
+
+		// An unconfigured segment below a prefix still uses the prefix
+		assertEquals("/global", trie.find("/global/administrator").getPrefix());
+		assertSame(trie.find("/global/a"), trie.find("/global/b"));
+		assertEquals(3, trie.getScopes().size());
+	}
+
+	@Test
+	public void longerPrefixesInheritAndOverride() {
+		PathTrie trie = trie();
+		ScopedMappings global = trie.find("/global/x");
+		ScopedMappings admin = trie.find("/global/admin/x");
+
+		assertEquals("databaseError", global.getView(DatabaseException.class));
+		assertNull(global.getView(SQLException.class));
+
+		assertEquals("adminError", admin.getView(DatabaseException.class));
+		assertEquals("adminError", admin.getView(SQLException.class));
+		assertEquals("creditCardError",
+				admin.getView(InvalidCreditCardException.class));
+
+		// Siblings share nothing
+		assertNull(global.getView(OrderNotFoundException.class));
+		assertEquals("orders", trie.find("/throw/x").getView(
+				OrderNotFoundException.class));
+	}
+
+	@Test
+	public void rootPrefixAppliesEverywhere() {
+		Map<String, Properties> prefixes = new LinkedHashMap<String, Properties>();
+		prefixes.put("/", mappings("DatabaseException", "databaseError"));
+		prefixes.put("/global", mappings("OrderNotFoundException", "orders"));
+		PathTrie trie = new PathTrie(prefixes);
+
+		assertEquals("/", trie.find("/anything").getPrefix());
+		assertEquals("/", trie.find("").getPrefix());
+		assertEquals("databaseError", trie.find("/global/x").getView(
+				DatabaseException.class));
+	}
+
+	@Test
+	public void viewIsRememberedForEachClass() {
+		ScopedMappings scope = new ScopedMappings("/global", mappings(
+				"DatabaseException", "databaseError"));
+		assertEquals("databaseError", scope.getView(DatabaseException.class));
+		assertNull(scope.getView(SQLException.class));
+
+		// Changing the mappings afterwards makes no difference - both answers,
+		// including "none", were remembered
+		scope.getMappings().setProperty("DatabaseException", "changed");
+		scope.getMappings().setProperty("SQLException", "changed");
+		assertEquals("databaseError", scope.getView(DatabaseException.class));
+		assertNull(scope.getView(SQLException.class));
+
+		// But a class not seen before is looked up
+		assertEquals("changed", scope.getView(SQLTimeoutException.class));
+	}
+
+}
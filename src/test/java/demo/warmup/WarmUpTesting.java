@@ -0,0 +1,18 @@
+package demo.warmup;
+
+/**
+ * Lets tests in other packages pretend the warm-up is running, so requests
+ * sending {@link WarmUpRequests#HEADER} count as warm-up requests.
+ *
+ * @author Paul Chapman
+ */
+public final class WarmUpTesting {
+
+	private WarmUpTesting() {
+	}
+
+	public static void setRunning(boolean running) {
+		WarmUpRequests.setRunning(running);
+	}
+
+}
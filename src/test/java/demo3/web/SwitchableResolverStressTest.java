@@ -0,0 +1,238 @@
+package demo3.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import demo.exceptions.DatabaseException;
+
+/**
+ * Stress tests, in the style of jcstress, for changing the
+ * {@link SwitchableSimpleMappingExceptionResolver} while requests are being
+ * resolved. One thread keeps changing the configuration while the others
+ * keep resolving exceptions. Every resolution is an observation, counted by
+ * outcome, and some outcomes are forbidden - they would mean a request saw
+ * part of one configuration and part of another, or a configuration that had
+ * already been replaced.
+ * <p>
+ * Each test runs for {@link #MILLIS} milliseconds, so it cannot prove the
+ * forbidden outcomes never happen - but they did happen, within a few
+ * milliseconds, before the configuration was one immutable snapshot.
+ *
+ * @author Paul Chapman
+ */
+public class SwitchableResolverStressTest {
+
+	protected static final long MILLIS = 1000;
+	protected static final int READERS = Math.max(2, Runtime.getRuntime()
+			.availableProcessors());
+
+	/** No view - the resolver did not handle the exception. */
+	protected static final String NONE = "(none)";
+
+	protected final DatabaseException exception = new DatabaseException(
+			"Database not found: info.db");
+
+	/** Counts of each outcome seen. */
+	protected final ConcurrentMap<String, AtomicLong> outcomes = new ConcurrentHashMap<String, AtomicLong>();
+
+	static Properties mappings(String view) {
+		Properties mappings = new Properties();
+		mappings.setProperty("DatabaseException", view);
+		return mappings;
+	}
+
+	protected SwitchableSimpleMappingExceptionResolver createResolver() {
+		SwitchableSimpleMappingExceptionResolver resolver = new SwitchableSimpleMappingExceptionResolver(
+				true);
+		resolver.setExceptionMappings(mappings("a"));
+		resolver.addStatusCode("a", 501);
+		resolver.addStatusCode("b", 502);
+		return resolver;
+	}
+
+	/**
+	 * @return The view and status, such as <code>a 501</code>.
+	 */
+	protected String resolve(SwitchableSimpleMappingExceptionResolver resolver) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = resolver.resolveException(
+				new MockHttpServletRequest("GET", "/throw/databaseException"),
+				response, null, exception);
+		return mav == null ? NONE : mav.getViewName() + ' '
+				+ response.getStatus();
+	}
+
+	@Test
+	public void switchingAndRemappingAreOneChange() throws Exception {
+		final SwitchableSimpleMappingExceptionResolver resolver = createResolver();
+		final Properties on = mappings("a");
+		final Properties off = mappings("b");
+
+		stress(new Runnable() {
+			boolean enabled;
+
+			@Override
+			public void run() {
+				enabled = !enabled;
+				resolver.setConfiguration(enabled, enabled ? on : off);
+			}
+		}, () -> resolve(resolver));
+
+		// Never "b 502": the mappings for when it is off, while it is on
+		assertOutcomes("a 501", NONE);
+	}
+
+	@Test
+	public void remappingNeverMixesViews() throws Exception {
+		final SwitchableSimpleMappingExceptionResolver resolver = createResolver();
+		final Properties a = mappings("a");
+		final Properties b = mappings("b");
+
+		stress(new Runnable() {
+			boolean toA;
+
+			@Override
+			public void run() {
+				toA = !toA;
+				resolver.setExceptionMappings(toA ? a : b);
+			}
+		}, () -> resolve(resolver));
+
+		// Each view always has its own status code, and always has a view
+		assertOutcomes("a 501", "b 502");
+
+		// A view cached from replaced mappings is never used again
+		resolver.setExceptionMappings(b);
+		assertEquals("b 502", resolve(resolver));
+		resolver.setExceptionMappings(a);
+		assertEquals("a 501", resolve(resolver));
+	}
+
+	@Test
+	public void switchIsSeenByEveryLaterRequest() throws Exception {
+		final SwitchableSimpleMappingExceptionResolver resolver = createResolver();
+
+		// A sequence lock: odd while the writer is changing the state, so an
+		// observation is only checked if no change overlapped it. After k
+		// changes the resolver is enabled if k is even.
+		final AtomicLong sequence = new AtomicLong();
+
+		stress(new Runnable() {
+			@Override
+			public void run() {
+				long changes = sequence.incrementAndGet() / 2;
+				resolver.setEnabled((changes + 1) % 2 == 0);
+				sequence.incrementAndGet();
+			}
+		}, () -> {
+			long before = sequence.get();
+			String result = resolve(resolver);
+
+			if (before % 2 == 1 || sequence.get() != before)
+				return "changed while resolving";
+
+			boolean enabled = (before / 2) % 2 == 0;
+			return (enabled ? "enabled: " : "disabled: ") + result;
+		});
+
+		assertOutcomes("enabled: a 501", "disabled: " + NONE,
+				"changed while resolving");
+	}
+
+	/**
+	 * Run the writer repeatedly on one thread and the observation repeatedly
+	 * on {@link #READERS} others, counting each outcome.
+	 */
+	protected void stress(final Runnable writer,
+			final Callable<String> observation) throws Exception {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[READERS + 1];
+
+		threads[0] = new Thread(() -> {
+			try {
+				while (running.get())
+					writer.run();
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			}
+		}, "writer");
+
+		for (int i = 1; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				try {
+					while (running.get())
+						count(observation.call());
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}, "reader-" + i);
+		}
+
+		for (Thread thread : threads)
+			thread.start();
+
+		Thread.sleep(MILLIS);
+		running.set(false);
+
+		for (Thread thread : threads)
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+
+		if (failure.get() != null)
+			throw new AssertionError("Stress thread failed", failure.get());
+	}
+
+	protected void count(String outcome) {
+		AtomicLong count = outcomes.get(outcome);
+
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+			count = outcomes.putIfAbsent(outcome, newCount);
+
+			if (count == null)
+				count = newCount;
+		}
+
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Fail if any outcome other than those given was seen.
+	 */
+	protected void assertOutcomes(String... acceptable) {
+		Set<String> forbidden = new HashSet<String>(outcomes.keySet());
+		forbidden.removeAll(Arrays.asList(acceptable));
+		assertTrue(forbidden.isEmpty(), "Forbidden outcomes " + forbidden
+				+ " in " + new TreeMap<String, AtomicLong>(outcomes));
+		assertTrue(total() > 0, "Nothing was observed");
+	}
+
+	protected long total() {
+		long total = 0;
+
+		for (Map.Entry<String, AtomicLong> entry : outcomes.entrySet())
+			total += entry.getValue().get();
+
+		return total;
+	}
+
+}